@@ -17,12 +17,41 @@ public class Arrays {
         return copy;
     }
 
+    public static int[] copyOf(int[] original, int newLength) {
+        int[] copy = new int[newLength];
+        System.arraycopy(original, 0, copy, 0,
+                Math.min(original.length, newLength));
+        return copy;
+    }
+
+    public static byte[] copyOf(byte[] original, int newLength) {
+        byte[] copy = new byte[newLength];
+        System.arraycopy(original, 0, copy, 0,
+                Math.min(original.length, newLength));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T[] copyOf(T[] original, int newLength) {
+        T[] copy = (T[]) java.lang.reflect.Array.newInstance(original.getClass().getComponentType(), newLength);
+        System.arraycopy(original, 0, copy, 0,
+                Math.min(original.length, newLength));
+        return copy;
+    }
+
     public static String[] copyOfRange(String[] original, int from, int to) {
         int length = to - from;
         String[] copy = new String[length];
         System.arraycopy(original, from, copy, 0, length);
         return copy;
     }
+
+    public static byte[] copyOfRange(byte[] original, int from, int to) {
+        int length = to - from;
+        byte[] copy = new byte[length];
+        System.arraycopy(original, from, copy, 0, length);
+        return copy;
+    }
     ////// Delegates
 
     public static void sort(long[] longs) {
@@ -91,6 +91,8 @@ final class NTUtils {
             if (!readOnly) {
                 throw new RuntimeException("Modifiable arrays are not supported by this function");
             }
+    	// copy-on-write, the arrays are wrapped below, not copied
+    	scalarArray.share();
     	int len = scalarArray.getLength();
 		ScalarType elementType = scalarArray.getScalarArray().getElementType();
 		switch (elementType)
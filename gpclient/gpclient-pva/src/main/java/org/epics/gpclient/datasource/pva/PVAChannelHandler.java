@@ -9,6 +9,7 @@ import org.epics.gpclient.WriteCollector.WriteRequest;
 import org.epics.gpclient.datasource.MultiplexedChannelHandler;
 import org.epics.pvaccess.client.*;
 import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvdata.copy.CompiledRequest;
 import org.epics.pvdata.copy.CreateRequest;
 import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.factory.PVDataFactory;
@@ -60,10 +61,9 @@ class PVAChannelHandler extends
 
 	private static final Logger logger = Logger.getLogger(PVAChannelHandler.class.getName());
 
-	private static CreateRequest createRequest = CreateRequest.create();
-	private static PVStructure allPVRequest = createRequest.createRequest("field()");
-	private static PVStructure standardPutPVRequest = createRequest.createRequest("field(value)");
-	private static PVStructure enumPutPVRequest = createRequest.createRequest("field(value.index)");
+	private static PVStructure allPVRequest = CreateRequest.compile("field()").createPVRequest();
+	private static PVStructure standardPutPVRequest = CreateRequest.compile("field(value)").createPVRequest();
+	private static PVStructure enumPutPVRequest = CreateRequest.compile("field(value.index)").createPVRequest();
 
 	private static final String PVREQUEST_PREFIX = "?request=";
 	private final PVStructure pvRequest;
@@ -91,7 +91,7 @@ class PVAChannelHandler extends
 			ChannelProvider channelProvider, short priority,
 			PVATypeSupport typeSupport) {
 		super(channelName);
-		this.pvRequest = (pvRequestString != null) ? createRequest.createRequest(pvRequestString) : null;
+		this.pvRequest = (pvRequestString != null) ? createPVRequest(channelName, pvRequestString) : null;
 		this.pvaChannelProvider = channelProvider;
 		this.priority = priority;
 		this.pvaTypeSupport = typeSupport;
@@ -107,6 +107,14 @@ class PVAChannelHandler extends
 		// NOTE: mind "return" above
 	}
 
+	private static PVStructure createPVRequest(String channelName, String pvRequestString) {
+		// parsed requests are cached, channels with the same request do not parse it again
+		CompiledRequest compiledRequest = CreateRequest.compile(pvRequestString);
+		if (!compiledRequest.isValid())
+			logger.log(Level.WARNING, "Invalid pvRequest '" + pvRequestString + "' for channel '" + channelName + "': " + compiledRequest.getMessage());
+		return compiledRequest.createPVRequest();
+	}
+
 	private static final String _OPTIONS = "_options";
 	private static final String TAKE_PARENT = _OPTIONS;
 	private static final String getOnlyChildFieldName(PVStructure field)
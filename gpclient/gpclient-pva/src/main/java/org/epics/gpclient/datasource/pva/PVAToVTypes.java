@@ -370,6 +370,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVDoubleArray) {
             PVDoubleArray valueField = (PVDoubleArray) pvField;
             DoubleArrayData data = new DoubleArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VDoubleArray.of(ArrayDouble.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -385,6 +386,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVFloatArray) {
             PVFloatArray valueField = (PVFloatArray) pvField;
             FloatArrayData data = new FloatArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VFloatArray.of(ArrayFloat.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -400,6 +402,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVULongArray) {
             PVULongArray valueField = (PVULongArray) pvField;
             LongArrayData data = new LongArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VULongArray.of(ArrayULong.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -415,6 +418,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVLongArray) {
             PVLongArray valueField = (PVLongArray) pvField;
             LongArrayData data = new LongArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VLongArray.of(ArrayLong.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -430,6 +434,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVUIntArray) {
             PVUIntArray valueField = (PVUIntArray) pvField;
             IntArrayData data = new IntArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VUIntArray.of(ArrayUInteger.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -445,6 +450,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVIntArray) {
             PVIntArray valueField = (PVIntArray) pvField;
             IntArrayData data = new IntArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VIntArray.of(ArrayInteger.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -460,6 +466,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVUShortArray) {
             PVUShortArray valueField = (PVUShortArray) pvField;
             ShortArrayData data = new ShortArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VUShortArray.of(ArrayUShort.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -475,6 +482,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVShortArray) {
             PVShortArray valueField = (PVShortArray) pvField;
             ShortArrayData data = new ShortArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VShortArray.of(ArrayShort.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -490,6 +498,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVUByteArray) {
             PVUByteArray valueField = (PVUByteArray) pvField;
             ByteArrayData data = new ByteArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VUByteArray.of(ArrayUByte.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -505,6 +514,7 @@ public class PVAToVTypes {
         if (pvField instanceof PVByteArray) {
             PVByteArray valueField = (PVByteArray) pvField;
             ByteArrayData data = new ByteArrayData();
+            valueField.share();
             valueField.get(0, valueField.getLength(), data);
             return VByteArray.of(ArrayByte.of(data.data), alarmOf(pvMetadata, disconnected), timeOf(pvMetadata), displayOf(pvMetadata));
         } else {
@@ -528,6 +538,7 @@ public class PVAToVTypes {
         PVStringArray choicesField = (enumStructure != null) ? (PVStringArray) enumStructure.getScalarArrayField("choices", ScalarType.pvString) : null;
         if (choicesField != null) {
             StringArrayData data = new StringArrayData();
+            choicesField.share();
             choicesField.get(0, choicesField.getLength(), data);
             choices = Arrays.asList(data.data);
         } else {
@@ -4,6 +4,7 @@
  */
 package org.epics.nt;
 
+import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.property.PVAlarm;
 import org.epics.pvdata.property.PVDisplay;
 import org.epics.pvdata.property.PVTimeStamp;
@@ -394,7 +395,7 @@ public class NTNDArray
         PVStructureArray pvDim = getDimension();
 
         if (pvDim.getLength() != 0) {
-            size = getValueTypeSize();
+            size = getUncompressedTypeSize();
             StructureArrayData data = new StructureArrayData();
             pvDim.get(0, pvDim.getLength(), data);
             for (PVStructure dim : data.data) {
@@ -415,40 +416,54 @@ public class NTNDArray
     }
 
     private int getValueTypeSize() {
-        int typeSize = 0;
         PVScalarArray storedValue = getValue().get(PVScalarArray.class);
-        if (storedValue != null) {
-            switch (storedValue.getScalarArray().getElementType()) {
-                case pvBoolean:
-                case pvByte:
-                case pvUByte:
-                    typeSize = 1;
-                    break;
-
-                case pvShort:
-                case pvUShort:
-                    typeSize = 2;
-                    break;
-
-                case pvInt:
-                case pvUInt:
-                case pvFloat:
-                    typeSize = 4;
-                    break;
-
-                case pvLong:
-                case pvULong:
-                case pvDouble:
-                    typeSize = 8;
-                    break;
-
-                default:
-                    break;
+        if (storedValue == null)
+            return 0;
+        return getTypeSize(storedValue.getScalarArray().getElementType());
+    }
+
+    // compressed data is stored as bytes, the type of the uncompressed
+    // elements is the ScalarType (as an int) in codec.parameters
+    private int getUncompressedTypeSize() {
+        PVStructure codec = getCodec();
+        if (!codec.getSubField(PVString.class, "name").get().equals("")) {
+            PVScalar type = codec.getSubField(PVUnion.class, "parameters").get(PVScalar.class);
+            if (type != null && type.getScalar().getScalarType().isInteger()) {
+                int ordinal = convert.toInt(type);
+                if (ordinal >= 0 && ordinal < ScalarType.values().length)
+                    return getTypeSize(ScalarType.values()[ordinal]);
             }
         }
-        return typeSize;
+        return getValueTypeSize();
+    }
+
+    private static int getTypeSize(ScalarType scalarType) {
+        switch (scalarType) {
+            case pvBoolean:
+            case pvByte:
+            case pvUByte:
+                return 1;
+
+            case pvShort:
+            case pvUShort:
+                return 2;
+
+            case pvInt:
+            case pvUInt:
+            case pvFloat:
+                return 4;
+
+            case pvLong:
+            case pvULong:
+            case pvDouble:
+                return 8;
+
+            default:
+                return 0;
+        }
     }
 
+    private static final Convert convert = ConvertFactory.getConvert();
     static final String NTAttributeURI = "epics:nt/NTAttribute:1.0";
     private PVStructure pvNTNDArray;
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The "deflate" codec, which encodes each block in the zlib format with java.util.zip.
+ * Each thread reuses its own Deflater and Inflater.
+ */
+public class DeflateCodec implements NTNDArrayCodec {
+    /**
+     * The name of the codec.
+     */
+    public static final String NAME = "deflate";
+
+    private final int level;
+
+    private final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>() {
+        protected Deflater initialValue() {
+            return new Deflater(level);
+        }
+    };
+
+    private final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>() {
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    /**
+     * Constructor for Deflater.BEST_SPEED. Higher levels are much slower and hardly compress
+     * the noise in the low bits of detector data any better.
+     */
+    public DeflateCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Constructor.
+     * @param level the compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION.
+     */
+    public DeflateCodec(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("invalid compression level " + level);
+        this.level = level;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#getName()
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#getMaxEncodedLength(int)
+     */
+    public int getMaxEncodedLength(int length) {
+        // the bound of zlib's compressBound
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#encode(byte[], int, int, byte[], int, int)
+     */
+    public int encode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int elementSize) {
+        Deflater deflater = this.deflater.get();
+        deflater.reset();
+        deflater.setInput(source, sourceOffset, length);
+        deflater.finish();
+        final int end = destinationOffset + getMaxEncodedLength(length);
+        int offset = destinationOffset;
+        while (!deflater.finished()) {
+            if (offset == end)
+                throw new IllegalStateException("encoded block is larger than " + getMaxEncodedLength(length));
+            offset += deflater.deflate(destination, offset, end - offset);
+        }
+        return offset - destinationOffset;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#decode(byte[], int, int, byte[], int, int, int)
+     */
+    public void decode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int decodedLength, int elementSize) {
+        Inflater inflater = this.inflater.get();
+        inflater.reset();
+        inflater.setInput(source, sourceOffset, length);
+        int offset = destinationOffset;
+        final int end = destinationOffset + decodedLength;
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(destination, offset, end - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || offset == end))
+                    break;
+                offset += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("invalid deflate block: " + e.getMessage());
+        }
+        if (!inflater.finished() || offset != end)
+            throw new IllegalArgumentException("deflate block does not decode to " + decodedLength + " bytes");
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.util.Arrays;
+
+/**
+ * Compression and decompression of the LZ4 block format.
+ * <p>
+ * A block is a sequence of a token, literals and a match. The token holds the number of literals in its high
+ * 4 bits and the length of the match, less MIN_MATCH, in its low 4 bits. A length of 15 is followed by
+ * bytes that are added to it, up to a byte that is not 255. The match is a 2 byte little endian offset
+ * back from the current position. The last sequence of a block has only literals.
+ */
+class LZ4Block {
+    private static final int MIN_MATCH = 4;
+    // the last match must start at least MF_LIMIT bytes before the end of the block
+    private static final int MF_LIMIT = 12;
+    // the last LAST_LITERALS bytes of a block are literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 0xffff;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * Get the maximum length of a compressed block.
+     * @param length the length of the block.
+     * @return the maximum length.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Create the hash table that compress uses.
+     * @return the hash table.
+     */
+    static int[] createHashTable() {
+        return new int[1 << HASH_LOG];
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8)
+            | ((data[offset + 2] & 0xff) << 16) | ((data[offset + 3] & 0xff) << 24);
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeLength(int length, byte[] destination, int offset) {
+        while (length >= 255) {
+            destination[offset++] = (byte)255;
+            length -= 255;
+        }
+        destination[offset++] = (byte)length;
+        return offset;
+    }
+
+    private static int writeLiterals(byte[] source, int anchor, int length, byte[] destination, int offset) {
+        int token = offset++;
+        if (length >= 15) {
+            destination[token] = (byte)(15 << 4);
+            offset = writeLength(length - 15, destination, offset);
+        } else {
+            destination[token] = (byte)(length << 4);
+        }
+        System.arraycopy(source, anchor, destination, offset, length);
+        return offset + length;
+    }
+
+    /**
+     * Compress a block.
+     * @param source the data.
+     * @param sourceOffset the offset of the block in source.
+     * @param length the length of the block.
+     * @param destination the buffer for the compressed block, with space for maxCompressedLength(length) bytes.
+     * @param destinationOffset the offset in destination.
+     * @param hashTable a hash table from createHashTable, which must not be used concurrently.
+     * @return the length of the compressed block.
+     */
+    static int compress(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int[] hashTable) {
+        final int sourceEnd = sourceOffset + length;
+        final int matchStartLimit = sourceEnd - MF_LIMIT;
+        final int matchEndLimit = sourceEnd - LAST_LITERALS;
+        int ip = sourceOffset;
+        int anchor = sourceOffset;
+        int op = destinationOffset;
+
+        if (length > MF_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            int searchCount = 1 << SKIP_STRENGTH;
+            while (ip < matchStartLimit) {
+                int sequence = readInt(source, ip);
+                int h = hash(sequence);
+                int ref = hashTable[h];
+                hashTable[h] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(source, ref) != sequence) {
+                    // skip faster through data that does not compress
+                    ip += searchCount++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+                searchCount = 1 << SKIP_STRENGTH;
+
+                // extend the match backwards and forwards
+                while (ip > anchor && ref > sourceOffset && source[ip - 1] == source[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchEndLimit && source[ip + matchLength] == source[ref + matchLength])
+                    matchLength++;
+
+                int literalLength = ip - anchor;
+                int token = op;
+                op = writeLiterals(source, anchor, literalLength, destination, op);
+                int offset = ip - ref;
+                destination[op++] = (byte)offset;
+                destination[op++] = (byte)(offset >>> 8);
+                int extra = matchLength - MIN_MATCH;
+                if (extra >= 15) {
+                    destination[token] |= 15;
+                    op = writeLength(extra - 15, destination, op);
+                } else {
+                    destination[token] |= (byte)extra;
+                }
+
+                ip += matchLength;
+                anchor = ip;
+                if (ip < matchStartLimit)
+                    hashTable[hash(readInt(source, ip - 2))] = ip - 2;
+            }
+        }
+        op = writeLiterals(source, anchor, sourceEnd - anchor, destination, op);
+        return op - destinationOffset;
+    }
+
+    /**
+     * Decompress a block.
+     * @param source the compressed data.
+     * @param sourceOffset the offset of the compressed block in source.
+     * @param length the length of the compressed block.
+     * @param destination the buffer for the decompressed block.
+     * @param destinationOffset the offset in destination.
+     * @param decompressedLength the length of the decompressed block.
+     * @throws IllegalArgumentException if the compressed block is not valid.
+     */
+    static void decompress(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int decompressedLength) {
+        final int sourceEnd = sourceOffset + length;
+        final int destinationEnd = destinationOffset + decompressedLength;
+        int ip = sourceOffset;
+        int op = destinationOffset;
+        while (true) {
+            if (ip >= sourceEnd)
+                throw new IllegalArgumentException("truncated lz4 block");
+            int token = source[ip++] & 0xff;
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (ip >= sourceEnd)
+                        throw new IllegalArgumentException("truncated lz4 block");
+                    b = source[ip++] & 0xff;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > sourceEnd - ip || literalLength > destinationEnd - op)
+                throw new IllegalArgumentException("invalid lz4 literal length " + literalLength);
+            System.arraycopy(source, ip, destination, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            if (ip == sourceEnd)
+                break;
+
+            if (sourceEnd - ip < 2)
+                throw new IllegalArgumentException("truncated lz4 block");
+            int offset = (source[ip] & 0xff) | ((source[ip + 1] & 0xff) << 8);
+            ip += 2;
+            int ref = op - offset;
+            if (offset == 0 || ref < destinationOffset)
+                throw new IllegalArgumentException("invalid lz4 match offset " + offset);
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= sourceEnd)
+                        throw new IllegalArgumentException("truncated lz4 block");
+                    b = source[ip++] & 0xff;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destinationEnd - op)
+                throw new IllegalArgumentException("invalid lz4 match length " + matchLength);
+            if (offset >= matchLength) {
+                System.arraycopy(destination, ref, destination, op, matchLength);
+                op += matchLength;
+            } else {
+                // the match overlaps the bytes it writes
+                final int end = op + matchLength;
+                while (op < end)
+                    destination[op++] = destination[ref++];
+            }
+        }
+        if (op != destinationEnd)
+            throw new IllegalArgumentException("lz4 block does not decompress to " + decompressedLength + " bytes");
+    }
+}
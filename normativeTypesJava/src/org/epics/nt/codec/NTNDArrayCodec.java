@@ -0,0 +1,57 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+/**
+ * A compression codec for the value of an NTNDArray.
+ * <p>
+ * A codec compresses and decompresses one block of bytes at a time, into a buffer provided by the caller.
+ * NTNDArrayCompressor splits the data into blocks, which are compressed in parallel,
+ * so the methods of a codec can be called concurrently from several threads.
+ * Codecs are registered with NTNDArrayCodecFactory and found by the codec name of the NTNDArray.
+ *
+ * @see NTNDArrayCodecFactory
+ * @see NTNDArrayCompressor
+ */
+public interface NTNDArrayCodec {
+    /**
+     * Get the name of the codec, which is the value of codec.name of a compressed NTNDArray.
+     * @return the name.
+     */
+    String getName();
+
+    /**
+     * Get the maximum size of an encoded block.
+     * @param length the length of the block.
+     * @return the maximum number of bytes encode can write for the block.
+     */
+    int getMaxEncodedLength(int length);
+
+    /**
+     * Encode a block.
+     * @param source the data to encode.
+     * @param sourceOffset the offset of the block in source.
+     * @param length the length of the block.
+     * @param destination the buffer for the encoded block.
+     * @param destinationOffset the offset in destination.
+     * The destination must have space for getMaxEncodedLength(length) bytes.
+     * @param elementSize the size in bytes of the elements of the data, which some codecs use to rearrange it.
+     * @return the length of the encoded block.
+     */
+    int encode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int elementSize);
+
+    /**
+     * Decode a block.
+     * @param source the encoded data.
+     * @param sourceOffset the offset of the encoded block in source.
+     * @param length the length of the encoded block.
+     * @param destination the buffer for the decoded block.
+     * @param destinationOffset the offset in destination.
+     * @param decodedLength the length of the decoded block.
+     * @param elementSize the size in bytes of the elements of the data, as given to encode.
+     * @throws IllegalArgumentException if the encoded block is not valid.
+     */
+    void decode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int decodedLength, int elementSize);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of the NTNDArray codecs.
+ * The codecs "deflate" (DeflateCodec) and "shuffle-lz4" (ShuffleLZ4Codec) are always registered.
+ */
+public class NTNDArrayCodecFactory {
+    private static final Map<String, NTNDArrayCodec> codecs = new LinkedHashMap<String, NTNDArrayCodec>();
+
+    static {
+        register(new DeflateCodec());
+        register(new ShuffleLZ4Codec());
+    }
+
+    /**
+     * Register a codec. A codec with the same name replaces the one registered before.
+     * @param codec the codec.
+     */
+    public static synchronized void register(NTNDArrayCodec codec) {
+        if (codec == null)
+            throw new IllegalArgumentException("codec is null");
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * Get a codec.
+     * @param name the name of the codec.
+     * @return the codec or null if no codec with this name is registered.
+     */
+    public static synchronized NTNDArrayCodec getCodec(String name) {
+        return codecs.get(name);
+    }
+
+    /**
+     * Get the names of the registered codecs.
+     * @return the names in the order the codecs were registered.
+     */
+    public static synchronized String[] getNames() {
+        return codecs.keySet().toArray(new String[codecs.size()]);
+    }
+}
@@ -0,0 +1,605 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.epics.nt.NTNDArray;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.*;
+
+/**
+ * Compresses and decompresses the value of an NTNDArray with an NTNDArrayCodec.
+ * <p>
+ * The value is converted to little endian bytes, which are split into blocks that are encoded
+ * independently, in parallel. A block that does not get smaller is stored as is.
+ * The compressed value is a ubyte array of the encoded length and block size (as little endian ints),
+ * followed by each block as its encoded length (a little endian int) and its bytes.
+ * A compressed NTNDArray has the name of the codec in codec.name, the ScalarType of the uncompressed value
+ * (as an int) in codec.parameters, the length of the compressed value in compressedSize
+ * and the length of the uncompressed bytes in uncompressedSize.
+ * <p>
+ * The buffers are kept and reused, so an NTNDArrayCompressor must not be used by several threads at a time.
+ */
+public class NTNDArrayCompressor {
+    /**
+     * The default block size.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int BLOCK_HEADER_SIZE = 4;
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int blockSize;
+
+    // reused from one call to the next
+    private byte[] bytes = new byte[0];
+    private byte[] encoded = new byte[0];
+    private byte[] encodedBlocks = new byte[0];
+    private int[] blockOffsets = new int[0];
+    private int[] blockLengths = new int[0];
+    private final List<BlockTask> tasks = new ArrayList<BlockTask>();
+
+    // the arguments of the current encode or decode, for the tasks
+    private NTNDArrayCodec codec;
+    private byte[] source;
+    private int sourceOffset;
+    private int length;
+    private byte[] destination;
+    private int destinationOffset;
+    private int elementSize;
+    private int dataBlockSize;
+    private int maxEncodedBlockLength;
+
+    private class BlockTask implements Callable<Object> {
+        private final int block;
+        private boolean encode;
+
+        BlockTask(int block) {
+            this.block = block;
+        }
+
+        public Object call() {
+            if (encode)
+                encodeBlock(block);
+            else
+                decodeBlock(block);
+            return null;
+        }
+    }
+
+    /**
+     * Constructor for a thread for each processor and the default block size.
+     */
+    public NTNDArrayCompressor() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * @param threads the number of threads that encode and decode blocks.
+     * With 1 the blocks are encoded and decoded by the caller.
+     * @param blockSize the block size.
+     */
+    public NTNDArrayCompressor(int threads, int blockSize) {
+        this(threads > 1 ? Executors.newFixedThreadPool(threads) : null, blockSize, true);
+    }
+
+    /**
+     * Constructor for a shared executor, which destroy does not shut down.
+     * @param executor the executor that encodes and decodes blocks.
+     * @param blockSize the block size.
+     */
+    public NTNDArrayCompressor(ExecutorService executor, int blockSize) {
+        this(executor, blockSize, false);
+    }
+
+    private NTNDArrayCompressor(ExecutorService executor, int blockSize, boolean ownExecutor) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("blockSize must be > 0");
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Shut down the threads of this compressor.
+     */
+    public void destroy() {
+        if (ownExecutor && executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Get the block size.
+     * @return the block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    private int getNumberBlocks(int length) {
+        return (int)(((long)length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * Get the maximum length of encoded data.
+     * @param length the length of the data.
+     * @return the maximum number of bytes that encode writes.
+     */
+    public int getMaxEncodedLength(int length) {
+        return HEADER_SIZE + getNumberBlocks(length) * BLOCK_HEADER_SIZE + length;
+    }
+
+    /**
+     * Get the length of data when it is decoded.
+     * @param source the encoded data.
+     * @param sourceOffset the offset of the encoded data in source.
+     * @return the decoded length.
+     */
+    public static int getDecodedLength(byte[] source, int sourceOffset) {
+        return getInt(source, sourceOffset);
+    }
+
+    /**
+     * Encode data.
+     * @param codec the codec.
+     * @param source the data.
+     * @param sourceOffset the offset of the data in source.
+     * @param length the length of the data.
+     * @param destination the buffer for the encoded data, with space for getMaxEncodedLength(length) bytes.
+     * @param destinationOffset the offset in destination.
+     * @param elementSize the size in bytes of the elements of the data.
+     * @return the length of the encoded data.
+     */
+    public int encode(NTNDArrayCodec codec, byte[] source, int sourceOffset, int length,
+            byte[] destination, int destinationOffset, int elementSize) {
+        final int blocks = getNumberBlocks(length);
+        maxEncodedBlockLength = codec.getMaxEncodedLength(Math.min(blockSize, length));
+        final long encodedBlocksLength = (long)blocks * maxEncodedBlockLength;
+        if (encodedBlocksLength > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("length " + length + " is too large for block size " + blockSize);
+        if (encodedBlocks.length < encodedBlocksLength)
+            encodedBlocks = new byte[(int)encodedBlocksLength];
+        if (blockLengths.length < blocks)
+            blockLengths = new int[blocks];
+
+        set(codec, source, sourceOffset, length, destination, destinationOffset, elementSize);
+        dataBlockSize = blockSize;
+        try {
+            run(blocks, true);
+        } finally {
+            set(null, null, 0, 0, null, 0, 0);
+        }
+
+        int offset = destinationOffset;
+        putInt(destination, offset, length);
+        putInt(destination, offset + 4, blockSize);
+        offset += HEADER_SIZE;
+        for (int block = 0; block < blocks; block++) {
+            final int blockLength = blockLengths[block];
+            putInt(destination, offset, blockLength);
+            offset += BLOCK_HEADER_SIZE;
+            if (blockLength == Math.min(blockSize, length - block * blockSize))
+                System.arraycopy(source, sourceOffset + block * blockSize, destination, offset, blockLength);
+            else
+                System.arraycopy(encodedBlocks, block * maxEncodedBlockLength, destination, offset, blockLength);
+            offset += blockLength;
+        }
+        return offset - destinationOffset;
+    }
+
+    /**
+     * Decode data.
+     * @param codec the codec.
+     * @param source the encoded data.
+     * @param sourceOffset the offset of the encoded data in source.
+     * @param length the length of the encoded data.
+     * @param destination the buffer for the decoded data, with space for getDecodedLength bytes.
+     * @param destinationOffset the offset in destination.
+     * @param elementSize the size in bytes of the elements of the data, as given to encode.
+     * @return the length of the decoded data.
+     * @throws IllegalArgumentException if the encoded data is not valid.
+     */
+    public int decode(NTNDArrayCodec codec, byte[] source, int sourceOffset, int length,
+            byte[] destination, int destinationOffset, int elementSize) {
+        if (length < HEADER_SIZE)
+            throw new IllegalArgumentException("encoded data is shorter than its header");
+        final int decodedLength = getInt(source, sourceOffset);
+        final int encodedBlockSize = getInt(source, sourceOffset + 4);
+        if (decodedLength < 0 || encodedBlockSize <= 0)
+            throw new IllegalArgumentException("invalid header of encoded data");
+        if (decodedLength > destination.length - destinationOffset)
+            throw new IllegalArgumentException("destination is shorter than the decoded length " + decodedLength);
+        final int blocks = (int)(((long)decodedLength + encodedBlockSize - 1) / encodedBlockSize);
+        if (blockOffsets.length < blocks)
+            blockOffsets = new int[blocks];
+        if (blockLengths.length < blocks)
+            blockLengths = new int[blocks];
+
+        final int end = sourceOffset + length;
+        int offset = sourceOffset + HEADER_SIZE;
+        for (int block = 0; block < blocks; block++) {
+            if (end - offset < BLOCK_HEADER_SIZE)
+                throw new IllegalArgumentException("encoded data is truncated");
+            final int blockLength = getInt(source, offset);
+            offset += BLOCK_HEADER_SIZE;
+            if (blockLength < 0 || blockLength > end - offset)
+                throw new IllegalArgumentException("invalid length of encoded block " + block);
+            blockOffsets[block] = offset;
+            blockLengths[block] = blockLength;
+            offset += blockLength;
+        }
+
+        // the blocks are decoded with the block size they were encoded with
+        set(codec, source, sourceOffset, decodedLength, destination, destinationOffset, elementSize);
+        dataBlockSize = encodedBlockSize;
+        try {
+            run(blocks, false);
+        } finally {
+            set(null, null, 0, 0, null, 0, 0);
+        }
+        return decodedLength;
+    }
+
+    private void set(NTNDArrayCodec codec, byte[] source, int sourceOffset, int length,
+            byte[] destination, int destinationOffset, int elementSize) {
+        this.codec = codec;
+        this.source = source;
+        this.sourceOffset = sourceOffset;
+        this.length = length;
+        this.destination = destination;
+        this.destinationOffset = destinationOffset;
+        this.elementSize = elementSize;
+    }
+
+    private int getBlockLength(int block) {
+        return Math.min(dataBlockSize, length - block * dataBlockSize);
+    }
+
+    private void encodeBlock(int block) {
+        final int blockLength = getBlockLength(block);
+        final int encodedOffset = block * maxEncodedBlockLength;
+        int encodedLength = codec.encode(source, sourceOffset + block * dataBlockSize, blockLength,
+                encodedBlocks, encodedOffset, elementSize);
+        // store the block as is if it does not compress
+        blockLengths[block] = encodedLength < blockLength ? encodedLength : blockLength;
+    }
+
+    private void decodeBlock(int block) {
+        final int decodedLength = getBlockLength(block);
+        final int to = destinationOffset + block * dataBlockSize;
+        if (blockLengths[block] == decodedLength)
+            System.arraycopy(source, blockOffsets[block], destination, to, decodedLength);
+        else
+            codec.decode(source, blockOffsets[block], blockLengths[block], destination, to, decodedLength, elementSize);
+    }
+
+    private void run(int blocks, boolean encode) {
+        if (executor == null || blocks < 2) {
+            for (int block = 0; block < blocks; block++) {
+                if (encode)
+                    encodeBlock(block);
+                else
+                    decodeBlock(block);
+            }
+            return;
+        }
+        while (tasks.size() < blocks)
+            tasks.add(new BlockTask(tasks.size()));
+        for (int block = 0; block < blocks; block++)
+            tasks.get(block).encode = encode;
+        List<Future<Object>> futures;
+        try {
+            futures = executor.invokeAll(tasks.subList(0, blocks));
+            for (Future<Object> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8)
+            | ((data[offset + 2] & 0xff) << 16) | ((data[offset + 3] & 0xff) << 24);
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte)value;
+        data[offset + 1] = (byte)(value >>> 8);
+        data[offset + 2] = (byte)(value >>> 16);
+        data[offset + 3] = (byte)(value >>> 24);
+    }
+
+    /**
+     * Compress the value of an NTNDArray.
+     * @param ntndArray the NTNDArray, which must not be compressed.
+     * @param codecName the name of a codec registered with NTNDArrayCodecFactory.
+     * @throws IllegalArgumentException if there is no such codec, the NTNDArray is compressed or has no value.
+     */
+    public void compress(NTNDArray ntndArray, String codecName) {
+        NTNDArrayCodec codec = NTNDArrayCodecFactory.getCodec(codecName);
+        if (codec == null)
+            throw new IllegalArgumentException("unknown codec " + codecName);
+        PVStructure pvCodec = ntndArray.getCodec();
+        PVString pvCodecName = pvCodec.getSubField(PVString.class, "name");
+        if (!pvCodecName.get().equals(""))
+            throw new IllegalArgumentException("NTNDArray is compressed with " + pvCodecName.get());
+        PVUnion pvValue = ntndArray.getValue();
+        PVScalarArray pvArray = pvValue.get(PVScalarArray.class);
+        if (pvArray == null)
+            throw new IllegalArgumentException("NTNDArray has no value");
+
+        final ScalarType scalarType = pvArray.getScalarArray().getElementType();
+        final int elementSize = getElementSize(scalarType);
+        final long byteLength = (long)pvArray.getLength() * elementSize;
+        if (byteLength > Integer.MAX_VALUE - HEADER_SIZE)
+            throw new IllegalArgumentException("value is too large");
+        if (bytes.length < byteLength)
+            bytes = new byte[(int)byteLength];
+        toBytes(pvArray, bytes);
+        final int maxLength = getMaxEncodedLength((int)byteLength);
+        if (encoded.length < maxLength)
+            encoded = new byte[maxLength];
+        final int encodedLength = encode(codec, bytes, 0, (int)byteLength, encoded, 0, elementSize);
+
+        PVUByteArray pvBytes = pvValue.select(PVUByteArray.class, ScalarType.pvUByte.toString() + "Value");
+        pvBytes.setLength(encodedLength);
+        pvBytes.put(0, encodedLength, encoded, 0);
+        pvValue.postPut();
+        pvCodecName.put(codec.getName());
+        PVUnion pvParameters = pvCodec.getSubField(PVUnion.class, "parameters");
+        PVInt pvType = pvParameters.get(PVInt.class);
+        if (pvType == null) {
+            pvType = (PVInt)pvDataCreate.createPVScalar(ScalarType.pvInt);
+            pvType.put(scalarType.ordinal());
+            pvParameters.set(pvType);
+        } else {
+            pvType.put(scalarType.ordinal());
+        }
+        ntndArray.getCompressedDataSize().put(encodedLength);
+        ntndArray.getUncompressedDataSize().put(byteLength);
+    }
+
+    /**
+     * Decompress the value of an NTNDArray. Nothing is done if the NTNDArray is not compressed.
+     * @param ntndArray the NTNDArray.
+     * @throws IllegalArgumentException if the codec is unknown or the compressed value is not valid.
+     */
+    public void decompress(NTNDArray ntndArray) {
+        PVStructure pvCodec = ntndArray.getCodec();
+        PVString pvCodecName = pvCodec.getSubField(PVString.class, "name");
+        final String codecName = pvCodecName.get();
+        if (codecName.equals(""))
+            return;
+        NTNDArrayCodec codec = NTNDArrayCodecFactory.getCodec(codecName);
+        if (codec == null)
+            throw new IllegalArgumentException("unknown codec " + codecName);
+        PVUnion pvParameters = pvCodec.getSubField(PVUnion.class, "parameters");
+        PVScalar pvType = pvParameters.get(PVScalar.class);
+        final int type = pvType != null ? convert.toInt(pvType) : -1;
+        if (type < 0 || type >= ScalarType.values().length)
+            throw new IllegalArgumentException("codec.parameters is not the ScalarType of the value");
+        final ScalarType scalarType = ScalarType.values()[type];
+        final int elementSize = getElementSize(scalarType);
+        PVUnion pvValue = ntndArray.getValue();
+        PVUByteArray pvBytes = pvValue.get(PVUByteArray.class);
+        if (pvBytes == null)
+            throw new IllegalArgumentException("compressed value is not a ubyte array");
+
+        ByteArrayData data = new ByteArrayData();
+        final int encodedLength = pvBytes.get(0, pvBytes.getLength(), data);
+        if (encodedLength < HEADER_SIZE)
+            throw new IllegalArgumentException("encoded data is shorter than its header");
+        final int byteLength = getDecodedLength(data.data, data.offset);
+        if (byteLength < 0 || byteLength % elementSize != 0)
+            throw new IllegalArgumentException("invalid decoded length " + byteLength);
+        if (bytes.length < byteLength)
+            bytes = new byte[byteLength];
+        decode(codec, data.data, data.offset, encodedLength, bytes, 0, elementSize);
+
+        PVScalarArray pvArray = pvValue.select(PVScalarArray.class, scalarType.toString() + "Value");
+        fromBytes(bytes, byteLength / elementSize, pvArray);
+        pvValue.postPut();
+        pvCodecName.put("");
+        pvParameters.set(null);
+        ntndArray.getCompressedDataSize().put(byteLength);
+        ntndArray.getUncompressedDataSize().put(byteLength);
+    }
+
+    private static int getElementSize(ScalarType scalarType) {
+        switch (scalarType) {
+        case pvBoolean:
+        case pvByte:
+        case pvUByte:
+            return 1;
+        case pvShort:
+        case pvUShort:
+            return 2;
+        case pvInt:
+        case pvUInt:
+        case pvFloat:
+            return 4;
+        case pvLong:
+        case pvULong:
+        case pvDouble:
+            return 8;
+        default:
+            throw new IllegalArgumentException("value of type " + scalarType + " can not be compressed");
+        }
+    }
+
+    private static void toBytes(PVScalarArray pvArray, byte[] bytes) {
+        final int length = pvArray.getLength();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        switch (pvArray.getScalarArray().getElementType()) {
+        case pvBoolean: {
+            BooleanArrayData data = new BooleanArrayData();
+            ((PVBooleanArray)pvArray).get(0, length, data);
+            for (int i = 0; i < length; i++)
+                bytes[i] = data.data[data.offset + i] ? (byte)1 : (byte)0;
+            break;
+        }
+        case pvByte: {
+            ByteArrayData data = new ByteArrayData();
+            ((PVByteArray)pvArray).get(0, length, data);
+            System.arraycopy(data.data, data.offset, bytes, 0, length);
+            break;
+        }
+        case pvUByte: {
+            ByteArrayData data = new ByteArrayData();
+            ((PVUByteArray)pvArray).get(0, length, data);
+            System.arraycopy(data.data, data.offset, bytes, 0, length);
+            break;
+        }
+        case pvShort: {
+            ShortArrayData data = new ShortArrayData();
+            ((PVShortArray)pvArray).get(0, length, data);
+            buffer.asShortBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvUShort: {
+            ShortArrayData data = new ShortArrayData();
+            ((PVUShortArray)pvArray).get(0, length, data);
+            buffer.asShortBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvInt: {
+            IntArrayData data = new IntArrayData();
+            ((PVIntArray)pvArray).get(0, length, data);
+            buffer.asIntBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvUInt: {
+            IntArrayData data = new IntArrayData();
+            ((PVUIntArray)pvArray).get(0, length, data);
+            buffer.asIntBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvLong: {
+            LongArrayData data = new LongArrayData();
+            ((PVLongArray)pvArray).get(0, length, data);
+            buffer.asLongBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvULong: {
+            LongArrayData data = new LongArrayData();
+            ((PVULongArray)pvArray).get(0, length, data);
+            buffer.asLongBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvFloat: {
+            FloatArrayData data = new FloatArrayData();
+            ((PVFloatArray)pvArray).get(0, length, data);
+            buffer.asFloatBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        case pvDouble: {
+            DoubleArrayData data = new DoubleArrayData();
+            ((PVDoubleArray)pvArray).get(0, length, data);
+            buffer.asDoubleBuffer().put(data.data, data.offset, length);
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("value of type " + pvArray.getScalarArray().getElementType() + " can not be compressed");
+        }
+    }
+
+    private static void fromBytes(byte[] bytes, int length, PVScalarArray pvArray) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        switch (pvArray.getScalarArray().getElementType()) {
+        case pvBoolean: {
+            boolean[] data = new boolean[length];
+            for (int i = 0; i < length; i++)
+                data[i] = bytes[i] != 0;
+            ((PVBooleanArray)pvArray).shareData(data);
+            break;
+        }
+        case pvByte: {
+            byte[] data = new byte[length];
+            System.arraycopy(bytes, 0, data, 0, length);
+            ((PVByteArray)pvArray).shareData(data);
+            break;
+        }
+        case pvUByte: {
+            byte[] data = new byte[length];
+            System.arraycopy(bytes, 0, data, 0, length);
+            ((PVUByteArray)pvArray).shareData(data);
+            break;
+        }
+        case pvShort: {
+            short[] data = new short[length];
+            buffer.asShortBuffer().get(data);
+            ((PVShortArray)pvArray).shareData(data);
+            break;
+        }
+        case pvUShort: {
+            short[] data = new short[length];
+            buffer.asShortBuffer().get(data);
+            ((PVUShortArray)pvArray).shareData(data);
+            break;
+        }
+        case pvInt: {
+            int[] data = new int[length];
+            buffer.asIntBuffer().get(data);
+            ((PVIntArray)pvArray).shareData(data);
+            break;
+        }
+        case pvUInt: {
+            int[] data = new int[length];
+            buffer.asIntBuffer().get(data);
+            ((PVUIntArray)pvArray).shareData(data);
+            break;
+        }
+        case pvLong: {
+            long[] data = new long[length];
+            buffer.asLongBuffer().get(data);
+            ((PVLongArray)pvArray).shareData(data);
+            break;
+        }
+        case pvULong: {
+            long[] data = new long[length];
+            buffer.asLongBuffer().get(data);
+            ((PVULongArray)pvArray).shareData(data);
+            break;
+        }
+        case pvFloat: {
+            float[] data = new float[length];
+            buffer.asFloatBuffer().get(data);
+            ((PVFloatArray)pvArray).shareData(data);
+            break;
+        }
+        case pvDouble: {
+            double[] data = new double[length];
+            buffer.asDoubleBuffer().get(data);
+            ((PVDoubleArray)pvArray).shareData(data);
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("value of type " + pvArray.getScalarArray().getElementType() + " can not be decompressed");
+        }
+    }
+}
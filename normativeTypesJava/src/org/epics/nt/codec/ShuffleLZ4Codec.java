@@ -0,0 +1,99 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+/**
+ * The "shuffle-lz4" codec, which shuffles the bytes of each block and then compresses it in the LZ4 block format.
+ * <p>
+ * The shuffle puts the first byte of every element first, then the second byte of every element and so on.
+ * The high bytes of the pixels of a detector image are mostly equal, so the shuffle turns them into long runs
+ * that LZ4 compresses well and fast. Bytes at the end of a block that are not a whole element are not shuffled.
+ * Each thread reuses its own buffer for the shuffled block and its own hash table.
+ */
+public class ShuffleLZ4Codec implements NTNDArrayCodec {
+    /**
+     * The name of the codec.
+     */
+    public static final String NAME = "shuffle-lz4";
+
+    private static class Buffers {
+        byte[] shuffled = new byte[0];
+        final int[] hashTable = LZ4Block.createHashTable();
+
+        byte[] getShuffled(int length) {
+            if (shuffled.length < length)
+                shuffled = new byte[length];
+            return shuffled;
+        }
+    }
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#getName()
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#getMaxEncodedLength(int)
+     */
+    public int getMaxEncodedLength(int length) {
+        return LZ4Block.maxCompressedLength(length);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#encode(byte[], int, int, byte[], int, int)
+     */
+    public int encode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int elementSize) {
+        Buffers buffers = this.buffers.get();
+        if (elementSize > 1) {
+            byte[] shuffled = buffers.getShuffled(length);
+            shuffle(source, sourceOffset, length, shuffled, elementSize);
+            return LZ4Block.compress(shuffled, 0, length, destination, destinationOffset, buffers.hashTable);
+        }
+        return LZ4Block.compress(source, sourceOffset, length, destination, destinationOffset, buffers.hashTable);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.nt.codec.NTNDArrayCodec#decode(byte[], int, int, byte[], int, int, int)
+     */
+    public void decode(byte[] source, int sourceOffset, int length, byte[] destination, int destinationOffset, int decodedLength, int elementSize) {
+        if (elementSize > 1) {
+            byte[] shuffled = buffers.get().getShuffled(decodedLength);
+            LZ4Block.decompress(source, sourceOffset, length, shuffled, 0, decodedLength);
+            unshuffle(shuffled, decodedLength, destination, destinationOffset, elementSize);
+        } else {
+            LZ4Block.decompress(source, sourceOffset, length, destination, destinationOffset, decodedLength);
+        }
+    }
+
+    private static void shuffle(byte[] source, int sourceOffset, int length, byte[] shuffled, int elementSize) {
+        final int elements = length / elementSize;
+        int offset = 0;
+        for (int b = 0; b < elementSize; b++) {
+            int from = sourceOffset + b;
+            for (int i = 0; i < elements; i++, from += elementSize)
+                shuffled[offset++] = source[from];
+        }
+        System.arraycopy(source, sourceOffset + offset, shuffled, offset, length - offset);
+    }
+
+    private static void unshuffle(byte[] shuffled, int length, byte[] destination, int destinationOffset, int elementSize) {
+        final int elements = length / elementSize;
+        int offset = 0;
+        for (int b = 0; b < elementSize; b++) {
+            int to = destinationOffset + b;
+            for (int i = 0; i < elements; i++, to += elementSize)
+                destination[to] = shuffled[offset++];
+        }
+        System.arraycopy(shuffled, offset, destination, destinationOffset + offset, length - offset);
+    }
+}
@@ -79,6 +79,35 @@ public class NTNDArrayTest extends NTTestBase
         assertTrue(ntndarray.isValid());
     }
 
+    public static void testIsValidCompressed()
+    {
+        NTNDArray ntndarray = NTNDArray.createBuilder().create();
+
+        Structure dimStruc = ntndarray.getDimension().getStructureArray().
+            getStructure();
+        PVStructure pvDim = dataCreate.createPVStructure(dimStruc);
+        pvDim.getSubField(PVInt.class, "size").put(100);
+        PVStructure[] dims = {pvDim};
+        ntndarray.getDimension().put(0,dims.length,dims,0);
+
+        // 100 ushort elements compressed to 30 bytes
+        ntndarray.getValue().select(PVUByteArray.class,"ubyteValue").
+            setLength(30);
+        ntndarray.getCompressedDataSize().put(30);
+        ntndarray.getUncompressedDataSize().put(200);
+        ntndarray.getCodec().getSubField(PVString.class, "name").put("codec");
+        assertFalse(ntndarray.isValid());
+
+        // the uncompressed type is in codec.parameters
+        PVInt pvType = (PVInt)dataCreate.createPVScalar(ScalarType.pvInt);
+        pvType.put(ScalarType.pvUShort.ordinal());
+        ntndarray.getCodec().getSubField(PVUnion.class, "parameters").set(pvType);
+        assertTrue(ntndarray.isValid());
+
+        ntndarray.getUncompressedDataSize().put(100);
+        assertFalse(ntndarray.isValid());
+    }
+
     public static void testIsValid2()
     {
         testIsValid2Impl(PVByteArray.class, "byteValue", 1);
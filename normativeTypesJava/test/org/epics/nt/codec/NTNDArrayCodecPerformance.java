@@ -0,0 +1,110 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Benchmark of the compress and decompress rates (MB/s of uncompressed data) and compression ratio
+ * of the NTNDArray codecs, for synthetic 16 bit detector frames: a background with noise and
+ * a few peaks. The frames are compressed by NTNDArrayCompressor, with one thread and with several.
+ * The best of several runs is reported.
+ * <p>
+ * Usage: <code>java org.epics.nt.codec.NTNDArrayCodecPerformance [width [height [frames [threads [runs]]]]]</code>
+ */
+public class NTNDArrayCodecPerformance {
+
+    private static byte[][] createFrames(int width, int height, int frames) {
+        Random random = new Random(1);
+        byte[][] data = new byte[frames][2 * width * height];
+        for (int frame = 0; frame < frames; frame++) {
+            int[] peaks = new int[50];
+            for (int i = 0; i < peaks.length; i++)
+                peaks[i] = random.nextInt(width * height);
+            int[] pixels = new int[width * height];
+            for (int i = 0; i < pixels.length; i++) {
+                // a background of about 100 counts, with shot noise
+                pixels[i] = 100 + (int)Math.round(10 * random.nextGaussian());
+            }
+            for (int peak : peaks) {
+                int x0 = peak % width;
+                int y0 = peak / width;
+                for (int y = Math.max(0, y0 - 5); y < Math.min(height, y0 + 6); y++) {
+                    for (int x = Math.max(0, x0 - 5); x < Math.min(width, x0 + 6); x++) {
+                        double r2 = (x - x0) * (x - x0) + (y - y0) * (y - y0);
+                        pixels[y * width + x] += (int)(30000 * Math.exp(-r2 / 4));
+                    }
+                }
+            }
+            for (int i = 0; i < pixels.length; i++) {
+                int pixel = Math.max(0, Math.min(0xffff, pixels[i]));
+                data[frame][2 * i] = (byte)pixel;
+                data[frame][2 * i + 1] = (byte)(pixel >>> 8);
+            }
+        }
+        return data;
+    }
+
+    // the best compress and decompress rates and the ratio
+    private static void run(NTNDArrayCompressor compressor, NTNDArrayCodec codec, byte[][] frames, double[] best) {
+        byte[] encoded = new byte[compressor.getMaxEncodedLength(frames[0].length)];
+        byte[] decoded = new byte[frames[0].length];
+        long bytes = 0;
+        long encodedBytes = 0;
+        double compress = 0;
+        double decompress = 0;
+        for (byte[] frame : frames) {
+            long start = System.nanoTime();
+            int encodedLength = compressor.encode(codec, frame, 0, frame.length, encoded, 0, 2);
+            compress += (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            compressor.decode(codec, encoded, 0, encodedLength, decoded, 0, 2);
+            decompress += (System.nanoTime() - start) / 1e9;
+            if (!Arrays.equals(frame, decoded))
+                throw new IllegalStateException(codec.getName() + " did not decode the frame");
+            bytes += frame.length;
+            encodedBytes += encodedLength;
+        }
+        best[0] = Math.max(best[0], bytes / compress / 1e6);
+        best[1] = Math.max(best[1], bytes / decompress / 1e6);
+        best[2] = (double)bytes / encodedBytes;
+    }
+
+    public static void main(String[] args) {
+        final int width = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        final int height = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        final int frameCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        final int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        final int runs = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        final byte[][] frames = createFrames(width, height, frameCount);
+        final String[] names = { "deflate (level 1)", "deflate (level 6)", "shuffle-lz4" };
+        final NTNDArrayCodec[] codecs = {
+            new DeflateCodec(Deflater.BEST_SPEED), new DeflateCodec(6), new ShuffleLZ4Codec() };
+        final int[] threadCounts = threads > 1 ? new int[] { 1, threads } : new int[] { 1 };
+
+        System.out.printf("%d frames of %dx%d 16 bit pixels, block size %d, best of %d runs%n",
+                frameCount, width, height, NTNDArrayCompressor.DEFAULT_BLOCK_SIZE, runs);
+        System.out.printf("%-24s %7s %14s %14s %7s%n", "codec", "threads", "compress", "decompress", "ratio");
+        for (int threadCount : threadCounts) {
+            NTNDArrayCompressor compressor = new NTNDArrayCompressor(threadCount, NTNDArrayCompressor.DEFAULT_BLOCK_SIZE);
+            try {
+                for (int i = 0; i < codecs.length; i++) {
+                    // warm-up
+                    run(compressor, codecs[i], frames, new double[3]);
+                    double[] best = new double[3];
+                    for (int run = 0; run < runs; run++)
+                        run(compressor, codecs[i], frames, best);
+                    System.out.printf("%-24s %7d %9.0f MB/s %9.0f MB/s %7.2f%n",
+                            names[i], threadCount, best[0], best[1], best[2]);
+                }
+            } finally {
+                compressor.destroy();
+            }
+        }
+    }
+}
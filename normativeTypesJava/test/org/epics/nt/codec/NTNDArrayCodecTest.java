@@ -0,0 +1,251 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.nt.codec;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.epics.nt.NTNDArray;
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.*;
+import org.epics.util.compat.jdk5.lang.Arrays;
+
+/**
+ * JUnit test for the NTNDArray codecs and NTNDArrayCompressor.
+ *
+ */
+public class NTNDArrayCodecTest extends TestCase {
+    private static final PVDataCreate dataCreate = PVDataFactory.getPVDataCreate();
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private static byte[] random(int length, Random random) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+
+    // 16 bit pixels with a low noise background and a few peaks
+    private static byte[] detector(int pixels, Random random) {
+        byte[] data = new byte[2 * pixels];
+        for (int i = 0; i < pixels; i++) {
+            int pixel = 100 + random.nextInt(8);
+            if (i % 997 < 5)
+                pixel += 20000 + random.nextInt(1000);
+            data[2 * i] = (byte)pixel;
+            data[2 * i + 1] = (byte)(pixel >>> 8);
+        }
+        return data;
+    }
+
+    private static void assertRoundTrip(NTNDArrayCodec codec, byte[] data, int elementSize) {
+        // the block is not at the start of the buffers
+        byte[] source = new byte[data.length + 3];
+        System.arraycopy(data, 0, source, 3, data.length);
+        byte[] encoded = new byte[codec.getMaxEncodedLength(data.length) + 5];
+        int encodedLength = codec.encode(source, 3, data.length, encoded, 5, elementSize);
+        assertTrue(encodedLength <= codec.getMaxEncodedLength(data.length));
+        byte[] decoded = new byte[data.length + 7];
+        codec.decode(encoded, 5, encodedLength, decoded, 7, data.length, elementSize);
+        assertTrue(Arrays.equals(data, Arrays.copyOfRange(decoded, 7, decoded.length)));
+    }
+
+    private static void testCodec(NTNDArrayCodec codec) {
+        Random random = new Random(1);
+        for (int length = 0; length < 40; length++) {
+            assertRoundTrip(codec, random(length, random), 1);
+            assertRoundTrip(codec, new byte[length], 2);
+        }
+        byte[] pattern = new byte[100000];
+        for (int i = 0; i < pattern.length; i++)
+            pattern[i] = (byte)(i % 3);
+        final int[] elementSizes = { 1, 2, 3, 4, 8 };
+        for (int elementSize : elementSizes) {
+            assertRoundTrip(codec, new byte[100000], elementSize);
+            assertRoundTrip(codec, random(100001, random), elementSize);
+            assertRoundTrip(codec, pattern, elementSize);
+            assertRoundTrip(codec, detector(100000, random), elementSize);
+        }
+    }
+
+    public void testDeflate() {
+        testCodec(new DeflateCodec());
+        testCodec(new DeflateCodec(java.util.zip.Deflater.BEST_COMPRESSION));
+    }
+
+    public void testShuffleLZ4() {
+        NTNDArrayCodec codec = new ShuffleLZ4Codec();
+        testCodec(codec);
+
+        // the shuffle makes detector data compress better
+        byte[] data = detector(100000, new Random(2));
+        byte[] encoded = new byte[codec.getMaxEncodedLength(data.length)];
+        int shuffled = codec.encode(data, 0, data.length, encoded, 0, 2);
+        int unshuffled = codec.encode(data, 0, data.length, encoded, 0, 1);
+        assertTrue(shuffled < unshuffled);
+        assertTrue(shuffled < data.length / 2);
+    }
+
+    public void testInvalidData() {
+        NTNDArrayCodec codec = new ShuffleLZ4Codec();
+        byte[] data = detector(1000, new Random(3));
+        byte[] encoded = new byte[codec.getMaxEncodedLength(data.length)];
+        int encodedLength = codec.encode(data, 0, data.length, encoded, 0, 2);
+        try {
+            codec.decode(encoded, 0, encodedLength - 1, new byte[data.length], 0, data.length, 2);
+            fail("truncated block decoded");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            codec.decode(encoded, 0, encodedLength, new byte[data.length + 1], 0, data.length + 1, 2);
+            fail("block decoded to the wrong length");
+        } catch (IllegalArgumentException e) {
+        }
+
+        codec = new DeflateCodec();
+        encodedLength = codec.encode(data, 0, data.length, encoded, 0, 2);
+        encoded[encodedLength / 2] ^= 0x55;
+        try {
+            codec.decode(encoded, 0, encodedLength, new byte[data.length], 0, data.length, 2);
+            fail("corrupt block decoded");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testFactory() {
+        assertTrue(NTNDArrayCodecFactory.getCodec(DeflateCodec.NAME) instanceof DeflateCodec);
+        assertTrue(NTNDArrayCodecFactory.getCodec(ShuffleLZ4Codec.NAME) instanceof ShuffleLZ4Codec);
+        assertNull(NTNDArrayCodecFactory.getCodec("unknown"));
+        assertTrue(Arrays.asList(NTNDArrayCodecFactory.getNames()).contains(ShuffleLZ4Codec.NAME));
+    }
+
+    public void testBlocks() {
+        Random random = new Random(4);
+        byte[] data = new byte[300000];
+        System.arraycopy(detector(100000, random), 0, data, 0, 200000);
+        System.arraycopy(random(100000, random), 0, data, 200000, 100000);
+        final int[] threads = { 1, 3 };
+        for (int n : threads) {
+            NTNDArrayCompressor compressor = new NTNDArrayCompressor(n, 16384);
+            try {
+                for (String name : NTNDArrayCodecFactory.getNames()) {
+                    NTNDArrayCodec codec = NTNDArrayCodecFactory.getCodec(name);
+                    byte[] encoded = new byte[compressor.getMaxEncodedLength(data.length)];
+                    int encodedLength = compressor.encode(codec, data, 0, data.length, encoded, 0, 2);
+                    assertTrue(encodedLength < data.length);
+                    assertEquals(data.length, NTNDArrayCompressor.getDecodedLength(encoded, 0));
+                    byte[] decoded = new byte[data.length];
+                    assertEquals(data.length, compressor.decode(codec, encoded, 0, encodedLength, decoded, 0, 2));
+                    assertTrue(Arrays.equals(data, decoded));
+
+                    // blocks that do not compress are stored as is
+                    byte[] noise = random(50000, random);
+                    encodedLength = compressor.encode(codec, noise, 0, noise.length, encoded, 0, 1);
+                    assertEquals(compressor.getMaxEncodedLength(noise.length), encodedLength);
+                    assertEquals(noise.length, compressor.decode(codec, encoded, 0, encodedLength, decoded, 0, 1));
+                    assertTrue(Arrays.equals(noise, Arrays.copyOf(decoded, noise.length)));
+
+                    encodedLength = compressor.encode(codec, data, 0, 0, encoded, 0, 2);
+                    assertEquals(0, compressor.decode(codec, encoded, 0, encodedLength, decoded, 0, 2));
+
+                    try {
+                        encodedLength = compressor.encode(codec, data, 0, data.length, encoded, 0, 2);
+                        compressor.decode(codec, encoded, 0, encodedLength - 1, decoded, 0, 2);
+                        fail("truncated data decoded");
+                    } catch (IllegalArgumentException e) {
+                    }
+                }
+            } finally {
+                compressor.destroy();
+            }
+        }
+    }
+
+    private static NTNDArray createNTNDArray(ScalarType scalarType, int elementSize, int width, int height) {
+        NTNDArray ntndArray = NTNDArray.createBuilder().create();
+        PVScalarArray pvArray = ntndArray.getValue().select(PVScalarArray.class, scalarType.toString() + "Value");
+        final int length = width * height;
+        if (scalarType == ScalarType.pvBoolean) {
+            boolean[] data = new boolean[length];
+            for (int i = 0; i < length; i++)
+                data[i] = i % 7 == 0;
+            ((PVBooleanArray)pvArray).put(0, length, data, 0);
+        } else {
+            double[] data = new double[length];
+            for (int i = 0; i < length; i++)
+                data[i] = (i % width) - 10 * (i / width % 10);
+            convert.fromDoubleArray(pvArray, 0, length, data, 0);
+        }
+        Structure dimension = ntndArray.getDimension().getStructureArray().getStructure();
+        PVStructure[] dims = { dataCreate.createPVStructure(dimension), dataCreate.createPVStructure(dimension) };
+        dims[0].getSubField(PVInt.class, "size").put(width);
+        dims[1].getSubField(PVInt.class, "size").put(height);
+        ntndArray.getDimension().put(0, dims.length, dims, 0);
+        ntndArray.getCompressedDataSize().put(length * elementSize);
+        ntndArray.getUncompressedDataSize().put(length * elementSize);
+        return ntndArray;
+    }
+
+    public void testNTNDArray() {
+        final ScalarType[] scalarTypes = {
+            ScalarType.pvBoolean, ScalarType.pvByte, ScalarType.pvShort, ScalarType.pvInt, ScalarType.pvLong,
+            ScalarType.pvUByte, ScalarType.pvUShort, ScalarType.pvUInt, ScalarType.pvULong,
+            ScalarType.pvFloat, ScalarType.pvDouble };
+        final int[] elementSizes = { 1, 1, 2, 4, 8, 1, 2, 4, 8, 4, 8 };
+        NTNDArrayCompressor compressor = new NTNDArrayCompressor(2, 1000);
+        try {
+            for (int i = 0; i < scalarTypes.length; i++) {
+                for (String name : NTNDArrayCodecFactory.getNames()) {
+                    NTNDArray ntndArray = createNTNDArray(scalarTypes[i], elementSizes[i], 64, 50);
+                    assertTrue(ntndArray.isValid());
+                    PVScalarArray original = ntndArray.getValue().get(PVScalarArray.class);
+
+                    compressor.compress(ntndArray, name);
+                    assertTrue(ntndArray.isValid());
+                    assertEquals(name, ntndArray.getCodec().getSubField(PVString.class, "name").get());
+                    assertEquals(scalarTypes[i].ordinal(),
+                            ntndArray.getCodec().getSubField(PVUnion.class, "parameters").get(PVInt.class).get());
+                    PVUByteArray compressed = ntndArray.getValue().get(PVUByteArray.class);
+                    assertNotNull(compressed);
+                    assertEquals(compressed.getLength(), ntndArray.getCompressedDataSize().get());
+                    assertEquals(64 * 50 * elementSizes[i], ntndArray.getUncompressedDataSize().get());
+                    assertTrue(ntndArray.getCompressedDataSize().get() < ntndArray.getUncompressedDataSize().get());
+                    try {
+                        compressor.compress(ntndArray, name);
+                        fail("compressed NTNDArray compressed");
+                    } catch (IllegalArgumentException e) {
+                    }
+
+                    compressor.decompress(ntndArray);
+                    assertTrue(ntndArray.isValid());
+                    assertEquals("", ntndArray.getCodec().getSubField(PVString.class, "name").get());
+                    assertNull(ntndArray.getCodec().getSubField(PVUnion.class, "parameters").get());
+                    assertEquals(original, ntndArray.getValue().get(PVScalarArray.class));
+
+                    // nothing to do for an uncompressed NTNDArray
+                    compressor.decompress(ntndArray);
+                    assertEquals(original, ntndArray.getValue().get(PVScalarArray.class));
+                }
+            }
+
+            NTNDArray ntndArray = createNTNDArray(ScalarType.pvUShort, 2, 10, 10);
+            try {
+                compressor.compress(ntndArray, "unknown");
+                fail("unknown codec used");
+            } catch (IllegalArgumentException e) {
+            }
+            compressor.compress(ntndArray, ShuffleLZ4Codec.NAME);
+            ntndArray.getCodec().getSubField(PVString.class, "name").put("unknown");
+            try {
+                compressor.decompress(ntndArray);
+                fail("unknown codec used");
+            } catch (IllegalArgumentException e) {
+            }
+        } finally {
+            compressor.destroy();
+        }
+    }
+}
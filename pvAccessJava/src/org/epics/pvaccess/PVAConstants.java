@@ -37,6 +37,20 @@ public interface PVAConstants {
      */
     byte PVA_VERSION = PVA_PROTOCOL_REVISION;
 
+    /**
+     * Connection QoS flag set by a client in the connection validation response,
+     * when it accepts the sparse BitSet encodings in get and monitor responses
+     * (see <code>BitSet.serializeSparse</code>). The lower bits are the connection priority.
+     */
+    short PVA_CONNECTION_QOS_SPARSE_BITSET = 0x4000;
+
+    /**
+     * Connection QoS flag set by a client in the connection validation response,
+     * when it has created a shared memory ring for the connection, because the server is on the same host
+     * (see <code>SharedMemoryRing</code>). The server may then send the elements of large arrays through the ring.
+     */
+    short PVA_CONNECTION_QOS_SHARED_MEMORY = 0x2000;
+
     /**
      * Default PVA server port.
      */
@@ -16,6 +16,7 @@ package org.epics.pvaccess;
 
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.PVStructurePool;
 import org.epics.pvdata.factory.StatusFactory;
 import org.epics.pvdata.pv.FieldCreate;
 import org.epics.pvdata.pv.PVDataCreate;
@@ -32,6 +33,7 @@ public class PVFactory {
     private final static FieldCreate fieldCreate = FieldFactory.getFieldCreate();
     private final static PVDataCreate dataCreate = PVDataFactory.getPVDataCreate();
     private final static StatusCreate statusCreate = StatusFactory.getStatusCreate();
+    private final static PVStructurePool pvStructurePool = PVDataFactory.getPVStructurePool();
 
     public static FieldCreate getFieldCreate() {
         return fieldCreate;
@@ -44,4 +46,14 @@ public class PVFactory {
     public static StatusCreate getStatusCreate() {
         return statusCreate;
     }
+
+    /**
+     * Get the pool of PVStructure instances used for request data and monitor elements.
+     * Request data is given back when the request is destroyed, unless it was passed to the requester,
+     * monitor elements when the monitor is destroyed, except an element polled and not released.
+     * @return the pool, disabled unless EPICS_PVDATA_POOL_SIZE is set.
+     */
+    public static PVStructurePool getPVStructurePool() {
+        return pvStructurePool;
+    }
 }
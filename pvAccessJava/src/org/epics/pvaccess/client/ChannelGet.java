@@ -7,6 +7,9 @@ package org.epics.pvaccess.client;
 
 /**
  * Request to get data from a channel.
+ * The PVStructure passed to getDone stays valid after the request is destroyed,
+ * i.e. data can be got once and used after destroy; it is then owned by the requester.
+ * Data never passed to getDone is given back to the PVStructure pool on destroy.
  *
  * @author mrk
  */
@@ -11,6 +11,9 @@ import org.epics.pvdata.pv.PVStructure;
 
 /**
  * Interface for a channel access put request.
+ * The PVStructure passed to getDone stays valid after the request is destroyed,
+ * it is then owned by the requester.
+ * Data never passed to getDone is given back to the PVStructure pool on destroy.
  *
  * @author mrk
  */
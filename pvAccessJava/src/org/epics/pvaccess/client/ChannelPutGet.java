@@ -12,6 +12,9 @@ import org.epics.pvdata.pv.PVStructure;
 /**
  * Channel access put/get request.
  * The put is performed first, followed optionally by a process request, and then by a get request.
+ * The PVStructures passed to the requester stay valid after the request is destroyed,
+ * they are then owned by the requester.
+ * Data never passed to the requester is given back to the PVStructure pool on destroy.
  *
  * @author mrk
  */
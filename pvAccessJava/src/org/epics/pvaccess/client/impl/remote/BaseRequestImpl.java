@@ -16,12 +16,14 @@ package org.epics.pvaccess.client.impl.remote;
 
 import org.epics.pvaccess.PVFactory;
 import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
 import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendPriority;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
-import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.request.DataResponse;
 import org.epics.pvaccess.impl.remote.request.SubscriptionRequest;
+import org.epics.pvdata.factory.PVStructurePool;
 import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.pv.*;
 import org.epics.pvdata.pv.Status.StatusType;
@@ -35,7 +37,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $Id$
  */
-public abstract class BaseRequestImpl implements DataResponse, SubscriptionRequest, TransportSender {
+public abstract class BaseRequestImpl implements DataResponse, SubscriptionRequest, PrioritizedTransportSender {
 
     protected static final StatusCreate statusCreate = PVFactory.getStatusCreate();
     protected static final Status okStatus = statusCreate.getStatusOK();
@@ -47,6 +49,7 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
     protected static final Status invalidPutArrayStatus = statusCreate.createStatus(StatusType.ERROR, "incompatible put array", null);
     protected static final Status invalidBitSetLengthStatus = statusCreate.createStatus(StatusType.ERROR, "invalid bit-set length", null);
     protected static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+    protected static final PVStructurePool pvStructurePool = PVFactory.getPVStructurePool();
 
     /**
      * Channel.
@@ -73,6 +76,11 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
      */
     protected final PVStructure pvRequest;
 
+    /**
+     * Send priority, requested via pvRequest options.
+     */
+    protected final SendPriority sendPriority;
+
     /**
      * Last request flag.
      */
@@ -101,6 +109,13 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
 
     protected final ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * Guards the request data taken from the PVStructure pool while it is deserialized or given back.
+     * Not the request lock, since destroy is called with the channel locked,
+     * while the send thread locks the channel with the request lock held.
+     */
+    protected final Object dataLock = new Object();
+
     public BaseRequestImpl(ChannelImpl channel, Requester requester,
                            PVStructure pvRequest, boolean allowNullPVRequest) {
         if (requester == null)
@@ -114,6 +129,7 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
 
         this.requester = requester;
         this.pvRequest = pvRequest;
+        this.sendPriority = SendPriority.fromPVRequest(pvRequest);
 
         // register response request
         // NOTE: this reference given in constructor,
@@ -121,6 +137,16 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
         this.ioid = context.registerResponseRequest(this);
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.impl.remote.PrioritizedTransportSender#getSendPriority()
+     */
+    public SendPriority getSendPriority() {
+        final int qos = getPendingRequest();
+        if (qos == PURE_DESTROY_REQUEST || qos == PURE_CANCEL_REQUEST)
+            return SendPriority.CONTROL;
+        return sendPriority;
+    }
+
     protected void activate() {
         channel.registerResponseRequest(this);
     }
@@ -311,6 +337,17 @@ public abstract class BaseRequestImpl implements DataResponse, SubscriptionReque
             return new BitSet(pvStructureSize);
     }
 
+    /**
+     * Give request data back to the PVStructure pool (see PVFactory.getPVStructurePool()).
+     * The data must not be used afterwards.
+     *
+     * @param pvStructure the data, can be <code>null</code>.
+     */
+    protected static void giveBack(PVStructure pvStructure) {
+        if (pvStructure != null)
+            pvStructurePool.give(pvStructure);
+    }
+
     public static PVField reuseOrCreatePVField(Field field, PVField existingPVField) {
         if (existingPVField != null && field.equals(existingPVField.getField()))
             return existingPVField;
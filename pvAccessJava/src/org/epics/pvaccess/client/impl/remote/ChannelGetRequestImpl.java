@@ -46,6 +46,9 @@ public class ChannelGetRequestImpl extends BaseRequestImpl implements ChannelGet
     protected PVStructure data = null;
     protected BitSet bitSet = null;
 
+    // data passed to the requester, owned by the requester after destroy
+    protected boolean dataDelivered = false;
+
     public static ChannelGetRequestImpl create(ChannelImpl channel,
                                                ChannelGetRequester callback,
                                                PVStructure pvRequest) {
@@ -145,15 +148,27 @@ public class ChannelGetRequestImpl extends BaseRequestImpl implements ChannelGet
     void normalResponse(Transport transport, byte version, ByteBuffer payloadBuffer, byte qos, Status status) {
         try {
             if (!status.isSuccess()) {
-                callback.getDone(status, this, data, bitSet);
+                final PVStructure pvStructure;
+                synchronized (dataLock) {
+                    pvStructure = data;
+                    dataDelivered |= pvStructure != null;
+                }
+                callback.getDone(status, this, pvStructure, bitSet);
                 return;
             }
 
             lock();
             try {
-                // deserialize bitSet and data
-                bitSet.deserialize(payloadBuffer, transport);
-                data.deserialize(payloadBuffer, transport, bitSet);
+                synchronized (dataLock) {
+                    // data given back on destroy
+                    if (data == null)
+                        return;
+
+                    // deserialize bitSet and data
+                    bitSet.deserialize(payloadBuffer, transport);
+                    data.deserialize(payloadBuffer, transport, bitSet);
+                    dataDelivered = true;
+                }
             } finally {
                 unlock();
             }
@@ -190,4 +205,19 @@ public class ChannelGetRequestImpl extends BaseRequestImpl implements ChannelGet
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#destroy(boolean)
+     */
+    @Override
+    protected void destroy(boolean createRequestFailed) {
+        super.destroy(createRequestFailed);
+
+        // data never passed to the requester is not used after destroy, give it back
+        synchronized (dataLock) {
+            if (!dataDelivered)
+                giveBack(data);
+            data = null;
+        }
+    }
+
 }
@@ -25,7 +25,10 @@ import org.epics.pvdata.pv.*;
 import org.epics.pvdata.pv.Status.StatusType;
 
 import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * PVA monitor request.
@@ -35,11 +38,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 
-    /**
-     * PVField factory.
-     */
-    private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
-
     /**
      * Response callback listener.
      */
@@ -177,29 +175,45 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
     private static final BitSetUtil bitSetUtil = BitSetUtilFactory.getCompressBitSet();
     private static final Convert convert = ConvertFactory.getConvert();
 
-    // TODO fix sync
+    /**
+     * The monitor queue is a single producer, single consumer queue (see MonitorQueueFactory.createSPSC).
+     * The consumer (poll, release) hands over elements without locking.
+     * The producer side (the current element, overrun and stale field tracking) is guarded by monitorSync,
+     * which the consumer takes only to hand over the current element in overrun state, or to report unlisten.
+     * Since the queue can not be cleared while the consumer uses it, start replaces it with a new queue
+     * of the same elements; an element polled before is released to the queue it was polled from.
+     */
     private final class MonitorStrategyQueue implements MonitorStrategy, TransportSender {
         private final int queueSize;
 
         private MonitorElement monitorElement = null;
         private BitSet bitSet1 = null;
         private BitSet bitSet2 = null;
-        private boolean overrunInProgress = false;
+        private volatile boolean overrunInProgress = false;
 
-        private Structure lastStructure = null;
-        private MonitorQueue monitorQueue = null;
+        private volatile Structure lastStructure = null;
+        private volatile MonitorQueue monitorQueue = null;
+        // all elements of monitorQueue, given back to the PVStructure pool on destroy
+        private MonitorElement[] monitorElements = null;
+        // fields of each element that are out-of-date w.r.t. the current element
+        private IdentityHashMap<MonitorElement, BitSet> staleBitSets = null;
 
         private final Object monitorSync = new Object();
 
+        // consumer only
         private boolean needToReleaseFirst = false;
+        private MonitorQueue polledQueue = null;
+        // polled and not released, owned by the application, read by destroy
+        private volatile MonitorElement polledElement = null;
 
-        private int releasedCount = 0;
-        private boolean reportQueueStateInProgress = false;
+        private final AtomicInteger releasedCount = new AtomicInteger();
+        private final AtomicBoolean reportQueueStateInProgress = new AtomicBoolean();
 
         private final boolean pipeline;
         private final int ackAny;
 
-        private boolean unlisten;
+        // set when unlisten is to be reported once the queue is empty
+        private final AtomicBoolean unlisten = new AtomicBoolean();
 
         public MonitorStrategyQueue(
                 int queueSize,
@@ -215,34 +229,59 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
 
         public void init(Structure structure) {
             synchronized (monitorSync) {
-                releasedCount = 0;
-                reportQueueStateInProgress = false;
-                unlisten = false;
+                releasedCount.set(0);
+                reportQueueStateInProgress.set(false);
+                unlisten.set(false);
 
                 // reuse on reconnect
                 if (lastStructure == null || !lastStructure.equals(structure)) {
-                    MonitorElement[] monitorElements = new MonitorElement[queueSize];
+                    monitorElements = new MonitorElement[queueSize];
+                    staleBitSets = new IdentityHashMap<MonitorElement, BitSet>(queueSize);
                     for (int i = 0; i < queueSize; i++) {
-                        PVStructure pvNew = pvDataCreate.createPVStructure(structure);
+                        PVStructure pvNew = pvStructurePool.take(structure);
                         monitorElements[i] = MonitorQueueFactory.createMonitorElement(pvNew);
+                        staleBitSets.put(monitorElements[i], new BitSet(pvNew.getNumberFields()));
                     }
-                    monitorQueue = MonitorQueueFactory.create(monitorElements);
+                    monitorQueue = MonitorQueueFactory.createSPSC(monitorElements);
                     lastStructure = structure;
                 }
             }
         }
 
+        /**
+         * Mark fields changed in the current element as stale in all other elements.
+         * @param changed fields changed in the current element.
+         */
+        private void markStale(BitSet changed) {
+            for (Map.Entry<MonitorElement, BitSet> entry : staleBitSets.entrySet())
+                if (entry.getKey() != monitorElement)
+                    entry.getValue().or(changed);
+        }
+
+        /**
+         * Bring a free element up-to-date with the current element, copying only stale fields.
+         * @param newElement the free element.
+         */
+        private void copyToFree(MonitorElement newElement) {
+            final BitSet staleBitSet = staleBitSets.get(newElement);
+            convert.copy(monitorElement.getPVStructure(), newElement.getPVStructure(), staleBitSet);
+            staleBitSet.clear();
+        }
+
         public void unlisten() {
             boolean notify;
 
+            // set before checking, a concurrent poll on an empty queue then reports it
+            unlisten.set(true);
             synchronized (monitorSync) {
+                if (monitorQueue == null)
+                    return;
                 // awkward way of checking "is empty", -1 since one free monitorElement is take in advance
                 //notify = monitorQueue.empty();
                 notify = (monitorQueue.getNumberFree() == (monitorQueue.capacity() - 1));
-                unlisten = !notify;
             }
 
-            if (notify)
+            if (notify && unlisten.compareAndSet(true, false))
                 callback.unlisten(this);
         }
 
@@ -250,13 +289,17 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
             boolean notify = false;
 
             synchronized (monitorSync) {
+                // destroyed
+                if (monitorElement == null)
+                    return;
+
                 // if in overrun mode, check if some is free
                 if (overrunInProgress) {
                     MonitorElement newElement = monitorQueue.getFree();
                     if (newElement != null) {
                         // take new, put current in use
                         final PVStructure pvStructure = monitorElement.getPVStructure();
-                        convert.copy(pvStructure, newElement.getPVStructure());
+                        copyToFree(newElement);
 
                         bitSetUtil.compress(monitorElement.getChangedBitSet(), pvStructure);
                         bitSetUtil.compress(monitorElement.getOverrunBitSet(), pvStructure);
@@ -274,6 +317,9 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
                 callback.monitorEvent(this);
 
             synchronized (monitorSync) {
+                // destroyed
+                if (monitorElement == null)
+                    return;
 
                 // setup current fields
                 final PVStructure pvStructure = monitorElement.getPVStructure();
@@ -289,6 +335,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
                     bitSet1.deserialize(payloadBuffer, transport);
                     pvStructure.deserialize(payloadBuffer, transport, bitSet1);
                     bitSet2.deserialize(payloadBuffer, transport);
+                    markStale(bitSet1);
 
                     // OR local overrun
                     // TODO this does not work perfectly if bitSet is compressed !!!
@@ -305,6 +352,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
                     changedBitSet.deserialize(payloadBuffer, transport);
                     pvStructure.deserialize(payloadBuffer, transport, changedBitSet);
                     overrunBitSet.deserialize(payloadBuffer, transport);
+                    markStale(changedBitSet);
                 }
 
                 // prepare next free (if any)
@@ -322,7 +370,7 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
                     overrunInProgress = false;
                 }
 
-                convert.copy(pvStructure, newElement.getPVStructure());
+                copyToFree(newElement);
 
                 monitorQueue.setUsed(monitorElement);
 
@@ -333,22 +381,33 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         }
 
         public MonitorElement poll() {
-            synchronized (monitorSync) {
-                if (needToReleaseFirst)
-                    return null;
-                final MonitorElement retVal = monitorQueue.getUsed();
-                if (retVal != null) {
-                    needToReleaseFirst = true;
-                    return retVal;
-                }
+            if (needToReleaseFirst)
+                return null;
+            final MonitorQueue queue = monitorQueue;
+            if (queue == null)
+                return null;
+            final MonitorElement retVal = queue.getUsed();
+            if (retVal != null) {
+                polledElement = retVal;
+                needToReleaseFirst = true;
+                polledQueue = queue;
+                return retVal;
+            }
+
+            if (!overrunInProgress) {
+                if (unlisten.compareAndSet(true, false))
+                    callback.unlisten(this);
+                return null;
+            }
 
+            synchronized (monitorSync) {
                 // if in overrun mode and we have free, make it as last element
-                if (overrunInProgress) {
+                if (overrunInProgress && monitorElement != null) {
                     MonitorElement newElement = monitorQueue.getFree();
                     if (newElement != null) {
                         // take new, put current in use
                         final PVStructure pvStructure = monitorElement.getPVStructure();
-                        convert.copy(pvStructure, newElement.getPVStructure());
+                        copyToFree(newElement);
 
                         bitSetUtil.compress(monitorElement.getChangedBitSet(), pvStructure);
                         bitSetUtil.compress(monitorElement.getOverrunBitSet(), pvStructure);
@@ -359,50 +418,38 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
                         overrunInProgress = false;
 
                         needToReleaseFirst = true;
-                        return monitorQueue.getUsed();
+                        polledQueue = monitorQueue;
+                        polledElement = monitorQueue.getUsed();
+                        return polledElement;
                     } else
                         return null;        // should never happen since queueSize >= 2, but a client not calling release can do this
-                } else {
-                    if (unlisten) {
-                        unlisten = false;
-                    } else
-                        return null;
-                }
+                } else
+                    return null;            // overrun ended by response(), monitorEvent follows
             }
-
-            callback.unlisten(this);
-            return null;
         }
 
         public void release(MonitorElement monitorElement) {
             // fast sanity check check if monitorElement->pvStructurePtr->getStructure() matches
             // not to accept wrong structure (might happen on monitor reconnect with different type)
             // silent return
-            if (monitorElement.getPVStructure().getStructure() != lastStructure)
+            final MonitorQueue queue = polledQueue;
+            if (queue == null || monitorElement.getPVStructure().getStructure() != lastStructure)
                 return;
+            polledQueue = null;
+            polledElement = null;
 
-            synchronized (monitorSync) {
-                monitorQueue.releaseUsed(monitorElement);
-                needToReleaseFirst = false;
-
-                if (pipeline) {
-                    boolean sendAck = false;
-
-                    releasedCount++;
-                    if (!reportQueueStateInProgress && releasedCount > ackAny) {
-                        sendAck = true;
-                        reportQueueStateInProgress = true;
-                    }
+            queue.releaseUsed(monitorElement);
+            needToReleaseFirst = false;
 
-                    if (sendAck) {
-                        try {
-                            channel.checkAndGetTransport().enqueueSendRequest(this);
-                        } finally {
-                            reportQueueStateInProgress = false;
-                        }
+            if (pipeline) {
+                if (releasedCount.incrementAndGet() > ackAny &&
+                        reportQueueStateInProgress.compareAndSet(false, true)) {
+                    try {
+                        channel.checkAndGetTransport().enqueueSendRequest(this);
+                    } finally {
+                        reportQueueStateInProgress.set(false);
                     }
                 }
-
             }
         }
 
@@ -420,11 +467,8 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
             buffer.putInt(ioid);
             buffer.put((byte) QoS.GET_PUT.getMaskValue());
 
-            synchronized (monitorSync) {
-                buffer.putInt(releasedCount);
-                releasedCount = 0;
-                reportQueueStateInProgress = false;
-            }
+            buffer.putInt(releasedCount.getAndSet(0));
+            reportQueueStateInProgress.set(false);
 
             control.flush(true);
         }
@@ -432,7 +476,8 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         public Status start() {
             synchronized (monitorSync) {
                 overrunInProgress = false;
-                monitorQueue.clear();
+                // the consumer does not lock, so a new queue instead of clear
+                monitorQueue = MonitorQueueFactory.createSPSC(monitorElements);
                 monitorElement = monitorQueue.getFree();
                 needToReleaseFirst = false;
             }
@@ -444,7 +489,23 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         }
 
         public void destroy() {
-            // noop
+            synchronized (monitorSync) {
+                if (monitorElements == null)
+                    return;
+
+                // elements are not used after destroy, give them back,
+                // except the polled one not released yet, it stays with the application
+                final MonitorElement polled = polledElement;
+                for (MonitorElement element : monitorElements)
+                    if (element != polled)
+                        pvStructurePool.give(element.getPVStructure());
+
+                monitorElements = null;
+                staleBitSets = null;
+                monitorElement = null;
+                monitorQueue = null;
+                lastStructure = null;
+            }
         }
 
     }
@@ -549,6 +610,18 @@ public class ChannelMonitorImpl extends BaseRequestImpl implements Monitor {
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#destroy(boolean)
+     */
+    @Override
+    protected void destroy(boolean createRequestFailed) {
+        super.destroy(createRequestFailed);
+
+        // null if options were invalid
+        if (monitorStrategy != null)
+            monitorStrategy.destroy();
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvaccess.client.ChannelMonitor#start()
      */
@@ -52,6 +52,10 @@ public class ChannelPutGetRequestImpl extends BaseRequestImpl implements Channel
     protected PVStructure getData = null;
     protected BitSet getDataBitSet = null;
 
+    // data passed to the requester, owned by the requester after destroy
+    protected boolean putDataDelivered = false;
+    protected boolean getDataDelivered = false;
+
     // putGet reference store
     protected PVStructure putPutData = null;
     protected BitSet putPutDataBitSet = null;
@@ -177,9 +181,16 @@ public class ChannelPutGetRequestImpl extends BaseRequestImpl implements Channel
 
                 lock();
                 try {
-                    // deserialize get data
-                    getDataBitSet.deserialize(payloadBuffer, transport);
-                    getData.deserialize(payloadBuffer, transport, getDataBitSet);
+                    synchronized (dataLock) {
+                        // data given back on destroy
+                        if (getData == null)
+                            return;
+
+                        // deserialize get data
+                        getDataBitSet.deserialize(payloadBuffer, transport);
+                        getData.deserialize(payloadBuffer, transport, getDataBitSet);
+                        getDataDelivered = true;
+                    }
                 } finally {
                     unlock();
                 }
@@ -193,9 +204,16 @@ public class ChannelPutGetRequestImpl extends BaseRequestImpl implements Channel
 
                 lock();
                 try {
-                    // deserialize put data
-                    putDataBitSet.deserialize(payloadBuffer, transport);
-                    putData.deserialize(payloadBuffer, transport, putDataBitSet);
+                    synchronized (dataLock) {
+                        // data given back on destroy
+                        if (putData == null)
+                            return;
+
+                        // deserialize put data
+                        putDataBitSet.deserialize(payloadBuffer, transport);
+                        putData.deserialize(payloadBuffer, transport, putDataBitSet);
+                        putDataDelivered = true;
+                    }
                 } finally {
                     unlock();
                 }
@@ -209,9 +227,16 @@ public class ChannelPutGetRequestImpl extends BaseRequestImpl implements Channel
 
                 lock();
                 try {
-                    // deserialize data
-                    getDataBitSet.deserialize(payloadBuffer, transport);
-                    getData.deserialize(payloadBuffer, transport, getDataBitSet);
+                    synchronized (dataLock) {
+                        // data given back on destroy
+                        if (getData == null)
+                            return;
+
+                        // deserialize data
+                        getDataBitSet.deserialize(payloadBuffer, transport);
+                        getData.deserialize(payloadBuffer, transport, getDataBitSet);
+                        getDataDelivered = true;
+                    }
                 } finally {
                     unlock();
                 }
@@ -303,4 +328,22 @@ public class ChannelPutGetRequestImpl extends BaseRequestImpl implements Channel
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#destroy(boolean)
+     */
+    @Override
+    protected void destroy(boolean createRequestFailed) {
+        super.destroy(createRequestFailed);
+
+        // data never passed to the requester is not used after destroy, give it back
+        synchronized (dataLock) {
+            if (!putDataDelivered)
+                giveBack(putData);
+            putData = null;
+            if (!getDataDelivered)
+                giveBack(getData);
+            getData = null;
+        }
+    }
+
 }
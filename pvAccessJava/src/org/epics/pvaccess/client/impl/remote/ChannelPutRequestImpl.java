@@ -47,6 +47,9 @@ public class ChannelPutRequestImpl extends BaseRequestImpl implements ChannelPut
     protected PVStructure data = null;
     protected BitSet bitSet = null;
 
+    // data passed to the requester, owned by the requester after destroy
+    protected boolean dataDelivered = false;
+
     // put reference store
     protected PVStructure pvPutStructure = null;
     protected BitSet putBitSet = null;
@@ -169,8 +172,15 @@ public class ChannelPutRequestImpl extends BaseRequestImpl implements ChannelPut
 
                 lock();
                 try {
-                    bitSet.deserialize(payloadBuffer, transport);
-                    data.deserialize(payloadBuffer, transport, bitSet);
+                    synchronized (dataLock) {
+                        // data given back on destroy
+                        if (data == null)
+                            return;
+
+                        bitSet.deserialize(payloadBuffer, transport);
+                        data.deserialize(payloadBuffer, transport, bitSet);
+                        dataDelivered = true;
+                    }
                 } finally {
                     unlock();
                 }
@@ -245,4 +255,19 @@ public class ChannelPutRequestImpl extends BaseRequestImpl implements ChannelPut
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.impl.remote.BaseRequestImpl#destroy(boolean)
+     */
+    @Override
+    protected void destroy(boolean createRequestFailed) {
+        super.destroy(createRequestFailed);
+
+        // data never passed to the requester is not used after destroy, give it back
+        synchronized (dataLock) {
+            if (!dataDelivered)
+                giveBack(data);
+            data = null;
+        }
+    }
+
 }
@@ -25,6 +25,7 @@ import org.epics.pvaccess.client.impl.remote.tcp.BlockingTCPConnector.TransportF
 import org.epics.pvaccess.impl.remote.*;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.impl.remote.request.ResponseRequest;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPConnector;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
 import org.epics.pvaccess.impl.remote.utils.GUID;
@@ -45,6 +46,7 @@ import org.epics.pvdata.pv.Status.StatusType;
 import org.epics.pvdata.pv.StatusCreate;
 import org.epics.util.compat.jdk5.net.NetworkInterface;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
@@ -159,6 +161,17 @@ public class ClientContextImpl implements Context {
      */
     protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+    /**
+     * Size (in bytes) of the shared memory ring created for a connection to a server on this host,
+     * <code>0</code> disables the shared memory.
+     */
+    protected int sharedMemorySize = 0;
+
+    /**
+     * Directory of the shared memory ring files, must be the same as the one of the server.
+     */
+    protected File sharedMemoryDirectory = SharedMemoryRing.getDefaultDirectory();
+
     /**
      * Timer.
      */
@@ -321,6 +334,8 @@ public class ClientContextImpl implements Context {
         beaconPeriod = config.getPropertyAsFloat("EPICS_PVA_BEACON_PERIOD", beaconPeriod);
         broadcastPort = config.getPropertyAsInteger("EPICS_PVA_BROADCAST_PORT", broadcastPort);
         receiveBufferSize = config.getPropertyAsInteger("EPICS_PVA_MAX_ARRAY_BYTES", receiveBufferSize);
+        sharedMemorySize = config.getPropertyAsInteger("EPICS_PVA_SHARED_MEMORY_SIZE", sharedMemorySize);
+        sharedMemoryDirectory = new File(config.getPropertyAsString("EPICS_PVA_SHARED_MEMORY_DIR", sharedMemoryDirectory.getPath()));
     }
 
     /**
@@ -663,6 +678,8 @@ public class ClientContextImpl implements Context {
         } catch (UnknownHostException ignored) {
         }
         out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
+        out.println("SHARED_MEMORY_SIZE : " + sharedMemorySize);
+        out.println("SHARED_MEMORY_DIR : " + sharedMemoryDirectory);
         // out.println("EVENT_DISPATCHER: " + eventDispatcher);
         out.print("STATE : ");
         switch (state) {
@@ -729,6 +746,24 @@ public class ClientContextImpl implements Context {
         return receiveBufferSize;
     }
 
+    /**
+     * Get size (in bytes) of the shared memory ring created for a connection to a server on this host.
+     *
+     * @return size of the shared memory ring, <code>0</code> if disabled.
+     */
+    public int getSharedMemorySize() {
+        return sharedMemorySize;
+    }
+
+    /**
+     * Get directory of the shared memory ring files.
+     *
+     * @return directory of the shared memory ring files.
+     */
+    public File getSharedMemoryDirectory() {
+        return sharedMemoryDirectory;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -246,7 +246,7 @@ public class SimpleChannelSearchManagerImpl implements ChannelSearchManager, Tim
 
         final String name = si.getChannelName();
         // not nice...
-        final int addedPayloadSize = Integer.SIZE / Byte.SIZE + (1 + Integer.SIZE / Byte.SIZE + name.length());
+        final int addedPayloadSize = Integer.SIZE / Byte.SIZE + (1 + Integer.SIZE / Byte.SIZE + SerializeHelper.getUTF8Length(name, 0, name.length()));
 
         if (requestMessage.remaining() < addedPayloadSize)
             return false;
@@ -14,13 +14,17 @@
 
 package org.epics.pvaccess.client.impl.remote.tcp;
 
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
 import org.epics.pvaccess.impl.remote.*;
 import org.epics.pvaccess.impl.remote.io.Poller;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
 import org.epics.pvaccess.impl.remote.tcp.NonBlockingTCPTransport;
 import org.epics.pvaccess.plugins.SecurityPlugin;
 import org.epics.pvaccess.plugins.SecurityPlugin.SecurityPluginControl;
 import org.epics.pvaccess.plugins.SecurityPlugin.SecuritySession;
+import org.epics.pvaccess.util.InetAddressUtil;
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.misc.Timer.TimerCallback;
 import org.epics.pvdata.misc.Timer.TimerNode;
@@ -309,6 +313,32 @@ public class NonBlockingClientTCPTransport extends NonBlockingTCPTransport
     // always called from the same thread, therefore no sync needed
     private boolean verifyOrEcho = true;
 
+    /**
+     * Create a shared memory ring for the elements of large arrays, if enabled and the server is on this host.
+     * The server opens the ring file, which is named after the connection endpoints.
+     *
+     * @return <code>true</code> if the ring was created.
+     */
+    private boolean createSharedMemory() {
+        if (!(context instanceof ClientContextImpl))
+            return false;
+
+        final ClientContextImpl clientContext = (ClientContextImpl) context;
+        final int size = clientContext.getSharedMemorySize();
+        if (size <= 0 || !InetAddressUtil.isLocalAddress(socketAddress.getAddress()))
+            return false;
+
+        try {
+            setSharedMemoryConsumer(SharedMemoryRing.create(
+                    SharedMemoryRing.getFile(clientContext.getSharedMemoryDirectory(), socketAddress, channel.socket().getLocalPort()),
+                    size));
+            return true;
+        } catch (Throwable th) {
+            context.getLogger().log(Level.WARNING, "Failed to create shared memory ring for transport to " + socketAddress + ", arrays will be received inline.", th);
+            return false;
+        }
+    }
+
     /**
      * PVA connection validation response
      */
@@ -328,8 +358,11 @@ public class NonBlockingClientTCPTransport extends NonBlockingTCPTransport
             // TODO
             buffer.putShort(Short.MAX_VALUE);
 
-            // QoS (aka connection priority(
-            buffer.putShort(getPriority());
+            // QoS (aka connection priority(, the encodings accepted and the shared memory ring created
+            short connectionQos = (short) (getPriority() | PVAConstants.PVA_CONNECTION_QOS_SPARSE_BITSET);
+            if (createSharedMemory())
+                connectionQos |= PVAConstants.PVA_CONNECTION_QOS_SHARED_MEMORY;
+            buffer.putShort(connectionQos);
 
             // selected authNZ plug-in name
             String securityPluginName = (securitySession != null) ? securitySession.getSecurityPlugin().getId() : "";
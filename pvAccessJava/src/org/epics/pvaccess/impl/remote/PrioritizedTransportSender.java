@@ -0,0 +1,15 @@
+package org.epics.pvaccess.impl.remote;
+
+/**
+ * Transport sender with a send priority.
+ * Senders not implementing this interface are sent with <code>SendPriority.NORMAL</code>.
+ */
+public interface PrioritizedTransportSender extends TransportSender {
+
+    /**
+     * Get send priority (lane) of this sender.
+     *
+     * @return send priority, non-<code>null</code>.
+     */
+    SendPriority getSendPriority();
+}
@@ -0,0 +1,79 @@
+package org.epics.pvaccess.impl.remote;
+
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Send priority (lane) of a message within one transport.
+ * Messages of higher priority are sent before already queued messages of lower priority;
+ * messages of the same priority are sent in FIFO order.
+ * <p>
+ * Priority is requested via <code>record._options.priority</code> pvRequest option,
+ * e.g. <code>record[priority=high]field(value)</code>.
+ */
+public enum SendPriority {
+
+    /**
+     * Bulk data (e.g. image streams) that can tolerate delays.
+     */
+    LOW,
+
+    /**
+     * Default priority.
+     */
+    NORMAL,
+
+    /**
+     * Latency critical requests (e.g. small puts).
+     */
+    HIGH;
+
+    /**
+     * Priority of control messages (request destroy and cancel) regardless of the priority of the request,
+     * the priority of channel messages, so that they are sent in order with them.
+     */
+    public static final SendPriority CONTROL = NORMAL;
+
+    /**
+     * Name of the pvRequest option.
+     */
+    public static final String PV_REQUEST_OPTION = "priority";
+
+    /**
+     * Get priority requested by <code>record._options.priority</code> pvRequest option.
+     *
+     * @param pvRequest pvRequest structure, can be <code>null</code>.
+     * @return requested priority, <code>NORMAL</code> if not specified or invalid.
+     */
+    public static SendPriority fromPVRequest(PVStructure pvRequest) {
+        if (pvRequest == null)
+            return NORMAL;
+
+        PVField pvField = pvRequest.getSubField("record._options");
+        if (!(pvField instanceof PVStructure))
+            return NORMAL;
+
+        PVString pvString = ((PVStructure) pvField).getStringField(PV_REQUEST_OPTION);
+        if (pvString == null)
+            return NORMAL;
+
+        return parse(pvString.get());
+    }
+
+    /**
+     * Parse priority name (case insensitive).
+     *
+     * @param value priority name.
+     * @return parsed priority, <code>NORMAL</code> if value is <code>null</code> or invalid.
+     */
+    public static SendPriority parse(String value) {
+        if (value != null) {
+            value = value.trim();
+            for (SendPriority priority : values())
+                if (priority.name().equalsIgnoreCase(value))
+                    return priority;
+        }
+        return NORMAL;
+    }
+}
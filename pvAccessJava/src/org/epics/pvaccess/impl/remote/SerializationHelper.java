@@ -1,6 +1,7 @@
 package org.epics.pvaccess.impl.remote;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvdata.factory.PVStructurePool;
 import org.epics.pvdata.pv.*;
 
 import java.nio.ByteBuffer;
@@ -12,6 +13,11 @@ public class SerializationHelper {
      */
     private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
 
+    /**
+     * PVStructure pool.
+     */
+    private static final PVStructurePool pvStructurePool = PVFactory.getPVStructurePool();
+
     /**
      * Deserialize PVRequest.
      *
@@ -26,6 +32,8 @@ public class SerializationHelper {
 
     /**
      * Deserialize Structure and create PVStructure instance, if necessary.
+     * A new instance is taken from the PVStructure pool (see PVFactory.getPVStructurePool()),
+     * the caller gives it back when it is no longer used.
      *
      * @param payloadBuffer     data buffer.
      * @param control           deserialization control.
@@ -41,7 +49,7 @@ public class SerializationHelper {
         if (existingStructure != null && field.equals(existingStructure.getField()))
             return existingStructure;
         else
-            return pvDataCreate.createPVStructure((Structure) field);
+            return pvStructurePool.take((Structure) field);
     }
 
     /**
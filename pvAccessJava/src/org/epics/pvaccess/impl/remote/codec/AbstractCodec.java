@@ -1,9 +1,15 @@
 package org.epics.pvaccess.impl.remote.codec;
 
 import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
+import org.epics.pvaccess.impl.remote.SendPriority;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
 import org.epics.pvaccess.util.Mailbox;
+import org.epics.pvdata.pv.ArrayStore;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.SerializableControl;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -12,6 +18,8 @@ import java.nio.ByteOrder;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,7 +34,7 @@ import java.util.logging.Logger;
  * processRead -> ensureData -> pollOne -> processWrite -> ensureBuffer -> flush -> buffer full -> poolOne... same story as above
  */
 public abstract class AbstractCodec
-        implements ReadableByteChannel, WritableByteChannel, TransportSendControl {
+        implements ReadableByteChannel, WritableByteChannel, TransportSendControl, ArrayStore {
 
     protected final Logger logger;
 
@@ -464,12 +472,49 @@ public abstract class AbstractCodec
      */
     protected long totalBytesSent = 0;
 
-    protected final Mailbox<TransportSender> sendQueue = new Mailbox<TransportSender>();
+    /**
+     * Send queue, one lane per <code>SendPriority</code>.
+     */
+    protected final Mailbox<TransportSender> sendQueue = new Mailbox<TransportSender>(SendPriority.values().length, SendPriority.NORMAL.ordinal());
     protected final boolean blockingProcessQueue;
 
     private Thread senderThread = null;
     protected InetSocketAddress sendTo;
 
+    /**
+     * Slow-consumer policy, <code>null</code> if detection is disabled.
+     */
+    private volatile SlowConsumerPolicy slowConsumerPolicy = null;
+
+    /**
+     * Slow-consumer state.
+     */
+    private volatile boolean slowConsumer = false;
+
+    /**
+     * Set when a slow consumer is to be disconnected by the thread processing the send queue.
+     */
+    private volatile boolean slowConsumerDisconnectRequested = false;
+
+    /**
+     * Time (in ms) of the first unsuccessful write since last successful one, <code>0</code> if not stalled.
+     */
+    private volatile long writeStallStartTime = 0;
+
+    /**
+     * Number of bytes waiting to be written while stalled.
+     */
+    private volatile int pendingSendBytes = 0;
+
+    /**
+     * Queued senders, value marks that a follow-up send was coalesced (used only by <code>COALESCE</code> action).
+     */
+    private final ConcurrentHashMap<TransportSender, Boolean> queuedSenders = new ConcurrentHashMap<TransportSender, Boolean>();
+
+    private final AtomicLong slowConsumerDetectedCount = new AtomicLong();
+    private final AtomicLong coalescedSendCount = new AtomicLong();
+    private final AtomicLong droppedSendCount = new AtomicLong();
+
 
     public abstract void writePollOne() throws IOException;
 
@@ -673,10 +718,17 @@ public abstract class AbstractCodec
                 close();
                 throw new ConnectionClosedException("bytesSent < 0");
             } else if (bytesSent == 0) {
+                if (writeStallStartTime == 0)
+                    writeStallStartTime = System.currentTimeMillis();
+                pendingSendBytes = limit - buffer.position();
+                if (checkSlowConsumer(true) && !isOpen())
+                    throw new ConnectionClosedException("slow consumer disconnected");
+
                 sendBufferFull(tries++);
                 continue;
             }
             totalBytesSent += bytesSent;
+            writeStallStartTime = 0;
 
             // readjust limit
             if (bytesToSend == maxBytesToSend) {
@@ -687,6 +739,7 @@ public abstract class AbstractCodec
             }
             tries = 0;
         }
+        pendingSendBytes = 0;
     }
 
     protected abstract void sendBufferFull(int tries) throws IOException;
@@ -702,6 +755,13 @@ public abstract class AbstractCodec
         try {
             int senderProcessed = 0;
             while (senderProcessed++ < MAX_MESSAGE_SEND) {
+                if (slowConsumerDisconnectRequested) {
+                    slowConsumerDisconnectRequested = false;
+                    if (isOpen())
+                        slowConsumerDisconnect();
+                    return;
+                }
+
                 TransportSender sender = sendQueue.take(-1);
                 if (sender == null) {
                     // flush
@@ -720,7 +780,12 @@ public abstract class AbstractCodec
                         return;
                 }
 
-                processSender(sender);
+                if (slowConsumerPolicy != null && Boolean.TRUE.equals(queuedSenders.remove(sender))) {
+                    processSender(sender);
+                    // send coalesced request
+                    enqueueSendRequest(sender);
+                } else
+                    processSender(sender);
             }
         } catch (InterruptedException ie) {
             // noop, allowed and expected in blocking
@@ -733,13 +798,165 @@ public abstract class AbstractCodec
 
     public final void clearSendQueue() {
         sendQueue.clear();
+        queuedSenders.clear();
     }
 
     public final void enqueueSendRequest(TransportSender sender) {
-        sendQueue.put(sender);
+        final SendPriority priority = getSendPriority(sender);
+        if (slowConsumerPolicy != null && !admitSendRequest(sender, priority))
+            return;
+        sendQueue.put(sender, priority.ordinal());
         scheduleSend();
     }
 
+    private boolean admitSendRequest(TransportSender sender, SendPriority priority) {
+        final SlowConsumerPolicy policy = slowConsumerPolicy;
+        if (policy == null)
+            return true;
+
+        final boolean slow = checkSlowConsumer();
+        switch (policy.getAction()) {
+            case COALESCE:
+                while (true) {
+                    Boolean coalesced = queuedSenders.putIfAbsent(sender, Boolean.FALSE);
+                    if (coalesced == null || !slow)
+                        return true;
+                    // already queued, mark for a follow-up send (unless just taken from the queue)
+                    if (coalesced.booleanValue() || queuedSenders.replace(sender, Boolean.FALSE, Boolean.TRUE)) {
+                        coalescedSendCount.incrementAndGet();
+                        return false;
+                    }
+                }
+            case DROP_LOW_PRIORITY:
+                if (slow && priority == SendPriority.LOW) {
+                    droppedSendCount.incrementAndGet();
+                    return false;
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Set slow-consumer policy.
+     *
+     * @param policy policy to use, <code>null</code> to disable slow-consumer detection.
+     */
+    public void setSlowConsumerPolicy(SlowConsumerPolicy policy) {
+        slowConsumerPolicy = policy;
+        queuedSenders.clear();
+        if (policy == null)
+            slowConsumer = false;
+    }
+
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    /**
+     * Check whether send requests of the same sender are coalesced, i.e. whether the policy action is
+     * <code>COALESCE</code>. A coalesced sender that sends only a part of its data per send request
+     * (e.g. one monitor element) has to request another send while it has more data to send.
+     *
+     * @return <code>true</code> if send requests are coalesced.
+     */
+    public boolean isCoalescingSendRequests() {
+        final SlowConsumerPolicy policy = slowConsumerPolicy;
+        return policy != null && policy.getAction() == SlowConsumerPolicy.Action.COALESCE;
+    }
+
+    /**
+     * Check slow-consumer thresholds and disconnect if required by the policy.
+     * Can be called from any thread, the connection is closed by the thread processing the send queue.
+     *
+     * @return <code>true</code> if remote side is considered to be a slow consumer.
+     */
+    public final boolean checkSlowConsumer() {
+        return checkSlowConsumer(false);
+    }
+
+    private boolean checkSlowConsumer(boolean sendThread) {
+        final SlowConsumerPolicy policy = slowConsumerPolicy;
+        if (policy == null)
+            return false;
+
+        final long stallStart = writeStallStartTime;
+        final long stallTime = (stallStart == 0) ? 0 : System.currentTimeMillis() - stallStart;
+        final boolean slow = policy.isExceeded(sendQueue.size(), pendingSendBytes, stallTime);
+
+        if (slow != slowConsumer) {
+            slowConsumer = slow;
+            if (slow) {
+                slowConsumerDetectedCount.incrementAndGet();
+                logger.warning("Slow consumer detected at " + getLastReadBufferSocketAddress() +
+                        ": queue length " + sendQueue.size() + ", pending bytes " + pendingSendBytes +
+                        ", write stalled for " + stallTime + " ms, action " + policy.getAction() + ".");
+            } else
+                logger.info("Consumer at " + getLastReadBufferSocketAddress() + " recovered.");
+        }
+
+        if (slow && policy.getAction() == SlowConsumerPolicy.Action.DISCONNECT && isOpen()) {
+            if (sendThread) {
+                logger.warning("Disconnecting slow consumer at " + getLastReadBufferSocketAddress() + ".");
+                slowConsumerDisconnect();
+            } else if (!slowConsumerDisconnectRequested) {
+                logger.warning("Disconnecting slow consumer at " + getLastReadBufferSocketAddress() + ".");
+                slowConsumerDisconnectRequested = true;
+                // wake up the thread processing the send queue
+                sendQueue.wakeup();
+                scheduleSend();
+            }
+        }
+
+        return slow;
+    }
+
+    /**
+     * Called by the thread processing the send queue to disconnect a slow consumer.
+     */
+    protected void slowConsumerDisconnect() {
+        try {
+            close();
+        } catch (IOException e) {
+            // noop, best-effort close
+        }
+    }
+
+    /**
+     * Get slow-consumer state, as evaluated by the last check.
+     *
+     * @return <code>true</code> if remote side is considered to be a slow consumer.
+     */
+    public boolean isSlowConsumer() {
+        return slowConsumer;
+    }
+
+    public int getSendQueueLength() {
+        return sendQueue.size();
+    }
+
+    public long getSlowConsumerDetectedCount() {
+        return slowConsumerDetectedCount.get();
+    }
+
+    public long getCoalescedSendCount() {
+        return coalescedSendCount.get();
+    }
+
+    public long getDroppedSendCount() {
+        return droppedSendCount.get();
+    }
+
+    private static SendPriority getSendPriority(TransportSender sender) {
+        if (sender instanceof PrioritizedTransportSender) {
+            SendPriority priority = ((PrioritizedTransportSender) sender).getSendPriority();
+            if (priority != null)
+                return priority;
+        }
+        return SendPriority.NORMAL;
+    }
+
     public void setSenderThread() {
         senderThread = Thread.currentThread();
     }
@@ -811,5 +1028,121 @@ public abstract class AbstractCodec
         byteOrderFlag = ByteOrder.BIG_ENDIAN == byteOrder ? 0x80 : 0x00;
     }
 
+    /**
+     * Shared memory ring the elements of large arrays are sent through, <code>null</code> if none.
+     */
+    private volatile SharedMemoryRing sharedMemoryProducer = null;
+
+    /**
+     * Minimal size (in bytes) of the array elements sent through the shared memory ring.
+     */
+    private volatile int sharedMemoryThreshold = Integer.MAX_VALUE;
+
+    /**
+     * Shared memory ring the elements of large arrays are received through, <code>null</code> if none.
+     */
+    private volatile SharedMemoryRing sharedMemoryConsumer = null;
+
+    /**
+     * Ring and size of the reserved array elements (accessed only by the thread serializing).
+     */
+    private SharedMemoryRing reservedArrayRing;
+    private int reservedArraySize;
+
+    /**
+     * Ring of the loaded array elements (accessed only by the thread deserializing).
+     */
+    private SharedMemoryRing loadedArrayRing;
+
+    /**
+     * Send the elements of large arrays through a shared memory ring.
+     *
+     * @param ring      shared memory ring, the producer side.
+     * @param threshold minimal size (in bytes) of the array elements sent through the ring.
+     */
+    public void setSharedMemoryProducer(SharedMemoryRing ring, int threshold) {
+        sharedMemoryThreshold = threshold;
+        sharedMemoryProducer = ring;
+    }
+
+    /**
+     * Receive the elements of large arrays through a shared memory ring.
+     *
+     * @param ring shared memory ring, the consumer side.
+     */
+    public void setSharedMemoryConsumer(SharedMemoryRing ring) {
+        sharedMemoryConsumer = ring;
+    }
+
+    /**
+     * Close the shared memory rings, if any.
+     */
+    protected void closeSharedMemory() {
+        SharedMemoryRing ring = sharedMemoryProducer;
+        if (ring != null) {
+            sharedMemoryProducer = null;
+            ring.close();
+        }
+
+        ring = sharedMemoryConsumer;
+        if (ring != null) {
+            sharedMemoryConsumer = null;
+            ring.close();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.ArrayStore#reserveArray(int, java.nio.ByteOrder)
+     */
+    public ByteBuffer reserveArray(int size, ByteOrder order) {
+        final SharedMemoryRing ring = sharedMemoryProducer;
+        if (ring == null || size < sharedMemoryThreshold)
+            return null;
+
+        // full ring, send inline rather than wait for the consumer
+        final ByteBuffer elements = ring.reserve(size);
+        if (elements == null)
+            return null;
+
+        reservedArrayRing = ring;
+        reservedArraySize = size;
+        return elements.order(order);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.ArrayStore#commitArray(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+     */
+    public void commitArray(ByteBuffer buffer, SerializableControl control) {
+        final long position = reservedArrayRing.commit();
+        reservedArrayRing = null;
+        control.ensureBuffer(8 + 4);
+        buffer.putLong(position);
+        buffer.putInt(reservedArraySize);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.ArrayStore#loadArray(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+     */
+    public ByteBuffer loadArray(ByteBuffer buffer, DeserializableControl control) {
+        control.ensureData(8 + 4);
+        final long position = buffer.getLong();
+        final int size = buffer.getInt();
+
+        final SharedMemoryRing ring = sharedMemoryConsumer;
+        if (ring == null)
+            throw new IllegalArgumentException("array elements in shared memory received, but no shared memory ring is open");
+        final ByteBuffer elements = ring.read(position, size).order(buffer.order());
+        loadedArrayRing = ring;
+        return elements;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.ArrayStore#releaseArray()
+     */
+    public void releaseArray() {
+        loadedArrayRing.release();
+        loadedArrayRing = null;
+    }
+
     public abstract boolean terminated();
 }
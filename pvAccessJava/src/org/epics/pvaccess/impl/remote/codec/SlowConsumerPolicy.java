@@ -0,0 +1,110 @@
+package org.epics.pvaccess.impl.remote.codec;
+
+/**
+ * Slow-consumer detection thresholds and the action taken when any of them is exceeded.
+ * A threshold of <code>0</code> (or less) disables the check.
+ * Instances are immutable.
+ */
+public final class SlowConsumerPolicy {
+
+    /**
+     * Action taken on a slow consumer.
+     */
+    public enum Action {
+
+        /**
+         * Keep at most one pending send request per sender (e.g. monitor),
+         * further requests are merged into one follow-up send.
+         */
+        COALESCE,
+
+        /**
+         * Drop send requests of <code>SendPriority.LOW</code> senders.
+         */
+        DROP_LOW_PRIORITY,
+
+        /**
+         * Log and disconnect.
+         */
+        DISCONNECT;
+
+        /**
+         * Parse action name (case insensitive).
+         *
+         * @param value        action name.
+         * @param defaultValue value returned if <code>value</code> is <code>null</code> or invalid.
+         * @return parsed action.
+         */
+        public static Action parse(String value, Action defaultValue) {
+            if (value != null) {
+                value = value.trim();
+                for (Action action : values())
+                    if (action.name().equalsIgnoreCase(value))
+                        return action;
+            }
+            return defaultValue;
+        }
+    }
+
+    private final int maxQueueLength;
+    private final int maxPendingBytes;
+    private final long maxWriteStallMs;
+    private final Action action;
+
+    /**
+     * Constructor.
+     *
+     * @param maxQueueLength  maximum number of send requests waiting in the send queue.
+     * @param maxPendingBytes maximum number of bytes waiting to be written to the socket.
+     * @param maxWriteStallMs maximum time (in ms) since last successful write while there are bytes to be written.
+     * @param action          action to take, non-<code>null</code>.
+     */
+    public SlowConsumerPolicy(int maxQueueLength, int maxPendingBytes, long maxWriteStallMs, Action action) {
+        if (action == null)
+            throw new IllegalArgumentException("action == null");
+        this.maxQueueLength = maxQueueLength;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxWriteStallMs = maxWriteStallMs;
+        this.action = action;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public int getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    public long getMaxWriteStallMs() {
+        return maxWriteStallMs;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Check whether any of the thresholds is exceeded.
+     *
+     * @param queueLength  current send queue length.
+     * @param pendingBytes current number of bytes waiting to be written.
+     * @param writeStallMs time since last successful write, <code>0</code> if not stalled.
+     * @return <code>true</code> if consumer is to be considered slow.
+     */
+    public boolean isExceeded(int queueLength, int pendingBytes, long writeStallMs) {
+        return (maxQueueLength > 0 && queueLength > maxQueueLength) ||
+                (maxPendingBytes > 0 && pendingBytes > maxPendingBytes) ||
+                (maxWriteStallMs > 0 && writeStallMs > maxWriteStallMs);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return action + " (maxQueueLength=" + maxQueueLength +
+                ", maxPendingBytes=" + maxPendingBytes +
+                ", maxWriteStallMs=" + maxWriteStallMs + ")";
+    }
+}
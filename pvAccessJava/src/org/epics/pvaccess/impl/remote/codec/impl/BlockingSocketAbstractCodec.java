@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.logging.Logger;
 
@@ -19,6 +21,16 @@ public abstract class BlockingSocketAbstractCodec extends BlockingAbstractCodec
     protected final SocketChannel channel;
     protected final InetSocketAddress socketAddress;
 
+    /**
+     * Selector used to wait for the (non-blocking) channel to become readable, accessed only by the receive thread.
+     */
+    private Selector readSelector = null;
+
+    /**
+     * Selector used to wait for the (non-blocking) channel to become writable, accessed only by the send thread.
+     */
+    private Selector writeSelector = null;
+
     public BlockingSocketAbstractCodec(
             boolean serverFlag,
             SocketChannel channel,
@@ -38,20 +50,59 @@ public abstract class BlockingSocketAbstractCodec extends BlockingAbstractCodec
     public int read(ByteBuffer dst) throws IOException {
         int nRead = channel.read(dst);
         if (nRead == 0) {
-            try {
-                Thread.sleep(25);
-            } catch (InterruptedException ignored) {
+            // wait (at most 25ms) for more data instead of sleeping
+            if (readSelector == null) {
+                readSelector = Selector.open();
+                channel.register(readSelector, SelectionKey.OP_READ);
             }
+            readSelector.select(25);
+            readSelector.selectedKeys().clear();
         }
         return nRead;
     }
 
+    /**
+     * Called when a message is split and the rest is not received yet,
+     * <code>read</code> already waited for the channel to become readable, so the read is just retried.
+     */
+    @Override
+    public void readPollOne() {
+        // noop
+    }
+
     public int write(ByteBuffer src) throws IOException {
         return channel.write(src);
     }
 
+    /**
+     * Wait (at most 100ms) for the channel to become writable, instead of sleeping for a second or more.
+     */
+    @Override
+    protected void sendBufferFull(int tries) {
+        try {
+            if (writeSelector == null) {
+                writeSelector = Selector.open();
+                channel.register(writeSelector, SelectionKey.OP_WRITE);
+            }
+            writeSelector.select(100);
+            writeSelector.selectedKeys().clear();
+        } catch (IOException e) {
+            // closed, next write will fail
+        }
+    }
+
     @Override
     protected void internalDestroy() {
+        for (Selector selector : new Selector[]{readSelector, writeSelector}) {
+            if (selector != null) {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // noop
+                }
+            }
+        }
+
         if (channel.isOpen()) {
             try {
                 channel.close();
@@ -66,4 +66,24 @@ public interface ChannelHostingTransport {
      * @return an array of all hosted channels.
      */
     ServerChannel[] getChannels();
+
+    /**
+     * Set if the client accepts the sparse BitSet encodings, as negotiated during connection validation.
+     *
+     * @param accepted <code>true</code> if the sparse encodings can be sent.
+     */
+    void setSparseBitSetAccepted(boolean accepted);
+
+    /**
+     * Check if the client accepts the sparse BitSet encodings.
+     *
+     * @return <code>true</code> if the sparse encodings can be sent.
+     */
+    boolean isSparseBitSetAccepted();
+
+    /**
+     * Open the shared memory ring created by the client, as negotiated during connection validation.
+     * The elements of large arrays are sent inline if the ring cannot be opened.
+     */
+    void openSharedMemory();
 }
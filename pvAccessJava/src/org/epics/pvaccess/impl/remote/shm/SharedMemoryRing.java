@@ -0,0 +1,325 @@
+package org.epics.pvaccess.impl.remote.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped byte ring shared by the two peers of a connection on the same host.
+ * <p>
+ * The producer (server) puts the elements of a large array once into a record and
+ * sends the position and length of the record over the TCP connection, instead of the elements.
+ * The consumer (client) copies the elements out of the record and releases it.
+ * Records are consumed in the order they are sent, so the consumer only publishes
+ * the end of the last released record; the producer never overwrites unreleased records
+ * and returns <code>null</code> from <code>reserve</code> (i.e. the array is sent inline) when the ring is full.
+ * <p>
+ * The record header is written only by the producer, the released position only by the consumer.
+ * Both are written after the data they publish and read before the data they guard,
+ * with a full fence in between, therefore no inter-process locking is needed.
+ * Instance is not synchronized, a ring has exactly one producer and one consumer thread.
+ * <p>
+ * File layout (native byte order), positions are absolute and grow monotonically:
+ * <pre>
+ * header: magic(int) version(int) capacity(long) released(long) ... padded to HEADER_SIZE
+ * record: position(long) length(int) pad(int) data[length aligned to 8], at (position % capacity)
+ * </pre>
+ * A record that does not fit before the end of the ring starts at the next multiple of the capacity.
+ */
+public final class SharedMemoryRing {
+
+    /**
+     * Magic code ("PVAM") in the file header.
+     */
+    public static final int MAGIC = 0x5056414D;
+
+    /**
+     * Ring file layout version.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * File header size.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    /**
+     * Record header size.
+     */
+    public static final int RECORD_HEADER_SIZE = 16;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int RELEASED_OFFSET = 16;
+
+    private final File file;
+    private final boolean owner;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+
+    /**
+     * Written by <code>fence()</code>, see there.
+     */
+    private volatile int fenceField;
+
+    /**
+     * Position following the last committed record (producer only).
+     */
+    private long written;
+
+    /**
+     * Position and length of the reserved (producer) or read (consumer) record, <code>-1</code> if none.
+     */
+    private long recordPosition = -1;
+    private int recordLength;
+
+    private SharedMemoryRing(File file, boolean owner, MappedByteBuffer buffer) {
+        this.file = file;
+        this.owner = owner;
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.nativeOrder());
+        this.capacity = buffer.capacity() - HEADER_SIZE;
+    }
+
+    /**
+     * Create (or truncate) a ring file and map it. The file is deleted by <code>close()</code>.
+     *
+     * @param file     ring file.
+     * @param capacity ring capacity in bytes, excluding the file header.
+     * @return created ring.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static SharedMemoryRing create(File file, int capacity) throws IOException {
+        if (capacity < RECORD_HEADER_SIZE || capacity > Integer.MAX_VALUE - HEADER_SIZE)
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        capacity = capacity & ~7;
+
+        final MappedByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + capacity);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+        } finally {
+            raf.close();
+        }
+
+        final SharedMemoryRing ring = new SharedMemoryRing(file, true, buffer);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putLong(CAPACITY_OFFSET, capacity);
+        buffer.putLong(RELEASED_OFFSET, 0);
+        ring.fence();
+        return ring;
+    }
+
+    /**
+     * Open and map a ring file created by the peer.
+     *
+     * @param file ring file.
+     * @return opened ring.
+     * @throws IOException if the file cannot be mapped or it is not a ring file.
+     */
+    public static SharedMemoryRing open(File file) throws IOException {
+        final MappedByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final long length = raf.length();
+            if (length <= HEADER_SIZE + RECORD_HEADER_SIZE || length > Integer.MAX_VALUE)
+                throw new IOException("Not a shared memory ring file, invalid length: " + file);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } finally {
+            raf.close();
+        }
+
+        final SharedMemoryRing ring = new SharedMemoryRing(file, false, buffer);
+        ring.fence();
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC ||
+                buffer.getInt(VERSION_OFFSET) != VERSION ||
+                buffer.getLong(CAPACITY_OFFSET) != ring.capacity)
+            throw new IOException("Not a shared memory ring file, invalid header: " + file);
+        ring.written = ring.getReleased();
+        return ring;
+    }
+
+    /**
+     * Get the ring file of a connection, named after its endpoints.
+     *
+     * @param directory     directory of ring files, shared by both peers.
+     * @param serverAddress server address of the connection.
+     * @param clientPort    client port of the connection.
+     * @return ring file.
+     */
+    public static File getFile(File directory, InetSocketAddress serverAddress, int clientPort) {
+        final String name = "pva_" + serverAddress.getAddress().getHostAddress() +
+                "_" + serverAddress.getPort() + "_" + clientPort;
+        return new File(directory, name.replaceAll("[^0-9A-Za-z.]", "_"));
+    }
+
+    /**
+     * Get the default directory of ring files, <code>/dev/shm</code> if it exists, the temporary directory otherwise.
+     *
+     * @return default directory of ring files.
+     */
+    public static File getDefaultDirectory() {
+        final File shm = new File("/dev/shm");
+        return shm.isDirectory() ? shm : new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Get the ring capacity.
+     *
+     * @return ring capacity in bytes, excluding the file header.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the ring file.
+     *
+     * @return ring file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reserve a record (producer only).
+     *
+     * @param length length of the record data in bytes.
+     * @return buffer of <code>length</code> bytes to put the data to,
+     * or <code>null</code> if the record does not fit into the unreleased part of the ring.
+     */
+    public ByteBuffer reserve(int length) {
+        if (length < 0)
+            throw new IllegalArgumentException("length < 0");
+        if (recordPosition >= 0)
+            throw new IllegalStateException("a record is already reserved");
+
+        final long recordSize = recordSize(length);
+        if (recordSize > capacity)
+            return null;
+
+        long position = written;
+        final long offset = position % capacity;
+        if (offset + recordSize > capacity)
+            position += capacity - offset;
+
+        // the consumer may still be reading anything after released
+        if (position + recordSize - getReleased() > capacity)
+            return null;
+
+        recordPosition = position;
+        recordLength = length;
+        return slice(position, length);
+    }
+
+    /**
+     * Commit the reserved record, once its data is put (producer only).
+     *
+     * @return the position of the record.
+     */
+    public long commit() {
+        final long position = recordPosition;
+        if (position < 0)
+            throw new IllegalStateException("no record reserved");
+
+        final int offset = HEADER_SIZE + (int) (position % capacity);
+        buffer.putInt(offset + 8, recordLength);
+        // the data and the length must be visible before the position that validates them
+        fence();
+        buffer.putLong(offset, position);
+
+        written = position + recordSize(recordLength);
+        recordPosition = -1;
+        return position;
+    }
+
+    /**
+     * Get the data of a committed record (consumer only).
+     *
+     * @param position position of the record.
+     * @param length   length of the record data in bytes.
+     * @return buffer of <code>length</code> bytes, valid until <code>release</code> is called.
+     * @throws IllegalArgumentException if there is no such record.
+     */
+    public ByteBuffer read(long position, int length) {
+        if (recordPosition >= 0)
+            throw new IllegalStateException("a record is already read");
+        if (position < 0 || length < 0 || position % capacity + recordSize(length) > capacity)
+            throw new IllegalArgumentException("invalid record reference: " + position + ", " + length);
+
+        final int offset = HEADER_SIZE + (int) (position % capacity);
+        final long committed = buffer.getLong(offset);
+        // the data and the length must not be read before the position that validates them
+        fence();
+        if (committed != position || buffer.getInt(offset + 8) != length)
+            throw new IllegalArgumentException("no record at position " + position + " with length " + length);
+
+        recordPosition = position;
+        recordLength = length;
+        return slice(position, length);
+    }
+
+    /**
+     * Release the record returned by the last call of <code>read</code>, once its data is copied (consumer only).
+     */
+    public void release() {
+        final long position = recordPosition;
+        if (position < 0)
+            throw new IllegalStateException("no record read");
+
+        // the data must be copied before the producer can see the record released
+        fence();
+        buffer.putLong(RELEASED_OFFSET, position + recordSize(recordLength));
+        fence();
+
+        recordPosition = -1;
+    }
+
+    /**
+     * Close the ring, the file is deleted if it was created by this instance.
+     * The mapping is released when the ring is garbage collected.
+     */
+    public void close() {
+        if (owner)
+            file.delete();
+    }
+
+    private long getReleased() {
+        final long released = buffer.getLong(RELEASED_OFFSET);
+        // the records must not be overwritten before the released position is read
+        fence();
+        return released;
+    }
+
+    private ByteBuffer slice(long position, int length) {
+        final int offset = HEADER_SIZE + (int) (position % capacity) + RECORD_HEADER_SIZE;
+        final ByteBuffer data = buffer.duplicate();
+        data.limit(offset + length).position(offset);
+        return data.slice();
+    }
+
+    private static long recordSize(int length) {
+        return RECORD_HEADER_SIZE + ((length + 7L) & ~7L);
+    }
+
+    /**
+     * Full fence for the accesses to the mapped buffer, which are plain accesses:
+     * the preceding accesses cannot move after the volatile write (release),
+     * the following accesses cannot move before the volatile read (acquire),
+     * and a volatile write is not reordered with a following volatile read.
+     */
+    private void fence() {
+        fenceField = 0;
+        if (fenceField != 0)
+            throw new AssertionError();
+    }
+}
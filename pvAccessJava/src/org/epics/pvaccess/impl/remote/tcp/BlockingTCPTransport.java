@@ -115,6 +115,7 @@ public abstract class BlockingTCPTransport extends BlockingSocketAbstractCodec i
         context.getTransportRegistry().remove(this);
 
         // clean resources
+        closeSharedMemory();
         internalClose();
     }
 
@@ -115,6 +115,7 @@ public abstract class NonBlockingTCPTransport extends NonBlockingSocketAbstractC
         context.getTransportRegistry().remove(this);
 
         // clean resources
+        closeSharedMemory();
         internalClose();
     }
 
@@ -0,0 +1,607 @@
+package org.epics.pvaccess.impl.remote.utils;
+
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.*;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.impl.remote.utils.LoadTestChannelProvider.RecordType;
+import org.epics.pvaccess.impl.remote.utils.getopt.Getopt;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvaccess.util.logging.ConsoleLogHandler;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.*;
+import org.epics.util.compat.jdk5.lang.Arrays;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Load-generation and soak-test tool.
+ * Starts an in-process pvAccess server hosting a configurable record set (see <code>LoadTestChannelProvider</code>)
+ * and drives a number of virtual clients (each with its own client context, i.e. its own TCP connection)
+ * with a configurable get/put/monitor mix and rates.
+ * <p>
+ * Results (throughput, latency percentiles, GC activity, thread count and heap usage) are reported
+ * as a JSON document. If a latency limit is given, exit status is <code>2</code> when the limit
+ * is exceeded or any request fails, which allows the tool to be used as a performance regression gate.
+ */
+public class LoadTest {
+
+    private static final String DEFAULT_RECORD_TYPES = "scalar,array,ndarray,table";
+    private static final int DEFAULT_RECORDS = 10;
+    private static final int DEFAULT_ARRAY_SIZE = 1000;
+    private static final int DEFAULT_IMAGE_SIZE = 256 * 1024;
+    private static final int DEFAULT_CLIENTS = 10;
+    private static final double DEFAULT_GET_RATE = 10.0;        // Hz per client
+    private static final double DEFAULT_PUT_RATE = 1.0;         // Hz per client
+    private static final int DEFAULT_MONITORS = 4;              // per client
+    private static final double DEFAULT_UPDATE_RATE = 10.0;     // Hz
+    private static final int DEFAULT_DURATION = 30;             // sec
+    private static final int DEFAULT_WARMUP = 5;                // sec
+    private static final float CONNECT_TIMEOUT = 10.0f;         // sec
+
+    private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+
+    /**
+     * Collects latency samples (in ns) and computes percentiles.
+     */
+    static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int count = 0;
+        private long errors = 0;
+        private long skipped = 0;
+
+        synchronized void record(long latencyNs) {
+            if (count == samples.length)
+                samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = latencyNs;
+        }
+
+        synchronized void error() {
+            errors++;
+        }
+
+        synchronized void skipped() {
+            skipped++;
+        }
+
+        synchronized void reset() {
+            count = 0;
+            errors = 0;
+            skipped = 0;
+        }
+
+        synchronized long getErrors() {
+            return errors;
+        }
+
+        synchronized double getPercentileMs(double percentile) {
+            if (count == 0)
+                return 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+        }
+
+        synchronized void report(PrintStream o, String name, double durationSec, String extra) {
+            o.println("  \"" + name + "\": {");
+            o.println("    \"count\": " + count + ",");
+            o.println("    \"errors\": " + errors + ",");
+            o.println("    \"skipped\": " + skipped + ",");
+            if (extra != null)
+                o.println("    " + extra + ",");
+            o.println("    \"throughput\": " + format(count / durationSec) + ",");
+            o.println("    \"latencyMs\": { \"p50\": " + format(getPercentileMs(50)) +
+                    ", \"p90\": " + format(getPercentileMs(90)) +
+                    ", \"p99\": " + format(getPercentileMs(99)) +
+                    ", \"p999\": " + format(getPercentileMs(99.9)) +
+                    ", \"max\": " + format(getPercentileMs(100)) + " }");
+            o.print("  }");
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    private final LatencyRecorder getLatency = new LatencyRecorder();
+    private final LatencyRecorder putLatency = new LatencyRecorder();
+    private final LatencyRecorder monitorLatency = new LatencyRecorder();
+
+    private static final Logger logger = Logger.getLogger(LoadTest.class.getName());
+
+    /**
+     * Client-side state of one channel of a virtual client.
+     */
+    class ClientChannel implements ChannelRequester, ChannelGetRequester, ChannelPutRequester, MonitorRequester {
+        final String name;
+        final CountDownLatch connected;
+        final boolean subscribe;
+        final AtomicBoolean getPending = new AtomicBoolean();
+        final AtomicBoolean putPending = new AtomicBoolean();
+        final AtomicBoolean ready = new AtomicBoolean();
+        volatile ChannelGet channelGet;
+        volatile ChannelPut channelPut;
+        volatile Monitor monitor;
+        Channel channel;
+        PVStructure pvPut;
+        BitSet putBitSet;
+        long getStart;
+        long putStart;
+
+        ClientChannel(String name, boolean subscribe, CountDownLatch connected) {
+            this.name = name;
+            this.subscribe = subscribe;
+            this.connected = connected;
+        }
+
+        public String getRequesterName() {
+            return name;
+        }
+
+        public void message(String message, MessageType messageType) {
+            logger.fine("[" + messageType + "] " + name + ": " + message);
+        }
+
+        public void channelCreated(Status status, Channel channel) {
+            if (!status.isSuccess())
+                logger.warning("Failed to create channel '" + name + "': " + status.getMessage());
+        }
+
+        public void channelStateChange(Channel channel, ConnectionState connectionState) {
+            if (connectionState == ConnectionState.CONNECTED && channelGet == null) {
+                channel.createChannelGet(this, CreateRequest.compile("field(value,timeStamp)").createPVRequest());
+                channel.createChannelPut(this, CreateRequest.compile("field(value)").createPVRequest());
+                if (subscribe)
+                    channel.createMonitor(this, CreateRequest.compile("field(value,timeStamp)").createPVRequest());
+            }
+        }
+
+        private void connectDone() {
+            if (channelGet != null && channelPut != null && (!subscribe || monitor != null) &&
+                    ready.compareAndSet(false, true))
+                connected.countDown();
+        }
+
+        public void channelGetConnect(Status status, ChannelGet channelGet, Structure structure) {
+            if (!status.isSuccess()) {
+                logger.warning("Failed to create get for '" + name + "': " + status.getMessage());
+                return;
+            }
+            this.channelGet = channelGet;
+            connectDone();
+        }
+
+        public void getDone(Status status, ChannelGet channelGet, PVStructure pvStructure, BitSet bitSet) {
+            if (status.isSuccess())
+                getLatency.record(System.nanoTime() - getStart);
+            else
+                getLatency.error();
+            getPending.set(false);
+        }
+
+        public void channelPutConnect(Status status, ChannelPut channelPut, Structure structure) {
+            if (!status.isSuccess()) {
+                logger.warning("Failed to create put for '" + name + "': " + status.getMessage());
+                return;
+            }
+            pvPut = pvDataCreate.createPVStructure(structure);
+            putBitSet = new BitSet(pvPut.getNumberFields());
+            // put the whole value field (arrays are put with their current, i.e. initial, length)
+            putBitSet.set(pvPut.getSubField("value").getFieldOffset());
+            this.channelPut = channelPut;
+            connectDone();
+        }
+
+        public void putDone(Status status, ChannelPut channelPut) {
+            if (status.isSuccess())
+                putLatency.record(System.nanoTime() - putStart);
+            else
+                putLatency.error();
+            putPending.set(false);
+        }
+
+        public void getDone(Status status, ChannelPut channelPut, PVStructure pvStructure, BitSet bitSet) {
+            // not used
+        }
+
+        public void monitorConnect(Status status, Monitor monitor, Structure structure) {
+            if (!status.isSuccess()) {
+                logger.warning("Failed to create monitor for '" + name + "': " + status.getMessage());
+                return;
+            }
+            monitor.start();
+            this.monitor = monitor;
+            connectDone();
+        }
+
+        public void monitorEvent(Monitor monitor) {
+            MonitorElement element;
+            while ((element = monitor.poll()) != null) {
+                final long timeStamp = LoadTestChannelProvider.getTimeStampNanos(element.getPVStructure());
+                monitorLatency.record(LoadTestChannelProvider.currentTimeNanos() - timeStamp);
+                monitor.release(element);
+            }
+        }
+
+        public void unlisten(Monitor monitor) {
+            // noop
+        }
+
+        void get() {
+            if (!ready.get())
+                return;
+            if (!getPending.compareAndSet(false, true)) {
+                getLatency.skipped();
+                return;
+            }
+            getStart = System.nanoTime();
+            channelGet.get();
+        }
+
+        void put(double value) {
+            if (!ready.get())
+                return;
+            if (!putPending.compareAndSet(false, true)) {
+                putLatency.skipped();
+                return;
+            }
+            PVField pvValue = pvPut.getSubField("value");
+            if (pvValue instanceof PVDouble)
+                ((PVDouble) pvValue).put(value);
+            putStart = System.nanoTime();
+            channelPut.put(pvPut, putBitSet);
+        }
+    }
+
+    /**
+     * Virtual client, with its own client context.
+     */
+    class VirtualClient {
+        final ClientContextImpl context = new ClientContextImpl();
+        final List<ClientChannel> channels = new ArrayList<ClientChannel>();
+        final Random random;
+
+        VirtualClient(long seed) {
+            random = new Random(seed);
+        }
+
+        void connect(String serverAddress, List<String> recordNames, int monitors, CountDownLatch connected) throws Exception {
+            context.initialize();
+            ChannelProvider provider = context.getProvider();
+
+            // subscribe to a random set of records
+            List<String> subscribed = new ArrayList<String>(recordNames);
+            java.util.Collections.shuffle(subscribed, random);
+            subscribed = subscribed.subList(0, Math.min(monitors, subscribed.size()));
+
+            for (String recordName : recordNames) {
+                ClientChannel clientChannel = new ClientChannel(recordName, subscribed.contains(recordName), connected);
+                channels.add(clientChannel);
+                clientChannel.channel = provider.createChannel(recordName, clientChannel,
+                        ChannelProvider.PRIORITY_DEFAULT, serverAddress);
+            }
+        }
+
+        void get() {
+            channels.get(random.nextInt(channels.size())).get();
+        }
+
+        void put() {
+            channels.get(random.nextInt(channels.size())).put(random.nextDouble());
+        }
+
+        void destroy() {
+            context.destroy();
+        }
+    }
+
+    private static long getGCCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long getGCTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+
+    private static Runnable periodic(final Runnable task) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable th) {
+                    // do not cancel periodic execution
+                    logger.log(Level.FINE, "Unexpected exception caught.", th);
+                }
+            }
+        };
+    }
+
+    private static void schedule(ScheduledThreadPoolExecutor executor, Runnable task, double rate) {
+        if (rate > 0)
+            executor.scheduleAtFixedRate(periodic(task), 0, (long) (1e9 / rate), TimeUnit.NANOSECONDS);
+    }
+
+    public static void usage() {
+        System.err.println(
+                "\nUsage: java " + LoadTest.class.getName() + " [options]\n\n" +
+                        "  -h: Help: Print this message\n" +
+                        "options:\n" +
+                        "  -t <types>:        Comma separated list of record types (" + Arrays.toString(RecordType.values()) + "), default is '" + DEFAULT_RECORD_TYPES + "'\n" +
+                        "  -n <count>:        Number of records per type, default is " + DEFAULT_RECORDS + "\n" +
+                        "  -a <elements>:     Array size (array element count, table row count), default is " + DEFAULT_ARRAY_SIZE + "\n" +
+                        "  -i <bytes>:        Image size, default is " + DEFAULT_IMAGE_SIZE + "\n" +
+                        "  -c <count>:        Number of virtual clients, default is " + DEFAULT_CLIENTS + "\n" +
+                        "  -g <Hz>:           Get rate per client, default is " + DEFAULT_GET_RATE + "\n" +
+                        "  -p <Hz>:           Put rate per client, default is " + DEFAULT_PUT_RATE + "\n" +
+                        "  -m <count>:        Number of monitors per client, default is " + DEFAULT_MONITORS + "\n" +
+                        "  -u <Hz>:           Record update rate, default is " + DEFAULT_UPDATE_RATE + "\n" +
+                        "  -T <sec>:          Measurement duration, default is " + DEFAULT_DURATION + "\n" +
+                        "  -W <sec>:          Warm-up duration (not measured), default is " + DEFAULT_WARMUP + "\n" +
+                        "  -s <seed>:         Random seed\n" +
+                        "  -L <ms>:           Latency limit (99th percentile), exit with status 2 if exceeded or on any request error\n" +
+                        "  -o <file>:         Write JSON report to <file>, default is stdout\n" +
+                        "  -d:                Enable debug output\n"
+        );
+    }
+
+    private static double parseDouble(Getopt g, double minValue) {
+        try {
+            double value = Double.parseDouble(g.getOptarg());
+            if (value >= minValue)
+                return value;
+        } catch (NumberFormatException nfe) {
+            // noop
+        }
+        System.err.println("Invalid value '" + g.getOptarg() + "' of option '-" + (char) g.getOptopt() +
+                "'. ('LoadTest -h' for help.)");
+        System.exit(1);
+        return 0;
+    }
+
+    public static void main(String[] args) throws Throwable {
+
+        int opt; /* getopt() current option */
+        boolean debug = false;
+
+        String recordTypes = DEFAULT_RECORD_TYPES;
+        int records = DEFAULT_RECORDS;
+        int arraySize = DEFAULT_ARRAY_SIZE;
+        int imageSize = DEFAULT_IMAGE_SIZE;
+        int clients = DEFAULT_CLIENTS;
+        double getRate = DEFAULT_GET_RATE;
+        double putRate = DEFAULT_PUT_RATE;
+        int monitors = DEFAULT_MONITORS;
+        double updateRate = DEFAULT_UPDATE_RATE;
+        int duration = DEFAULT_DURATION;
+        int warmup = DEFAULT_WARMUP;
+        long seed = System.currentTimeMillis();
+        double latencyLimit = 0;
+        String outputFile = null;
+
+        Getopt g = new Getopt(LoadTest.class.getSimpleName(), args, ":ht:n:a:i:c:g:p:m:u:T:W:s:L:o:d");
+        g.setOpterr(false);
+
+        while ((opt = g.getopt()) != -1) {
+            switch (opt) {
+                case 'h': /* Print usage */
+                    usage();
+                    System.exit(0);
+                case 't':
+                    recordTypes = g.getOptarg();
+                    break;
+                case 'n':
+                    records = (int) parseDouble(g, 1);
+                    break;
+                case 'a':
+                    arraySize = (int) parseDouble(g, 1);
+                    break;
+                case 'i':
+                    imageSize = (int) parseDouble(g, 1);
+                    break;
+                case 'c':
+                    clients = (int) parseDouble(g, 1);
+                    break;
+                case 'g':
+                    getRate = parseDouble(g, 0);
+                    break;
+                case 'p':
+                    putRate = parseDouble(g, 0);
+                    break;
+                case 'm':
+                    monitors = (int) parseDouble(g, 0);
+                    break;
+                case 'u':
+                    updateRate = parseDouble(g, 0);
+                    break;
+                case 'T':
+                    duration = (int) parseDouble(g, 1);
+                    break;
+                case 'W':
+                    warmup = (int) parseDouble(g, 0);
+                    break;
+                case 's':
+                    seed = (long) parseDouble(g, Long.MIN_VALUE);
+                    break;
+                case 'L':
+                    latencyLimit = parseDouble(g, 0);
+                    break;
+                case 'o':
+                    outputFile = g.getOptarg();
+                    break;
+                case 'd': /* Debug log level */
+                    debug = true;
+                    break;
+                case '?':
+                    System.err.println("Unrecognized option: '-"
+                            + (char) g.getOptopt() + "'. ('LoadTest -h' for help.)");
+                    System.exit(1);
+                case ':':
+                    System.err.println("Option '-" + (char) g.getOptopt()
+                            + "' requires an argument. ('LoadTest -h' for help.)");
+                    System.exit(1);
+                default:
+                    usage();
+                    System.exit(1);
+            }
+        }
+
+        // initialize console logging
+        ConsoleLogHandler.defaultConsoleLogging(
+                debug || Integer.getInteger(PVAConstants.PVACCESS_DEBUG, 0) > 0 ? Level.ALL : Level.WARNING
+        );
+
+        LoadTestChannelProvider provider = new LoadTestChannelProvider();
+        for (String typeName : recordTypes.split(",")) {
+            RecordType type;
+            try {
+                type = RecordType.valueOf(typeName.trim());
+            } catch (IllegalArgumentException iae) {
+                System.err.println("Invalid record type '" + typeName + "'. ('LoadTest -h' for help.)");
+                System.exit(1);
+                return;
+            }
+            for (int i = 0; i < records; i++)
+                provider.addRecord("loadTest:" + type + i, type, type == RecordType.ndarray ? imageSize : arraySize);
+        }
+
+        LoadTest loadTest = new LoadTest();
+        int status = loadTest.run(provider, clients, getRate, putRate, monitors, updateRate,
+                duration, warmup, seed, latencyLimit, outputFile);
+        System.exit(status);
+    }
+
+    private int run(LoadTestChannelProvider provider, int clients, double getRate, double putRate, int monitors,
+                    double updateRate, int duration, int warmup, long seed, double latencyLimit, String outputFile)
+            throws Exception {
+
+        ServerContextImpl serverContext = new ServerContextImpl();
+        serverContext.initialize(provider);
+        final String serverAddress = "127.0.0.1:" + serverContext.getServerPort();
+
+        final List<String> recordNames = provider.getRecordNames();
+        final CountDownLatch connected = new CountDownLatch(clients * recordNames.size());
+        final VirtualClient[] virtualClients = new VirtualClient[clients];
+        for (int i = 0; i < clients; i++) {
+            virtualClients[i] = new VirtualClient(seed + i);
+            virtualClients[i].connect(serverAddress, recordNames, monitors, connected);
+        }
+
+        if (!connected.await((long) (CONNECT_TIMEOUT * 1000), TimeUnit.MILLISECONDS))
+            logger.warning((connected.getCount()) + " channel(s) failed to connect in " + CONNECT_TIMEOUT + "s.");
+
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+        final LoadTestChannelProvider recordProvider = provider;
+        schedule(executor, new Runnable() {
+            public void run() {
+                recordProvider.update();
+            }
+        }, updateRate);
+        for (final VirtualClient client : virtualClients) {
+            schedule(executor, new Runnable() {
+                public void run() {
+                    client.get();
+                }
+            }, getRate);
+            schedule(executor, new Runnable() {
+                public void run() {
+                    client.put();
+                }
+            }, putRate);
+        }
+
+        // warm-up
+        Thread.sleep(warmup * 1000L);
+
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        final long gcCount = getGCCount();
+        final long gcTime = getGCTime();
+        final long overruns = provider.getMonitorOverrunCount();
+        threadMXBean.resetPeakThreadCount();
+        getLatency.reset();
+        putLatency.reset();
+        monitorLatency.reset();
+        final long start = System.nanoTime();
+
+        Thread.sleep(duration * 1000L);
+
+        executor.shutdownNow();
+        final double measured = (System.nanoTime() - start) / 1e9;
+        final long gcCountDelta = getGCCount() - gcCount;
+        final long gcTimeDelta = getGCTime() - gcTime;
+        final long overrunsDelta = provider.getMonitorOverrunCount() - overruns;
+        final int threadCount = threadMXBean.getThreadCount();
+        final int peakThreadCount = threadMXBean.getPeakThreadCount();
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        PrintStream o = (outputFile == null) ? System.out : new PrintStream(new FileOutputStream(outputFile));
+        try {
+            o.println("{");
+            o.println("  \"config\": { \"records\": " + recordNames.size() +
+                    ", \"clients\": " + clients +
+                    ", \"getRate\": " + format(getRate) +
+                    ", \"putRate\": " + format(putRate) +
+                    ", \"monitors\": " + monitors +
+                    ", \"updateRate\": " + format(updateRate) +
+                    ", \"warmupSeconds\": " + warmup +
+                    ", \"seed\": " + seed + " },");
+            o.println("  \"durationSeconds\": " + format(measured) + ",");
+            getLatency.report(o, "get", measured, null);
+            o.println(",");
+            putLatency.report(o, "put", measured, null);
+            o.println(",");
+            monitorLatency.report(o, "monitor", measured, "\"overruns\": " + overrunsDelta);
+            o.println(",");
+            o.println("  \"gc\": { \"count\": " + gcCountDelta + ", \"timeMs\": " + gcTimeDelta + " },");
+            o.println("  \"threads\": { \"count\": " + threadCount + ", \"peak\": " + peakThreadCount + " },");
+            o.println("  \"heap\": { \"usedBytes\": " + heap.getUsed() + ", \"maxBytes\": " + heap.getMax() + " }");
+            o.println("}");
+        } finally {
+            if (o != System.out)
+                o.close();
+        }
+
+        for (VirtualClient client : virtualClients)
+            client.destroy();
+        serverContext.destroy();
+
+        if (latencyLimit > 0) {
+            boolean failed = false;
+            LatencyRecorder[] recorders = {getLatency, putLatency, monitorLatency};
+            for (LatencyRecorder recorder : recorders)
+                failed |= recorder.getErrors() > 0 || recorder.getPercentileMs(99) > latencyLimit;
+            if (failed) {
+                System.err.println("Latency limit of " + latencyLimit + " ms exceeded or requests failed.");
+                return 2;
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,745 @@
+package org.epics.pvaccess.impl.remote.utils;
+
+import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.client.*;
+import org.epics.pvdata.copy.PVCopy;
+import org.epics.pvdata.copy.PVCopyFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.ChangeListener;
+import org.epics.pvdata.monitor.ChangeSubscription;
+import org.epics.pvdata.monitor.ChangeTracker;
+import org.epics.pvdata.monitor.ChangeTrackerFactory;
+import org.epics.pvdata.monitor.Monitor;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.monitor.MonitorRequester;
+import org.epics.pvdata.pv.*;
+import org.epics.pvdata.pv.Status.StatusType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process channel provider hosting a synthetic record set for load tests.
+ * Supports get, put and monitor requests; records are updated by calling <code>update()</code>.
+ * <p>
+ * All records have a <code>timeStamp</code> field set (on update and put) from
+ * <code>LoadTestChannelProvider.currentTimeNanos()</code>, a high-resolution clock that
+ * allows in-process clients to compute update latency.
+ */
+public class LoadTestChannelProvider implements ChannelProvider {
+
+    public static final String PROVIDER_NAME = "loadTest";
+
+    /**
+     * Record types.
+     */
+    public enum RecordType {
+        /**
+         * NTScalar double.
+         */
+        scalar,
+        /**
+         * NTScalarArray double[].
+         */
+        array,
+        /**
+         * NTNDArray with ubyte data.
+         */
+        ndarray,
+        /**
+         * NTTable with double columns.
+         */
+        table
+    }
+
+    private static final FieldCreate fieldCreate = PVFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVFactory.getPVDataCreate();
+    private static final StatusCreate statusCreate = PVFactory.getStatusCreate();
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+
+    private static final Status okStatus = statusCreate.getStatusOK();
+    private static final Status noSuchChannelStatus =
+            statusCreate.createStatus(StatusType.ERROR, "no such channel", null);
+    private static final Status destroyedStatus =
+            statusCreate.createStatus(StatusType.ERROR, "request destroyed", null);
+    private static final Status invalidRequestStatus =
+            statusCreate.createStatus(StatusType.ERROR, "invalid pvRequest", null);
+    private static final Status notSupportedStatus =
+            statusCreate.createStatus(StatusType.ERROR, "not supported by the load-test provider", null);
+
+    private static final int TABLE_COLUMNS = 4;
+    private static final int MONITOR_QUEUE_SIZE = 2;
+
+    private static final long START_NANOS = System.nanoTime();
+    private static final long START_MILLIS = System.currentTimeMillis();
+
+    /**
+     * Get current time (in ns past POSIX epoch) from a monotonic high-resolution clock.
+     *
+     * @return current time in ns.
+     */
+    public static long currentTimeNanos() {
+        return START_MILLIS * 1000000L + (System.nanoTime() - START_NANOS);
+    }
+
+    /**
+     * Get time (in ns past POSIX epoch) stored in a <code>timeStamp</code> structure.
+     *
+     * @param pvStructure structure with a <code>timeStamp</code> field.
+     * @return time in ns, <code>0</code> if there is no <code>timeStamp</code> field.
+     */
+    public static long getTimeStampNanos(PVStructure pvStructure) {
+        PVStructure pvTimeStamp = pvStructure.getStructureField("timeStamp");
+        if (pvTimeStamp == null)
+            return 0;
+        return pvTimeStamp.getLongField("secondsPastEpoch").get() * 1000000000L +
+                pvTimeStamp.getIntField("nanoseconds").get();
+    }
+
+    private static void setTimeStamp(PVStructure pvStructure, long timeNanos) {
+        PVStructure pvTimeStamp = pvStructure.getStructureField("timeStamp");
+        pvTimeStamp.getLongField("secondsPastEpoch").put(timeNanos / 1000000000L);
+        pvTimeStamp.getIntField("nanoseconds").put((int) (timeNanos % 1000000000L));
+    }
+
+    private static Structure createNTNDArrayStructure() {
+        return fieldCreate.createFieldBuilder().
+                setId("epics:nt/NTNDArray:1.0").
+                addNestedUnion("value").
+                addArray("ubyteValue", ScalarType.pvUByte).
+                addArray("ushortValue", ScalarType.pvUShort).
+                addArray("doubleValue", ScalarType.pvDouble).
+                endNested().
+                addNestedStructure("codec").
+                setId("codec_t").
+                add("name", ScalarType.pvString).
+                add("parameters", fieldCreate.createVariantUnion()).
+                endNested().
+                add("compressedSize", ScalarType.pvLong).
+                add("uncompressedSize", ScalarType.pvLong).
+                addNestedStructureArray("dimension").
+                setId("dimension_t").
+                add("size", ScalarType.pvInt).
+                add("offset", ScalarType.pvInt).
+                add("fullSize", ScalarType.pvInt).
+                add("binning", ScalarType.pvInt).
+                add("reverse", ScalarType.pvBoolean).
+                endNested().
+                add("uniqueId", ScalarType.pvInt).
+                add("dataTimeStamp", standardField.timeStamp()).
+                addNestedStructureArray("attribute").
+                setId("epics:nt/NTAttribute:1.0").
+                add("name", ScalarType.pvString).
+                add("value", fieldCreate.createVariantUnion()).
+                add("descriptor", ScalarType.pvString).
+                add("sourceType", ScalarType.pvInt).
+                add("source", ScalarType.pvString).
+                endNested().
+                add("timeStamp", standardField.timeStamp()).
+                createStructure();
+    }
+
+    private static Structure createNTTableStructure() {
+        FieldBuilder valueBuilder = fieldCreate.createFieldBuilder();
+        for (int i = 0; i < TABLE_COLUMNS; i++)
+            valueBuilder.addArray("column" + i, ScalarType.pvDouble);
+
+        return fieldCreate.createFieldBuilder().
+                setId("epics:nt/NTTable:1.0").
+                addArray("labels", ScalarType.pvString).
+                add("value", valueBuilder.createStructure()).
+                add("timeStamp", standardField.timeStamp()).
+                createStructure();
+    }
+
+    /**
+     * Create a record structure.
+     *
+     * @param type record type.
+     * @param size number of array elements (array), image size in bytes (ndarray) or number of rows (table).
+     * @return initialized record structure.
+     */
+    public static PVStructure createRecord(RecordType type, int size) {
+        PVStructure pvRecord;
+        switch (type) {
+            case scalar:
+                pvRecord = pvDataCreate.createPVStructure(standardField.scalar(ScalarType.pvDouble, "alarm,timeStamp"));
+                break;
+            case array: {
+                pvRecord = pvDataCreate.createPVStructure(standardField.scalarArray(ScalarType.pvDouble, "alarm,timeStamp"));
+                double[] value = new double[size];
+                for (int i = 0; i < size; i++)
+                    value[i] = i;
+                pvRecord.getSubField(PVDoubleArray.class, "value").put(0, size, value, 0);
+                break;
+            }
+            case ndarray: {
+                pvRecord = pvDataCreate.createPVStructure(createNTNDArrayStructure());
+
+                final int width = Math.min(1024, size);
+                final int height = Math.max(1, size / width);
+                final int imageSize = width * height;
+
+                PVUByteArray pvData = (PVUByteArray) pvDataCreate.createPVScalarArray(ScalarType.pvUByte);
+                byte[] data = new byte[imageSize];
+                for (int i = 0; i < imageSize; i++)
+                    data[i] = (byte) i;
+                pvData.put(0, imageSize, data, 0);
+                pvRecord.getUnionField("value").set("ubyteValue", pvData);
+
+                pvRecord.getLongField("compressedSize").put(imageSize);
+                pvRecord.getLongField("uncompressedSize").put(imageSize);
+
+                PVStructureArray pvDimension = pvRecord.getStructureArrayField("dimension");
+                Structure dimensionStructure = pvDimension.getStructureArray().getStructure();
+                PVStructure[] dimensions = new PVStructure[2];
+                int[] dimensionSizes = {width, height};
+                for (int i = 0; i < dimensions.length; i++) {
+                    dimensions[i] = pvDataCreate.createPVStructure(dimensionStructure);
+                    dimensions[i].getIntField("size").put(dimensionSizes[i]);
+                    dimensions[i].getIntField("fullSize").put(dimensionSizes[i]);
+                    dimensions[i].getIntField("binning").put(1);
+                }
+                pvDimension.put(0, dimensions.length, dimensions, 0);
+                break;
+            }
+            case table: {
+                pvRecord = pvDataCreate.createPVStructure(createNTTableStructure());
+
+                String[] labels = new String[TABLE_COLUMNS];
+                double[] column = new double[size];
+                for (int i = 0; i < size; i++)
+                    column[i] = i;
+                for (int i = 0; i < TABLE_COLUMNS; i++) {
+                    labels[i] = "column" + i;
+                    pvRecord.getSubField(PVDoubleArray.class, "value.column" + i).put(0, size, column, 0);
+                }
+                pvRecord.getSubField(PVStringArray.class, "labels").put(0, TABLE_COLUMNS, labels, 0);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unsupported record type: " + type);
+        }
+
+        setTimeStamp(pvRecord, currentTimeNanos());
+        return pvRecord;
+    }
+
+    /**
+     * Hosted record.
+     */
+    class Record {
+        final String name;
+        final RecordType type;
+        final PVStructure pvStructure;
+        // monitors subscribe to changes, puts are done while holding the record lock
+        final ChangeTracker tracker;
+        final CopyOnWriteArrayList<RecordMonitor> monitors = new CopyOnWriteArrayList<RecordMonitor>();
+        private long counter = 0;
+
+        Record(String name, RecordType type, PVStructure pvStructure) {
+            this.name = name;
+            this.type = type;
+            this.pvStructure = pvStructure;
+            this.tracker = ChangeTrackerFactory.create(pvStructure);
+        }
+
+        void update() {
+            synchronized (this) {
+                // one notification per update
+                tracker.beginGroupPut();
+                try {
+                    update(++counter);
+                } finally {
+                    tracker.endGroupPut();
+                }
+            }
+        }
+
+        private void update(long counter) {
+            switch (type) {
+                case scalar:
+                    pvStructure.getDoubleField("value").put(counter);
+                    break;
+                case array:
+                    pvStructure.getSubField(PVDoubleArray.class, "value").put(0, 1, new double[]{counter}, 0);
+                    break;
+                case ndarray:
+                    pvStructure.getIntField("uniqueId").put((int) counter);
+                    setTimeStamp(pvStructure.getStructureField("dataTimeStamp"), currentTimeNanos());
+                    break;
+                case table:
+                    pvStructure.getSubField(PVDoubleArray.class, "value.column0").put(0, 1, new double[]{counter}, 0);
+                    break;
+            }
+            setTimeStamp(pvStructure, currentTimeNanos());
+        }
+    }
+
+    private final Map<String, Record> records = new LinkedHashMap<String, Record>();
+
+    /**
+     * Add a record.
+     *
+     * @param name record (channel) name.
+     * @param type record type.
+     * @param size record size, see <code>createRecord</code>.
+     */
+    public void addRecord(String name, RecordType type, int size) {
+        synchronized (records) {
+            records.put(name, new Record(name, type, createRecord(type, size)));
+        }
+    }
+
+    /**
+     * Get names of all hosted records.
+     *
+     * @return list of record names.
+     */
+    public List<String> getRecordNames() {
+        synchronized (records) {
+            return new ArrayList<String>(records.keySet());
+        }
+    }
+
+    /**
+     * Update all records and notify monitors.
+     */
+    public void update() {
+        Record[] toUpdate;
+        synchronized (records) {
+            toUpdate = records.values().toArray(new Record[records.size()]);
+        }
+        for (Record record : toUpdate)
+            record.update();
+    }
+
+    abstract class RecordRequest implements ChannelRequest {
+        protected final RecordChannel channel;
+        protected final Record record;
+        protected final PVCopy pvCopy;
+        protected final AtomicBoolean destroyed = new AtomicBoolean();
+        protected volatile boolean lastRequest = false;
+
+        RecordRequest(RecordChannel channel, PVStructure pvRequest, String structureName) {
+            this.channel = channel;
+            this.record = channel.record;
+            this.pvCopy = PVCopyFactory.create(record.pvStructure, pvRequest, structureName);
+        }
+
+        public void lock() {
+            // noop
+        }
+
+        public void unlock() {
+            // noop
+        }
+
+        public void destroy() {
+            destroyed.set(true);
+        }
+
+        public void cancel() {
+            // noop, requests complete immediately
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+
+        public void lastRequest() {
+            lastRequest = true;
+        }
+    }
+
+    class RecordGet extends RecordRequest implements ChannelGet {
+        private final ChannelGetRequester requester;
+        private final PVStructure pvGet;
+        private final BitSet bitSet;
+
+        RecordGet(RecordChannel channel, ChannelGetRequester requester, PVStructure pvRequest) {
+            super(channel, pvRequest, "field");
+            this.requester = requester;
+            if (pvCopy == null) {
+                pvGet = null;
+                bitSet = null;
+                requester.channelGetConnect(invalidRequestStatus, this, null);
+                return;
+            }
+            pvGet = pvCopy.createPVStructure();
+            bitSet = new BitSet(pvGet.getNumberFields());
+            requester.channelGetConnect(okStatus, this, pvGet.getStructure());
+        }
+
+        public void get() {
+            if (destroyed.get()) {
+                requester.getDone(destroyedStatus, this, null, null);
+                return;
+            }
+
+            synchronized (record) {
+                pvCopy.initCopy(pvGet, bitSet);
+            }
+            requester.getDone(okStatus, this, pvGet, bitSet);
+
+            if (lastRequest)
+                destroy();
+        }
+    }
+
+    class RecordPut extends RecordRequest implements ChannelPut {
+        private final ChannelPutRequester requester;
+        private final PVStructure pvPut;
+        private final BitSet bitSet;
+
+        RecordPut(RecordChannel channel, ChannelPutRequester requester, PVStructure pvRequest) {
+            super(channel, pvRequest, "field");
+            this.requester = requester;
+            if (pvCopy == null) {
+                pvPut = null;
+                bitSet = null;
+                requester.channelPutConnect(invalidRequestStatus, this, null);
+                return;
+            }
+            pvPut = pvCopy.createPVStructure();
+            bitSet = new BitSet(pvPut.getNumberFields());
+            requester.channelPutConnect(okStatus, this, pvPut.getStructure());
+        }
+
+        public void put(PVStructure pvPutStructure, BitSet putBitSet) {
+            if (destroyed.get()) {
+                requester.putDone(destroyedStatus, this);
+                return;
+            }
+
+            synchronized (record) {
+                record.tracker.beginGroupPut();
+                try {
+                    pvCopy.updateMaster(pvPutStructure, putBitSet);
+                    setTimeStamp(record.pvStructure, currentTimeNanos());
+                } finally {
+                    record.tracker.endGroupPut();
+                }
+            }
+            requester.putDone(okStatus, this);
+
+            if (lastRequest)
+                destroy();
+        }
+
+        public void get() {
+            if (destroyed.get()) {
+                requester.getDone(destroyedStatus, this, null, null);
+                return;
+            }
+
+            synchronized (record) {
+                pvCopy.initCopy(pvPut, bitSet);
+            }
+            requester.getDone(okStatus, this, pvPut, bitSet);
+        }
+    }
+
+    class RecordMonitor implements Monitor, ChangeListener {
+        private final RecordChannel channel;
+        private final Record record;
+        private final MonitorRequester requester;
+        private final PVCopy pvCopy;
+        private final MonitorQueue queue;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile ChangeSubscription subscription = null;
+        private final BitSet masterChanged = new BitSet();
+        private long overrunCount = 0;
+
+        RecordMonitor(RecordChannel channel, MonitorRequester requester, PVStructure pvRequest) {
+            this.channel = channel;
+            this.record = channel.record;
+            this.requester = requester;
+            this.pvCopy = PVCopyFactory.create(record.pvStructure, pvRequest, "field");
+            if (pvCopy == null) {
+                queue = null;
+                requester.monitorConnect(invalidRequestStatus, this, null);
+                return;
+            }
+
+            MonitorElement[] elements = new MonitorElement[MONITOR_QUEUE_SIZE];
+            for (int i = 0; i < elements.length; i++)
+                elements[i] = MonitorQueueFactory.createMonitorElement(pvCopy.createPVStructure());
+            queue = MonitorQueueFactory.create(elements);
+
+            requester.monitorConnect(okStatus, this, pvCopy.getStructure());
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeListener#dataChanged(org.epics.pvdata.monitor.ChangeSubscription)
+         */
+        public void dataChanged(ChangeSubscription subscription) {
+            // called with the record locked; the whole copy is updated, the changes are only consumed
+            synchronized (this) {
+                subscription.getChanges(masterChanged);
+            }
+            recordChanged();
+        }
+
+        void recordChanged() {
+            if (!started.get())
+                return;
+
+            synchronized (this) {
+                MonitorElement element = queue.getFree();
+                if (element == null) {
+                    overrunCount++;
+                    return;
+                }
+
+                synchronized (record) {
+                    pvCopy.initCopy(element.getPVStructure(), element.getChangedBitSet());
+                }
+                element.getOverrunBitSet().clear();
+                queue.setUsed(element);
+            }
+            requester.monitorEvent(this);
+        }
+
+        public Status start() {
+            if (!started.getAndSet(true)) {
+                record.monitors.add(this);
+                // lock order: record, then monitor
+                synchronized (record) {
+                    subscription = record.tracker.subscribe(this);
+                    // initial value
+                    recordChanged();
+                }
+            }
+            return okStatus;
+        }
+
+        public Status stop() {
+            if (started.getAndSet(false)) {
+                record.monitors.remove(this);
+                final ChangeSubscription s = subscription;
+                if (s != null)
+                    s.unsubscribe();
+            }
+            return okStatus;
+        }
+
+        public MonitorElement poll() {
+            synchronized (this) {
+                return queue.getUsed();
+            }
+        }
+
+        public void release(MonitorElement monitorElement) {
+            synchronized (this) {
+                queue.releaseUsed(monitorElement);
+            }
+        }
+
+        public void destroy() {
+            stop();
+        }
+
+        /**
+         * Get number of updates that did not fit into the queue.
+         *
+         * @return overrun count.
+         */
+        public synchronized long getOverrunCount() {
+            return overrunCount;
+        }
+    }
+
+    class RecordChannel implements Channel {
+        private final Record record;
+        private final ChannelRequester channelRequester;
+        private volatile ConnectionState connectionState = ConnectionState.CONNECTED;
+
+        RecordChannel(Record record, ChannelRequester channelRequester) {
+            this.record = record;
+            this.channelRequester = channelRequester;
+        }
+
+        public String getRequesterName() {
+            return channelRequester.getRequesterName();
+        }
+
+        public void message(String message, MessageType messageType) {
+            channelRequester.message(message, messageType);
+        }
+
+        public ChannelProvider getProvider() {
+            return LoadTestChannelProvider.this;
+        }
+
+        public String getRemoteAddress() {
+            return "local";
+        }
+
+        public ConnectionState getConnectionState() {
+            return connectionState;
+        }
+
+        public void destroy() {
+            connectionState = ConnectionState.DESTROYED;
+        }
+
+        public String getChannelName() {
+            return record.name;
+        }
+
+        public ChannelRequester getChannelRequester() {
+            return channelRequester;
+        }
+
+        public boolean isConnected() {
+            return connectionState == ConnectionState.CONNECTED;
+        }
+
+        public void getField(GetFieldRequester requester, String subField) {
+            Field field = (subField == null || subField.length() == 0) ?
+                    record.pvStructure.getStructure() : record.pvStructure.getStructure().getField(subField);
+            requester.getDone(field != null ? okStatus : invalidRequestStatus, field);
+        }
+
+        public AccessRights getAccessRights(PVField pvField) {
+            return AccessRights.readWrite;
+        }
+
+        public ChannelProcess createChannelProcess(ChannelProcessRequester channelProcessRequester, PVStructure pvRequest) {
+            channelProcessRequester.channelProcessConnect(notSupportedStatus, null);
+            return null;
+        }
+
+        public ChannelGet createChannelGet(ChannelGetRequester channelGetRequester, PVStructure pvRequest) {
+            return new RecordGet(this, channelGetRequester, pvRequest);
+        }
+
+        public ChannelPut createChannelPut(ChannelPutRequester channelPutRequester, PVStructure pvRequest) {
+            return new RecordPut(this, channelPutRequester, pvRequest);
+        }
+
+        public ChannelPutGet createChannelPutGet(ChannelPutGetRequester channelPutGetRequester, PVStructure pvRequest) {
+            channelPutGetRequester.channelPutGetConnect(notSupportedStatus, null, null, null);
+            return null;
+        }
+
+        public ChannelRPC createChannelRPC(ChannelRPCRequester channelRPCRequester, PVStructure pvRequest) {
+            channelRPCRequester.channelRPCConnect(notSupportedStatus, null);
+            return null;
+        }
+
+        public Monitor createMonitor(MonitorRequester monitorRequester, PVStructure pvRequest) {
+            return new RecordMonitor(this, monitorRequester, pvRequest);
+        }
+
+        public ChannelArray createChannelArray(ChannelArrayRequester channelArrayRequester, PVStructure pvRequest) {
+            channelArrayRequester.channelArrayConnect(notSupportedStatus, null, null);
+            return null;
+        }
+    }
+
+    private final ChannelFind channelFind = new ChannelFind() {
+
+        public ChannelProvider getChannelProvider() {
+            return LoadTestChannelProvider.this;
+        }
+
+        public void cancel() {
+            // noop
+        }
+    };
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#getProviderName()
+     */
+    public String getProviderName() {
+        return PROVIDER_NAME;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#channelFind(java.lang.String, org.epics.pvaccess.client.ChannelFindRequester)
+     */
+    public ChannelFind channelFind(String channelName, ChannelFindRequester channelFindRequester) {
+        boolean found;
+        synchronized (records) {
+            found = records.containsKey(channelName);
+        }
+        channelFindRequester.channelFindResult(okStatus, channelFind, found);
+        return channelFind;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#channelList(org.epics.pvaccess.client.ChannelListRequester)
+     */
+    public ChannelFind channelList(ChannelListRequester channelListRequester) {
+        Set<String> channelNames;
+        synchronized (records) {
+            channelNames = new HashSet<String>(records.keySet());
+        }
+        channelListRequester.channelListResult(okStatus, channelFind, channelNames, false);
+        return channelFind;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short)
+     */
+    public Channel createChannel(String channelName, ChannelRequester channelRequester, short priority) {
+        Record record;
+        synchronized (records) {
+            record = records.get(channelName);
+        }
+
+        if (record == null) {
+            channelRequester.channelCreated(noSuchChannelStatus, null);
+            return null;
+        }
+
+        Channel channel = new RecordChannel(record, channelRequester);
+        channelRequester.channelCreated(okStatus, channel);
+        return channel;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#createChannel(java.lang.String, org.epics.pvaccess.client.ChannelRequester, short, java.lang.String)
+     */
+    public Channel createChannel(String channelName, ChannelRequester channelRequester, short priority, String address) {
+        // this will never get called by the pvAccess server
+        throw new RuntimeException("not supported");
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.client.ChannelProvider#destroy()
+     */
+    public void destroy() {
+        synchronized (records) {
+            for (Record record : records.values())
+                for (RecordMonitor monitor : record.monitors)
+                    monitor.stop();
+        }
+    }
+
+    /**
+     * Get total number of monitor updates that did not fit into monitor queues (of active monitors).
+     *
+     * @return total overrun count.
+     */
+    public long getMonitorOverrunCount() {
+        long count = 0;
+        synchronized (records) {
+            for (Record record : records.values())
+                for (RecordMonitor monitor : record.monitors)
+                    count += monitor.getOverrunCount();
+        }
+        return count;
+    }
+}
@@ -21,7 +21,10 @@ import org.epics.pvaccess.Version;
 import org.epics.pvaccess.client.ChannelProvider;
 import org.epics.pvaccess.client.ChannelProviderRegistry;
 import org.epics.pvaccess.impl.remote.*;
+import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
+import org.epics.pvaccess.impl.remote.codec.SlowConsumerPolicy;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPConnector;
 import org.epics.pvaccess.impl.remote.udp.BlockingUDPTransport;
 import org.epics.pvaccess.plugins.SecurityPlugin;
@@ -38,6 +41,7 @@ import org.epics.pvdata.misc.Timer;
 import org.epics.pvdata.misc.TimerFactory;
 import org.epics.util.compat.jdk5.net.NetworkInterface;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
@@ -45,6 +49,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -162,6 +167,56 @@ public class ServerContextImpl implements ServerContext, Context {
      */
     protected int receiveBufferSize = PVAConstants.MAX_TCP_RECV;
 
+    /**
+     * Slow-consumer action name, "none" (default) disables slow-consumer detection.
+     */
+    protected String slowConsumerAction = "none";
+
+    /**
+     * Maximum number of pending send requests per connection, 0 to disable the check.
+     */
+    protected int slowConsumerMaxQueueLength = 0;
+
+    /**
+     * Maximum number of bytes waiting to be written per connection, 0 to disable the check.
+     */
+    protected int slowConsumerMaxPendingBytes = 0;
+
+    /**
+     * Maximum time in seconds with no successful write while there is data to be sent, 0 to disable the check.
+     */
+    protected float slowConsumerTimeout = 60.0f;
+
+    /**
+     * Slow-consumer policy applied to every connection, <code>null</code> if disabled.
+     */
+    protected SlowConsumerPolicy slowConsumerPolicy = null;
+
+    /**
+     * Send the sparse BitSet encodings to the clients that accept them.
+     */
+    protected boolean sparseBitSet = true;
+
+    /**
+     * Send the elements of large arrays through the shared memory rings created by the clients on this host.
+     */
+    protected boolean sharedMemory = true;
+
+    /**
+     * Minimal size (in bytes) of the array elements sent through a shared memory ring.
+     */
+    protected int sharedMemoryThreshold = 65536;
+
+    /**
+     * Directory of the shared memory ring files, must be the same as the one of the clients.
+     */
+    protected File sharedMemoryDirectory = SharedMemoryRing.getDefaultDirectory();
+
+    /**
+     * Number of connections closed by slow-consumer policy.
+     */
+    private final AtomicLong slowConsumerDisconnectCount = new AtomicLong();
+
     /**
      * Timer.
      */
@@ -349,6 +404,23 @@ public class ServerContextImpl implements ServerContext, Context {
         channelProviderNames = config.getPropertyAsString("EPICS_PVA_PROVIDER_NAMES", channelProviderNames);
         channelProviderNames = config.getPropertyAsString("EPICS_PVAS_PROVIDER_NAMES", channelProviderNames);
 
+        slowConsumerAction = config.getPropertyAsString("EPICS_PVAS_SLOW_CONSUMER_ACTION", slowConsumerAction);
+        slowConsumerMaxQueueLength = config.getPropertyAsInteger("EPICS_PVAS_SLOW_CONSUMER_MAX_QUEUE", slowConsumerMaxQueueLength);
+        slowConsumerMaxPendingBytes = config.getPropertyAsInteger("EPICS_PVAS_SLOW_CONSUMER_MAX_PENDING_BYTES", slowConsumerMaxPendingBytes);
+        slowConsumerTimeout = config.getPropertyAsFloat("EPICS_PVAS_SLOW_CONSUMER_TIMEOUT", slowConsumerTimeout);
+
+        sparseBitSet = config.getPropertyAsBoolean("EPICS_PVAS_SPARSE_BITSET", sparseBitSet);
+
+        sharedMemory = config.getPropertyAsBoolean("EPICS_PVAS_SHARED_MEMORY", sharedMemory);
+        sharedMemoryThreshold = config.getPropertyAsInteger("EPICS_PVAS_SHARED_MEMORY_THRESHOLD", sharedMemoryThreshold);
+        sharedMemoryDirectory = new File(config.getPropertyAsString("EPICS_PVA_SHARED_MEMORY_DIR", sharedMemoryDirectory.getPath()));
+
+        SlowConsumerPolicy.Action action = SlowConsumerPolicy.Action.parse(slowConsumerAction, null);
+        if (action != null)
+            slowConsumerPolicy = new SlowConsumerPolicy(slowConsumerMaxQueueLength, slowConsumerMaxPendingBytes,
+                    (long) (slowConsumerTimeout * 1000), action);
+        else
+            slowConsumerPolicy = null;
     }
 
     public void setChannelProviderNames(String providerNames) {
@@ -677,6 +749,13 @@ public class ServerContextImpl implements ServerContext, Context {
         out.println("SERVER_PORT : " + serverPort);
         out.println("RCV_BUFFER_SIZE : " + receiveBufferSize);
         out.println("IGNORE_ADDR_LIST: " + ignoreAddressList);
+        out.println("SLOW_CONSUMER_POLICY : " + (slowConsumerPolicy != null ? slowConsumerPolicy.toString() : "none"));
+        out.println("SLOW_CONSUMERS : " + getSlowConsumers().length);
+        out.println("SLOW_CONSUMER_DISCONNECTS : " + slowConsumerDisconnectCount.get());
+        out.println("SPARSE_BITSET : " + sparseBitSet);
+        out.println("SHARED_MEMORY : " + sharedMemory);
+        out.println("SHARED_MEMORY_THRESHOLD : " + sharedMemoryThreshold);
+        out.println("SHARED_MEMORY_DIR : " + sharedMemoryDirectory);
         out.println("STATE : " + state.name());
     }
 
@@ -792,6 +871,85 @@ public class ServerContextImpl implements ServerContext, Context {
         return broadcastTransport;
     }
 
+    /**
+     * Check if the sparse BitSet encodings are sent to the clients that accept them.
+     *
+     * @return <code>true</code> if enabled.
+     */
+    public boolean isSparseBitSetEnabled() {
+        return sparseBitSet;
+    }
+
+    /**
+     * Check if the elements of large arrays are sent through the shared memory rings created by the clients on this host.
+     *
+     * @return <code>true</code> if enabled.
+     */
+    public boolean isSharedMemoryEnabled() {
+        return sharedMemory;
+    }
+
+    /**
+     * Get minimal size (in bytes) of the array elements sent through a shared memory ring.
+     *
+     * @return minimal size of the array elements sent through a shared memory ring.
+     */
+    public int getSharedMemoryThreshold() {
+        return sharedMemoryThreshold;
+    }
+
+    /**
+     * Get directory of the shared memory ring files.
+     *
+     * @return directory of the shared memory ring files.
+     */
+    public File getSharedMemoryDirectory() {
+        return sharedMemoryDirectory;
+    }
+
+    /**
+     * Get slow-consumer policy applied to every connection.
+     *
+     * @return slow-consumer policy, <code>null</code> if disabled.
+     */
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    /**
+     * Get connections currently considered to be slow consumers.
+     *
+     * @return array of slow-consumer transports.
+     */
+    public Transport[] getSlowConsumers() {
+        if (transportRegistry == null)
+            return new Transport[0];
+
+        ArrayList<Transport> slowConsumers = new ArrayList<Transport>();
+        for (Transport transport : transportRegistry.toArray())
+            if (transport instanceof AbstractCodec && ((AbstractCodec) transport).isSlowConsumer())
+                slowConsumers.add(transport);
+        return slowConsumers.toArray(new Transport[slowConsumers.size()]);
+    }
+
+    /**
+     * Get number of connections closed by slow-consumer policy.
+     *
+     * @return number of slow-consumer disconnects.
+     */
+    public long getSlowConsumerDisconnectCount() {
+        return slowConsumerDisconnectCount.get();
+    }
+
+    /**
+     * Called by a transport closed by slow-consumer policy.
+     *
+     * @param transport closed transport.
+     */
+    public void slowConsumerDisconnected(Transport transport) {
+        slowConsumerDisconnectCount.incrementAndGet();
+    }
+
     /**
      * Get PVA transport (virtual circuit) registry.
      *
@@ -50,7 +50,7 @@ public class ArrayHandler extends AbstractServerResponseHandler {
         super(context, "Array request");
     }
 
-    private static class ChannelArrayRequesterImpl extends BaseChannelRequester implements ChannelArrayRequester, TransportSender {
+    private static class ChannelArrayRequesterImpl extends BaseChannelRequester implements ChannelArrayRequester, PrioritizedTransportSender {
 
         private volatile ChannelArray channelArray;
 
@@ -67,7 +67,7 @@ public class ArrayHandler extends AbstractServerResponseHandler {
 
         public ChannelArrayRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                          PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -15,14 +15,19 @@
 package org.epics.pvaccess.server.impl.remote.handlers;
 
 import org.epics.pvaccess.PVFactory;
+import org.epics.pvaccess.impl.remote.QoS;
+import org.epics.pvaccess.impl.remote.SendPriority;
 import org.epics.pvaccess.impl.remote.Transport;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
+import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.misc.Destroyable;
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.Requester;
 import org.epics.pvdata.pv.Status;
 import org.epics.pvdata.pv.Status.StatusType;
@@ -54,11 +59,22 @@ abstract class BaseChannelRequester implements Requester, Destroyable {
     private static final int NULL_REQUEST = -1;
     protected int pendingRequest = NULL_REQUEST;
 
+    /**
+     * Send priority, requested via pvRequest options.
+     */
+    protected final SendPriority sendPriority;
+
     public BaseChannelRequester(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport) {
+        this(context, channel, ioid, transport, null);
+    }
+
+    public BaseChannelRequester(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
+                                PVStructure pvRequest) {
         this.context = context;
         this.channel = channel;
         this.ioid = ioid;
         this.transport = transport;
+        this.sendPriority = SendPriority.fromPVRequest(pvRequest);
     }
 
     public boolean startRequest(int qos) {
@@ -83,6 +99,13 @@ abstract class BaseChannelRequester implements Requester, Destroyable {
         }
     }
 
+    public SendPriority getSendPriority() {
+        final int request = getPendingRequest();
+        if (request != NULL_REQUEST && QoS.DESTROY.isSet(request))
+            return SendPriority.CONTROL;
+        return sendPriority;
+    }
+
     public String getRequesterName() {
         return transport + "/" + ioid;
     }
@@ -121,6 +144,21 @@ abstract class BaseChannelRequester implements Requester, Destroyable {
                 });
     }
 
+    /**
+     * Serialize a bit set of a response, with the sparse encodings if the client accepts them.
+     *
+     * @param bitSet    bit set to serialize.
+     * @param transport transport the response is sent to.
+     * @param buffer    buffer to serialize to.
+     * @param control   send control.
+     */
+    public static void serializeBitSet(final BitSet bitSet, final Transport transport, final ByteBuffer buffer, final TransportSendControl control) {
+        if (transport instanceof ChannelHostingTransport && ((ChannelHostingTransport) transport).isSparseBitSetAccepted())
+            bitSet.serializeSparse(buffer, control);
+        else
+            bitSet.serialize(buffer, control);
+    }
+
     /**
      * Send failure message.
      *
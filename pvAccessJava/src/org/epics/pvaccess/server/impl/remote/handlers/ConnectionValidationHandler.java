@@ -14,8 +14,10 @@
 
 package org.epics.pvaccess.server.impl.remote.handlers;
 
+import org.epics.pvaccess.PVAConstants;
 import org.epics.pvaccess.impl.remote.SerializationHelper;
 import org.epics.pvaccess.impl.remote.Transport;
+import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.PVField;
@@ -50,9 +52,14 @@ public class ConnectionValidationHandler extends AbstractServerResponseHandler {
         // TODO clientIntrospectionRegistryMaxSize
         /*int clientIntrospectionRegistryMaxSize = */
         payloadBuffer.getShort(); // & 0x0000FFFF;
-        // TODO connectionQos
-        /*short connectionQos =*/
-        payloadBuffer.getShort();
+        // connectionQos, only the accepted encodings are used
+        short connectionQos = payloadBuffer.getShort();
+        if (transport instanceof ChannelHostingTransport)
+            ((ChannelHostingTransport) transport).setSparseBitSetAccepted(context.isSparseBitSetEnabled() &&
+                    (connectionQos & PVAConstants.PVA_CONNECTION_QOS_SPARSE_BITSET) != 0);
+        if (transport instanceof ChannelHostingTransport && context.isSharedMemoryEnabled() &&
+                (connectionQos & PVAConstants.PVA_CONNECTION_QOS_SHARED_MEMORY) != 0)
+            ((ChannelHostingTransport) transport).openSharedMemory();
 
         // authNZ
         String securityPluginName = SerializeHelper.deserializeString(payloadBuffer, transport);
@@ -41,7 +41,7 @@ public class GetHandler extends AbstractServerResponseHandler {
         super(context, "Get request");
     }
 
-    private static class ChannelGetRequesterImpl extends BaseChannelRequester implements ChannelGetRequester, TransportSender {
+    private static class ChannelGetRequesterImpl extends BaseChannelRequester implements ChannelGetRequester, PrioritizedTransportSender {
 
         private volatile ChannelGet channelGet;
         private volatile BitSet bitSet;
@@ -51,7 +51,7 @@ public class GetHandler extends AbstractServerResponseHandler {
 
         public ChannelGetRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                        PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -140,7 +140,7 @@ public class GetHandler extends AbstractServerResponseHandler {
                 if (QoS.INIT.isSet(request)) {
                     control.cachedSerialize(structure, buffer);
                 } else {
-                    bitSet.serialize(buffer, control);
+                    serializeBitSet(bitSet, transport, buffer, control);
                     pvStructure.serialize(buffer, control, bitSet);
 
                     // release references
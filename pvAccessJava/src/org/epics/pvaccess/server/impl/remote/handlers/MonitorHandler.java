@@ -15,6 +15,7 @@
 package org.epics.pvaccess.server.impl.remote.handlers;
 
 import org.epics.pvaccess.impl.remote.*;
+import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.server.impl.remote.ServerChannelImpl;
 import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
@@ -42,7 +43,7 @@ public class MonitorHandler extends AbstractServerResponseHandler {
         super(context, "Monitor request");
     }
 
-    private static class MonitorRequesterImpl extends BaseChannelRequester implements MonitorRequester, TransportSender {
+    private static class MonitorRequesterImpl extends BaseChannelRequester implements MonitorRequester, PrioritizedTransportSender {
 
         private volatile Monitor channelMonitor;
         private Status status;
@@ -52,7 +53,7 @@ public class MonitorHandler extends AbstractServerResponseHandler {
 
         public MonitorRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                     PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -72,6 +73,14 @@ public class MonitorHandler extends AbstractServerResponseHandler {
             transport.enqueueSendRequest(this);
         }
 
+        @Override
+        public SendPriority getSendPriority() {
+            // unlisten is sent as a destroy message
+            if (unlisten)
+                return SendPriority.CONTROL;
+            return super.getSendPriority();
+        }
+
         public void monitorConnect(Status status, Monitor monitor, Structure structure) {
             synchronized (this) {
                 this.status = status;
@@ -158,14 +167,18 @@ public class MonitorHandler extends AbstractServerResponseHandler {
                     // changedBitSet and data, if not notify only (i.e. queueSize == -1)
                     final BitSet changedBitSet = element.getChangedBitSet();
                     if (changedBitSet != null) {
-                        changedBitSet.serialize(buffer, control);
+                        serializeBitSet(changedBitSet, transport, buffer, control);
                         element.getPVStructure().serialize(buffer, control, changedBitSet);
 
                         // overrunBitset
-                        element.getOverrunBitSet().serialize(buffer, control);
+                        serializeBitSet(element.getOverrunBitSet(), transport, buffer, control);
                     }
 
                     monitor.release(element);
+
+                    // coalesced monitor events are sent by one send request, one element per request
+                    if (transport instanceof AbstractCodec && ((AbstractCodec) transport).isCoalescingSendRequests())
+                        transport.enqueueSendRequest(this);
                 } else {
                     // TODO should I latch unlisten
                     if (unlisten) {
@@ -38,14 +38,14 @@ public class ProcessHandler extends AbstractServerResponseHandler {
         super(context, "Process request");
     }
 
-    private static class ChannelProcessRequesterImpl extends BaseChannelRequester implements ChannelProcessRequester, TransportSender {
+    private static class ChannelProcessRequesterImpl extends BaseChannelRequester implements ChannelProcessRequester, PrioritizedTransportSender {
 
         private volatile ChannelProcess channelProcess;
         private volatile Status status;
 
         public ChannelProcessRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                            PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -42,7 +42,7 @@ public class PutGetHandler extends AbstractServerResponseHandler {
     }
 
 
-    private static class ChannelPutGetRequesterImpl extends BaseChannelRequester implements ChannelPutGetRequester, TransportSender {
+    private static class ChannelPutGetRequesterImpl extends BaseChannelRequester implements ChannelPutGetRequester, PrioritizedTransportSender {
 
         private volatile ChannelPutGet channelPutGet;
         private volatile Status status;
@@ -62,7 +62,7 @@ public class PutGetHandler extends AbstractServerResponseHandler {
 
         public ChannelPutGetRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                           PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -189,21 +189,21 @@ public class PutGetHandler extends AbstractServerResponseHandler {
                     control.cachedSerialize(putStructure, buffer);
                     control.cachedSerialize(getStructure, buffer);
                 } else if (QoS.GET.isSet(request)) {
-                    pvGetBitSet.serialize(buffer, control);
+                    serializeBitSet(pvGetBitSet, transport, buffer, control);
                     pvGetStructure.serialize(buffer, control, pvGetBitSet);
 
                     // release references
                     pvGetStructure = null;
                     pvGetBitSet = null;
                 } else if (QoS.GET_PUT.isSet(request)) {
-                    pvPutBitSet.serialize(buffer, control);
+                    serializeBitSet(pvPutBitSet, transport, buffer, control);
                     pvPutStructure.serialize(buffer, control, pvPutBitSet);
 
                     // release references
                     pvPutStructure = null;
                     pvPutBitSet = null;
                 } else {
-                    pvGetBitSet.serialize(buffer, control);
+                    serializeBitSet(pvGetBitSet, transport, buffer, control);
                     pvGetStructure.serialize(buffer, control, pvGetBitSet);
 
                     // release references
@@ -41,7 +41,7 @@ public class PutHandler extends AbstractServerResponseHandler {
         super(context, "Put request");
     }
 
-    private static class ChannelPutRequesterImpl extends BaseChannelRequester implements ChannelPutRequester, TransportSender {
+    private static class ChannelPutRequesterImpl extends BaseChannelRequester implements ChannelPutRequester, PrioritizedTransportSender {
 
         private volatile ChannelPut channelPut;
         private volatile Status status;
@@ -58,7 +58,7 @@ public class PutHandler extends AbstractServerResponseHandler {
 
         public ChannelPutRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                        PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
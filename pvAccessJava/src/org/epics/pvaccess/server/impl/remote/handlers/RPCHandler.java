@@ -39,7 +39,7 @@ public class RPCHandler extends AbstractServerResponseHandler {
     }
 
 
-    private static class ChannelRPCRequesterImpl extends BaseChannelRequester implements ChannelRPCRequester, TransportSender {
+    private static class ChannelRPCRequesterImpl extends BaseChannelRequester implements ChannelRPCRequester, PrioritizedTransportSender {
 
         private volatile ChannelRPC channelRPC;
         private volatile PVStructure pvResponse;
@@ -47,7 +47,7 @@ public class RPCHandler extends AbstractServerResponseHandler {
 
         public ChannelRPCRequesterImpl(ServerContextImpl context, ServerChannelImpl channel, int ioid, Transport transport,
                                        PVStructure pvRequest) {
-            super(context, channel, ioid, transport);
+            super(context, channel, ioid, transport, pvRequest);
 
             startRequest(QoS.INIT.getMaskValue());
             channel.registerRequest(ioid, this);
@@ -82,6 +82,8 @@ public class ServerRPCService implements RPCService {
                     .add("threads", ScalarType.pvInt)
                     .add("deadlocks", ScalarType.pvInt)
                     .add("averageSystemLoad", ScalarType.pvDouble)
+                    .add("slowConsumers", ScalarType.pvInt)
+                    .add("slowConsumerDisconnects", ScalarType.pvLong)
                     .createStructure();
 
     private static final Structure clientsStructure =
@@ -323,6 +325,9 @@ public class ServerRPCService implements RPCService {
             status.getIntField("deadlocks").put((deadlocks != null) ? deadlocks.length : 0);
             status.getDoubleField("averageSystemLoad").put(-1);
 
+            status.getIntField("slowConsumers").put(serverContext.getSlowConsumers().length);
+            status.getLongField("slowConsumerDisconnects").put(serverContext.getSlowConsumerDisconnectCount());
+
             return status;
         }
     }
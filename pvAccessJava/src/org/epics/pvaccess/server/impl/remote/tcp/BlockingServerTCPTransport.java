@@ -22,11 +22,14 @@ import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.request.ResponseHandler;
 import org.epics.pvaccess.impl.remote.server.ChannelHostingTransport;
 import org.epics.pvaccess.impl.remote.server.ServerChannel;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
 import org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport;
 import org.epics.pvaccess.impl.security.NoSecurityPlugin;
 import org.epics.pvaccess.plugins.SecurityPlugin;
 import org.epics.pvaccess.plugins.SecurityPlugin.SecurityPluginControl;
 import org.epics.pvaccess.plugins.SecurityPlugin.SecuritySession;
+import org.epics.pvaccess.util.InetAddressUtil;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
 import org.epics.pvdata.factory.StatusFactory;
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.PVField;
@@ -80,9 +83,22 @@ public class BlockingServerTCPTransport extends BlockingTCPTransport
         final int INITIAL_SIZE = 64;
         channels = Collections.synchronizedMap(new HashMap<Integer, ServerChannel>(INITIAL_SIZE));
 
+        if (context instanceof ServerContextImpl)
+            setSlowConsumerPolicy(((ServerContextImpl) context).getSlowConsumerPolicy());
+
         start();
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.impl.remote.codec.AbstractCodec#slowConsumerDisconnect()
+     */
+    @Override
+    protected void slowConsumerDisconnect() {
+        if (context instanceof ServerContextImpl)
+            ((ServerContextImpl) context).slowConsumerDisconnected(this);
+        super.slowConsumerDisconnect();
+    }
+
     /**
      * @see org.epics.pvaccess.impl.remote.tcp.BlockingTCPTransport#internalClose()
      */
@@ -168,6 +184,44 @@ public class BlockingServerTCPTransport extends BlockingTCPTransport
 
     }
 
+    /**
+     * Client accepts the sparse BitSet encodings.
+     */
+    private volatile boolean sparseBitSetAccepted = false;
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.impl.remote.server.ChannelHostingTransport#setSparseBitSetAccepted(boolean)
+     */
+    public void setSparseBitSetAccepted(boolean accepted) {
+        sparseBitSetAccepted = accepted;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.impl.remote.server.ChannelHostingTransport#isSparseBitSetAccepted()
+     */
+    public boolean isSparseBitSetAccepted() {
+        return sparseBitSetAccepted;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvaccess.impl.remote.server.ChannelHostingTransport#openSharedMemory()
+     */
+    public void openSharedMemory() {
+        // the flag could be set by a remote client, whose ring file would not exist (or a different one)
+        if (!InetAddressUtil.isLocalAddress(socketAddress.getAddress()))
+            return;
+
+        final ServerContextImpl serverContext = (ServerContextImpl) context;
+        try {
+            setSharedMemoryProducer(SharedMemoryRing.open(
+                    SharedMemoryRing.getFile(serverContext.getSharedMemoryDirectory(),
+                            (InetSocketAddress) channel.socket().getLocalSocketAddress(), socketAddress.getPort())),
+                    serverContext.getSharedMemoryThreshold());
+        } catch (Throwable th) {
+            context.getLogger().log(Level.WARNING, "Failed to open shared memory ring for transport to " + socketAddress + ", arrays will be sent inline.", th);
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -255,6 +255,27 @@ public class InetAddressUtil {
         return LOOPBACK_NIFS;
     }
 
+    /**
+     * Check if given address belongs to this host,
+     * i.e. it is a loopback/any-local address or it is assigned to one of the local NIFs.
+     *
+     * @param address address to check.
+     * @return <code>true</code> if address is local, <code>false</code> otherwise.
+     */
+    public static boolean isLocalAddress(InetAddress address) {
+        if (address == null)
+            return false;
+
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress())
+            return true;
+
+        try {
+            return java.net.NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
     /**
      * Encode address as IPv6 address.
      *
@@ -5,17 +5,62 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Mailbox with one or more priority lanes.
+ * Elements are taken from the highest non-empty lane first, FIFO within a lane.
+ *
  * @param <E> element type.
  * @author msekoranja
  */
 public class Mailbox<E> {
 
-    private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<E>();
+    private final ConcurrentLinkedQueue<E>[] lanes;
+    private final int defaultLane;
     private final AtomicInteger elements = new AtomicInteger(0);
     private final AtomicBoolean wakeup = new AtomicBoolean(false);
 
+    public Mailbox() {
+        this(1, 0);
+    }
+
+    /**
+     * Create mailbox with given number of lanes.
+     *
+     * @param laneCount   number of lanes, lane <code>laneCount - 1</code> has the highest priority.
+     * @param defaultLane lane used by <code>put(E)</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public Mailbox(int laneCount, int defaultLane) {
+        if (laneCount < 1)
+            throw new IllegalArgumentException("laneCount < 1");
+        if (defaultLane < 0 || defaultLane >= laneCount)
+            throw new IllegalArgumentException("defaultLane out of range");
+        this.defaultLane = defaultLane;
+        lanes = new ConcurrentLinkedQueue[laneCount];
+        for (int i = 0; i < laneCount; i++)
+            lanes[i] = new ConcurrentLinkedQueue<E>();
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Put element to the default lane.
+     *
+     * @param msg element to put.
+     */
     public void put(E msg) {
-        queue.add(msg);
+        put(msg, defaultLane);
+    }
+
+    /**
+     * Put element to the given lane.
+     *
+     * @param msg  element to put.
+     * @param lane lane index, higher index means higher priority.
+     */
+    public void put(E msg, int lane) {
+        lanes[lane].add(msg);
         if (elements.incrementAndGet() == 1) {
             synchronized (elements) {
                 elements.notify();
@@ -25,16 +70,16 @@ public class Mailbox<E> {
 
     public E take(long timeout) throws InterruptedException {
         while (true) {
-            E val = queue.poll();
+            E val = poll();
             if (val == null) {
                 synchronized (elements) {
-                    boolean isEmpty = queue.isEmpty();
+                    boolean isEmpty = isEmpty();
                     if (isEmpty && timeout < 0)
                         return null;
 
                     while (isEmpty) {
                         elements.wait(timeout);
-                        isEmpty = queue.isEmpty();
+                        isEmpty = isEmpty();
                         if (isEmpty) {
                             if (timeout > 0)    // TODO spurious wakeup, but not critical
                                 return null;
@@ -53,13 +98,36 @@ public class Mailbox<E> {
         }
     }
 
-    // NOTE: size is O(n)
+    private E poll() {
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            E val = lanes[i].poll();
+            if (val != null)
+                return val;
+        }
+        return null;
+    }
+
+    // O(number of lanes), checks the lanes since the element count is updated after an element is added or polled
     public boolean isEmpty() {
-        return queue.isEmpty();
+        for (int i = lanes.length - 1; i >= 0; i--)
+            if (!lanes[i].isEmpty())
+                return false;
+        return true;
+    }
+
+    /**
+     * Get number of elements.
+     *
+     * @return number of elements.
+     */
+    public int size() {
+        return elements.get();
     }
 
     public void clear() {
-        queue.clear();
+        for (int i = 0; i < lanes.length; i++)
+            while (lanes[i].poll() != null)
+                elements.decrementAndGet();
     }
 
     public void wakeup() {
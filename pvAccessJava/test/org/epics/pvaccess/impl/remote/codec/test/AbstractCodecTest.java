@@ -2,15 +2,24 @@ package org.epics.pvaccess.impl.remote.codec.test;
 
 import junit.framework.TestCase;
 import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
+import org.epics.pvaccess.impl.remote.SendPriority;
 import org.epics.pvaccess.impl.remote.TransportSendControl;
 import org.epics.pvaccess.impl.remote.TransportSender;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec.ReadMode;
 import org.epics.pvaccess.impl.remote.codec.AbstractCodec.WriteMode;
 import org.epics.pvaccess.impl.remote.codec.ConnectionClosedException;
+import org.epics.pvaccess.impl.remote.codec.SlowConsumerPolicy;
 import org.epics.pvaccess.impl.remote.codec.test.AbstractCodecTest.TestCodec.ReadPollOneCallback;
 import org.epics.pvaccess.impl.remote.codec.test.AbstractCodecTest.TestCodec.WritePollOneCallback;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.ArrayChunkConsumer;
+import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarType;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -20,6 +29,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 
@@ -78,6 +88,9 @@ public class AbstractCodecTest extends TestCase {
 
         int forcePayloadRead = -1;
 
+        // if set, the payload is deserialized into this array
+        PVScalarArray deserializeArray = null;
+
         public TestCodec(int bufferSize) {
             this(bufferSize, bufferSize);
         }
@@ -189,7 +202,19 @@ public class AbstractCodecTest extends TestCase {
         @Override
         public void processApplicationMessage() {
             PVAMessage caMessage = new PVAMessage(version, flags, command, payloadSize);
-            if (readPayload && payloadSize > 0) {
+            if (deserializeArray != null) {
+                deserializeArray.deserialize(socketBuffer, new DeserializableControl() {
+                    public void ensureData(int size) {
+                        TestCodec.this.ensureData(size);
+                    }
+                    public void alignData(int alignment) {
+                        TestCodec.this.alignData(alignment);
+                    }
+                    public Field cachedDeserialize(ByteBuffer buffer) {
+                        return null;
+                    }
+                });
+            } else if (readPayload && payloadSize > 0) {
                 // no fragmentation supported by this implementation
                 int toRead = forcePayloadRead >= 0 ? forcePayloadRead : payloadSize;
                 caMessage.payload = ByteBuffer.allocate(toRead);
@@ -1334,6 +1359,191 @@ public class AbstractCodecTest extends TestCase {
         assertEquals(header.payloadSize, 0xDDCCBBAA);
     }
 
+    static class PrioritizedSender implements PrioritizedTransportSender {
+        final TestCodec codec;
+        final byte command;
+        final SendPriority priority;
+
+        PrioritizedSender(TestCodec codec, byte command, SendPriority priority) {
+            this.codec = codec;
+            this.command = command;
+            this.priority = priority;
+        }
+
+        public SendPriority getSendPriority() {
+            return priority;
+        }
+
+        public void unlock() {
+        }
+
+        public void lock() {
+        }
+
+        public void send(ByteBuffer buffer, TransportSendControl control) {
+            codec.startMessage(command, 0x00000000);
+            codec.endMessage();
+        }
+    }
+
+    public void testEnqueueSendRequestPriority() throws Throwable {
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+
+        TransportSender defaultSender = new TransportSender() {
+
+            public void unlock() {
+            }
+
+            public void lock() {
+            }
+
+            public void send(ByteBuffer buffer, TransportSendControl control) {
+                codec.startMessage((byte) 0x04, 0x00000000);
+                codec.endMessage();
+            }
+        };
+
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x01, SendPriority.LOW));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x02, SendPriority.NORMAL));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x03, SendPriority.HIGH));
+        codec.enqueueSendRequest(defaultSender);
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x05, SendPriority.HIGH));
+        codec.processSendQueue();
+
+        codec.transferToReadBuffer();
+
+        codec.processRead();
+
+        assertEquals(0, codec.invalidDataStreamCount);
+        assertEquals(0, codec.closedCount);
+        assertEquals(0, codec.receivedControlMessages.size());
+        assertEquals(5, codec.receivedAppMessages.size());
+
+        // higher lanes first, FIFO within a lane, no priority means normal
+        final byte[] expectedOrder = {0x03, 0x05, 0x02, 0x04, 0x01};
+        for (int i = 0; i < expectedOrder.length; i++)
+            assertEquals(expectedOrder[i], codec.receivedAppMessages.get(i).command);
+    }
+
+    public void testSendPriorityParse() {
+        assertEquals(SendPriority.HIGH, SendPriority.parse("high"));
+        assertEquals(SendPriority.LOW, SendPriority.parse(" LOW "));
+        assertEquals(SendPriority.NORMAL, SendPriority.parse("urgent"));
+        assertEquals(SendPriority.NORMAL, SendPriority.parse(null));
+        assertEquals(SendPriority.NORMAL, SendPriority.fromPVRequest(null));
+    }
+
+    public void testSlowConsumerCoalesce() throws Throwable {
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+        codec.setSlowConsumerPolicy(new SlowConsumerPolicy(2, 0, 0, SlowConsumerPolicy.Action.COALESCE));
+        assertTrue(codec.isCoalescingSendRequests());
+
+        final AtomicInteger sendCount = new AtomicInteger();
+        TransportSender sender = new TransportSender() {
+
+            public void unlock() {
+            }
+
+            public void lock() {
+            }
+
+            public void send(ByteBuffer buffer, TransportSendControl control) {
+                sendCount.incrementAndGet();
+                codec.startMessage((byte) 0x20, 0x00000000);
+                codec.endMessage();
+            }
+        };
+
+        // 3 requests are queued, the rest is coalesced into one follow-up send
+        for (int i = 0; i < 10; i++)
+            codec.enqueueSendRequest(sender);
+        assertTrue(codec.isSlowConsumer());
+        assertEquals(3, codec.getSendQueueLength());
+        assertEquals(7, codec.getCoalescedSendCount());
+        assertEquals(1, codec.getSlowConsumerDetectedCount());
+
+        codec.processSendQueue();
+        assertEquals(4, sendCount.get());
+        assertEquals(0, codec.getSendQueueLength());
+        assertFalse(codec.checkSlowConsumer());
+        assertEquals(0, codec.closedCount);
+    }
+
+    public void testSlowConsumerDropLowPriority() throws Throwable {
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+        codec.setSlowConsumerPolicy(new SlowConsumerPolicy(1, 0, 0, SlowConsumerPolicy.Action.DROP_LOW_PRIORITY));
+
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x01, SendPriority.LOW));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x02, SendPriority.NORMAL));
+        assertFalse(codec.isSlowConsumer());
+
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x03, SendPriority.LOW));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x04, SendPriority.HIGH));
+        assertTrue(codec.isSlowConsumer());
+        assertEquals(1, codec.getDroppedSendCount());
+        assertEquals(3, codec.getSendQueueLength());
+
+        codec.processSendQueue();
+        codec.transferToReadBuffer();
+        codec.processRead();
+
+        assertEquals(3, codec.receivedAppMessages.size());
+        assertEquals(0x04, codec.receivedAppMessages.get(0).command);
+        assertEquals(0x02, codec.receivedAppMessages.get(1).command);
+        assertEquals(0x01, codec.receivedAppMessages.get(2).command);
+    }
+
+    public void testSlowConsumerDisconnect() throws Throwable {
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+        codec.setSlowConsumerPolicy(new SlowConsumerPolicy(0, 1, 0, SlowConsumerPolicy.Action.DISCONNECT));
+
+        // remote side does not read anymore
+        codec.writeBuffer.position(codec.writeBuffer.limit());
+
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x01, SendPriority.NORMAL));
+        try {
+            codec.processSendQueue();
+            fail("slow consumer not disconnected");
+        } catch (ConnectionClosedException cce) {
+            // expected
+        }
+
+        assertTrue(codec.isSlowConsumer());
+        assertTrue(codec.closedCount > 0);
+        assertEquals(0, codec.sendBufferFullCount);
+    }
+
+    public void testSlowConsumerDisconnectFromEnqueue() throws Throwable {
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+        codec.setSlowConsumerPolicy(new SlowConsumerPolicy(1, 0, 0, SlowConsumerPolicy.Action.DISCONNECT));
+        assertFalse(codec.isCoalescingSendRequests());
+
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x01, SendPriority.NORMAL));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x02, SendPriority.NORMAL));
+        codec.enqueueSendRequest(new PrioritizedSender(codec, (byte) 0x03, SendPriority.NORMAL));
+        assertTrue(codec.isSlowConsumer());
+
+        // not closed by the enqueuing thread, but by the thread processing the send queue
+        assertEquals(0, codec.closedCount);
+        codec.processSendQueue();
+        assertEquals(1, codec.closedCount);
+    }
+
+    public void testSlowConsumerPolicy() {
+        SlowConsumerPolicy policy = new SlowConsumerPolicy(10, 1000, 500, SlowConsumerPolicy.Action.DISCONNECT);
+        assertFalse(policy.isExceeded(10, 1000, 500));
+        assertTrue(policy.isExceeded(11, 0, 0));
+        assertTrue(policy.isExceeded(0, 1001, 0));
+        assertTrue(policy.isExceeded(0, 0, 501));
+
+        // disabled thresholds
+        policy = new SlowConsumerPolicy(0, 0, 0, SlowConsumerPolicy.Action.COALESCE);
+        assertFalse(policy.isExceeded(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE));
+
+        assertEquals(SlowConsumerPolicy.Action.COALESCE, SlowConsumerPolicy.Action.parse("coalesce", null));
+        assertNull(SlowConsumerPolicy.Action.parse("none", null));
+    }
+
     public void testEnqueueSendDirectRequest() throws Throwable {
         final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
 
@@ -1574,6 +1784,97 @@ public class AbstractCodecTest extends TestCase {
 
     }
 
+    public void testSegmentedArrayChunks() throws Throwable {
+        final int elements = 10 * DEFAULT_BUFFER_SIZE / 8;
+        final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
+        codec.readBuffer = ByteBuffer.allocate(11 * DEFAULT_BUFFER_SIZE);
+
+        codec.writePollOneCallback = new WritePollOneCallback() {
+            public void writePollOne() throws IOException {
+                codec.processWrite();    // this should return immediately
+
+                // now we fake reading
+                codec.writeBuffer.flip();
+                codec.readBuffer.put(codec.writeBuffer);
+                codec.writeBuffer.clear();
+            }
+        };
+
+        final PVDoubleArray sent = (PVDoubleArray) PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+        double[] values = new double[elements];
+        for (int i = 0; i < elements; i++)
+            values[i] = Math.sin(i);
+        sent.put(0, elements, values, 0);
+
+        TransportSender sender = new TransportSender() {
+
+            public void unlock() {
+            }
+
+            public void lock() {
+            }
+
+            public void send(ByteBuffer buffer, TransportSendControl control) {
+                codec.startMessage((byte) 0x12, 0);
+                sent.serialize(codec.getSendBuffer(), codec);
+                codec.endMessage();
+            }
+        };
+
+        // process
+        codec.enqueueSendRequest(sender);
+        codec.processSendQueue();
+
+        codec.addToReadBuffer();
+
+        // reduce the segments to min/max, without materializing the array
+        final double[] minMax = { Double.MAX_VALUE, -Double.MAX_VALUE };
+        final AtomicInteger chunks = new AtomicInteger();
+        final AtomicInteger received = new AtomicInteger();
+        PVDoubleArray pvArray = (PVDoubleArray) PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+        pvArray.setChunkConsumer(new ArrayChunkConsumer() {
+            public boolean beginArray(PVScalarArray pvArray, int length) {
+                assertEquals(elements, length);
+                return false;
+            }
+
+            public void arrayChunk(PVScalarArray pvArray, int offset, ByteBuffer chunk, int count) {
+                assertEquals(received.get(), offset);
+                for (int i = 0; i < count; i++) {
+                    double value = chunk.getDouble();
+                    minMax[0] = Math.min(minMax[0], value);
+                    minMax[1] = Math.max(minMax[1], value);
+                }
+                assertFalse(chunk.hasRemaining());
+                received.addAndGet(count);
+                chunks.incrementAndGet();
+            }
+
+            public void endArray(PVScalarArray pvArray) {
+                assertEquals(elements, received.get());
+            }
+        });
+        codec.deserializeArray = pvArray;
+        codec.processRead();
+
+        assertEquals(0, codec.invalidDataStreamCount);
+        assertEquals(0, codec.closedCount);
+        assertEquals(1, codec.receivedAppMessages.size());
+        assertEquals((byte) (0x80 | 0x10), codec.receivedAppMessages.get(0).flags);    // segmented
+
+        assertEquals(elements, received.get());
+        assertTrue(chunks.get() > 1);
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        assertEquals(min, minMax[0]);
+        assertEquals(max, minMax[1]);
+        assertEquals(0, pvArray.getLength());
+        assertEquals(0, pvArray.getCapacity());
+    }
+
     public void testRecipient() throws Throwable {
         final TestCodec codec = new TestCodec(DEFAULT_BUFFER_SIZE);
         InetSocketAddress addr = new InetSocketAddress(InetAddress.getLocalHost(), 1234);
@@ -0,0 +1,337 @@
+package org.epics.pvaccess.impl.remote.codec.test.perf;
+
+import com.sun.japex.Constants;
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+import org.epics.pvaccess.PVAConstants;
+import org.epics.pvaccess.impl.remote.PrioritizedTransportSender;
+import org.epics.pvaccess.impl.remote.SendPriority;
+import org.epics.pvaccess.impl.remote.TransportSendControl;
+import org.epics.pvaccess.impl.remote.TransportSender;
+import org.epics.pvaccess.impl.remote.codec.AbstractCodec;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Latency of a small 1 kHz put sent over the same (loopback) connection as a saturating image stream.
+ * Parameters:
+ * <ul>
+ * <li><code>imageSize</code> - image message payload size (in bytes),</li>
+ * <li><code>queuedImages</code> - number of images kept in the send queue,</li>
+ * <li><code>priorityLanes</code> - <code>true</code> to send puts with <code>HIGH</code> and images with <code>LOW</code> priority,
+ * <code>false</code> to send all with the same priority (FIFO).</li>
+ * </ul>
+ * Result is the average put latency in milliseconds, maximum latency is printed out.
+ */
+public class SendPriorityLatencyPerformance extends JapexDriverBase {
+
+    private static final byte IMAGE_COMMAND = 13;
+    private static final byte PUT_COMMAND = 11;
+    private static final long PUT_PERIOD_NS = 1000000;
+
+    private static class LinkCodec extends AbstractCodec {
+
+        private final SocketChannel channel;
+        volatile boolean terminated = false;
+
+        LinkCodec(SocketChannel channel, int bufferSize) {
+            super(false, ByteBuffer.allocate(bufferSize), ByteBuffer.allocate(bufferSize),
+                    bufferSize, true, Logger.getLogger("LinkCodec"));
+            this.channel = channel;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        public void close() throws IOException {
+            terminated = true;
+            sendQueue.wakeup();
+            channel.close();
+        }
+
+        @Override
+        public void processControlMessage() {
+        }
+
+        @Override
+        public void processApplicationMessage() {
+        }
+
+        @Override
+        public InetSocketAddress getLastReadBufferSocketAddress() {
+            return null;
+        }
+
+        @Override
+        public void invalidDataStreamHandler() {
+        }
+
+        @Override
+        public void readPollOne() {
+        }
+
+        @Override
+        public void writePollOne() {
+        }
+
+        @Override
+        protected void sendBufferFull(int tries) {
+            // blocking channel
+        }
+
+        @Override
+        public void scheduleSend() {
+            // send thread waits on the queue
+        }
+
+        @Override
+        public void sendCompleted() {
+        }
+
+        @Override
+        public boolean terminated() {
+            return terminated;
+        }
+
+        public void cachedSerialize(org.epics.pvdata.pv.Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    }
+
+    private class ImageSender implements PrioritizedTransportSender {
+
+        public SendPriority getSendPriority() {
+            return priorityLanes ? SendPriority.LOW : SendPriority.NORMAL;
+        }
+
+        public void lock() {
+        }
+
+        public void unlock() {
+        }
+
+        public void send(ByteBuffer buffer, TransportSendControl control) {
+            control.startMessage(IMAGE_COMMAND, 0);
+            int toSend = imageSize;
+            while (toSend > 0) {
+                control.ensureBuffer(8);
+                int count = Math.min(toSend, buffer.remaining()) & ~7;
+                if (count == 0)
+                    count = 8;
+                buffer.position(buffer.position() + count);
+                toSend -= count;
+            }
+            control.endMessage();
+            imagesQueued.release();
+        }
+    }
+
+    private class PutSender implements PrioritizedTransportSender {
+
+        public SendPriority getSendPriority() {
+            return priorityLanes ? SendPriority.HIGH : SendPriority.NORMAL;
+        }
+
+        public void lock() {
+        }
+
+        public void unlock() {
+        }
+
+        public void send(ByteBuffer buffer, TransportSendControl control) {
+            control.startMessage(PUT_COMMAND, 8);
+            buffer.putLong(putTimestamp);
+            control.flush(true);
+        }
+    }
+
+    private int imageSize;
+    private boolean priorityLanes;
+    private Semaphore imagesQueued;
+
+    private ServerSocketChannel serverChannel;
+    private SocketChannel receiverChannel;
+    private LinkCodec codec;
+    private Thread sendThread;
+    private Thread imageThread;
+    private Thread receiveThread;
+
+    private final Semaphore putReceived = new Semaphore(0);
+    private final TransportSender putSender = new PutSender();
+    private volatile long putTimestamp;
+    private volatile long lastLatency;
+
+    private long latencySum;
+    private long latencyMax;
+    private int latencyCount;
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#prepare(com.sun.japex.TestCase)
+     */
+    @Override
+    public void prepare(TestCase testCase) {
+        imageSize = testCase.getIntParam("imageSize");
+        priorityLanes = testCase.getBooleanParam("priorityLanes");
+        imagesQueued = new Semaphore(testCase.getIntParam("queuedImages"));
+
+        latencySum = 0;
+        latencyMax = 0;
+        latencyCount = 0;
+
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().bind(new InetSocketAddress(InetAddress.getByName(null), 0));
+            SocketChannel senderChannel = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+            receiverChannel = serverChannel.accept();
+
+            codec = new LinkCodec(senderChannel, PVAConstants.MAX_TCP_RECV);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        sendThread = new Thread(new Runnable() {
+            public void run() {
+                codec.setSenderThread();
+                while (!codec.terminated()) {
+                    try {
+                        codec.processSendQueue();
+                    } catch (Throwable th) {
+                        // closed
+                    }
+                }
+            }
+        }, "sendThread");
+        sendThread.start();
+
+        imageThread = new Thread(new Runnable() {
+            public void run() {
+                final ImageSender imageSender = new ImageSender();
+                try {
+                    while (!codec.terminated()) {
+                        imagesQueued.acquire();
+                        codec.enqueueSendRequest(imageSender);
+                    }
+                } catch (InterruptedException e) {
+                    // stop
+                }
+            }
+        }, "imageThread");
+        imageThread.start();
+
+        receiveThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    receive();
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }, "receiveThread");
+        receiveThread.start();
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (receiverChannel.read(buffer) < 0)
+                throw new IOException("connection closed");
+    }
+
+    private void receive() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(PVAConstants.PVA_MESSAGE_HEADER_SIZE);
+        final ByteBuffer payload = ByteBuffer.allocateDirect(PVAConstants.MAX_TCP_RECV);
+        while (true) {
+            header.clear();
+            readFully(header);
+            final byte flags = header.get(2);
+            final byte command = header.get(3);
+            header.order((flags & 0x80) != 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            final int payloadSize = header.getInt(4);
+
+            // control message payload size field carries data
+            if ((flags & 0x01) != 0)
+                continue;
+
+            int toRead = payloadSize;
+            while (toRead > 0) {
+                payload.clear();
+                payload.limit(Math.min(toRead, payload.capacity()));
+                readFully(payload);
+                toRead -= payload.limit();
+            }
+
+            if (command == PUT_COMMAND) {
+                payload.flip();
+                payload.order(header.order());
+                lastLatency = System.nanoTime() - payload.getLong(0);
+                putReceived.release();
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#run(com.sun.japex.TestCase)
+     */
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            final long start = System.nanoTime();
+            putTimestamp = start;
+            codec.enqueueSendRequest(putSender);
+            putReceived.acquire();
+
+            final long latency = lastLatency;
+            latencySum += latency;
+            latencyMax = Math.max(latencyMax, latency);
+            latencyCount++;
+
+            // 1 kHz
+            final long sleepNs = PUT_PERIOD_NS - (System.nanoTime() - start);
+            if (sleepNs > 0)
+                Thread.sleep(sleepNs / 1000000, (int) (sleepNs % 1000000));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#finish(com.sun.japex.TestCase)
+     */
+    @Override
+    public void finish(TestCase testCase) {
+        try {
+            codec.close();
+            imageThread.interrupt();
+            sendThread.join(3000);
+            imageThread.join(3000);
+            receiverChannel.close();
+            receiveThread.join(3000);
+            serverChannel.close();
+        } catch (Throwable th) {
+            // noop
+        }
+
+        final double avgLatencyMs = latencyCount > 0 ? (latencySum / (double) latencyCount) / 1e6 : 0;
+        System.out.println("put latency [ms]: avg " + avgLatencyMs + ", max " + latencyMax / 1e6 +
+                " (priorityLanes=" + priorityLanes + ", imageSize=" + imageSize + ")");
+
+        testCase.setDoubleParam(Constants.RESULT_VALUE, avgLatencyMs);
+    }
+
+}
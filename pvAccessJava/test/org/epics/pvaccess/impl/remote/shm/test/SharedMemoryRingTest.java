@@ -0,0 +1,226 @@
+package org.epics.pvaccess.impl.remote.shm.test;
+
+import junit.framework.TestCase;
+import org.epics.pvaccess.impl.remote.shm.SharedMemoryRing;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared memory (memory-mapped) ring test.
+ */
+public class SharedMemoryRingTest extends TestCase {
+
+    private File file;
+
+    public SharedMemoryRingTest(String methodName) {
+        super(methodName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("pvaShmRing", ".ring");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testCreateOpenClose() throws IOException {
+        // the consumer creates the ring
+        SharedMemoryRing consumer = SharedMemoryRing.create(file, 1001);
+        assertEquals(1000, consumer.getCapacity());
+
+        SharedMemoryRing producer = SharedMemoryRing.open(file);
+        assertEquals(1000, producer.getCapacity());
+
+        File invalidFile = File.createTempFile("pvaShmRing", ".ring");
+        try {
+            SharedMemoryRing.open(invalidFile);
+            fail("empty file accepted");
+        } catch (IOException ioe) {
+            // OK
+        } finally {
+            invalidFile.delete();
+        }
+
+        // only the creator deletes the file
+        producer.close();
+        assertTrue(file.exists());
+        consumer.close();
+        assertFalse(file.exists());
+    }
+
+    public void testGetFile() throws IOException {
+        File directory = SharedMemoryRing.getDefaultDirectory();
+        assertTrue(directory.isDirectory());
+
+        File f = SharedMemoryRing.getFile(directory,
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 5075), 40000);
+        assertEquals(directory, f.getParentFile());
+        assertEquals("pva_127.0.0.1_5075_40000", f.getName());
+
+        f = SharedMemoryRing.getFile(directory,
+                new InetSocketAddress(InetAddress.getByName("::1"), 5075), 40000);
+        assertTrue(f.getName().matches("pva_[0-9A-Za-z._]+_5075_40000"));
+    }
+
+    public void testReserveCommitReadRelease() throws IOException {
+        SharedMemoryRing consumer = SharedMemoryRing.create(file, 1024);
+        SharedMemoryRing producer = SharedMemoryRing.open(file);
+
+        ByteBuffer data = producer.reserve(100);
+        assertEquals(100, data.remaining());
+        for (int i = 0; i < 100; i++)
+            data.put((byte) i);
+        long position = producer.commit();
+        assertEquals(0, position);
+
+        // the next record is 8-aligned, after the record header
+        data = producer.reserve(10);
+        assertNotNull(data);
+        long position2 = producer.commit();
+        assertEquals(SharedMemoryRing.RECORD_HEADER_SIZE + 104, position2);
+
+        data = consumer.read(position, 100);
+        assertEquals(100, data.remaining());
+        for (int i = 0; i < 100; i++)
+            assertEquals((byte) i, data.get());
+        consumer.release();
+
+        data = consumer.read(position2, 10);
+        assertEquals(10, data.remaining());
+        consumer.release();
+
+        try {
+            consumer.release();
+            fail("released twice");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+
+        try {
+            producer.commit();
+            fail("committed without a reservation");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+    }
+
+    public void testInvalidReference() throws IOException {
+        SharedMemoryRing consumer = SharedMemoryRing.create(file, 1024);
+        SharedMemoryRing producer = SharedMemoryRing.open(file);
+
+        producer.reserve(100);
+        long position = producer.commit();
+
+        // wrong length, wrong position, not committed, out of range
+        long[][] references = {{position, 99}, {position + 8, 100}, {position + 1024, 100}, {1000, 100}, {-1, 100}, {0, -1}};
+        for (long[] reference : references) {
+            try {
+                consumer.read(reference[0], (int) reference[1]);
+                fail("invalid reference accepted: " + reference[0] + ", " + reference[1]);
+            } catch (IllegalArgumentException iae) {
+                // OK
+            }
+        }
+
+        consumer.read(position, 100);
+        consumer.release();
+    }
+
+    public void testFullAndWrap() throws IOException {
+        final int CAPACITY = 1024;
+        SharedMemoryRing consumer = SharedMemoryRing.create(file, CAPACITY);
+        SharedMemoryRing producer = SharedMemoryRing.open(file);
+
+        // never fits
+        assertNull(producer.reserve(CAPACITY));
+
+        // 3 records of 320 bytes fill 960 bytes
+        final int LENGTH = 320 - SharedMemoryRing.RECORD_HEADER_SIZE;
+        long[] positions = new long[3];
+        for (int i = 0; i < positions.length; i++) {
+            assertNotNull(producer.reserve(LENGTH));
+            positions[i] = producer.commit();
+            assertEquals(i * 320, positions[i]);
+        }
+
+        // the next record does not fit before the end and nothing is released
+        assertNull(producer.reserve(LENGTH));
+
+        // the next record starts at the capacity, i.e. offset 0, once the first one is released
+        consumer.read(positions[0], LENGTH);
+        consumer.release();
+        ByteBuffer data = producer.reserve(LENGTH);
+        assertNotNull(data);
+        data.putInt(0, 12345);
+        long wrapped = producer.commit();
+        assertEquals(CAPACITY, wrapped);
+        assertNull(producer.reserve(LENGTH));
+
+        // the old record at offset 0 is gone
+        try {
+            consumer.read(positions[0], LENGTH);
+            fail("overwritten record read");
+        } catch (IllegalArgumentException iae) {
+            // OK
+        }
+
+        consumer.read(positions[1], LENGTH);
+        consumer.release();
+        consumer.read(positions[2], LENGTH);
+        consumer.release();
+        assertEquals(12345, consumer.read(wrapped, LENGTH).getInt(0));
+        consumer.release();
+    }
+
+    public void testProducerConsumer() throws Throwable {
+        final int RECORDS = 10000;
+        final SharedMemoryRing consumer = SharedMemoryRing.create(file, 4096);
+        final SharedMemoryRing producer = SharedMemoryRing.open(file);
+
+        // positions and lengths, as they would be sent over TCP
+        final BlockingQueue<long[]> references = new ArrayBlockingQueue<long[]>(RECORDS);
+        final Throwable[] failure = new Throwable[1];
+
+        Thread producerThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    for (int i = 0; i < RECORDS; i++) {
+                        final int length = 4 * (1 + i % 200);
+                        ByteBuffer data;
+                        while ((data = producer.reserve(length)) == null)
+                            Thread.yield();
+                        while (data.hasRemaining())
+                            data.putInt(i);
+                        references.put(new long[]{producer.commit(), length});
+                    }
+                } catch (Throwable th) {
+                    failure[0] = th;
+                }
+            }
+        });
+        producerThread.start();
+
+        for (int i = 0; i < RECORDS; i++) {
+            long[] reference = references.poll(10, TimeUnit.SECONDS);
+            assertNotNull("producer stalled", reference);
+            ByteBuffer data = consumer.read(reference[0], (int) reference[1]);
+            while (data.hasRemaining())
+                assertEquals(i, data.getInt());
+            consumer.release();
+        }
+
+        producerThread.join();
+        if (failure[0] != null)
+            throw failure[0];
+    }
+}
@@ -0,0 +1,189 @@
+package org.epics.pvaccess.impl.remote.shm.test.perf;
+
+import com.sun.japex.Constants;
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+import org.epics.pvaccess.client.Channel;
+import org.epics.pvaccess.client.Channel.ConnectionState;
+import org.epics.pvaccess.client.ChannelGet;
+import org.epics.pvaccess.client.ChannelGetRequester;
+import org.epics.pvaccess.client.ChannelProvider;
+import org.epics.pvaccess.client.ChannelRequester;
+import org.epics.pvaccess.client.impl.remote.ClientContextImpl;
+import org.epics.pvaccess.impl.remote.utils.LoadTestChannelProvider;
+import org.epics.pvaccess.impl.remote.utils.LoadTestChannelProvider.RecordType;
+import org.epics.pvaccess.server.impl.remote.ServerContextImpl;
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVUnion;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Structure;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second of a channel get of an NTNDArray, from a server on the same host,
+ * with and without the shared memory ring.
+ * Parameters:
+ * <ul>
+ * <li><code>frameSize</code> - image size (in bytes),</li>
+ * <li><code>sharedMemory</code> - <code>true</code> to send the image through the shared memory ring,
+ * <code>false</code> to send it inline over the loopback connection.</li>
+ * </ul>
+ * Result is the number of frames per second.
+ * Can also be run as an application, see <code>main</code>.
+ */
+public class SharedMemoryGetPerformance extends JapexDriverBase implements ChannelRequester, ChannelGetRequester {
+
+    private static final String RECORD_NAME = "ndarray";
+    private static final long TIMEOUT_MS = 10000;
+
+    private int frameSize;
+    private ServerContextImpl serverContext;
+    private ClientContextImpl clientContext;
+
+    private final Semaphore connected = new Semaphore(0);
+    private final Semaphore done = new Semaphore(0);
+    private volatile ChannelGet channelGet;
+    private volatile String failure;
+
+    private long startTime;
+    private int frames;
+
+    private void setUp(int frameSize, boolean sharedMemory) throws Exception {
+        this.frameSize = frameSize;
+
+        // room for two frames, read by both contexts from the system configuration
+        System.setProperty("EPICS_PVA_SHARED_MEMORY_SIZE", sharedMemory ? String.valueOf(2 * frameSize + 4096) : "0");
+        System.setProperty("EPICS_PVAS_SHARED_MEMORY", String.valueOf(sharedMemory));
+
+        final LoadTestChannelProvider provider = new LoadTestChannelProvider();
+        provider.addRecord(RECORD_NAME, RecordType.ndarray, frameSize);
+
+        serverContext = new ServerContextImpl();
+        serverContext.initialize(provider);
+
+        clientContext = new ClientContextImpl();
+        clientContext.initialize();
+        clientContext.getProvider().createChannel(RECORD_NAME, this, ChannelProvider.PRIORITY_DEFAULT,
+                "127.0.0.1:" + serverContext.getServerPort());
+
+        if (!connected.tryAcquire(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            throw new IllegalStateException("channel get not connected: " + failure);
+
+        // warm-up, and check the whole frame is received
+        getFrame();
+        frames = 0;
+        startTime = System.nanoTime();
+    }
+
+    private void getFrame() throws InterruptedException {
+        channelGet.get();
+        if (!done.tryAcquire(TIMEOUT_MS, TimeUnit.MILLISECONDS) || failure != null)
+            throw new IllegalStateException("get failed: " + failure);
+        frames++;
+    }
+
+    private double tearDown() throws Exception {
+        final double framesPerSecond = frames / ((System.nanoTime() - startTime) / 1e9);
+        clientContext.destroy();
+        serverContext.destroy();
+        return framesPerSecond;
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#prepare(com.sun.japex.TestCase)
+     */
+    @Override
+    public void prepare(TestCase testCase) {
+        try {
+            setUp(testCase.getIntParam("frameSize"), testCase.getBooleanParam("sharedMemory"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#run(com.sun.japex.TestCase)
+     */
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            getFrame();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.japex.JapexDriverBase#finish(com.sun.japex.TestCase)
+     */
+    @Override
+    public void finish(TestCase testCase) {
+        try {
+            testCase.setDoubleParam(Constants.RESULT_VALUE, tearDown());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String getRequesterName() {
+        return getClass().getSimpleName();
+    }
+
+    public void message(String message, MessageType messageType) {
+        System.err.println("[" + messageType + "] " + message);
+    }
+
+    public void channelCreated(Status status, Channel channel) {
+        if (!status.isSuccess())
+            failure = status.getMessage();
+    }
+
+    public void channelStateChange(Channel channel, ConnectionState connectionState) {
+        if (connectionState == ConnectionState.CONNECTED && channelGet == null)
+            channel.createChannelGet(this, CreateRequest.compile("field(value,uniqueId)").createPVRequest());
+    }
+
+    public void channelGetConnect(Status status, ChannelGet channelGet, Structure structure) {
+        if (status.isSuccess())
+            this.channelGet = channelGet;
+        else
+            failure = status.getMessage();
+        connected.release();
+    }
+
+    public void getDone(Status status, ChannelGet channelGet, PVStructure pvStructure, BitSet bitSet) {
+        if (!status.isSuccess())
+            failure = status.getMessage();
+        else if (((PVScalarArray) pvStructure.getSubField(PVUnion.class, "value").get()).getLength() != frameSize)
+            failure = "incomplete frame received";
+        done.release();
+    }
+
+    /**
+     * Print frames per second of 4, 16 and 64 MB frames, with and without the shared memory ring.
+     *
+     * @param args optional measurement duration in seconds (per frame size and mode), 3 by default.
+     * @throws Exception if the measurement fails.
+     */
+    public static void main(String[] args) throws Exception {
+        final long duration = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 3) * 1e9);
+        for (int frameSize : new int[]{4 << 20, 16 << 20, 64 << 20}) {
+            for (boolean sharedMemory : new boolean[]{false, true}) {
+                SharedMemoryGetPerformance test = new SharedMemoryGetPerformance();
+                test.setUp(frameSize, sharedMemory);
+                while (System.nanoTime() - test.startTime < duration)
+                    test.getFrame();
+                final int frames = test.frames;
+                final double framesPerSecond = test.tearDown();
+                System.out.printf("frameSize %3d MB, sharedMemory %5b: %8.2f frames/s (%d frames)%n",
+                        frameSize >> 20, sharedMemory, framesPerSecond, frames);
+            }
+        }
+    }
+}
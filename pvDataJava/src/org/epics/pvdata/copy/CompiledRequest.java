@@ -0,0 +1,95 @@
+/*
+ * License terms for this software can be found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.copy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * A parsed request string, as returned by CreateRequest.compile.
+ * It holds the introspection interface of the pvRequest structure and the option values,
+ * or the reason why the request is invalid.
+ * Instances are immutable and can be shared by any number of threads.
+ */
+public final class CompiledRequest {
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private final Structure structure;
+    private final int[] optionOffsets;
+    private final String[] optionValues;
+    private final String message;
+
+    CompiledRequest(PVStructure pvRequest, String message) {
+        this.message = message;
+        if (pvRequest == null) {
+            structure = null;
+            optionOffsets = new int[0];
+            optionValues = new String[0];
+            return;
+        }
+
+        structure = pvRequest.getStructure();
+        List<PVString> options = new ArrayList<PVString>();
+        findOptions(pvRequest, options);
+        optionOffsets = new int[options.size()];
+        optionValues = new String[options.size()];
+        for (int i = 0; i < optionOffsets.length; i++) {
+            optionOffsets[i] = options.get(i).getFieldOffset();
+            optionValues[i] = options.get(i).get();
+        }
+    }
+
+    private static void findOptions(PVStructure pvStructure, List<PVString> options) {
+        for (PVField pvField : pvStructure.getPVFields()) {
+            if (pvField instanceof PVStructure)
+                findOptions((PVStructure)pvField, options);
+            else if (pvField instanceof PVString && ((PVString)pvField).get().length() > 0)
+                options.add((PVString)pvField);
+        }
+    }
+
+    /**
+     * Is the request valid?
+     * @return <code>false</code> if the request string could not be parsed.
+     */
+    public boolean isValid() {
+        return structure != null;
+    }
+
+    /**
+     * Get the reason why the request is invalid.
+     * @return The reason, an empty string for a valid request.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the introspection interface of the pvRequest structure.
+     * @return The interface, <code>null</code> for an invalid request.
+     */
+    public Structure getStructure() {
+        return structure;
+    }
+
+    /**
+     * Create a new pvRequest structure, that the caller can modify.
+     * @return The request structure, <code>null</code> for an invalid request.
+     */
+    public PVStructure createPVRequest() {
+        if (structure == null)
+            return null;
+        PVStructure pvRequest = pvDataCreate.createPVStructure(structure);
+        for (int i = 0; i < optionOffsets.length; i++)
+            ((PVString)pvRequest.getSubField(optionOffsets[i])).put(optionValues[i]);
+        return pvRequest;
+    }
+}
@@ -8,7 +8,9 @@ import org.epics.pvdata.factory.PVDataFactory;
 import org.epics.pvdata.pv.*;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -37,6 +39,33 @@ public class CreateRequest {
     public PVStructure createRequest(String request) {
         return createRequestInternal(request);
     }
+    /**
+     * Parse a request string, or get the result of a previous parse of the same string.
+     * Unlike createRequest this is thread-safe, and the parse errors are reported by the result.
+     * The most recently used results are kept in a cache, of size given by system property
+     * EPICS_PVDATA_REQUEST_CACHE_SIZE (default 256, 0 disables the cache).
+     * @param request The field request. See the package overview documentation for details.
+     * @return The parsed request, call createPVRequest to get a request structure.
+     */
+    public static CompiledRequest compile(String request) {
+        if (request == null) request = "";
+        if (REQUEST_CACHE_SIZE > 0) {
+            synchronized (requestCache) {
+                CompiledRequest compiled = requestCache.get(request);
+                if (compiled != null) return compiled;
+            }
+        }
+        // parse outside the lock, a concurrent parse of the same string gives an equal result
+        CreateRequest createRequest = new CreateRequest();
+        PVStructure pvRequest = createRequest.createRequestInternal(request);
+        CompiledRequest compiled = new CompiledRequest(pvRequest, createRequest.message);
+        if (REQUEST_CACHE_SIZE > 0) {
+            synchronized (requestCache) {
+                requestCache.put(request, compiled);
+            }
+        }
+        return compiled;
+    }
     /**
      * Get the reason why the last call to createRequest returned null.
      * @return The reason why createRequest failed.
@@ -50,6 +79,30 @@ public class CreateRequest {
     private static final Structure emptyStructure = fieldCreate.createStructure(new String[0], new Field[0]);
     private static final Pattern commaPattern = Pattern.compile("[,]");
     private static final Pattern equalPattern = Pattern.compile("[=]");
+
+    /**
+     * System property for the size of the cache of compile.
+     */
+    public static final String REQUEST_CACHE_SIZE_PROPERTY = "EPICS_PVDATA_REQUEST_CACHE_SIZE";
+    private static final int REQUEST_CACHE_SIZE;
+    static {
+        int size = 256;
+        try {
+            size = Integer.parseInt(System.getProperty(REQUEST_CACHE_SIZE_PROPERTY, "256"));
+        } catch (NumberFormatException nfe) {
+            // noop, default
+        }
+        REQUEST_CACHE_SIZE = size;
+    }
+    // least recently used order, guarded by itself
+    private static final Map<String, CompiledRequest> requestCache =
+        new LinkedHashMap<String, CompiledRequest>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledRequest> eldest) {
+                return size() > REQUEST_CACHE_SIZE;
+            }
+        };
     private String message;
 
     private class Node {
@@ -77,6 +77,7 @@ public interface PVCopy {
     /**
      * Update PVStructure from the bitSet. Thus each PVField of PVStructure for which
      * bitSet.get(pvField.getOffset) is true is updated with the data from the PVRecord.
+     * A set bit of a structure field selects all its subfields, other fields are not touched.
      * @param copyPVStructure The PVStructure.
      * @param bitSet The bitSet which shows which fields should be updated.
      */
@@ -84,6 +85,7 @@ public interface PVCopy {
     /**
      * Update the fields in master with data from PVStructure. Only fields
      * that have the offset in bitSet set to true are modified.
+     * A set bit of a structure field selects all its subfields.
      * @param copyPVStructure The PVStructure.
      * @param bitSet The offsets within PVStructure that have new data.
      */
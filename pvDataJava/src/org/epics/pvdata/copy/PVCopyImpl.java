@@ -12,10 +12,22 @@ import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.pv.Convert;
 import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVBoolean;
+import org.epics.pvdata.pv.PVByte;
 import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
 import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVFloat;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVShort;
 import org.epics.pvdata.pv.PVString;
 import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVUByte;
+import org.epics.pvdata.pv.PVUInt;
+import org.epics.pvdata.pv.PVULong;
+import org.epics.pvdata.pv.PVUShort;
 import org.epics.pvdata.pv.Structure;
 import org.epics.pvdata.pv.Type;
 /**
@@ -62,10 +74,142 @@ class PVCopyImpl implements PVCopy{
         Node[] nodes;
     }
 
+    /**
+     * Copies a field of the master to the same field of a copy, or back, and compares them.
+     * The master and copy fields have the same introspection interface.
+     */
+    private static abstract class FieldCopier {
+        abstract void copy(PVField from, PVField to);
+        abstract boolean isEqual(PVField pvMaster, PVField pvCopy);
+    }
+
+    /**
+     * An entry of the copy plan, for the field of the copy at an offset.
+     */
+    private static final class CopyEntry {
+        // null for a structure
+        final PVField masterPVField;
+        // the indexes of the field in the PVFields of the copy and of its substructures
+        final int[] copyPath;
+        final int copyOffset;
+        final int nextCopyOffset;
+        final boolean isStructure;
+        final FieldCopier copier;
+        // the values of unions and structure or union arrays change in place, without a change of the count
+        final boolean counted;
+        // the modification counts of the master and copy fields when the copy was last updated
+        long masterCount = -1;
+        long copyCount = -1;
+
+        CopyEntry(PVField masterPVField, int[] copyPath, PVField copyPVField) {
+            this.masterPVField = masterPVField;
+            this.copyPath = copyPath;
+            copyOffset = copyPVField.getFieldOffset();
+            nextCopyOffset = copyPVField.getNextFieldOffset();
+            isStructure = (copyPVField.getField().getType()==Type.structure);
+            copier = isStructure ? null : getCopier(copyPVField);
+            Type type = copyPVField.getField().getType();
+            counted = (type==Type.scalar || type==Type.scalarArray);
+        }
+
+        PVField getCopyPVField(PVStructure copyPVStructure) {
+            PVField pvField = copyPVStructure;
+            for(int index : copyPath) {
+                pvField = ((PVStructure)pvField).getPVFields()[index];
+            }
+            return pvField;
+        }
+
+        void setCounts(PVField pvCopy) {
+            masterCount = masterPVField.getModificationCount();
+            copyCount = pvCopy.getModificationCount();
+        }
+    }
+
+    private static final FieldCopier genericCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { convert.copy(from,to); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return pvCopy.equals(pvMaster); }
+    };
+    private static final FieldCopier booleanCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVBoolean)to).put(((PVBoolean)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVBoolean)pvMaster).get()==((PVBoolean)pvCopy).get(); }
+    };
+    private static final FieldCopier byteCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVByte)to).put(((PVByte)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVByte)pvMaster).get()==((PVByte)pvCopy).get(); }
+    };
+    private static final FieldCopier shortCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVShort)to).put(((PVShort)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVShort)pvMaster).get()==((PVShort)pvCopy).get(); }
+    };
+    private static final FieldCopier intCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVInt)to).put(((PVInt)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVInt)pvMaster).get()==((PVInt)pvCopy).get(); }
+    };
+    private static final FieldCopier longCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVLong)to).put(((PVLong)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVLong)pvMaster).get()==((PVLong)pvCopy).get(); }
+    };
+    private static final FieldCopier ubyteCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVUByte)to).put(((PVUByte)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVUByte)pvMaster).get()==((PVUByte)pvCopy).get(); }
+    };
+    private static final FieldCopier ushortCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVUShort)to).put(((PVUShort)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVUShort)pvMaster).get()==((PVUShort)pvCopy).get(); }
+    };
+    private static final FieldCopier uintCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVUInt)to).put(((PVUInt)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVUInt)pvMaster).get()==((PVUInt)pvCopy).get(); }
+    };
+    private static final FieldCopier ulongCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVULong)to).put(((PVULong)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVULong)pvMaster).get()==((PVULong)pvCopy).get(); }
+    };
+    private static final FieldCopier floatCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVFloat)to).put(((PVFloat)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVFloat)pvMaster).get()==((PVFloat)pvCopy).get(); }
+    };
+    private static final FieldCopier doubleCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVDouble)to).put(((PVDouble)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) { return ((PVDouble)pvMaster).get()==((PVDouble)pvCopy).get(); }
+    };
+    private static final FieldCopier stringCopier = new FieldCopier() {
+        void copy(PVField from, PVField to) { ((PVString)to).put(((PVString)from).get()); }
+        boolean isEqual(PVField pvMaster, PVField pvCopy) {
+            String value = ((PVString)pvMaster).get();
+            return (value==null) ? ((PVString)pvCopy).get()==null : value.equals(((PVString)pvCopy).get());
+        }
+    };
+
+    private static FieldCopier getCopier(PVField pvField) {
+        if(pvField.getField().getType()!=Type.scalar) return genericCopier;
+        switch(((PVScalar)pvField).getScalar().getScalarType()) {
+        case pvBoolean: return booleanCopier;
+        case pvByte: return byteCopier;
+        case pvShort: return shortCopier;
+        case pvInt: return intCopier;
+        case pvLong: return longCopier;
+        case pvUByte: return ubyteCopier;
+        case pvUShort: return ushortCopier;
+        case pvUInt: return uintCopier;
+        case pvULong: return ulongCopier;
+        case pvFloat: return floatCopier;
+        case pvDouble: return doubleCopier;
+        case pvString: return stringCopier;
+        }
+        return genericCopier;
+    }
+
     private final PVStructure pvMaster;
     private Structure structure = null;
     private Node headNode = null;
     private PVStructure cacheInitStructure = null;
+    // the copy plan, compiled by init: the entries indexed by copy offset, and the entries of the leaf fields
+    private CopyEntry[] copyPlan = null;
+    private CopyEntry[] leafEntries = null;
+    // the copy that the modification counts of the entries refer to
+    private PVStructure countedCopyPVStructure = null;
 
     private PVCopyImpl(PVStructure pvMaster) {
         this.pvMaster = pvMaster;
@@ -144,6 +288,10 @@ class PVCopyImpl implements PVCopy{
      */
     public PVField getMasterPVField(int structureOffset)
     {
+        if(copyPlan!=null && structureOffset>=0 && structureOffset<copyPlan.length) {
+            CopyEntry entry = copyPlan[structureOffset];
+            if(entry!=null && !entry.isStructure) return entry.masterPVField;
+        }
         Node node = null;
         if(!headNode.isStructure) {
             node = headNode;
@@ -165,28 +313,46 @@ class PVCopyImpl implements PVCopy{
      */
     public void initCopy(PVStructure copyPVStructure, BitSet bitSet) {
         bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateCopyFromBitSet(copyPVStructure,headNode,bitSet);
+        copyChanged(copyPVStructure,bitSet,false);
+        for(CopyEntry entry : leafEntries) {
+            entry.setCounts(entry.getCopyPVField(copyPVStructure));
+        }
+        countedCopyPVStructure = copyPVStructure;
     }
     /* (non-Javadoc)
      * @see org.epics.pvioc.pvCopy.PVCopy#updateCopySetBitSet(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateCopySetBitSet(PVStructure copyPVStructure,BitSet bitSet)
     {
-        updateCopySetBitSet(copyPVStructure,headNode,bitSet);
+        boolean counted = (copyPVStructure==countedCopyPVStructure);
+        for(CopyEntry entry : leafEntries) {
+            PVField pvCopy = entry.getCopyPVField(copyPVStructure);
+            // the copy was not modified since it was last updated from the master
+            boolean unmodifiedCopy = counted && entry.counted && pvCopy.getModificationCount()==entry.copyCount;
+            if(unmodifiedCopy && entry.masterPVField.getModificationCount()==entry.masterCount) continue;
+            // a put of a scalar with the same value is not a change, other fields are not compared
+            boolean compare = !unmodifiedCopy || entry.copier!=genericCopier;
+            if(!compare || !entry.copier.isEqual(entry.masterPVField,pvCopy)) {
+                copy(entry,entry.masterPVField,pvCopy);
+                bitSet.set(entry.copyOffset);
+            }
+            entry.setCounts(pvCopy);
+        }
+        countedCopyPVStructure = copyPVStructure;
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pvCopy.PVCopy#updateCopyFromBitSet(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateCopyFromBitSet(PVStructure copyPVStructure,BitSet bitSet) {
         if(bitSet.get(0)) bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateCopyFromBitSet(copyPVStructure,headNode,bitSet);
+        copyChanged(copyPVStructure,bitSet,false);
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pvCopy.PVCopy#updateRecord(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
      */
     public void updateMaster(PVStructure copyPVStructure, BitSet bitSet) {
         if(bitSet.get(0)) bitSet.set(0,copyPVStructure.getNumberFields(),true);
-        updateMaster(copyPVStructure,headNode,bitSet);
+        copyChanged(copyPVStructure,bitSet,true);
     }
 
     /* (non-Javadoc)
@@ -244,77 +410,72 @@ class PVCopyImpl implements PVCopy{
         }
     }
 
-    private void updateCopySetBitSet(PVField pvCopy,PVField pvMaster,BitSet bitSet) {
-        if(pvCopy.getField().getType()!=Type.structure) {
-            if(pvCopy.equals(pvMaster)) return;
-            convert.copy(pvMaster, pvCopy);
-            bitSet.set(pvCopy.getFieldOffset());
-            return;
-        }
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            pvMaster = getMasterPVField(pvCopyFields[i].getFieldOffset());
-            updateCopySetBitSet(pvCopyFields[i],pvMaster,bitSet);
+    /*
+     * Copy the fields of the copy with a bit set in bitSet, from the master or to the master.
+     * A bit set for a structure means that all of its subfields changed.
+     */
+    private void copyChanged(PVStructure copyPVStructure,BitSet bitSet,boolean toMaster) {
+        boolean counted = (copyPVStructure==countedCopyPVStructure);
+        int length = copyPlan.length;
+        int offset = bitSet.nextSetBit(0);
+        while(offset>=0 && offset<length) {
+            CopyEntry entry = copyPlan[offset];
+            if(entry.isStructure) {
+                for(int i=offset+1; i<entry.nextCopyOffset; i++) {
+                    if(!copyPlan[i].isStructure) copy(copyPlan[i],copyPVStructure,toMaster,counted);
+                }
+                offset = bitSet.nextSetBit(entry.nextCopyOffset);
+            } else {
+                copy(entry,copyPVStructure,toMaster,counted);
+                offset = bitSet.nextSetBit(entry.nextCopyOffset);
+            }
         }
     }
 
-    private void updateCopySetBitSet(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
-        if(!node.isStructure) {
-            if(result) return;
-            updateCopySetBitSet(pvCopy,node.masterPVField,bitSet);
-            return;
-        }
-        StructureNode structureNode = (StructureNode)(node);
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateCopySetBitSet(pvCopyFields[i],structureNode.nodes[i],bitSet);
+    private static void copy(CopyEntry entry,PVStructure copyPVStructure,boolean toMaster,boolean counted) {
+        PVField pvCopy = entry.getCopyPVField(copyPVStructure);
+        if(toMaster) {
+            copy(entry,pvCopy,entry.masterPVField);
+        } else {
+            copy(entry,entry.masterPVField,pvCopy);
         }
+        // the fields are now equal, scalars are compared by updateCopySetBitSet anyway
+        if(counted && entry.copier==genericCopier) entry.setCounts(pvCopy);
     }
 
-    private void updateCopyFromBitSet(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
-        if(!node.isStructure) {
-            if(result) return;
-            PVField pvMaster = node.masterPVField;
-            convert.copy(pvMaster, pvCopy);
-            return;
-        }
-        StructureNode structureNode = (StructureNode)(node);
-        int offset = structureNode.structureOffset;
-        int nextSet = bitSet.nextSetBit(offset);
-        if(nextSet==-1) return;
-        if(offset>=pvCopy.getNextFieldOffset()) return;
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateCopyFromBitSet(pvCopyFields[i],structureNode.nodes[i],bitSet);
+    private static void copy(CopyEntry entry,PVField from,PVField to) {
+        if(from==to) return;
+        // Convert reports an immutable destination
+        if(to.isImmutable()) {
+            convert.copy(from,to);
+        } else {
+            entry.copier.copy(from,to);
         }
     }
 
-    private void updateMaster(PVField pvCopy,Node node,BitSet bitSet) {
-        boolean result = false;
-        if(!node.isStructure) {
-            if(result) return;
-            PVField pvMaster = node.masterPVField;
-            convert.copy(pvCopy, pvMaster);
+    private void compilePlan(PVStructure copyPVStructure) {
+        copyPlan = new CopyEntry[copyPVStructure.getNumberFields()];
+        ArrayList<CopyEntry> leafList = new ArrayList<CopyEntry>();
+        compilePlan(copyPVStructure,new int[0],leafList);
+        leafEntries = new CopyEntry[leafList.size()];
+        leafList.toArray(leafEntries);
+    }
+
+    private void compilePlan(PVField copyPVField,int[] copyPath,ArrayList<CopyEntry> leafList) {
+        int offset = copyPVField.getFieldOffset();
+        if(copyPVField.getField().getType()!=Type.structure) {
+            CopyEntry entry = new CopyEntry(getMasterPVField(offset),copyPath,copyPVField);
+            copyPlan[offset] = entry;
+            leafList.add(entry);
             return;
         }
-        StructureNode structureNode = (StructureNode)(node);
-        int offset = structureNode.structureOffset;
-        int nextSet = bitSet.nextSetBit(offset);
-        if(nextSet==-1) return;
-        if(offset>=pvCopy.getNextFieldOffset()) return;
-        PVStructure pvCopyStructure = (PVStructure)pvCopy;
-        PVField[] pvCopyFields = pvCopyStructure.getPVFields();
-        int length = pvCopyFields.length;
-        for(int i=0; i<length; i++) {
-            updateMaster(pvCopyFields[i],structureNode.nodes[i],bitSet);
+        copyPlan[offset] = new CopyEntry(null,copyPath,copyPVField);
+        PVField[] pvFields = ((PVStructure)copyPVField).getPVFields();
+        for(int i=0; i<pvFields.length; i++) {
+            int[] path = new int[copyPath.length+1];
+            System.arraycopy(copyPath,0,path,0,copyPath.length);
+            path[copyPath.length] = i;
+            compilePlan(pvFields[i],path,leafList);
         }
     }
 
@@ -337,12 +498,15 @@ class PVCopyImpl implements PVCopy{
             node.structureOffset = 0;
             node.masterPVField = pvMasterStructure;
             node.nfields = pvMasterStructure.getNumberFields();
+            // the copy has the layout of the master
+            compilePlan(pvMasterStructure);
             return true;
         }
         structure = createStructure(pvMasterStructure,pvRequest);
         if(structure==null) return false;
         cacheInitStructure = createPVStructure();
         headNode = createStructureNodes(pvMaster,pvRequest,cacheInitStructure);
+        compilePlan(cacheInitStructure);
         return true;
     }
 
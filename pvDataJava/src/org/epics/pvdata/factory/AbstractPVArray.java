@@ -32,6 +32,11 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
      * For use by derived classes.
      */
     protected boolean capacityMutable = true;
+    /**
+     * For use by derived classes.
+     * The value array can be referenced elsewhere and must not be modified in place (copy-on-write).
+     */
+    protected boolean shared = false;
 
     /**
      * Constructor that derived classes must call.
@@ -78,12 +83,56 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
 
         Object oldValue = getValue();
         allocate(newCapacity);
+        shared = false;
 
-        if (length > newCapacity)
+        if (length > newCapacity) {
         	length = newCapacity;
+        	incrementModificationCount();
+        }
 
         if (length > 0)
-        	System.arraycopy(oldValue, 0, getValue(), 0, length);
+        	copyElements(oldValue, 0, getValue(), 0, length);
+    }
+
+    /**
+     * Copy elements between value arrays, or from a Java array to a value array.
+     * Derived classes that do not store values in Java arrays must override this.
+     * @param src the source array.
+     * @param srcPos the start index in the source.
+     * @param dest the destination value array.
+     * @param destPos the start index in the destination.
+     * @param count the number of elements to copy.
+     */
+    protected void copyElements(Object src, int srcPos, Object dest, int destPos, int count)
+    {
+    	System.arraycopy(src, srcPos, dest, destPos, count);
+    }
+
+    /**
+     * Set elements of the value array from a list.
+     * Derived classes that do not store values in Java arrays must override this.
+     * @param offset the index of the first element to set.
+     * @param list the values.
+     */
+    protected void setElements(int offset, ListNumber list)
+    {
+    	CollectionNumbers.toList(getValue()).setAll(offset, list);
+    }
+
+    /**
+     * Make the value array private to this field, if it is shared, before it is modified in place.
+     * @param preserve copy the current elements into the new array.
+     */
+    protected void unshare(boolean preserve)
+    {
+    	if (!shared) return;
+
+    	Object oldValue = getValue();
+    	allocate(capacity);
+    	shared = false;
+
+    	if (preserve && length > 0)
+    		copyElements(oldValue, 0, getValue(), 0, length);
     }
 
     protected int internalGet(int offset, int len, ArrayData<?> data) {
@@ -108,11 +157,12 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         {
         	checkLength(newLength);
         	setCapacity(newLength);
-        	value = getValue();
         	length = newLength;
         }
+        unshare(true);
+        value = getValue();
 
-        System.arraycopy(from, fromOffset, value, offset, len);
+        copyElements(from, fromOffset, value, offset, len);
         super.postPut();
         return len;
     }
@@ -128,12 +178,18 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         	setCapacity(newLength);
         	length = newLength;
         }
+        unshare(true);
 
-        CollectionNumbers.toList(getValue()).setAll(offset, list);
+        setElements(offset, list);
         super.postPut();
     }
 
-    private void checkLength(int len)
+    /**
+     * Check a new length against the array size type.
+     * @param len the new length.
+     * @throws IllegalArgumentException if the length is not valid.
+     */
+    protected void checkLength(int len)
     {
     	Array.ArraySizeType type = getArray().getArraySizeType();
     	if (type != Array.ArraySizeType.variable)
@@ -153,6 +209,9 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
 
     	setValue(from);
     	capacity = length = len;
+    	// shared data is immutable
+    	shared = true;
+    	incrementModificationCount();
     }
 
     /* (non-Javadoc)
@@ -206,6 +265,7 @@ public abstract class AbstractPVArray extends AbstractPVField implements PVArray
         	setCapacity(len);
 
         length = len;
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
@@ -64,6 +64,47 @@ public abstract class AbstractPVComplexArray extends AbstractPVArray {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize()
+	{
+		return getSerializedSize(0, -1);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.SerializableArray#getSerializedSize(int, int)
+	 */
+	public int getSerializedSize(int offset, int count)
+	{
+    	// cache
+    	final int length = getLength();
+    	final Serializable[] value = (Serializable[])getValue();
+
+		// check bounds
+		if (offset < 0) offset = 0;
+		else if (offset > length) offset = length;
+		if (count < 0) count = length;
+
+		final int maxCount = length - offset;
+		if (count > maxCount)
+			count = maxCount;
+
+		int size = 0;
+		if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
+			size = SerializeHelper.getSerializedSize(count);
+
+		// null flag and element
+		size += count;
+		for (int i = 0; i < count; i++)
+		{
+			Serializable pvComplex = value[i+offset];
+			if (pvComplex != null)
+				size += pvComplex.getSerializedSize();
+		}
+		return size;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -102,6 +143,7 @@ public abstract class AbstractPVComplexArray extends AbstractPVArray {
 			}
 			length = size;
 		}
+		incrementModificationCount();
 	}
 
 	protected abstract Serializable getAt(int index);
@@ -0,0 +1,384 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.util.array.ListNumber;
+
+/**
+ * Abstract base class for a numeric PVScalarArray with the elements stored off-heap,
+ * in a direct ByteBuffer in network (wire) byte order.
+ * Serialization into and deserialization from a buffer of the same byte order is a bulk copy.
+ * The get methods of the typed interfaces copy the elements into a new Java array,
+ * getElements copies them into an array of the caller and getByteBuffer returns a view of them.
+ * The subclasses only implement the typed get and put methods.
+ */
+public abstract class AbstractPVDirectArray extends AbstractPVScalarArray {
+
+    /**
+     * The byte order of the storage.
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private final ScalarType elementType;
+
+    protected ByteBuffer value;
+
+    protected AbstractPVDirectArray(ScalarArray array) {
+        super(array);
+        elementType = array.getElementType();
+    }
+
+    @Override
+    protected void allocate(int newCapacity) {
+        value = ByteBuffer.allocateDirect(newCapacity * getElementSize()).order(BYTE_ORDER);
+        capacity = newCapacity;
+    }
+
+    @Override
+    protected Object getValue() {
+        return value;
+    }
+
+    @Override
+    protected void setValue(Object array) {
+        value = (ByteBuffer)array;
+    }
+
+    /**
+     * Get a read-only view of the elements, in BYTE_ORDER.
+     * The view is valid until the next write to this array, or until the array is shared.
+     * @return the view of elements [0, length).
+     */
+    public ByteBuffer getByteBuffer() {
+        return slice(value, 0, length).asReadOnlyBuffer().order(BYTE_ORDER);
+    }
+
+    /**
+     * Get a view of elements of a value buffer.
+     * @param buffer the value buffer.
+     * @param offset the index of the first element.
+     * @param count the number of elements.
+     * @return the view, in BYTE_ORDER.
+     */
+    protected final ByteBuffer slice(ByteBuffer buffer, int offset, int count) {
+        final int elementSize = getElementSize();
+        ByteBuffer view = buffer.duplicate();
+        view.limit((offset + count) * elementSize).position(offset * elementSize);
+        return view.slice().order(BYTE_ORDER);
+    }
+
+    /**
+     * Get a view of elements of the value.
+     * @param offset the index of the first element.
+     * @param count the number of elements.
+     * @return the view, in BYTE_ORDER.
+     */
+    protected final ByteBuffer slice(int offset, int count) {
+        return slice(value, offset, count);
+    }
+
+    /**
+     * Copy elements of the value into an array, without allocating.
+     * @param offset the index of the first element.
+     * @param len the requested number of elements.
+     * @param to the Java array of the element type, e.g. <code>double[]</code> for a PVDoubleArray
+     * and <code>byte[]</code> for a PVUByteArray.
+     * @param toOffset the index of the first element in to.
+     * @return the number of elements copied.
+     */
+    public int getElements(int offset, int len, Object to, int toOffset) {
+        final int n = available(offset, len);
+        if (n > 0)
+            getElements(slice(offset, n), to, toOffset, n);
+        return n;
+    }
+
+    /**
+     * Copy elements to a Java array.
+     * @param from the source view.
+     * @param to the Java array.
+     * @param toOffset the index of the first element in to.
+     * @param count the number of elements.
+     */
+    private void getElements(ByteBuffer from, Object to, int toOffset, int count) {
+        switch (elementType) {
+        case pvByte: case pvUByte:
+            from.get((byte[])to, toOffset, count);
+            break;
+        case pvShort: case pvUShort:
+            from.asShortBuffer().get((short[])to, toOffset, count);
+            break;
+        case pvInt: case pvUInt:
+            from.asIntBuffer().get((int[])to, toOffset, count);
+            break;
+        case pvLong: case pvULong:
+            from.asLongBuffer().get((long[])to, toOffset, count);
+            break;
+        case pvFloat:
+            from.asFloatBuffer().get((float[])to, toOffset, count);
+            break;
+        case pvDouble:
+            from.asDoubleBuffer().get((double[])to, toOffset, count);
+            break;
+        default:
+            throw new IllegalStateException("unsupported element type " + elementType);
+        }
+    }
+
+    /**
+     * Copy elements from a Java array.
+     * @param to the destination view.
+     * @param from the Java array.
+     * @param fromOffset the index of the first element in from.
+     * @param count the number of elements.
+     */
+    private void putElements(ByteBuffer to, Object from, int fromOffset, int count) {
+        switch (elementType) {
+        case pvByte: case pvUByte:
+            to.put((byte[])from, fromOffset, count);
+            break;
+        case pvShort: case pvUShort:
+            to.asShortBuffer().put((short[])from, fromOffset, count);
+            break;
+        case pvInt: case pvUInt:
+            to.asIntBuffer().put((int[])from, fromOffset, count);
+            break;
+        case pvLong: case pvULong:
+            to.asLongBuffer().put((long[])from, fromOffset, count);
+            break;
+        case pvFloat:
+            to.asFloatBuffer().put((float[])from, fromOffset, count);
+            break;
+        case pvDouble:
+            to.asDoubleBuffer().put((double[])from, fromOffset, count);
+            break;
+        default:
+            throw new IllegalStateException("unsupported element type " + elementType);
+        }
+    }
+
+    /**
+     * Copy all remaining elements between buffers of different byte order.
+     * The bits of floating point elements are copied as is.
+     * @param to the destination.
+     * @param from the source.
+     */
+    private void swapElements(ByteBuffer to, ByteBuffer from) {
+        switch (getElementSize()) {
+        case 1:
+            to.put(from);
+            break;
+        case 2:
+            to.asShortBuffer().put(from.asShortBuffer());
+            break;
+        case 4:
+            to.asIntBuffer().put(from.asIntBuffer());
+            break;
+        default:
+            to.asLongBuffer().put(from.asLongBuffer());
+            break;
+        }
+    }
+
+    /**
+     * Get the bits of an element, as compared by equals and hashed by hashCode of the Java arrays.
+     * @param buffer the value buffer.
+     * @param index the index of the element.
+     * @return the bits.
+     */
+    private long getElementBits(ByteBuffer buffer, int index) {
+        switch (elementType) {
+        case pvByte: case pvUByte:
+            return buffer.get(index);
+        case pvShort: case pvUShort:
+            return buffer.getShort(index * 2);
+        case pvInt: case pvUInt:
+            return buffer.getInt(index * 4);
+        case pvLong: case pvULong:
+            return buffer.getLong(index * 8);
+        case pvFloat:
+            return Float.floatToIntBits(buffer.getFloat(index * 4));
+        case pvDouble:
+            return Double.doubleToLongBits(buffer.getDouble(index * 8));
+        default:
+            throw new IllegalStateException("unsupported element type " + elementType);
+        }
+    }
+
+    /**
+     * Get a copy of the elements of an array of the same element type.
+     * @param pv the array.
+     * @param n the number of elements.
+     * @return a buffer with the elements, in BYTE_ORDER.
+     */
+    private ByteBuffer toBuffer(PVScalarArray pv, int n) {
+        final ByteBuffer buffer = ByteBuffer.allocate(n * getElementSize()).order(BYTE_ORDER);
+        switch (elementType) {
+        case pvByte: case pvUByte:
+            convert.toByteArray(pv, 0, n, buffer.array(), 0);
+            return buffer;
+        case pvShort: case pvUShort: {
+            short[] data = new short[n];
+            convert.toShortArray(pv, 0, n, data, 0);
+            buffer.asShortBuffer().put(data);
+            return buffer;
+        }
+        case pvInt: case pvUInt: {
+            int[] data = new int[n];
+            convert.toIntArray(pv, 0, n, data, 0);
+            buffer.asIntBuffer().put(data);
+            return buffer;
+        }
+        case pvLong: case pvULong: {
+            long[] data = new long[n];
+            convert.toLongArray(pv, 0, n, data, 0);
+            buffer.asLongBuffer().put(data);
+            return buffer;
+        }
+        case pvFloat: {
+            float[] data = new float[n];
+            convert.toFloatArray(pv, 0, n, data, 0);
+            buffer.asFloatBuffer().put(data);
+            return buffer;
+        }
+        case pvDouble: {
+            double[] data = new double[n];
+            convert.toDoubleArray(pv, 0, n, data, 0);
+            buffer.asDoubleBuffer().put(data);
+            return buffer;
+        }
+        default:
+            throw new IllegalStateException("unsupported element type " + elementType);
+        }
+    }
+
+    @Override
+    protected void copyElements(Object src, int srcPos, Object dest, int destPos, int count) {
+        if (count <= 0)
+            return;
+        final ByteBuffer to = slice((ByteBuffer)dest, destPos, count);
+        if (src instanceof ByteBuffer)
+            to.put(slice((ByteBuffer)src, srcPos, count));
+        else
+            putElements(to, src, srcPos, count);
+    }
+
+    @Override
+    protected void setElements(int offset, ListNumber list) {
+        final int size = list.size();
+        for (int i = 0, index = offset; i < size; i++, index++) {
+            switch (elementType) {
+            case pvByte: case pvUByte:
+                value.put(index, list.getByte(i));
+                break;
+            case pvShort: case pvUShort:
+                value.putShort(index * 2, list.getShort(i));
+                break;
+            case pvInt: case pvUInt:
+                value.putInt(index * 4, list.getInt(i));
+                break;
+            case pvLong: case pvULong:
+                value.putLong(index * 8, list.getLong(i));
+                break;
+            case pvFloat:
+                value.putFloat(index * 4, list.getFloat(i));
+                break;
+            case pvDouble:
+                value.putDouble(index * 8, list.getDouble(i));
+                break;
+            default:
+                throw new IllegalStateException("unsupported element type " + elementType);
+            }
+        }
+    }
+
+    @Override
+    protected void internalShareData(Object from) {
+        // Java arrays cannot be shared, copy
+        int len = java.lang.reflect.Array.getLength(from);
+        checkLength(len);
+        allocate(len);
+        shared = false;
+        length = len;
+        copyElements(from, 0, value, 0, len);
+        incrementModificationCount();
+    }
+
+    @Override
+    protected int putToBuffer(ByteBuffer buffer, SerializableControl control, int offset, int count) {
+        final ByteBuffer from = slice(offset, count);
+        if (buffer.order() == BYTE_ORDER)
+            buffer.put(from);
+        else {
+            swapElements(buffer.duplicate().order(buffer.order()), from);
+            buffer.position(buffer.position() + count * getElementSize());
+        }
+        return count;
+    }
+
+    @Override
+    protected int getFromBuffer(ByteBuffer buffer, DeserializableControl control, int offset, int count) {
+        final int size = count * getElementSize();
+        final ByteBuffer from = buffer.duplicate().order(buffer.order());
+        from.limit(from.position() + size);
+        if (buffer.order() == BYTE_ORDER)
+            slice(offset, count).put(from);
+        else
+            swapElements(slice(offset, count), from);
+        buffer.position(buffer.position() + size);
+        return count;
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj) {
+        final PVScalarArray other = (PVScalarArray)obj;
+        if (other.getLength() != length)
+            return false;
+        final ByteBuffer otherValue = (obj instanceof AbstractPVDirectArray) ?
+                ((AbstractPVDirectArray)obj).value : toBuffer(other, length);
+        for (int i = 0; i < length; i++)
+            if (getElementBits(value, i) != getElementBits(otherValue, i))
+                return false;
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        // the same as java.util.Arrays.hashCode of the elements
+        final boolean wide = getElementSize() == 8;
+        int result = 1;
+        for (int i = 0; i < length; i++) {
+            final long bits = getElementBits(value, i);
+            result = 31 * result + (wide ? (int)(bits ^ (bits >>> 32)) : (int)bits);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of elements for a get request.
+     * @param offset the index of the first element.
+     * @param len the requested number of elements.
+     * @return the available number of elements.
+     */
+    protected final int available(int offset, int len) {
+        if (offset + len > length)
+            return Math.max(0, length - offset);
+        return len;
+    }
+}
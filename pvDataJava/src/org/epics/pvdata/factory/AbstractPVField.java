@@ -22,6 +22,7 @@ public abstract class AbstractPVField implements PVField {
     private Field field;
     private PVStructure pvParent = null;
     private PostHandler postHandler = null;
+    private long modificationCount = 0;
 
     /**
      * Convenience method for derived classes that perform conversions.
@@ -80,9 +81,24 @@ public abstract class AbstractPVField implements PVField {
      * @see org.epics.pvdata.pv.PVField#postPut()
      */
     public void postPut() {
+        modificationCount++;
         if (postHandler != null) postHandler.postPut();
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVField#getModificationCount()
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Increment the modification count, for derived classes that modify the value without postPut.
+     */
+    protected void incrementModificationCount() {
+        modificationCount++;
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVField#registerPostHandler(org.epics.pvdata.pv.PostHandler)
      */
@@ -94,6 +110,14 @@ public abstract class AbstractPVField implements PVField {
         this.postHandler = postHandler;
     }
 
+    /**
+     * Is a postHandler registered?
+     * @return <code>true</code> if a postHandler is registered.
+     */
+    boolean hasPostHandler() {
+        return postHandler != null;
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.PVField#getOffset()
      */
@@ -29,4 +29,11 @@ public abstract class AbstractPVScalar extends AbstractPVField implements PVScal
     public Scalar getScalar() {
         return (Scalar)super.getField();
     }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize() {
+        return BaseScalar.valueSizeLUT[getScalar().getScalarType().ordinal()];
+    }
 }
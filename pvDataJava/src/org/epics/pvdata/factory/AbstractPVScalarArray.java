@@ -8,6 +8,8 @@ import java.nio.ByteBuffer;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.Array;
+import org.epics.pvdata.pv.ArrayChunkConsumer;
+import org.epics.pvdata.pv.ArrayStore;
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.PVScalarArray;
 import org.epics.pvdata.pv.ScalarArray;
@@ -18,6 +20,7 @@ import org.epics.pvdata.pv.SerializableControl;
  * @author mrk
  */
 public abstract class AbstractPVScalarArray extends AbstractPVArray implements PVScalarArray {
+    private ArrayChunkConsumer chunkConsumer = null;
 
 	protected AbstractPVScalarArray(ScalarArray array) {
         super(array);
@@ -29,6 +32,50 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
         return (ScalarArray)getField();
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#share()
+     */
+    public void share() {
+        shared = true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#isShared()
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVScalarArray#setChunkConsumer(org.epics.pvdata.pv.ArrayChunkConsumer)
+     */
+    public void setChunkConsumer(ArrayChunkConsumer consumer) {
+        if (consumer != null && getElementSize() <= 0)
+            throw new UnsupportedOperationException("elements of variable size can not be consumed in chunks");
+        chunkConsumer = consumer;
+    }
+
+    /**
+     * Set the value to the value of another array by sharing its value array, copy-on-write.
+     * Both arrays are marked as shared.
+     * @param from the array of the same element type and implementation.
+     * @return <code>false</code> if the value cannot be shared and elements must be copied.
+     */
+    boolean shareValue(AbstractPVScalarArray from) {
+        if (isImmutable() || !capacityMutable || getClass() != from.getClass()
+                || getArray().getArraySizeType() != Array.ArraySizeType.variable)
+            return false;
+
+        if (from != this) {
+            setValue(from.getValue());
+            capacity = from.capacity;
+            length = from.length;
+            shared = from.shared = true;
+        }
+        postPut();
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.SerializableArray#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl, int, int)
      */
@@ -42,6 +89,24 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 		if (count > maxCount)
 			count = maxCount;
 
+		final int elementSize = getElementSize();
+
+		// elements kept out of the buffer, a size of -1 and a reference are written instead
+		if (flusher instanceof ArrayStore && elementSize > 0 && count > 0
+				&& getArray().getArraySizeType() != Array.ArraySizeType.fixed
+				&& (long)count * elementSize <= Integer.MAX_VALUE)
+		{
+			final ArrayStore store = (ArrayStore)flusher;
+			final ByteBuffer elements = store.reserveArray(count * elementSize, buffer.order());
+			if (elements != null)
+			{
+				putToBuffer(elements, flusher, offset, count);
+				SerializeHelper.writeSize(-1, buffer, flusher);
+				store.commitArray(buffer, flusher);
+				return;
+			}
+		}
+
 		// write size
 		if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
 			SerializeHelper.writeSize(count, buffer, flusher);
@@ -49,7 +114,6 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 			throw new IllegalStateException("fixed array cannot be partially serialized");
 
 		// write elements
-		final int elementSize = getElementSize();
 		if (elementSize <= 0)
 			putToBuffer(buffer, flusher, offset, count);
 		else
@@ -68,6 +132,48 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 		}
 	}
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize() {
+        return getSerializedSize(0, -1);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.SerializableArray#getSerializedSize(int, int)
+     */
+    public int getSerializedSize(int offset, int count) {
+    	// check bounds
+		if (offset < 0) offset = 0;
+		else if (offset > length) offset = length;
+		if (count < 0) count = length;
+
+		final int maxCount = length - offset;
+		if (count > maxCount)
+			count = maxCount;
+
+		int size = 0;
+		if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
+			size = SerializeHelper.getSerializedSize(count);
+
+		final int elementSize = getElementSize();
+		if (elementSize <= 0)
+			return size + getElementsSerializedSize(offset, count);
+		else
+			return size + count * elementSize;
+    }
+
+    /**
+     * Get the number of bytes written by putToBuffer.
+     * Derived classes with elements of variable size (getElementSize() &lt;= 0) must override this.
+     * @param offset the index of the first element.
+     * @param count the number of elements.
+     * @return the number of bytes.
+     */
+    protected int getElementsSerializedSize(int offset, int count) {
+        throw new UnsupportedOperationException("elements of variable size");
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
      */
@@ -78,31 +184,68 @@ public abstract class AbstractPVScalarArray extends AbstractPVArray implements P
 			SerializeHelper.readSize(buffer, control) :
 			getArray().getMaximumCapacity();
 
-		if (size >= 0) {
-			// prepare array, if necessary
+		if (size >= 0)
+			deserializeElements(buffer, control, size);
+		else if (size == -1 && control instanceof ArrayStore && getElementSize() > 0)
+		{
+			// elements kept out of the buffer
+			final ArrayStore store = (ArrayStore)control;
+			final ByteBuffer elements = store.loadArray(buffer, control);
+			try {
+				deserializeElements(elements, control, elements.remaining() / getElementSize());
+			} finally {
+				store.releaseArray();
+			}
+		}
+		// TODO null arrays (size == -1) not supported
+		incrementModificationCount();
+	}
+
+	private void deserializeElements(ByteBuffer buffer, DeserializableControl control, int size) {
+		final ArrayChunkConsumer consumer = chunkConsumer;
+		final boolean materialize = (consumer == null) || consumer.beginArray(this, size);
+		// prepare array, if necessary
+		if (materialize)
+		{
 			if (size > capacity)
 				setCapacity(size);
-			// retrieve value from the buffer
-			final int elementSize = getElementSize();
-			if (elementSize <= 0)
-				getFromBuffer(buffer, control, 0, size);
 			else
+				unshare(false);
+		}
+		// retrieve value from the buffer
+		final int elementSize = getElementSize();
+		if (elementSize <= 0)
+			getFromBuffer(buffer, control, 0, size);
+		else
+		{
+			int i = 0;
+			while (true)
 			{
-				int i = 0;
-				while (true)
+				final int n = Math.min(size-i, buffer.remaining()/elementSize);
+				if (consumer != null && n > 0)
 				{
-					final int n = Math.min(size-i, buffer.remaining()/elementSize);
+					final ByteBuffer chunk = buffer.duplicate().order(buffer.order());
+					chunk.limit(chunk.position() + n*elementSize);
+					consumer.arrayChunk(this, i, chunk, n);
+				}
+				if (materialize)
 					i += getFromBuffer(buffer, control, i, n);
-					if (i < size)
-						control.ensureData(elementSize);
-					else
-						break;
+				else
+				{
+					buffer.position(buffer.position() + n*elementSize);
+					i += n;
 				}
+				if (i < size)
+					control.ensureData(elementSize);
+				else
+					break;
 			}
-			// set new length
-			length = size;
 		}
-		// TODO null arrays (size == -1) not supported
+		// set new length
+		if (materialize)
+			length = size;
+		if (consumer != null)
+			consumer.endArray(this);
 	}
 
     private static final int[] elementSizeLUT =
@@ -50,6 +50,14 @@ public class BaseBoundedString extends BaseScalar implements BoundedString {
 		SerializeHelper.writeSize(maxLength, buffer, control);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.factory.BaseScalar#getSerializedSize()
+	 */
+	@Override
+	public int getSerializedSize() {
+		return 1 + SerializeHelper.getSerializedSize(maxLength);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.BoundedString#getMaximumLength()
 	 */
@@ -16,16 +16,42 @@ public abstract class BaseField implements Field
 {
     private final Type type;
 
+    /**
+     * Set if this instance is the canonical one held by the <code>FieldFactory</code> intern table;
+     * two distinct interned instances are never equal.
+     */
+    final boolean interned;
+
     /**
      * Constructor for BaseField.
      * @param type The field type.
      * @throws IllegalArgumentException if type is null;
      */
     public BaseField(Type type) {
+        this(type, false);
+    }
+
+    /**
+     * Constructor for BaseField.
+     * @param type The field type.
+     * @param interned Is this the canonical instance held by the <code>FieldFactory</code> intern table.
+     * @throws IllegalArgumentException if type is null;
+     */
+    BaseField(Type type, boolean interned) {
         if(type==null) {
             throw new IllegalArgumentException("type is null");
         }
         this.type = type;
+        this.interned = interned;
+    }
+
+    /**
+     * Create the canonical instance of this field to be held by the <code>FieldFactory</code> intern table.
+     * The instance must not share any mutable state with this field.
+     * @return the canonical instance, this field itself if it is immutable and does not use the interned flag.
+     */
+    BaseField createInterned() {
+        return this;
     }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Field#getType()
@@ -57,6 +57,7 @@ public class BasePVBoolean extends AbstractPVScalar implements PVBoolean
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(1);
         value = buffer.get() != 0;
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
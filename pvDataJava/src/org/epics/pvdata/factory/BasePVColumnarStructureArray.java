@@ -0,0 +1,414 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.pv.Array;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVStructureArray;
+import org.epics.pvdata.pv.Scalar;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.StructureArray;
+import org.epics.pvdata.pv.StructureArrayData;
+import org.epics.pvdata.pv.Type;
+
+/**
+ * PVStructureArray for elements that are flat structures of scalars, stored by column:
+ * each field of the elements is one primitive array (see StructureColumn), and a flag array tells which elements are null.
+ * <p>
+ * The element PVStructures returned by get are views, created on demand, that read and write the columns.
+ * A view stays valid while the array is resized, until its element is set to null.
+ * put copies the values of the elements into the columns, it does not keep the PVStructure instances,
+ * and shareData copies the values too.
+ * Serialization reads and writes the columns directly, with the same format as BasePVStructureArray.
+ */
+public class BasePVColumnarStructureArray extends AbstractPVArray implements PVStructureArray
+{
+    private StructureArray structureArray;
+    private Structure structure;
+    private boolean fixedSize;
+    private int elementSize;
+    private boolean[] exists;
+    private StructureColumn[] columns;
+    private PVStructure[] views;
+
+    /**
+     * Can the elements of a structure array of this structure be stored by column?
+     * @param structure the element structure.
+     * @return true if every field of the structure is a scalar.
+     */
+    public static boolean isColumnar(Structure structure) {
+        for (Field field : structure.getFields()) {
+            if (field.getType() != Type.scalar)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Constructor.
+     * @param structureArray The Introspection interface, the element structure must be columnar (see isColumnar).
+     */
+    public BasePVColumnarStructureArray(StructureArray structureArray)
+    {
+        super(structureArray);
+        this.structureArray = structureArray;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVStructureArray#getStructureArray()
+     */
+    public StructureArray getStructureArray() {
+        return structureArray;
+    }
+
+    @Override
+    protected void allocate(int newCapacity) {
+        // called by the constructor of AbstractPVArray, before the fields of this class are set
+        if (structure == null) {
+            structure = ((StructureArray)getArray()).getStructure();
+            if (!isColumnar(structure))
+                throw new IllegalArgumentException("element structure is not a structure of scalars");
+            fixedSize = true;
+            elementSize = 0;
+            for (Field field : structure.getFields()) {
+                int size = StructureColumn.create((Scalar)field, 0).getElementSize();
+                if (size < 0)
+                    fixedSize = false;
+                else
+                    elementSize += size;
+            }
+        }
+        Field[] fields = structure.getFields();
+        columns = new StructureColumn[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            columns[i] = StructureColumn.create((Scalar)fields[i], newCapacity);
+        exists = new boolean[newCapacity];
+        views = new PVStructure[newCapacity];
+        capacity = newCapacity;
+    }
+
+    @Override
+    protected Object getValue()
+    {
+        return views;
+    }
+
+    @Override
+    protected void setValue(Object array)
+    {
+        // the value is the array of views, it cannot be replaced by the elements of another array
+        throw new IllegalStateException("columnar structure array stores elements by column, its value cannot be replaced");
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVArray#setCapacity(int)
+     */
+    @Override
+    public void setCapacity(int newCapacity)
+    {
+        if (newCapacity == capacity) return;
+
+        if (!capacityMutable)
+            throw new IllegalStateException("not capacityMutable");
+
+        checkLength(newCapacity);
+
+        if (length > newCapacity) {
+            length = newCapacity;
+            incrementModificationCount();
+        }
+
+        // resize in place, so that the views of the elements stay valid
+        for (StructureColumn column : columns)
+            column.resize(newCapacity, length);
+        boolean[] newExists = new boolean[newCapacity];
+        System.arraycopy(exists, 0, newExists, 0, length);
+        exists = newExists;
+        PVStructure[] newViews = new PVStructure[newCapacity];
+        System.arraycopy(views, 0, newViews, 0, length);
+        views = newViews;
+        capacity = newCapacity;
+    }
+
+    @Override
+    protected void copyElements(Object src, int srcPos, Object dest, int destPos, int count)
+    {
+        PVStructure[] from = (PVStructure[])src;
+        if (destPos > srcPos) {
+            // the elements can be views of this array, copy from the end in case they overlap
+            for (int i = count - 1; i >= 0; i--)
+                setElement(destPos + i, from[srcPos + i]);
+        } else {
+            for (int i = 0; i < count; i++)
+                setElement(destPos + i, from[srcPos + i]);
+        }
+    }
+
+    private void setElement(int row, PVStructure pvStructure)
+    {
+        if (pvStructure == null) {
+            exists[row] = false;
+            views[row] = null;
+            return;
+        }
+        if (pvStructure == views[row])
+            return;
+        PVField[] pvFields = pvStructure.getPVFields();
+        for (int i = 0; i < columns.length; i++)
+            columns[i].set(row, (PVScalar)pvFields[i]);
+        exists[row] = true;
+    }
+
+    private PVStructure getView(int row)
+    {
+        PVStructure view = views[row];
+        if (view == null) {
+            PVField[] pvFields = new PVField[columns.length];
+            for (int i = 0; i < columns.length; i++)
+                pvFields[i] = columns[i].createView(row);
+            view = new BasePVStructure(structure, pvFields);
+            views[row] = view;
+        }
+        return view;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVStructureArray#get(int, int, org.epics.pvdata.pv.StructureArrayData)
+     */
+    public int get(int offset, int len, StructureArrayData data) {
+        int n = len;
+        if (offset+len > length)
+            n = Math.max(0, length - offset);
+        for (int row = offset; row < offset + n; row++) {
+            if (exists[row])
+                getView(row);
+        }
+        data.set(views, offset);
+        return n;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVStructureArray#put(int, int, org.epics.pvdata.pv.PVStructure[], int)
+     */
+    public int put(int offset, int len, PVStructure[] from, int fromOffset) {
+
+        // first check if the PVStructure-s being written are of the right type
+        for (int i = 0; i < len; i++) {
+            PVStructure pvs = from[fromOffset + i];
+            if (pvs != null && !pvs.getStructure().equals(structure))
+                throw new IllegalStateException("element is not a compatible structure");
+        }
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVStructureArray#shareData(org.epics.pvdata.pv.PVStructure[])
+     */
+    public void shareData(PVStructure[] from) {
+        internalShareData(from);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVArray#internalShareData(java.lang.Object)
+     */
+    @Override
+    protected void internalShareData(Object from) {
+        // elements are copied into the columns, not shared
+        PVStructure[] elements = (PVStructure[])from;
+        checkLength(elements.length);
+        if (elements.length < length)
+            setLength(elements.length);
+        put(0, elements.length, elements, 0);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.SerializableArray#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl, int, int)
+     */
+    public void serialize(ByteBuffer buffer, SerializableControl flusher, int offset, int count)
+    {
+        // check bounds
+        if (offset < 0) offset = 0;
+        else if (offset > length) offset = length;
+        if (count < 0) count = length;
+
+        final int maxCount = length - offset;
+        if (count > maxCount)
+            count = maxCount;
+
+        // write
+        if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
+            SerializeHelper.writeSize(count, buffer, flusher);
+        else if (count != getArray().getMaximumCapacity())
+            throw new IllegalStateException("fixed array cannot be partially serialized");
+
+        final int end = offset + count;
+        for (int row = offset; row < end; row++)
+        {
+            if (fixedSize) {
+                flusher.ensureBuffer(1 + elementSize);
+                if (exists[row]) {
+                    buffer.put((byte)1);
+                    for (StructureColumn column : columns)
+                        column.serialize(buffer, row);
+                } else {
+                    buffer.put((byte)0);
+                }
+            } else {
+                flusher.ensureBuffer(1);
+                if (exists[row]) {
+                    buffer.put((byte)1);
+                    for (StructureColumn column : columns)
+                        column.serialize(buffer, flusher, row);
+                } else {
+                    buffer.put((byte)0);
+                }
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize()
+    {
+        return getSerializedSize(0, -1);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.SerializableArray#getSerializedSize(int, int)
+     */
+    public int getSerializedSize(int offset, int count)
+    {
+        // check bounds
+        if (offset < 0) offset = 0;
+        else if (offset > length) offset = length;
+        if (count < 0) count = length;
+
+        final int maxCount = length - offset;
+        if (count > maxCount)
+            count = maxCount;
+
+        int size = 0;
+        if (getArray().getArraySizeType() != Array.ArraySizeType.fixed)
+            size = SerializeHelper.getSerializedSize(count);
+
+        // null flag and element
+        size += count;
+        final int end = offset + count;
+        for (int row = offset; row < end; row++)
+        {
+            if (!exists[row])
+                continue;
+            if (fixedSize) {
+                size += elementSize;
+            } else {
+                for (StructureColumn column : columns)
+                    size += column.getSerializedSize(row);
+            }
+        }
+        return size;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+     */
+    public void deserialize(ByteBuffer buffer, DeserializableControl control)
+    {
+        // read size
+        final int size = (getArray().getArraySizeType() != Array.ArraySizeType.fixed) ?
+            SerializeHelper.readSize(buffer, control) :
+            getArray().getMaximumCapacity();
+
+        if (size >= 0)
+        {
+            // prepare array, if necessary
+            if (size > capacity)
+                setCapacity(size);
+
+            for (int row = 0; row < size; row++)
+            {
+                control.ensureData(1);
+                if (buffer.get() == 0)
+                {
+                    exists[row] = false;
+                    views[row] = null;
+                }
+                else if (fixedSize)
+                {
+                    control.ensureData(elementSize);
+                    for (StructureColumn column : columns)
+                        column.deserialize(buffer, row);
+                    exists[row] = true;
+                }
+                else
+                {
+                    for (StructureColumn column : columns)
+                        column.deserialize(buffer, control, row);
+                    exists[row] = true;
+                }
+            }
+            length = size;
+            incrementModificationCount();
+        }
+    }
+
+    @Override
+    protected boolean valueEquals(Object obj)
+    {
+        PVStructureArray b = (PVStructureArray)obj;
+        if (b.getCapacity() != capacity)
+            return false;
+        StructureArrayData arrayData = new StructureArrayData();
+        b.get(0, b.getLength(), arrayData);
+        for (int row = 0; row < length; row++) {
+            PVStructure pvStructure = arrayData.data[arrayData.offset + row];
+            if (pvStructure == null) {
+                if (exists[row])
+                    return false;
+                continue;
+            }
+            if (!exists[row])
+                return false;
+            if (pvStructure == views[row])
+                continue;
+            if (!pvStructure.getStructure().equals(structure))
+                return false;
+            PVField[] pvFields = pvStructure.getPVFields();
+            for (int i = 0; i < columns.length; i++) {
+                if (!columns[i].valueEquals(row, (PVScalar)pvFields[i]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        // same as BasePVStructureArray with BasePVStructure elements
+        int result = 1;
+        for (int row = 0; row < capacity; row++) {
+            int elementHash = 0;
+            if (exists[row]) {
+                int fieldsHash = 1;
+                for (StructureColumn column : columns)
+                    fieldsHash = 31 * fieldsHash + column.hashCode(row);
+                elementHash = 31 * 31 + fieldsHash;
+            }
+            result = 31 * result + elementHash;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayDouble;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVDoubleArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectDoubleArray extends AbstractPVDirectArray implements PVDoubleArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectDoubleArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVDoubleArray#get(int, int, org.epics.pvdata.pv.DoubleArrayData)
+     */
+    public int get(int offset, int len, DoubleArrayData data) {
+        double[] array = new double[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVDoubleArray#get()
+     */
+    public ArrayDouble get() {
+        double[] array = new double[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListDouble(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#put(int, int, double[], int)
+     */
+    public int put(int offset, int len, double[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVDoubleArray#shareData(double[])
+     */
+    public void shareData(double[] from) {
+        internalShareData(from);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.FloatArrayData;
+import org.epics.pvdata.pv.PVFloatArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayFloat;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVFloatArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectFloatArray extends AbstractPVDirectArray implements PVFloatArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectFloatArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVFloatArray#get(int, int, org.epics.pvdata.pv.FloatArrayData)
+     */
+    public int get(int offset, int len, FloatArrayData data) {
+        float[] array = new float[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVFloatArray#get()
+     */
+    public ArrayFloat get() {
+        float[] array = new float[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListFloat(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#put(int, int, float[], int)
+     */
+    public int put(int offset, int len, float[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVFloatArray#shareData(float[])
+     */
+    public void shareData(float[] from) {
+        internalShareData(from);
+    }
+}
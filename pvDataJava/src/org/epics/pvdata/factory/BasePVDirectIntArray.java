@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.IntArrayData;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayInteger;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVIntArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectIntArray extends AbstractPVDirectArray implements PVIntArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectIntArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVIntArray#get(int, int, org.epics.pvdata.pv.IntArrayData)
+     */
+    public int get(int offset, int len, IntArrayData data) {
+        int[] array = new int[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVIntArray#get()
+     */
+    public ArrayInteger get() {
+        int[] array = new int[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListInt(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#put(int, int, int[], int)
+     */
+    public int put(int offset, int len, int[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVIntArray#shareData(int[])
+     */
+    public void shareData(int[] from) {
+        internalShareData(from);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.LongArrayData;
+import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayLong;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVLongArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectLongArray extends AbstractPVDirectArray implements PVLongArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectLongArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVLongArray#get(int, int, org.epics.pvdata.pv.LongArrayData)
+     */
+    public int get(int offset, int len, LongArrayData data) {
+        long[] array = new long[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVLongArray#get()
+     */
+    public ArrayLong get() {
+        long[] array = new long[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListLong(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#put(int, int, long[], int)
+     */
+    public int put(int offset, int len, long[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVLongArray#shareData(long[])
+     */
+    public void shareData(long[] from) {
+        internalShareData(from);
+    }
+}
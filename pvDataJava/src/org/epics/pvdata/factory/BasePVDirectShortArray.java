@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.ShortArrayData;
+import org.epics.pvdata.pv.PVShortArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayShort;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVShortArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectShortArray extends AbstractPVDirectArray implements PVShortArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectShortArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVShortArray#get(int, int, org.epics.pvdata.pv.ShortArrayData)
+     */
+    public int get(int offset, int len, ShortArrayData data) {
+        short[] array = new short[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVShortArray#get()
+     */
+    public ArrayShort get() {
+        short[] array = new short[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListShort(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVShortArray#put(int, int, short[], int)
+     */
+    public int put(int offset, int len, short[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVShortArray#shareData(short[])
+     */
+    public void shareData(short[] from) {
+        internalShareData(from);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.ByteArrayData;
+import org.epics.pvdata.pv.PVUByteArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayUByte;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVUByteArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectUByteArray extends AbstractPVDirectArray implements PVUByteArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectUByteArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVUByteArray#get(int, int, org.epics.pvdata.pv.ByteArrayData)
+     */
+    public int get(int offset, int len, ByteArrayData data) {
+        byte[] array = new byte[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVUByteArray#get()
+     */
+    public ArrayUByte get() {
+        byte[] array = new byte[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListUByte(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#put(int, int, byte[], int)
+     */
+    public int put(int offset, int len, byte[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVUByteArray#shareData(byte[])
+     */
+    public void shareData(byte[] from) {
+        internalShareData(from);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import org.epics.pvdata.pv.LongArrayData;
+import org.epics.pvdata.pv.PVULongArray;
+import org.epics.pvdata.pv.ScalarArray;
+import org.epics.util.array.ArrayULong;
+import org.epics.util.array.CollectionNumbers;
+
+/**
+ * Implementation of PVULongArray with the elements stored in a direct ByteBuffer.
+ * @see AbstractPVDirectArray
+ */
+public class BasePVDirectULongArray extends AbstractPVDirectArray implements PVULongArray
+{
+    /**
+     * Constructor.
+     * @param array The introspection interface.
+     */
+    public BasePVDirectULongArray(ScalarArray array)
+    {
+        super(array);
+    }
+
+    /**
+     * Get elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVULongArray#get(int, int, org.epics.pvdata.pv.LongArrayData)
+     */
+    public int get(int offset, int len, LongArrayData data) {
+        long[] array = new long[available(offset, len)];
+        int n = getElements(offset, len, array, 0);
+        data.set(array, 0);
+        return n;
+    }
+
+    /**
+     * Get the elements, copied into a new array.
+     * Use getElements or getByteBuffer to read them without allocating.
+     * @see org.epics.pvdata.pv.PVULongArray#get()
+     */
+    public ArrayULong get() {
+        long[] array = new long[length];
+        getElements(0, length, array, 0);
+        return CollectionNumbers.unmodifiableListULong(array);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVULongArray#put(int, int, long[], int)
+     */
+    public int put(int offset, int len, long[] from, int fromOffset) {
+        return internalPut(offset, len, from, fromOffset);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.PVULongArray#shareData(long[])
+     */
+    public void shareData(long[] from) {
+        internalShareData(from);
+    }
+}
@@ -58,6 +58,7 @@ public class BasePVDouble extends AbstractPVScalar implements PVDouble
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Double.SIZE/Byte.SIZE);
         value = buffer.getDouble();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -58,6 +58,7 @@ public class BasePVFloat extends AbstractPVScalar implements PVFloat
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Float.SIZE/Byte.SIZE);
         value = buffer.getFloat();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -58,6 +58,7 @@ public class BasePVInt extends AbstractPVScalar implements PVInt
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Integer.SIZE/Byte.SIZE);
         value = buffer.getInt();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
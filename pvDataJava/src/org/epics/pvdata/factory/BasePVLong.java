@@ -58,6 +58,7 @@ public class BasePVLong extends AbstractPVScalar implements PVLong
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Long.SIZE/Byte.SIZE);
         value = buffer.getLong();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -58,6 +58,7 @@ public class BasePVShort extends AbstractPVScalar implements PVShort
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Short.SIZE/Byte.SIZE);
         value = buffer.getShort();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -77,11 +77,38 @@ public class BasePVString extends AbstractPVScalar implements PVString
 		// write
 		SerializeHelper.serializeSubstring(value, offset, count, buffer, flusher);
 	}
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.AbstractPVScalar#getSerializedSize()
+     */
+    @Override
+    public int getSerializedSize() {
+        return SerializeHelper.getSerializedSize(value);
+    }
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.SerializableArray#getSerializedSize(int, int)
+     */
+    public int getSerializedSize(int offset, int count) {
+        if (value == null)
+            return 1;
+		// check bounds
+    	final int length = value.length();
+		if (offset < 0) offset = 0;
+		else if (offset > length) offset = length;
+		if (count < 0) count = length;
+
+		final int maxCount = length - offset;
+		if (count > maxCount)
+			count = maxCount;
+
+		final int len = SerializeHelper.getUTF8Length(value, offset, count);
+		return SerializeHelper.getSerializedSize(len) + len;
+    }
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
      */
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
         value = SerializeHelper.deserializeString(buffer, control);
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -60,6 +60,16 @@ public class BasePVStringArray extends AbstractPVScalarArray implements PVString
 		return length;
 	}
 
+    @Override
+	protected int getElementsSerializedSize(int offset, int count)
+	{
+    	int size = 0;
+    	final int end = count + offset;
+    	for (int i = offset; i < end; i++)
+    		size += SerializeHelper.getSerializedSize(value[i]);
+		return size;
+	}
+
     @Override
 	protected int getFromBuffer(ByteBuffer buffer, DeserializableControl control, int offset, int length)
 	{
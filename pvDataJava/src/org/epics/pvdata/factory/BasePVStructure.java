@@ -38,7 +38,7 @@ import org.epics.pvdata.pv.Type;
  */
 public class BasePVStructure extends AbstractPVField implements PVStructure
 {
-    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final PVDataCreate defaultPVDataCreate = PVDataFactory.getPVDataCreate();
     private PVField[] pvFields;
 
     private void setParentAndName() {
@@ -63,6 +63,14 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
      * @param structure the reflection interface for the PVStructure data.
      */
     public BasePVStructure(Structure structure) {
+        this(structure, defaultPVDataCreate);
+    }
+    /**
+     * Constructor.
+     * @param structure the reflection interface for the PVStructure data.
+     * @param pvDataCreate the factory used to create the subfields.
+     */
+    public BasePVStructure(Structure structure, PVDataCreate pvDataCreate) {
         super(structure);
     	Field[] fields = structure.getFields();
     	pvFields = new PVField[fields.length];
@@ -319,28 +327,26 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
 
     private PVField findSubField(String fieldName,PVStructure pvStructure) {
         if(fieldName==null || fieldName.length()<1) return null;
-        int index = fieldName.indexOf('.');
-        String name = fieldName;
-        String restOfName = null;
-        if(index>0) {
-            name = fieldName.substring(0, index);
-            if(fieldName.length()>index) {
-                restOfName = fieldName.substring(index+1);
+        // walk the dotted name without creating substrings
+        int start = 0;
+        final int length = fieldName.length();
+        while(true) {
+            int end = fieldName.indexOf('.', start);
+            if(end<0) end = length;
+            Structure structure = pvStructure.getStructure();
+            int index;
+            if(structure instanceof BaseStructure) {
+                index = ((BaseStructure)structure).getFieldIndex(fieldName, start, end);
+            } else {
+                index = structure.getFieldIndex(fieldName.substring(start, end));
             }
+            if(index<0) return null;
+            PVField pvField = pvStructure.getPVFields()[index];
+            if(end==length) return pvField;
+            if(pvField.getField().getType()!=Type.structure) return null;
+            pvStructure = (PVStructure)pvField;
+            start = end + 1;
         }
-        PVField[] pvFields = pvStructure.getPVFields();
-        String[] fieldNames = pvStructure.getStructure().getFieldNames();
-        PVField pvField = null;
-        for(int i=0; i<pvFields.length; i++) {
-            if(fieldNames[i].equals(name)) {
-                pvField = pvFields[i];
-                break;
-            }
-        }
-        if(pvField==null) return null;
-        if(restOfName==null) return pvField;
-        if(pvField.getField().getType()!=Type.structure) return null;
-        return findSubField(restOfName,(PVStructure)pvField);
     }
 
 	/* (non-Javadoc)
@@ -349,6 +355,53 @@ public class BasePVStructure extends AbstractPVField implements PVStructure
 	public void serialize(ByteBuffer buffer, SerializableControl flusher) {
         for (PVField pvField : pvFields) pvField.serialize(buffer, flusher);
 	}
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		final Structure structure = getStructure();
+		if (structure instanceof BaseStructure) {
+			// cached per structure
+			final int size = ((BaseStructure)structure).getFixedValueSize();
+			if (size >= 0)
+				return size;
+		}
+		int size = 0;
+		for (PVField pvField : pvFields) size += pvField.getSerializedSize();
+		return size;
+	}
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.BitSetSerializable#getSerializedSize(org.epics.pvdata.misc.BitSet)
+	 */
+	public int getSerializedSize(BitSet bitSet) {
+        int offset = getFieldOffset();
+        int numberFields = getNumberFields();
+        int next = bitSet.nextSetBit(offset);
+
+        // no more changes or no changes in this structure
+        if (next<0 || next>=offset+numberFields) return 0;
+
+        // entire structure
+        if(offset==next)
+        	return getSerializedSize();
+
+        int size = 0;
+        for (final PVField pvField : pvFields) {
+            offset = pvField.getFieldOffset();
+            numberFields = pvField.getNumberFields();
+            next = bitSet.nextSetBit(offset);
+            // no more changes
+            if (next < 0) break;
+            //  no change in this pvField
+            if (next >= offset + numberFields) continue;
+
+            if (numberFields == 1)
+                size += pvField.getSerializedSize();
+            else
+                size += ((PVStructure) pvField).getSerializedSize(bitSet);
+        }
+        return size;
+	}
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
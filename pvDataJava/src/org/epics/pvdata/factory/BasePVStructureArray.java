@@ -21,7 +21,8 @@ import org.epics.pvdata.pv.StructureArrayData;
  */
 public class BasePVStructureArray extends AbstractPVComplexArray implements PVStructureArray
 {
-	private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+	private static final PVDataCreate defaultPVDataCreate = PVDataFactory.getPVDataCreate();
+	private final PVDataCreate pvDataCreate;
     protected PVStructure[] value;
 
     protected StructureArray structureArray;
@@ -31,9 +32,20 @@ public class BasePVStructureArray extends AbstractPVComplexArray implements PVSt
      * @param structureArray The Introspection interface.
      */
     public BasePVStructureArray(StructureArray structureArray)
+    {
+        this(structureArray, defaultPVDataCreate);
+    }
+
+    /**
+     * Constructor.
+     * @param structureArray The Introspection interface.
+     * @param pvDataCreate the factory used to create the elements.
+     */
+    public BasePVStructureArray(StructureArray structureArray, PVDataCreate pvDataCreate)
     {
         super(structureArray);
         this.structureArray = structureArray;
+        this.pvDataCreate = pvDataCreate;
     }
 
     /* (non-Javadoc)
@@ -58,6 +58,7 @@ public class BasePVUByte extends AbstractPVScalar implements PVUByte
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(1);
         value = buffer.get();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
@@ -58,6 +58,7 @@ public class BasePVUShort extends AbstractPVScalar implements PVUShort
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
     	control.ensureData(Short.SIZE/Byte.SIZE);
         value = buffer.getShort();
+        incrementModificationCount();
     }
     /* (non-Javadoc)
      * @see java.lang.Object#equals(java.lang.Object)
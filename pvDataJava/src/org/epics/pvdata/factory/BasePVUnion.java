@@ -21,7 +21,8 @@ import org.epics.pvdata.pv.Union;
  */
 public class BasePVUnion extends AbstractPVField implements PVUnion
 {
-    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final PVDataCreate defaultPVDataCreate = PVDataFactory.getPVDataCreate();
+    private final PVDataCreate pvDataCreate;
 
     private final Union union;
 	private int selector = UNDEFINED_INDEX;
@@ -33,8 +34,18 @@ public class BasePVUnion extends AbstractPVField implements PVUnion
      * @param union the reflection interface for the PVUnion data.
      */
     public BasePVUnion(Union union) {
+        this(union, defaultPVDataCreate);
+    }
+
+	/**
+     * Constructor.
+     * @param union the reflection interface for the PVUnion data.
+     * @param pvDataCreate the factory used to create the value.
+     */
+    public BasePVUnion(Union union, PVDataCreate pvDataCreate) {
         super(union);
         this.union = union;
+        this.pvDataCreate = pvDataCreate;
         variant = union.isVariant();
     }
 
@@ -218,6 +229,17 @@ public class BasePVUnion extends AbstractPVField implements PVUnion
 
 		}
 	}
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		if (variant)
+			return (value == null) ? 1 : value.getField().getSerializedSize() + value.getSerializedSize();
+		else if (selector == UNDEFINED_INDEX)
+			return SerializeHelper.getSerializedSize(selector);
+		else
+			return SerializeHelper.getSerializedSize(selector) + value.getSerializedSize();
+	}
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -253,6 +275,7 @@ public class BasePVUnion extends AbstractPVField implements PVUnion
 			else
 				value = null;
 		}
+		incrementModificationCount();
 	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
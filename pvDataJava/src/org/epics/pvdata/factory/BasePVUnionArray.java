@@ -22,7 +22,8 @@ import org.epics.pvdata.pv.UnionArrayData;
  */
 public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionArray
 {
-	private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+	private static final PVDataCreate defaultPVDataCreate = PVDataFactory.getPVDataCreate();
+	private final PVDataCreate pvDataCreate;
     protected PVUnion[] value;
 
 	protected UnionArray unionArray;
@@ -32,9 +33,20 @@ public class BasePVUnionArray extends AbstractPVComplexArray implements PVUnionA
      * @param unionArray The Introspection interface.
      */
     public BasePVUnionArray(UnionArray unionArray)
+    {
+        this(unionArray, defaultPVDataCreate);
+    }
+
+    /**
+     * Constructor.
+     * @param unionArray The Introspection interface.
+     * @param pvDataCreate the factory used to create the elements.
+     */
+    public BasePVUnionArray(UnionArray unionArray, PVDataCreate pvDataCreate)
     {
         super(unionArray);
         this.unionArray = unionArray;
+        this.pvDataCreate = pvDataCreate;
     }
 
     /* (non-Javadoc)
@@ -110,6 +110,24 @@ public class BaseScalar extends BaseField implements Scalar {
 		0x60  // pvString
 	};
 
+	/**
+	 * Serialized size of a value of each scalarType, -1 if not fixed.
+	 */
+	static final int[] valueSizeLUT = {
+		1, // pvBoolean
+		1, // pvByte
+		2, // pvShort
+		4, // pvInt
+		8, // pvLong
+		1, // pvUByte
+		2, // pvUShort
+		4, // pvUInt
+		8, // pvULong
+		4, // pvFloat
+		8, // pvDouble
+		-1 // pvString
+	};
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
 	 */
@@ -118,6 +136,13 @@ public class BaseScalar extends BaseField implements Scalar {
 		buffer.put(typeCodeLUT[scalarType.ordinal()]);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		return 1;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
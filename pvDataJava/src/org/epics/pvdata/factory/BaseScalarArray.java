@@ -99,6 +99,13 @@ public class BaseScalarArray extends BaseField implements ScalarArray {
 		buffer.put((byte)(0x08 | BaseScalar.typeCodeLUT[elementType.ordinal()]));
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		return 1;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -93,6 +93,13 @@ public class BaseScalarBoundedArray extends BaseField implements ScalarArray {
 		SerializeHelper.writeSize(size, buffer, control);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		return 1 + SerializeHelper.getSerializedSize(size);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -21,6 +21,11 @@ public class BaseStructure extends BaseField implements Structure {
     private final String id;
     private Field[] fields;
     private String[] fieldNames;
+    private int hash = 0;
+    private int serializedSize = 0;
+    private int valueSize = UNKNOWN_SIZE;
+    private static final int UNKNOWN_SIZE = -2;
+    private final FieldNameIndex nameIndex;
 
     /**
      * Constructor for a structure field.
@@ -41,7 +46,20 @@ public class BaseStructure extends BaseField implements Structure {
      * @throws IllegalArgumentException if id is null or empty.
      */
     public BaseStructure(String id, String[] fieldNames, Field[] fields) {
-        super(Type.structure);
+        this(id, fieldNames, fields, false);
+    }
+
+    /**
+     * Constructor for a structure field.
+     *
+     * @param id         The identification string for the structure.
+     * @param fieldNames The field names for the subfields
+     * @param fields     The array of nodes definitions for the nodes of the structure.
+     * @param interned   Is this the canonical instance held by the <code>FieldFactory</code> intern table.
+     * @throws IllegalArgumentException if id is null or empty.
+     */
+    BaseStructure(String id, String[] fieldNames, Field[] fields, boolean interned) {
+        super(Type.structure, interned);
 
         if (id == null)
             throw new IllegalArgumentException("id == null");
@@ -75,6 +93,15 @@ public class BaseStructure extends BaseField implements Structure {
                 }
             }
         }
+        nameIndex = new FieldNameIndex(fieldNames);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.BaseField#createInterned()
+     */
+    BaseField createInterned() {
+        // the canonical instance is shared, it must not keep the caller's arrays
+        return new BaseStructure(id, fieldNames.clone(), fields.clone(), true);
     }
 
     /* (non-Javadoc)
@@ -95,7 +122,8 @@ public class BaseStructure extends BaseField implements Structure {
         this.fieldNames = fieldNames;
         int n = fieldNames.length;
         for (int i = 0; i < n; i++) {
-            if (fields[i].getType() == Type.structure) {
+            // an interned (shared) substructure is immutable
+            if (fields[i].getType() == Type.structure && !((BaseStructure) fields[i]).interned) {
                 BaseStructure sub = (BaseStructure) fields[i];
                 String[] subNames = sub.getFieldNames();
                 Field[] subFields = sub.getFields();
@@ -116,24 +144,27 @@ public class BaseStructure extends BaseField implements Structure {
      * @see org.epics.pvdata.pv.Structure#getField(java.lang.String)
      */
     public Field getField(String name) {
-        for (int i = 0; i < fields.length; i++) {
-            if (name.equals(fieldNames[i])) {
-                return fields[i];
-            }
-        }
-        return null;
+        int index = nameIndex.indexOf(name);
+        return (index >= 0) ? fields[index] : null;
     }
 
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Structure#getFieldIndex(java.lang.String)
      */
     public int getFieldIndex(String name) {
-        for (int i = 0; i < fields.length; i++) {
-            if (name.equals(fieldNames[i])) {
-                return i;
-            }
-        }
-        return -1;
+        return nameIndex.indexOf(name);
+    }
+
+    /**
+     * Get the index of a field named by a region of a string, e.g. one element of a dotted path.
+     *
+     * @param path  the string.
+     * @param start start index of the name (inclusive).
+     * @param end   end index of the name (exclusive).
+     * @return the index or -1 if not found.
+     */
+    int getFieldIndex(String path, int start, int end) {
+        return nameIndex.indexOf(path, start, end);
     }
 
     /* (non-Javadoc)
@@ -234,9 +265,15 @@ public class BaseStructure extends BaseField implements Structure {
      */
     @Override
     public int hashCode() {
-        final int PRIME = 31;
-        return id.hashCode() + PRIME *
-                (PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+        // fields are immutable, hash is computed only once
+        int h = hash;
+        if (h == 0) {
+            final int PRIME = 31;
+            h = id.hashCode() + PRIME *
+                    (PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+            hash = h;
+        }
+        return h;
     }
 
     /* (non-Javadoc)
@@ -249,6 +286,10 @@ public class BaseStructure extends BaseField implements Structure {
         if (getClass() != obj.getClass())
             return false;
         final BaseStructure other = (BaseStructure) obj;
+        if (interned && other.interned)
+            return false;
+        if (hashCode() != other.hashCode())
+            return false;
         if (id == null) {
             if (other.id != null)
                 return false;
@@ -268,8 +309,83 @@ public class BaseStructure extends BaseField implements Structure {
         serializeStructureField(this, buffer, control);
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize() {
+        // fields are immutable, size is computed only once
+        int size = serializedSize;
+        if (size == 0) {
+            size = 1 + getStructureFieldSize(this);
+            serializedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * Get the serialized size of a value (PVStructure) of this structure,
+     * if it does not depend on the value.
+     * That is the case if all the subfields are scalars other than strings,
+     * fixed size arrays of such scalars, or structures of such fields.
+     *
+     * @return the size or -1 if it depends on the value
+     */
+    int getFixedValueSize() {
+        // fields are immutable, size is computed only once
+        int size = valueSize;
+        if (size == UNKNOWN_SIZE) {
+            size = 0;
+            for (Field field : fields) {
+                int fieldSize = -1;
+                switch (field.getType()) {
+                case scalar:
+                    fieldSize = BaseScalar.valueSizeLUT[((Scalar)field).getScalarType().ordinal()];
+                    break;
+                case scalarArray:
+                    if (((Array)field).getArraySizeType() == Array.ArraySizeType.fixed) {
+                        fieldSize = BaseScalar.valueSizeLUT[((ScalarArray)field).getElementType().ordinal()];
+                        if (fieldSize > 0)
+                            fieldSize *= ((Array)field).getMaximumCapacity();
+                    }
+                    break;
+                case structure:
+                    if (field instanceof BaseStructure)
+                        fieldSize = ((BaseStructure)field).getFixedValueSize();
+                    break;
+                default:
+                    break;
+                }
+                if (fieldSize < 0) {
+                    size = -1;
+                    break;
+                }
+                size += fieldSize;
+            }
+            valueSize = size;
+        }
+        return size;
+    }
+
     private static final String EMPTY_ID = "";
 
+    /**
+     * Get the number of bytes written by serializeStructureField.
+     *
+     * @noinspection StringEquality
+     */
+    static int getStructureFieldSize(final Structure structure) {
+        final String id = structure.getID();
+        final String idToSerialize = (id == DEFAULT_ID) ? EMPTY_ID : id;
+        int size = SerializeHelper.getSerializedSize(idToSerialize);
+
+        final Field[] fields = structure.getFields();
+        final String[] fieldNames = structure.getFieldNames();
+        size += SerializeHelper.getSerializedSize(fields.length);
+        for (int i = 0; i < fields.length; i++)
+            size += SerializeHelper.getSerializedSize(fieldNames[i]) + fields[i].getSerializedSize();
+        return size;
+    }
+
     /**
      * @noinspection StringEquality
      */
@@ -28,11 +28,26 @@ public class BaseStructureArray extends BaseField implements StructureArray {
 	 * @param elementStructure The structure introspection interface for each element
 	 */
 	public BaseStructureArray(Structure elementStructure) {
-		super(Type.structureArray);
+		this(elementStructure, false);
+	}
+
+	/**
+	 * Constructor for BaseStructureArray
+	 * @param elementStructure The structure introspection interface for each element
+	 * @param interned Is this the canonical instance held by the <code>FieldFactory</code> intern table.
+	 */
+	BaseStructureArray(Structure elementStructure, boolean interned) {
+		super(Type.structureArray, interned);
         if (elementStructure==null)
         	throw new NullPointerException("elementStructure is null");
 		this.structure = elementStructure;
 	}
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.factory.BaseField#createInterned()
+	 */
+	BaseField createInterned() {
+		return new BaseStructureArray(structure, true);
+	}
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Field#getID()
 	 */
@@ -68,6 +83,8 @@ public class BaseStructureArray extends BaseField implements StructureArray {
 		if (getClass() != obj.getClass())
 			return false;
 		final BaseStructureArray other = (BaseStructureArray) obj;
+		if (interned && other.interned)
+			return false;
 		if (!structure.equals(other.structure))
 			return false;
 		return true;
@@ -82,6 +99,13 @@ public class BaseStructureArray extends BaseField implements StructureArray {
 		control.cachedSerialize(structure, buffer);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		return 1 + structure.getSerializedSize();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -21,6 +21,8 @@ public class BaseUnion extends BaseField implements Union {
     private final String id;
     private final Field[] fields;
     private String[] fieldNames;
+    private int hash = 0;
+    private int serializedSize = 0;
 
     /**
      * Default unrestricted union (aka any type) ID.
@@ -54,7 +56,20 @@ public class BaseUnion extends BaseField implements Union {
      * @throws IllegalArgumentException if id is null or empty.
      */
     public BaseUnion(String id, String[] fieldNames, Field[] fields) {
-        super(Type.union);
+        this(id, fieldNames, fields, false);
+    }
+
+    /**
+     * Constructor for an union field.
+     *
+     * @param id         The identification string for the union.
+     * @param fieldNames The field names for the subfields
+     * @param fields     The union fields (members).
+     * @param interned   Is this the canonical instance held by the <code>FieldFactory</code> intern table.
+     * @throws IllegalArgumentException if id is null or empty.
+     */
+    BaseUnion(String id, String[] fieldNames, Field[] fields, boolean interned) {
+        super(Type.union, interned);
 
         if (id == null)
             throw new IllegalArgumentException("id == null");
@@ -93,6 +108,14 @@ public class BaseUnion extends BaseField implements Union {
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.factory.BaseField#createInterned()
+     */
+    BaseField createInterned() {
+        // the canonical instance is shared, it must not keep the caller's arrays
+        return new BaseUnion(id, fieldNames.clone(), fields.clone(), true);
+    }
+
     /* (non-Javadoc)
      * @see org.epics.pvdata.pv.Field#getID()
      */
@@ -229,9 +252,15 @@ public class BaseUnion extends BaseField implements Union {
      */
     @Override
     public int hashCode() {
-        final int PRIME = 37;
-        return id.hashCode() + PRIME *
-                (PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+        // fields are immutable, hash is computed only once
+        int h = hash;
+        if (h == 0) {
+            final int PRIME = 37;
+            h = id.hashCode() + PRIME *
+                    (PRIME * Arrays.hashCode(fieldNames) + Arrays.hashCode(fields));
+            hash = h;
+        }
+        return h;
     }
 
     /* (non-Javadoc)
@@ -244,6 +273,10 @@ public class BaseUnion extends BaseField implements Union {
         if (getClass() != obj.getClass())
             return false;
         final BaseUnion other = (BaseUnion) obj;
+        if (interned && other.interned)
+            return false;
+        if (hashCode() != other.hashCode())
+            return false;
         if (id == null) {
             if (other.id != null)
                 return false;
@@ -272,8 +305,37 @@ public class BaseUnion extends BaseField implements Union {
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize() {
+        // fields are immutable, size is computed only once
+        int size = serializedSize;
+        if (size == 0) {
+            size = (fields.length == 0) ? 1 : 1 + getUnionFieldSize(this);
+            serializedSize = size;
+        }
+        return size;
+    }
+
     private static final String EMPTY_ID = "";
 
+    /**
+     * Get the number of bytes written by serializeUnionField.
+     */
+    static int getUnionFieldSize(final Union union) {
+        final String id = union.getID();
+        final String idToSerialize = (id == DEFAULT_ID) ? EMPTY_ID : id;
+        int size = SerializeHelper.getSerializedSize(idToSerialize);
+
+        final Field[] fields = union.getFields();
+        final String[] fieldNames = union.getFieldNames();
+        size += SerializeHelper.getSerializedSize(fields.length);
+        for (int i = 0; i < fields.length; i++)
+            size += SerializeHelper.getSerializedSize(fieldNames[i]) + fields[i].getSerializedSize();
+        return size;
+    }
+
     static void serializeUnionField(final Union union, ByteBuffer buffer,
                                     SerializableControl control) {
 
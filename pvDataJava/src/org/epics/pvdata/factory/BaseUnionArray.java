@@ -28,11 +28,26 @@ public class BaseUnionArray extends BaseField implements UnionArray {
 	 * @param elementUnion The union introspection interface for each element
 	 */
 	public BaseUnionArray(Union elementUnion) {
-		super(Type.unionArray);
+		this(elementUnion, false);
+	}
+
+	/**
+	 * Constructor for BaseUnionArray
+	 * @param elementUnion The union introspection interface for each element
+	 * @param interned Is this the canonical instance held by the <code>FieldFactory</code> intern table.
+	 */
+	BaseUnionArray(Union elementUnion, boolean interned) {
+		super(Type.unionArray, interned);
         if (elementUnion==null)
         	throw new NullPointerException("elementUnion is null");
 		this.union = elementUnion;
 	}
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.factory.BaseField#createInterned()
+	 */
+	BaseField createInterned() {
+		return new BaseUnionArray(union, true);
+	}
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Field#getID()
 	 */
@@ -68,6 +83,8 @@ public class BaseUnionArray extends BaseField implements UnionArray {
 		if (getClass() != obj.getClass())
 			return false;
 		final BaseUnionArray other = (BaseUnionArray) obj;
+		if (interned && other.interned)
+			return false;
 		if (!union.equals(other.union))
 			return false;
 		return true;
@@ -90,6 +107,13 @@ public class BaseUnionArray extends BaseField implements UnionArray {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+	 */
+	public int getSerializedSize() {
+		return union.isVariant() ? 1 : 1 + union.getSerializedSize();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
 	 */
@@ -4,9 +4,10 @@
  */
 package org.epics.pvdata.factory;
 
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.misc.NumberConvert;
 import org.epics.pvdata.pv.*;
 
-import java.math.BigInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -249,15 +250,9 @@ public final class ConvertFactory {
             case scalar:
                 copyScalar((PVScalar) from, (PVScalar) to);
                 return;
-            case scalarArray: {
-                PVScalarArray fromArray = (PVScalarArray) from;
-                PVScalarArray toArray = (PVScalarArray) to;
-                int length = copyScalarArray(fromArray, 0, toArray, 0,
-                        fromArray.getLength());
-                if (toArray.getLength() != length)
-                    toArray.setLength(length);
+            case scalarArray:
+                copyScalarArray((PVScalarArray) from, (PVScalarArray) to);
                 return;
-            }
             case structure:
                 copyStructure((PVStructure) from, (PVStructure) to);
                 return;
@@ -285,6 +280,57 @@ public final class ConvertFactory {
             }
         }
 
+        /**
+         * Copy a whole array. A value marked shared (copy-on-write) by its owner is shared, if possible,
+         * any other value is copied.
+         */
+        private void copyScalarArray(PVScalarArray from, PVScalarArray to) {
+            if (from.isShared() && from instanceof AbstractPVScalarArray && to instanceof AbstractPVScalarArray
+                    && ((AbstractPVScalarArray) to).shareValue((AbstractPVScalarArray) from))
+                return;
+            int length = copyScalarArray(from, 0, to, 0, from.getLength());
+            if (to.getLength() != length)
+                to.setLength(length);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.epics.pvdata.pv.Convert#copy(org.epics.pvdata.pv.PVStructure,
+         * org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
+         */
+        public void copy(PVStructure from, PVStructure to, BitSet bitSet) {
+            if (from.getStructure() != to.getStructure()
+                    && !from.getStructure().equals(to.getStructure())) {
+                throw new IllegalArgumentException(
+                        "Convert.copy from and to must have the same structure");
+            }
+            if (from == to)
+                return;
+            if (bitSet.get(from.getFieldOffset())) {
+                copyStructure(from, to);
+                return;
+            }
+            copyChanged(from, to, bitSet);
+        }
+
+        private void copyChanged(PVStructure from, PVStructure to, BitSet bitSet) {
+            PVField[] fromDatas = from.getPVFields();
+            PVField[] toDatas = to.getPVFields();
+            // start from the first changed field and skip unchanged subtrees
+            int offset = bitSet.nextSetBit(from.getFieldOffset() + 1);
+            for (int i = 0; i < fromDatas.length && offset >= 0; i++) {
+                PVField fromData = fromDatas[i];
+                if (offset >= fromData.getNextFieldOffset())
+                    continue;
+                if (offset == fromData.getFieldOffset())
+                    copy(fromData, toDatas[i]);
+                else
+                    copyChanged((PVStructure) fromData, (PVStructure) toDatas[i], bitSet);
+                offset = bitSet.nextSetBit(fromData.getNextFieldOffset());
+            }
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -668,8 +714,7 @@ public final class ConvertFactory {
                     PVScalarArray pvArray = (PVScalarArray) fromDatas[1];
 
                     PVScalarArray toArray = (PVScalarArray) toDatas[1];
-                    copyScalarArray(pvArray, 0, toArray, 0, pvArray
-                            .getLength());
+                    copyScalarArray(pvArray, toArray);
                     PVScalar toScalar = (PVScalar) toDatas[0];
                     copyScalar(pvScalar, toScalar);
                     return;
@@ -687,15 +732,9 @@ public final class ConvertFactory {
                 case scalar:
                     copyScalar((PVScalar) fromData, (PVScalar) toData);
                     break;
-                case scalarArray: {
-                    PVScalarArray fromArray = (PVScalarArray) fromData;
-                    PVScalarArray toArray = (PVScalarArray) toData;
-                    int length = copyScalarArray(fromArray, 0, toArray, 0,
-                            fromArray.getLength());
-                    if (toArray.getLength() != length)
-                        toArray.setLength(length);
+                case scalarArray:
+                    copyScalarArray((PVScalarArray) fromData, (PVScalarArray) toData);
                     break;
-                }
                 case structure:
                     copyStructure((PVStructure) fromData, (PVStructure) toData);
                     break;
@@ -5203,217 +5242,343 @@ public final class ConvertFactory {
                     "Logic error. Should never get here");
         }
 
-        private String removeWhiteSpace(String start) {
-            int length = start.length();
-            if (length < 1)
-                return start;
-            if (!Character.isWhitespace(start.charAt(0))
-                    && !Character.isWhitespace(start.charAt(length - 1)))
-                return start;
-            StringBuilder builder = new StringBuilder(start);
-            int lastWhite = -1;
-            for (int i = 0; i < length; i++) {
-                if (!Character.isWhitespace(start.charAt(i))) break;
-                lastWhite = i;
-            }
-            if (lastWhite >= 0) {
-                builder.delete(0, lastWhite + 1);
-                length -= lastWhite + 1;
-            }
-            int firstWhite = builder.length();
-            for (int i = firstWhite - 1; i >= 0; i--) {
-                if (!Character.isWhitespace(builder.charAt(i)))
-                    break;
-                firstWhite = i;
-            }
-            if (firstWhite < length)
-                builder.setLength(firstWhite);
-            return builder.toString();
+        // first character of s that is not white space
+        private static int trimStart(String s) {
+            int first = 0;
+            int last = s.length();
+            while (first < last && Character.isWhitespace(s.charAt(first)))
+                first++;
+            return first;
         }
 
+        // character after the last character of s that is not white space
+        private static int trimEnd(String s, int first) {
+            int last = s.length();
+            while (last > first && Character.isWhitespace(s.charAt(last - 1)))
+                last--;
+            return last;
+        }
+
+        // number of strings that are converted before each put
+        private static final int fromStringChunk = 1024;
+
         private int convertFromStringArray(PVScalarArray pv, int offset,
                 int len, String[] from, int fromOffset) {
             ScalarType elemType = pv.getScalarArray().getElementType();
             int ntransfered = 0;
+            if (elemType == ScalarType.pvString) {
+                PVStringArray pvdata = (PVStringArray) pv;
+                while (len > 0) {
+                    int n = pvdata.put(offset, len, from, fromOffset);
+                    if (n == 0)
+                        break;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
+                    ntransfered += n;
+                }
+                return ntransfered;
+            }
+            int chunk = (len < fromStringChunk) ? len : fromStringChunk;
             switch (elemType) {
             case pvBoolean: {
                 PVBooleanArray pvdata = (PVBooleanArray) pv;
-                boolean[] data = new boolean[1];
+                boolean[] data = new boolean[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = Boolean.parseBoolean(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = NumberConvert.parseBoolean(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvByte: {
                 PVByteArray pvdata = (PVByteArray) pv;
-                byte[] data = new byte[1];
+                byte[] data = new byte[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToByte(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (byte) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvShort: {
                 PVShortArray pvdata = (PVShortArray) pv;
-                short[] data = new short[1];
+                short[] data = new short[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToShort(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (short) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvInt: {
                 PVIntArray pvdata = (PVIntArray) pv;
-                int[] data = new int[1];
+                int[] data = new int[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToInt(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (int) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvLong: {
                 PVLongArray pvdata = (PVLongArray) pv;
-                long[] data = new long[1];
+                long[] data = new long[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToLong(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvUByte: {
                 PVUByteArray pvdata = (PVUByteArray) pv;
-                byte[] data = new byte[1];
+                byte[] data = new byte[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToUByte(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (byte) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvUShort: {
                 PVUShortArray pvdata = (PVUShortArray) pv;
-                short[] data = new short[1];
+                short[] data = new short[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToUShort(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (short) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvUInt: {
                 PVUIntArray pvdata = (PVUIntArray) pv;
-                int[] data = new int[1];
+                int[] data = new int[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToInt(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = (int) NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvULong: {
                 PVULongArray pvdata = (PVULongArray) pv;
-                long[] data = new long[1];
+                long[] data = new long[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = stringToULong(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = NumberConvert.parseLong(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvFloat: {
                 PVFloatArray pvdata = (PVFloatArray) pv;
-                float[] data = new float[1];
+                float[] data = new float[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = Float.valueOf(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = NumberConvert.parseFloat(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
+                    len -= n;
+                    offset += n;
+                    fromOffset += n;
                 }
                 return ntransfered;
             }
             case pvDouble: {
                 PVDoubleArray pvdata = (PVDoubleArray) pv;
-                double[] data = new double[1];
+                double[] data = new double[chunk];
                 while (len > 0) {
-                    String fromString = removeWhiteSpace(from[fromOffset]);
-                    data[0] = Double.valueOf(fromString);
-                    if (pvdata.put(offset, 1, data, 0) == 0)
+                    int num = (len < chunk) ? len : chunk;
+                    for (int i = 0; i < num; i++) {
+                        String s = from[fromOffset + i];
+                        int first = trimStart(s);
+                        int last = trimEnd(s, first);
+                        try {
+                            data[i] = NumberConvert.parseDouble(s, first, last);
+                        } catch (NumberFormatException e) {
+                            // the preceding elements are converted
+                            pvdata.put(offset, i, data, 0);
+                            throw e;
+                        }
+                    }
+                    int n = pvdata.put(offset, num, data, 0);
+                    ntransfered += n;
+                    if (n < num)
                         return ntransfered;
-                    --len;
-                    ++ntransfered;
-                    ++offset;
-                    ++fromOffset;
-                }
-                return ntransfered;
-            }
-            case pvString:
-                PVStringArray pvdata = (PVStringArray) pv;
-                while (len > 0) {
-                    int n = pvdata.put(offset, len, from, fromOffset);
-                    if (n == 0)
-                        break;
                     len -= n;
                     offset += n;
                     fromOffset += n;
-                    ntransfered += n;
                 }
                 return ntransfered;
             }
+            }
             throw new IllegalStateException(
                     "Logic error. Should never get here");
         }
@@ -5597,12 +5762,13 @@ public final class ConvertFactory {
          * int)
          */
         public void newLine(StringBuilder builder, int indentLevel) {
-            builder.append(String.format("%n"));
+            builder.append(lineSeparator);
             for (int i = 0; i < indentLevel; i++)
                 builder.append(indentString);
         }
 
         private static String indentString = "    ";
+        private static final String lineSeparator = String.format("%n");
 
         private void convertToString(StringBuilder builder,PVField pv, int indentLevel) {
             Type type = pv.getField().getType();
@@ -5687,17 +5853,17 @@ public final class ConvertFactory {
             case pvULong: {
                 PVULong data = (PVULong) pv;
                 long val = data.get();
-                builder.append(ulongToString(val));
+                NumberConvert.appendUnsigned(builder, val);
                 return;
             }
             case pvFloat: {
                 PVFloat data = (PVFloat) pv;
-                builder.append(floatToString(data.get()));
+                NumberConvert.append(builder, data.get());
                 return;
             }
             case pvDouble: {
                 PVDouble data = (PVDouble) pv;
-                builder.append(doubleToString(data.get()));
+                NumberConvert.append(builder, data.get());
                 return;
             }
             case pvString: {
@@ -6002,7 +6168,7 @@ public final class ConvertFactory {
                             firstElement = false;
                         }
                         long val = data[i + fromOffset];
-                        builder.append(ulongToString(val));
+                        NumberConvert.appendUnsigned(builder, val);
                     }
                     len -= num;
                 }
@@ -6032,7 +6198,7 @@ public final class ConvertFactory {
                             firstElement = false;
                         }
                         float val = data[i + fromOffset];
-                        builder.append(floatToString(val));
+                        NumberConvert.append(builder, val);
                     }
                     len -= num;
                 }
@@ -6062,7 +6228,7 @@ public final class ConvertFactory {
                             firstElement = false;
                         }
                         double val = data[i + fromOffset];
-                        builder.append(doubleToString(val));
+                        NumberConvert.append(builder, val);
                     }
                     len -= num;
                 }
@@ -6559,7 +6725,6 @@ public final class ConvertFactory {
         }
 
         // used in unsigned integer conversions
-        private static final BigInteger twoToTheSixtyFour = new BigInteger("10000000000000000", 16);
         private static final double twoToTheSixtyFourReal = Math.pow(2.0, 64);
         private static final double twoToTheThirtyTwoReal = Math.pow(2.0, 32);
 
@@ -6587,18 +6752,8 @@ public final class ConvertFactory {
         }
 
         // unsigned long requires special handling as there is no wider primitive type
-        // to promote to. BigInteger has to be used, but is avoided where possible
-        // (conversion to float or double and for string conversions when ulong is
-        // less than 2^63).
-
-        private static BigInteger widenUnsigned(long rawValue) {
-            BigInteger wide = BigInteger.valueOf(rawValue);
-            if (rawValue < 0)
-            {
-                wide = wide.add(twoToTheSixtyFour);
-            }
-            return wide;
-        }
+        // to promote to: conversion to float or double adds 2^64 to negative raw values,
+        // conversion to string is done by NumberConvert.formatUnsigned.
 
         private static float ulongToFloat(long rawValue) {
             float val = rawValue;
@@ -6647,12 +6802,7 @@ public final class ConvertFactory {
         }
 
         private static String ulongToString(long from) {
-            // only widen to BigInteger if negative
-            if (from < 0)
-            {
-                return widenUnsigned(from).toString();
-            }
-            return String.valueOf(from);
+            return NumberConvert.toStringUnsigned(from);
         }
 
         private static byte stringToByte(String from) {
@@ -6680,64 +6830,19 @@ public final class ConvertFactory {
             return (long)convertToLong(from);
         }
         private static float stringToFloat(String from) {
-            return Float.valueOf(from);
+            return NumberConvert.parseFloat(from, 0, from.length());
         }
         private static double stringToDouble(String from) {
-            return Double.valueOf(from);
+            return NumberConvert.parseDouble(from, 0, from.length());
         }
         private static String floatToString(float from) {
-        	return String.valueOf(from);
+        	return NumberConvert.toString(from);
         }
         private static String doubleToString(double from) {
-        	return String.valueOf(from);
+        	return NumberConvert.toString(from);
         }
         private static long convertToLong(String from) {
-            try {
-                return Long.decode(from);
-            }
-            catch (NumberFormatException e) {
-                try {
-                    BigInteger big = new BigInteger(from);
-                    return big.longValue();
-                }
-                catch (NumberFormatException e2) {
-                	try {
-                		BigInteger big = null;
-                		String str = from;
-                		boolean negative = false;
-                		if (from.startsWith("-", 0)) {
-                			negative = true;
-                			str = from.substring(1);
-                		}
-                		if ((str.startsWith("0x", 0)) || (str.startsWith("0X", 0))) {
-                			// try hex conversion
-                            str = str.substring(2);
-                            big = new BigInteger(str, 16);
-                		}
-                		else if ((str.startsWith("#", 0))) {
-                			// try hex conversion
-                            str = str.substring(1);
-                            big = new BigInteger(str, 16);
-                        }
-                		else if ((str.startsWith("o", 0))) {
-                			// try octal conversion
-                            str = str.substring(1);
-                            big = new BigInteger(str, 8);
-                		}
-
-                		if (big != null) {
-                			if (negative)
-                			{
-                			    big = big.negate();
-                			}
-                            return big.longValue();
-                        }
-                	}
-                    catch (NumberFormatException e3) {
-                    }
-                }
-            }
-            throw new NumberFormatException("For input string: " + from);
+            return NumberConvert.parseLong(from, 0, from.length());
         }
 
 
@@ -4,7 +4,10 @@
  */
 package org.epics.pvdata.factory;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.epics.pvdata.misc.SerializeHelper;
 import org.epics.pvdata.pv.BoundedString;
@@ -37,6 +40,65 @@ public final class FieldFactory {
     private static ScalarArray[] scalarArrays = null;
     private static Union variantUnion = null;
     private static UnionArray variantUnionArray = null;
+
+    /**
+     * Name of the system property that disables (<code>false</code>) interning of introspection objects.
+     */
+    public static final String INTERN_FIELDS_PROPERTY = "EPICS_PVDATA_INTERN_FIELDS";
+
+    private static final boolean internFields =
+            !"false".equalsIgnoreCase(System.getProperty(INTERN_FIELDS_PROPERTY, "true"));
+
+    /**
+     * Canonical instances of structurally equal introspection objects.
+     * Values are weakly referenced, so that unused types get garbage collected.
+     */
+    private static final Map<Field, WeakReference<Field>> internTable = new WeakHashMap<Field, WeakReference<Field>>();
+
+    /**
+     * Is interning of introspection objects enabled.
+     * If enabled, FieldCreate returns (and deserializes into) one canonical instance for
+     * all structurally equal fields, therefore comparing fields created via FieldCreate
+     * is a reference comparison.
+     * @return <code>true</code> if enabled.
+     */
+    public static boolean isInterning() {
+        return internFields;
+    }
+
+    /**
+     * Get number of canonical introspection objects currently held.
+     * @return number of interned fields.
+     */
+    public static int getInternedCount() {
+        synchronized (internTable) {
+            return internTable.size();
+        }
+    }
+
+    /**
+     * Get canonical instance of the given field.
+     * @param field field to intern.
+     * @return canonical instance, <code>field</code> itself if interning is disabled.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Field> T intern(T field) {
+        if (!internFields || !(field instanceof BaseField))
+            return field;
+
+        synchronized (internTable) {
+            WeakReference<Field> ref = internTable.get(field);
+            if (ref != null) {
+                Field canonical = ref.get();
+                if (canonical != null)
+                    return (T) canonical;
+            }
+
+            Field canonical = ((BaseField) field).createInterned();
+            internTable.put(canonical, new WeakReference<Field>(canonical));
+            return (T) canonical;
+        }
+    }
     /**
      * Get the FieldCreate interface.
      * @return The interface for creating introspection objects.
@@ -50,8 +112,8 @@ public final class FieldFactory {
             for(int i = 0; i<num; i++) scalars[i] = new BaseScalar(scalarTypes[i]);
             scalarArrays = new ScalarArray[num];
             for(int i = 0; i<num; i++) scalarArrays[i] = new BaseScalarArray(scalarTypes[i]);
-            variantUnion = new BaseUnion();
-            variantUnionArray = new BaseUnionArray(variantUnion);
+            variantUnion = intern(new BaseUnion());
+            variantUnionArray = intern(new BaseUnionArray(variantUnion));
         }
         return singleImplementation;
     }
@@ -75,7 +137,7 @@ public final class FieldFactory {
          * @see org.epics.pvdata.pv.FieldCreate#createBoundedString(int)
          */
         public BoundedString createBoundedString(int maxLength) {
-			return new BaseBoundedString(maxLength);
+			return intern(new BaseBoundedString(maxLength));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.ScalarType)
@@ -89,26 +151,26 @@ public final class FieldFactory {
          * @see org.epics.pvdata.pv.FieldCreate#createFixedScalarArray(org.epics.pvdata.pv.ScalarType, int)
          */
         public ScalarArray createFixedScalarArray(ScalarType elementType, int size) {
-        	return new BaseScalarFixedArray(elementType, size);
+        	return intern(new BaseScalarFixedArray(elementType, size));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createBoundedScalarArray(org.epics.pvdata.pv.ScalarType, int)
 		 */
 		public ScalarArray createBoundedScalarArray(ScalarType elementType, int bound) {
-        	return new BaseScalarBoundedArray(elementType, bound);
+        	return intern(new BaseScalarBoundedArray(elementType, bound));
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.FieldCreate#createArray(java.lang.String, org.epics.pvdata.pv.Structure)
          */
         public StructureArray createStructureArray(Structure elementStructure)
         {
-			return new BaseStructureArray(elementStructure);
+			return intern(new BaseStructureArray(elementStructure));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnionArray(org.epics.pvdata.pv.Union)
 		 */
 		public UnionArray createUnionArray(Union elementUnion) {
-			return new BaseUnionArray(elementUnion);
+			return intern(new BaseUnionArray(elementUnion));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createVariantUnionArray()
@@ -122,7 +184,7 @@ public final class FieldFactory {
         public Structure createStructure(String[] fieldNames, Field[] fields)
         {
             validateFieldNames(fieldNames);
-            return new BaseStructure(fieldNames,fields);
+            return intern(new BaseStructure(fieldNames,fields));
         }
 
 		/* (non-Javadoc)
@@ -130,7 +192,7 @@ public final class FieldFactory {
 		 */
 		public Structure createStructure(String id, String[] fieldNames, Field[] fields) {
             validateFieldNames(fieldNames);
-            return new BaseStructure(id,fieldNames,fields);
+            return intern(new BaseStructure(id,fieldNames,fields));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createStructure(org.epics.pvdata.pv.Structure)
@@ -147,7 +209,9 @@ public final class FieldFactory {
 		    }
 		    String id = structToClone.getID();
 		    BaseStructure structure = (BaseStructure)createStructure(id,fieldNames,fields);
-		    structure.clone(fields, fieldNames);
+		    // an interned (shared) instance owns copies of the arrays and is immutable, it is not cloned
+		    if (!structure.interned)
+		        structure.clone(fields, fieldNames);
 		    return structure;
         }
         /* (non-Javadoc)
@@ -205,14 +269,14 @@ public final class FieldFactory {
 		 */
 		public Union createUnion(String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(fieldNames, fields);
+			return intern(new BaseUnion(fieldNames, fields));
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.FieldCreate#createUnion(java.lang.String, java.lang.String[], org.epics.pvdata.pv.Field[])
 		 */
 		public Union createUnion(String id, String[] fieldNames, Field[] fields) {
 			validateFieldNames(fieldNames);
-			return new BaseUnion(id, fieldNames, fields);
+			return intern(new BaseUnion(id, fieldNames, fields));
 		}
 
 
@@ -280,12 +344,12 @@ public final class FieldFactory {
     			else if (typeCode == 0x80)
     			{
     				// Type type = Type.structure;
-    				return BaseStructure.deserializeStructureField(buffer, control);
+    				return intern(BaseStructure.deserializeStructureField(buffer, control));
     			}
     			else if (typeCode == 0x81)
     			{
     				// Type type = union;
-    				return BaseUnion.deserializeUnionField(buffer, control);
+    				return intern(BaseUnion.deserializeUnionField(buffer, control));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -297,7 +361,7 @@ public final class FieldFactory {
     				// TODO cache some sizes?
     				// bounded string
     				int maxLength = SerializeHelper.readSize(buffer, control);
-    				return new BaseBoundedString(maxLength);
+    				return intern(new BaseBoundedString(maxLength));
     			}
     			else
     				throw new IllegalArgumentException("invalid type encoding");
@@ -319,9 +383,9 @@ public final class FieldFactory {
     				if (isVariable)
     					return scalarArrays[scalarType.ordinal()];
     				else if (isFixed)
-						return new BaseScalarFixedArray(scalarType, size);
+						return intern(new BaseScalarFixedArray(scalarType, size));
 					else
-						return new BaseScalarBoundedArray(scalarType, size);
+						return intern(new BaseScalarBoundedArray(scalarType, size));
     			}
     			else if (typeCode == 0x80)
     			{
@@ -331,7 +395,7 @@ public final class FieldFactory {
 
     				// Type type = Type.structureArray;
     				final Structure elementStructure = (Structure)control.cachedDeserialize(buffer);
-    				return new BaseStructureArray(elementStructure);
+    				return intern(new BaseStructureArray(elementStructure));
     			}
     			else if (typeCode == 0x81)
     			{
@@ -341,7 +405,7 @@ public final class FieldFactory {
 
     				// Type type = unionArray;
     				final Union elementUnion = (Union)control.cachedDeserialize(buffer);
-    				return new BaseUnionArray(elementUnion);
+    				return intern(new BaseUnionArray(elementUnion));
     			}
     			else if (typeCode == 0x82)
     			{
@@ -0,0 +1,90 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+/**
+ * Immutable open-addressing hash index of field names.
+ * Names can be looked up by a region of a string (e.g. one element of a dotted path)
+ * without creating a substring.
+ */
+final class FieldNameIndex {
+    // below this size a linear scan is faster than hashing
+    private static final int LINEAR_SCAN_MAX = 8;
+
+    private final String[] fieldNames;
+    private final int[] table;
+    private final int mask;
+
+    /**
+     * Constructor.
+     * @param fieldNames the field names, must be unique.
+     */
+    FieldNameIndex(String[] fieldNames) {
+        this.fieldNames = fieldNames;
+        int capacity = 2;
+        while (capacity < fieldNames.length * 2) capacity <<= 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        // 0 is an empty slot, index + 1 is stored
+        for (int i = 0; i < fieldNames.length; i++) {
+            int slot = mix(fieldNames[i].hashCode()) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = i + 1;
+        }
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Get the index of a field.
+     * @param name the field name.
+     * @return the index or -1 if not found.
+     */
+    int indexOf(String name) {
+        if (fieldNames.length <= LINEAR_SCAN_MAX) {
+            for (int i = 0; i < fieldNames.length; i++)
+                if (name.equals(fieldNames[i])) return i;
+            return -1;
+        }
+        int slot = mix(name.hashCode()) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (name.equals(fieldNames[entry - 1])) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the index of a field named by region of a string.
+     * @param path the string.
+     * @param start start index of the name (inclusive).
+     * @param end end index of the name (exclusive).
+     * @return the index or -1 if not found.
+     */
+    int indexOf(String path, int start, int end) {
+        final int length = end - start;
+        if (fieldNames.length <= LINEAR_SCAN_MAX) {
+            for (int i = 0; i < fieldNames.length; i++) {
+                String fieldName = fieldNames[i];
+                if (fieldName.length() == length && path.regionMatches(start, fieldName, 0, length)) return i;
+            }
+            return -1;
+        }
+        // same as String.hashCode() of the substring
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + path.charAt(i);
+        int slot = mix(h) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            String fieldName = fieldNames[entry - 1];
+            if (fieldName.length() == length && path.regionMatches(start, fieldName, 0, length)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+}
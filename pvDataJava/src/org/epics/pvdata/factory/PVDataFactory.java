@@ -43,17 +43,67 @@ public class PVDataFactory {
     public static synchronized PVDataCreate getPVDataCreate() {
         return PVDataCreateImpl.getPVDataCreate();
     }
+    /**
+     * Get the interface for a PVDataCreate that creates numeric scalar arrays
+     * with the elements stored off-heap, in direct ByteBuffers (see AbstractPVDirectArray).
+     * Structures, unions and their arrays created by it also create their subfields with it.
+     * Boolean and string arrays are the default implementations.
+     * @return The interface.
+     */
+    public static synchronized PVDataCreate getDirectPVDataCreate() {
+        return PVDataCreateImpl.getDirectPVDataCreate();
+    }
+    /**
+     * Get the interface for a PVDataCreate that creates structure arrays, of structures whose fields are all scalars,
+     * with the elements stored by column (see BasePVColumnarStructureArray).
+     * The elements are views of the columns, and put copies the values of the elements.
+     * Other fields are the default implementations.
+     * @return The interface.
+     */
+    public static synchronized PVDataCreate getColumnarPVDataCreate() {
+        return PVDataCreateImpl.getColumnarPVDataCreate();
+    }
+    /**
+     * Get the shared pool of PVStructure instances, that creates new instances with getPVDataCreate().
+     * The pool is disabled unless system property EPICS_PVDATA_POOL_SIZE is set (see PVStructurePool).
+     * @return The pool.
+     */
+    public static PVStructurePool getPVStructurePool() {
+        return PVStructurePool.getDefault();
+    }
 
     private static final class PVDataCreateImpl implements PVDataCreate{
         private static FieldCreate fieldCreate = FieldFactory.getFieldCreate();
         private static Convert convert = ConvertFactory.getConvert();
         private static PVDataCreateImpl singleImplementation = null;
+        private static PVDataCreateImpl directImplementation = null;
+        private static PVDataCreateImpl columnarImplementation = null;
         private static synchronized PVDataCreateImpl getPVDataCreate() {
                 if (singleImplementation==null) {
-                    singleImplementation = new PVDataCreateImpl();
+                    singleImplementation = new PVDataCreateImpl(false, false);
                 }
                 return singleImplementation;
         }
+        private static synchronized PVDataCreateImpl getDirectPVDataCreate() {
+                if (directImplementation==null) {
+                    directImplementation = new PVDataCreateImpl(true, false);
+                }
+                return directImplementation;
+        }
+        private static synchronized PVDataCreateImpl getColumnarPVDataCreate() {
+                if (columnarImplementation==null) {
+                    columnarImplementation = new PVDataCreateImpl(false, true);
+                }
+                return columnarImplementation;
+        }
+
+        private final boolean direct;
+        private final boolean columnar;
+
+        private PVDataCreateImpl(boolean direct, boolean columnar) {
+            this.direct = direct;
+            this.columnar = columnar;
+        }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVField(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.Field)
          */
@@ -61,10 +111,10 @@ public class PVDataFactory {
 			switch(field.getType()) {
 			case scalar: 	     return createPVScalar((Scalar)field);
 			case scalarArray:    return createPVScalarArray((ScalarArray)field);
-			case structure:      return new BasePVStructure((Structure)field);
-			case structureArray: return new BasePVStructureArray((StructureArray)field);
-			case union: 	     return new BasePVUnion((Union)field);
-			case unionArray:     return new BasePVUnionArray((UnionArray)field);
+			case structure:      return new BasePVStructure((Structure)field, this);
+			case structureArray: return createPVStructureArray((StructureArray)field);
+			case union: 	     return new BasePVUnion((Union)field, this);
+			case unionArray:     return new BasePVUnionArray((UnionArray)field, this);
 			}
             throw new IllegalArgumentException("Illegal Type");
 		}
@@ -141,6 +191,21 @@ public class PVDataFactory {
          */
         public PVScalarArray createPVScalarArray(ScalarArray array)
         {
+        	if (direct) {
+        		switch(array.getElementType()) {
+        		case pvByte:    return new BasePVDirectByteArray(array);
+        		case pvShort:   return new BasePVDirectShortArray(array);
+        		case pvInt:     return new BasePVDirectIntArray(array);
+        		case pvLong:    return new BasePVDirectLongArray(array);
+        		case pvUByte:   return new BasePVDirectUByteArray(array);
+        		case pvUShort:  return new BasePVDirectUShortArray(array);
+        		case pvUInt:    return new BasePVDirectUIntArray(array);
+        		case pvULong:   return new BasePVDirectULongArray(array);
+        		case pvFloat:   return new BasePVDirectFloatArray(array);
+        		case pvDouble:  return new BasePVDirectDoubleArray(array);
+        		default:        break;
+        		}
+        	}
         	switch(array.getElementType()) {
             case pvBoolean: return new BasePVBooleanArray(array);
             case pvByte:    return new BasePVByteArray(array);
@@ -176,20 +241,22 @@ public class PVDataFactory {
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructureArray(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.StructureArray)
          */
         public PVStructureArray createPVStructureArray(StructureArray structureArray) {
-			return new BasePVStructureArray(structureArray);
+			if (columnar && BasePVColumnarStructureArray.isColumnar(structureArray.getStructure()))
+				return new BasePVColumnarStructureArray(structureArray);
+			return new BasePVStructureArray(structureArray, this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVUnionArray(org.epics.pvdata.pv.UnionArray)
 		 */
 		public PVUnionArray createPVUnionArray(UnionArray unionArray) {
-			return new BasePVUnionArray(unionArray);
+			return new BasePVUnionArray(unionArray, this);
 		}
 		/* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructure(org.epics.pvdata.pv.PVStructure, org.epics.pvdata.pv.Structure)
          */
         public PVStructure createPVStructure(Structure structure)
         {
-            return new BasePVStructure(structure);
+            return new BasePVStructure(structure, this);
         }
         /* (non-Javadoc)
          * @see org.epics.pvdata.pv.PVDataCreate#createPVStructure(org.epics.pvdata.pv.PVStructure, java.lang.String[], org.epics.pvdata.pv.PVField[])
@@ -212,7 +279,7 @@ public class PVDataFactory {
                 throw new IllegalArgumentException("structToClone is null");
             }
         	Structure structure = fieldCreate.createStructure(structToClone.getStructure());
-            PVStructure pvStructure = new BasePVStructure(structure);
+            PVStructure pvStructure = new BasePVStructure(structure, this);
         	if(!copyStructure(structToClone,pvStructure)) {
         	    System.err.printf("strictToClone%n%s%n", structToClone);
         	    System.err.printf("pvStructure%n%s%n", pvStructure);
@@ -226,13 +293,13 @@ public class PVDataFactory {
          * @see org.epics.pvdata.pv.PVDataCreate#createPVUnion(org.epics.pvdata.pv.Union)
          */
         public PVUnion createPVUnion(Union union) {
-        	return new BasePVUnion(union);
+        	return new BasePVUnion(union, this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVVariantUnion()
 		 */
 		public PVUnion createPVVariantUnion() {
-			return new BasePVUnion(fieldCreate.createVariantUnion());
+			return new BasePVUnion(fieldCreate.createVariantUnion(), this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVUnion(org.epics.pvdata.pv.PVUnion)
@@ -241,7 +308,7 @@ public class PVDataFactory {
             if (unionToClone==null)
                 throw new IllegalArgumentException("unionToClone is null");
 
-			PVUnion union = new BasePVUnion(unionToClone.getUnion());
+			PVUnion union = new BasePVUnion(unionToClone.getUnion(), this);
 			// set cloned value
 			union.set(unionToClone.getSelectedIndex(), createPVField(unionToClone.get()));
 			return union;
@@ -250,7 +317,7 @@ public class PVDataFactory {
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVVariantUnionArray()
 		 */
 		public PVUnionArray createPVVariantUnionArray() {
-			return new BasePVUnionArray(fieldCreate.createVariantUnionArray());
+			return new BasePVUnionArray(fieldCreate.createVariantUnionArray(), this);
 		}
 		/* (non-Javadoc)
 		 * @see org.epics.pvdata.pv.PVDataCreate#createPVScalar(org.epics.pvdata.pv.PVScalarType)
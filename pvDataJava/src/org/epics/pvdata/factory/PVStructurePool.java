@@ -0,0 +1,306 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.PVArray;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * A pool of PVStructure instances, keyed by Structure.
+ * <p>
+ * Ownership rules:
+ * <ul>
+ * <li><i>take</i> hands out a PVStructure with all fields set to their default values,
+ * either a recycled one or a new one. The caller owns it.</li>
+ * <li><i>give</i> returns ownership to the pool. The caller, and anyone it handed the PVStructure to,
+ * must not use it, or any of its subfields, afterwards.</li>
+ * <li>A PVStructure that is never given back is simply garbage collected.</li>
+ * </ul>
+ * Only top-level PVStructures are pooled. A PVStructure with an immutable field, or a field with a postHandler,
+ * is discarded by <i>give</i>.
+ * Array fields keep their storage, so recycled instances do not have to allocate when the next value is put
+ * or deserialized.
+ * <p>
+ * In debug mode every PVStructure handed out is tracked and
+ * the ones that are garbage collected without being given back are reported, with the stack of the <i>take</i> call.
+ * Giving back a PVStructure that was not taken from the pool, or is already given back, throws an exception.
+ */
+public final class PVStructurePool {
+
+    /**
+     * System property for the maximum number of free PVStructures kept per Structure
+     * by the pool returned by <i>PVDataFactory.getPVStructurePool</i>.
+     * The default is 0, the pool is disabled, i.e. <i>take</i> always creates a new instance.
+     */
+    public static final String POOL_SIZE_PROPERTY = "EPICS_PVDATA_POOL_SIZE";
+
+    /**
+     * System property that enables the debug mode of the pool returned by <i>PVDataFactory.getPVStructurePool</i>.
+     */
+    public static final String POOL_DEBUG_PROPERTY = "EPICS_PVDATA_POOL_DEBUG";
+
+    private static final Convert convert = ConvertFactory.getConvert();
+
+    private static PVStructurePool defaultPool = null;
+
+    static synchronized PVStructurePool getDefault() {
+        if (defaultPool == null) {
+            int size = 0;
+            try {
+                size = Integer.parseInt(System.getProperty(POOL_SIZE_PROPERTY, "0"));
+            } catch (NumberFormatException nfe) {
+                // noop, disabled
+            }
+            defaultPool = new PVStructurePool(PVDataFactory.getPVDataCreate(), size,
+                    Boolean.getBoolean(POOL_DEBUG_PROPERTY));
+        }
+        return defaultPool;
+    }
+
+    private static final class Bucket {
+        private final PVStructure template;
+        private final PVStructure[] free;
+        private int count = 0;
+
+        Bucket(PVStructure template, int maxFree) {
+            this.template = template;
+            free = new PVStructure[maxFree];
+        }
+
+        synchronized PVStructure poll() {
+            if (count == 0) return null;
+            PVStructure pvStructure = free[--count];
+            free[count] = null;
+            return pvStructure;
+        }
+
+        synchronized void offer(PVStructure pvStructure) {
+            for (int i = 0; i < count; i++)
+                if (free[i] == pvStructure)
+                    throw new IllegalStateException("PVStructure already given back");
+            if (count == free.length || !reset(template, pvStructure))
+                return;
+            free[count++] = pvStructure;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+    }
+
+    private static final class Lease extends WeakReference<PVStructure> {
+        private final Integer key;
+        private final Throwable origin;
+
+        Lease(PVStructure pvStructure, ReferenceQueue<PVStructure> queue) {
+            super(pvStructure, queue);
+            key = Integer.valueOf(System.identityHashCode(pvStructure));
+            origin = new Throwable("PVStructure taken here was never given back, Structure ID: " + pvStructure.getStructure().getID());
+        }
+    }
+
+    private final PVDataCreate pvDataCreate;
+    private final int maxFree;
+    private final boolean debug;
+    private final ConcurrentMap<Structure, Bucket> buckets = new ConcurrentHashMap<Structure, Bucket>();
+
+    // debug mode only, guarded by leases
+    private final ReferenceQueue<PVStructure> leaked = new ReferenceQueue<PVStructure>();
+    private final Map<Integer, List<Lease>> leases = new HashMap<Integer, List<Lease>>();
+    private int leakCount = 0;
+
+    /**
+     * Constructor.
+     * @param pvDataCreate the factory used to create new instances.
+     * @param maxFree the maximum number of free PVStructures kept per Structure, 0 disables pooling.
+     * @param debug track the instances handed out and report leaks.
+     */
+    public PVStructurePool(PVDataCreate pvDataCreate, int maxFree, boolean debug) {
+        if (pvDataCreate == null)
+            throw new IllegalArgumentException("pvDataCreate is null");
+        this.pvDataCreate = pvDataCreate;
+        this.maxFree = Math.max(0, maxFree);
+        this.debug = debug;
+    }
+
+    /**
+     * Is pooling enabled?
+     * @return <code>false</code> if <i>take</i> always creates a new instance.
+     */
+    public boolean isEnabled() {
+        return maxFree > 0;
+    }
+
+    /**
+     * Is debug mode enabled?
+     * @return <code>true</code> if instances are tracked.
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Take a PVStructure from the pool, the caller owns it.
+     * @param structure the introspection interface.
+     * @return a PVStructure with all fields set to their default values.
+     */
+    public PVStructure take(Structure structure) {
+        PVStructure pvStructure = null;
+        if (maxFree > 0) {
+            Bucket bucket = buckets.get(structure);
+            if (bucket != null)
+                pvStructure = bucket.poll();
+        }
+        if (pvStructure == null)
+            pvStructure = pvDataCreate.createPVStructure(structure);
+        if (debug)
+            track(pvStructure);
+        return pvStructure;
+    }
+
+    /**
+     * Give a PVStructure back to the pool, it must not be used afterwards.
+     * @param pvStructure a top-level PVStructure.
+     * @throws IllegalArgumentException if pvStructure is not a top-level PVStructure.
+     * @throws IllegalStateException if pvStructure is already given back,
+     * or, in debug mode, was not taken from this pool.
+     */
+    public void give(PVStructure pvStructure) {
+        if (pvStructure.getParent() != null)
+            throw new IllegalArgumentException("not a top-level PVStructure");
+        if (debug)
+            untrack(pvStructure);
+        if (maxFree == 0)
+            return;
+
+        final Structure structure = pvStructure.getStructure();
+        Bucket bucket = buckets.get(structure);
+        if (bucket == null) {
+            Bucket newBucket = new Bucket(pvDataCreate.createPVStructure(structure), maxFree);
+            bucket = buckets.putIfAbsent(structure, newBucket);
+            if (bucket == null)
+                bucket = newBucket;
+        }
+        bucket.offer(pvStructure);
+    }
+
+    /**
+     * Get the number of free PVStructures kept for a Structure.
+     * @param structure the introspection interface.
+     * @return the number of free instances.
+     */
+    public int getNumberFree(Structure structure) {
+        Bucket bucket = buckets.get(structure);
+        return (bucket != null) ? bucket.size() : 0;
+    }
+
+    /**
+     * Release all free PVStructures.
+     */
+    public void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * Get the number of leaks detected in debug mode,
+     * i.e. PVStructures that were garbage collected without being given back.
+     * @return the number of leaks.
+     */
+    public int getLeakCount() {
+        synchronized (leases) {
+            expungeLeaks();
+            return leakCount;
+        }
+    }
+
+    private void track(PVStructure pvStructure) {
+        Lease lease = new Lease(pvStructure, leaked);
+        synchronized (leases) {
+            expungeLeaks();
+            List<Lease> list = leases.get(lease.key);
+            if (list == null) {
+                list = new ArrayList<Lease>(1);
+                leases.put(lease.key, list);
+            }
+            list.add(lease);
+        }
+    }
+
+    private void untrack(PVStructure pvStructure) {
+        final Integer key = Integer.valueOf(System.identityHashCode(pvStructure));
+        synchronized (leases) {
+            expungeLeaks();
+            List<Lease> list = leases.get(key);
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    Lease lease = list.get(i);
+                    if (lease.get() == pvStructure) {
+                        // a cleared reference is not enqueued
+                        lease.clear();
+                        list.remove(i);
+                        if (list.isEmpty())
+                            leases.remove(key);
+                        return;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("PVStructure not taken from this pool or already given back");
+    }
+
+    private void expungeLeaks() {
+        Lease lease;
+        while ((lease = (Lease)leaked.poll()) != null) {
+            List<Lease> list = leases.get(lease.key);
+            if (list != null && list.remove(lease) && list.isEmpty())
+                leases.remove(lease.key);
+            leakCount++;
+            lease.origin.printStackTrace();
+        }
+    }
+
+    /**
+     * Reset all fields to the values of a template.
+     * Array fields are emptied, but keep their storage.
+     * @param template the template, a new instance of the same Structure.
+     * @param pvField the field to reset.
+     * @return <code>false</code> if the field cannot be recycled.
+     */
+    private static boolean reset(PVField template, PVField pvField) {
+        if (!(pvField instanceof AbstractPVField))
+            return false;
+        final AbstractPVField field = (AbstractPVField)pvField;
+        if (field.isImmutable() || field.hasPostHandler())
+            return false;
+
+        if (pvField instanceof PVStructure) {
+            final PVField[] templateFields = ((PVStructure)template).getPVFields();
+            final PVField[] pvFields = ((PVStructure)pvField).getPVFields();
+            if (templateFields.length != pvFields.length)
+                return false;
+            for (int i = 0; i < pvFields.length; i++)
+                if (!reset(templateFields[i], pvFields[i]))
+                    return false;
+        }
+        else if (pvField instanceof PVArray && ((PVArray)pvField).isCapacityMutable())
+            ((PVArray)pvField).setLength(0);
+        else
+            convert.copy(template, pvField);
+        return true;
+    }
+}
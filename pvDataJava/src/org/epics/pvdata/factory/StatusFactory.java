@@ -191,6 +191,15 @@ public final class StatusFactory {
 				SerializeHelper.serializeString(stackDump, buffer, flusher);
 			}
 		}
+		/* (non-Javadoc)
+		 * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+		 */
+		public int getSerializedSize() {
+			if (this == getStatusCreate().getStatusOK())
+				return 1;
+			else
+				return 1 + SerializeHelper.getSerializedSize(message) + SerializeHelper.getSerializedSize(stackDump);
+		}
 		/* (non-Javadoc)
 		 * @see java.lang.Object#hashCode()
 		 */
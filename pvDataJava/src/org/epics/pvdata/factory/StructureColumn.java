@@ -0,0 +1,1526 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.factory;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.pv.BoundedString;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.PVBoolean;
+import org.epics.pvdata.pv.PVByte;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVFloat;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVShort;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVUByte;
+import org.epics.pvdata.pv.PVUInt;
+import org.epics.pvdata.pv.PVULong;
+import org.epics.pvdata.pv.PVUShort;
+import org.epics.pvdata.pv.Scalar;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * One field of the elements of a BasePVColumnarStructureArray, stored in a primitive array indexed by element (row).
+ * A column creates the PVScalar views of its rows, that read and write the array.
+ */
+abstract class StructureColumn {
+    protected final Scalar scalar;
+
+    protected StructureColumn(Scalar scalar) {
+        this.scalar = scalar;
+    }
+
+    /**
+     * Create the column for a field.
+     * @param scalar the introspection interface of the field.
+     * @param capacity the number of rows.
+     * @return the column.
+     */
+    static StructureColumn create(Scalar scalar, int capacity) {
+        switch (scalar.getScalarType()) {
+        case pvBoolean: return new BooleanColumn(scalar, capacity);
+        case pvByte:    return new ByteColumn(scalar, capacity);
+        case pvShort:   return new ShortColumn(scalar, capacity);
+        case pvInt:     return new IntColumn(scalar, capacity);
+        case pvLong:    return new LongColumn(scalar, capacity);
+        case pvUByte:   return new UByteColumn(scalar, capacity);
+        case pvUShort:  return new UShortColumn(scalar, capacity);
+        case pvUInt:    return new UIntColumn(scalar, capacity);
+        case pvULong:   return new ULongColumn(scalar, capacity);
+        case pvFloat:   return new FloatColumn(scalar, capacity);
+        case pvDouble:  return new DoubleColumn(scalar, capacity);
+        case pvString:  return new StringColumn(scalar, capacity);
+        }
+        throw new IllegalArgumentException("Illegal Type. Logic error");
+    }
+
+    /**
+     * Change the number of rows, keeping the first rows.
+     * @param capacity the new number of rows.
+     * @param length the number of rows to keep.
+     */
+    abstract void resize(int capacity, int length);
+
+    /**
+     * Copy rows within the column, as System.arraycopy.
+     * @param fromRow the first source row.
+     * @param toRow the first destination row.
+     * @param count the number of rows.
+     */
+    abstract void copy(int fromRow, int toRow, int count);
+
+    /**
+     * Get the serialized size of a value.
+     * @return the size in bytes, -1 if it depends on the value.
+     */
+    abstract int getElementSize();
+
+    /**
+     * Set a row from a field of the same type.
+     * @param row the row.
+     * @param from the field.
+     */
+    abstract void set(int row, PVScalar from);
+
+    /**
+     * Compare a row with a field.
+     * @param row the row.
+     * @param other the field, may be null.
+     * @return true if the field has the same type and value, as equals of the field implementation.
+     */
+    abstract boolean valueEquals(int row, PVScalar other);
+
+    /**
+     * Get the hash code of a row, as hashCode of the field implementation.
+     * @param row the row.
+     * @return the hash code.
+     */
+    abstract int hashCode(int row);
+
+    /**
+     * Serialize a row of a column with a fixed element size, the caller ensures the buffer has room.
+     * @param buffer the buffer.
+     * @param row the row.
+     */
+    abstract void serialize(ByteBuffer buffer, int row);
+
+    /**
+     * Deserialize a row of a column with a fixed element size, the caller ensures the data is in the buffer.
+     * @param buffer the buffer.
+     * @param row the row.
+     */
+    abstract void deserialize(ByteBuffer buffer, int row);
+
+    /**
+     * Serialize a row.
+     * @param buffer the buffer.
+     * @param flusher the flush control.
+     * @param row the row.
+     */
+    void serialize(ByteBuffer buffer, SerializableControl flusher, int row) {
+        flusher.ensureBuffer(getElementSize());
+        serialize(buffer, row);
+    }
+
+    /**
+     * Deserialize a row.
+     * @param buffer the buffer.
+     * @param control the deserialization control.
+     * @param row the row.
+     */
+    void deserialize(ByteBuffer buffer, DeserializableControl control, int row) {
+        control.ensureData(getElementSize());
+        deserialize(buffer, row);
+    }
+
+    /**
+     * Get the serialized size of a row.
+     * @param row the row.
+     * @return the size in bytes.
+     */
+    int getSerializedSize(int row) {
+        return getElementSize();
+    }
+
+    /**
+     * Create the view of a row.
+     * @param row the row.
+     * @return a PVScalar that reads and writes the row.
+     */
+    abstract PVScalar createView(int row);
+
+    private static final class BooleanColumn extends StructureColumn {
+        private boolean[] data;
+
+        BooleanColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new boolean[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            boolean[] newData = new boolean[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 1;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVBoolean)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVBoolean) && ((PVBoolean)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row] ? 1231 : 1237;
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.put(data[row] ? (byte)1 : (byte)0);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.get() != 0;
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVBoolean {
+            private final int row;
+
+            View(int row) {
+                super(BooleanColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVBoolean#get()
+             */
+            public boolean get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVBoolean#put(boolean)
+             */
+            public void put(boolean value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(1);
+                buffer.put(data[row] ? (byte)1 : (byte)0);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(1);
+                data[row] = buffer.get() != 0;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return BooleanColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class StringColumn extends StructureColumn {
+        private final int maxLength;
+        private String[] data;
+
+        StringColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            maxLength = (scalar instanceof BoundedString) ? ((BoundedString)scalar).getMaximumLength() : 0;
+            data = new String[capacity];
+            for (int i = 0; i < capacity; i++)
+                data[i] = "";
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            String[] newData = new String[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            for (int i = length; i < capacity; i++)
+                newData[i] = "";
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return -1;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVString)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            if (!(other instanceof PVString))
+                return false;
+            final String value = ((PVString)other).get();
+            return (value != null) ? value.equals(data[row]) : data[row] == null;
+        }
+
+        @Override
+        int hashCode(int row) {
+            return (data[row] == null) ? 0 : data[row].hashCode();
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            throw new IllegalStateException("string column has no fixed element size");
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            throw new IllegalStateException("string column has no fixed element size");
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, SerializableControl flusher, int row) {
+            SerializeHelper.serializeString(data[row], buffer, flusher);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, DeserializableControl control, int row) {
+            data[row] = SerializeHelper.deserializeString(buffer, control);
+        }
+
+        @Override
+        int getSerializedSize(int row) {
+            return SerializeHelper.getSerializedSize(data[row]);
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVString {
+            private final int row;
+
+            View(int row) {
+                super(StringColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVString#get()
+             */
+            public String get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVString#put(java.lang.String)
+             */
+            public void put(String value) {
+                if (super.isImmutable()) {
+                    throw new IllegalArgumentException("field is immutable");
+                } else if (maxLength > 0 && value.length() > maxLength) {
+                    throw new IllegalArgumentException("string length out of bounds");
+                }
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                SerializeHelper.serializeString(data[row], buffer, flusher);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.SerializableArray#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl, int, int)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher, int offset, int count) {
+                final String value = data[row];
+                // check bounds
+                final int length = (value == null) ? 0 : value.length();
+                if (offset < 0) offset = 0;
+                else if (offset > length) offset = length;
+                if (count < 0) count = length;
+
+                final int maxCount = length - offset;
+                if (count > maxCount)
+                    count = maxCount;
+
+                // write
+                SerializeHelper.serializeSubstring(value, offset, count, buffer, flusher);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.factory.AbstractPVScalar#getSerializedSize()
+             */
+            @Override
+            public int getSerializedSize() {
+                return SerializeHelper.getSerializedSize(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.SerializableArray#getSerializedSize(int, int)
+             */
+            public int getSerializedSize(int offset, int count) {
+                final String value = data[row];
+                if (value == null)
+                    return 1;
+                // check bounds
+                final int length = value.length();
+                if (offset < 0) offset = 0;
+                else if (offset > length) offset = length;
+                if (count < 0) count = length;
+
+                final int maxCount = length - offset;
+                if (count > maxCount)
+                    count = maxCount;
+
+                final int len = SerializeHelper.getUTF8Length(value, offset, count);
+                return SerializeHelper.getSerializedSize(len) + len;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                data[row] = SerializeHelper.deserializeString(buffer, control);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return StringColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class ByteColumn extends StructureColumn {
+        private byte[] data;
+
+        ByteColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new byte[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            byte[] newData = new byte[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 1;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVByte)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVByte) && ((PVByte)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.put(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.get();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVByte {
+            private final int row;
+
+            View(int row) {
+                super(ByteColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVByte#get()
+             */
+            public byte get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVByte#put(byte)
+             */
+            public void put(byte value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(1);
+                buffer.put(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(1);
+                data[row] = buffer.get();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return ByteColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class ShortColumn extends StructureColumn {
+        private short[] data;
+
+        ShortColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new short[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            short[] newData = new short[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 2;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVShort)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVShort) && ((PVShort)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putShort(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getShort();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVShort {
+            private final int row;
+
+            View(int row) {
+                super(ShortColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVShort#get()
+             */
+            public short get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVShort#put(short)
+             */
+            public void put(short value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(2);
+                buffer.putShort(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(2);
+                data[row] = buffer.getShort();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return ShortColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class IntColumn extends StructureColumn {
+        private int[] data;
+
+        IntColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new int[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            int[] newData = new int[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 4;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVInt)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVInt) && ((PVInt)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putInt(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getInt();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVInt {
+            private final int row;
+
+            View(int row) {
+                super(IntColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVInt#get()
+             */
+            public int get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVInt#put(int)
+             */
+            public void put(int value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(4);
+                buffer.putInt(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(4);
+                data[row] = buffer.getInt();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return IntColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class LongColumn extends StructureColumn {
+        private long[] data;
+
+        LongColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new long[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            long[] newData = new long[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 8;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVLong)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVLong) && ((PVLong)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return (int)data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putLong(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getLong();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVLong {
+            private final int row;
+
+            View(int row) {
+                super(LongColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVLong#get()
+             */
+            public long get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVLong#put(long)
+             */
+            public void put(long value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(8);
+                buffer.putLong(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(8);
+                data[row] = buffer.getLong();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return LongColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class UByteColumn extends StructureColumn {
+        private byte[] data;
+
+        UByteColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new byte[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            byte[] newData = new byte[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 1;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVUByte)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVUByte) && ((PVUByte)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.put(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.get();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVUByte {
+            private final int row;
+
+            View(int row) {
+                super(UByteColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUByte#get()
+             */
+            public byte get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUByte#put(byte)
+             */
+            public void put(byte value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(1);
+                buffer.put(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(1);
+                data[row] = buffer.get();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return UByteColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class UShortColumn extends StructureColumn {
+        private short[] data;
+
+        UShortColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new short[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            short[] newData = new short[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 2;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVUShort)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVUShort) && ((PVUShort)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putShort(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getShort();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVUShort {
+            private final int row;
+
+            View(int row) {
+                super(UShortColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUShort#get()
+             */
+            public short get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUShort#put(short)
+             */
+            public void put(short value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(2);
+                buffer.putShort(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(2);
+                data[row] = buffer.getShort();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return UShortColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class UIntColumn extends StructureColumn {
+        private int[] data;
+
+        UIntColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new int[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            int[] newData = new int[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 4;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVUInt)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVUInt) && ((PVUInt)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putInt(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getInt();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVUInt {
+            private final int row;
+
+            View(int row) {
+                super(UIntColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUInt#get()
+             */
+            public int get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVUInt#put(int)
+             */
+            public void put(int value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(4);
+                buffer.putInt(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(4);
+                data[row] = buffer.getInt();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return UIntColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class ULongColumn extends StructureColumn {
+        private long[] data;
+
+        ULongColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new long[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            long[] newData = new long[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 8;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVULong)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVULong) && ((PVULong)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return (int)data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putLong(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getLong();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVULong {
+            private final int row;
+
+            View(int row) {
+                super(ULongColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVULong#get()
+             */
+            public long get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVULong#put(long)
+             */
+            public void put(long value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(8);
+                buffer.putLong(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(8);
+                data[row] = buffer.getLong();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return ULongColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class FloatColumn extends StructureColumn {
+        private float[] data;
+
+        FloatColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new float[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            float[] newData = new float[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 4;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVFloat)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVFloat) && ((PVFloat)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return (int)data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putFloat(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getFloat();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVFloat {
+            private final int row;
+
+            View(int row) {
+                super(FloatColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVFloat#get()
+             */
+            public float get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVFloat#put(float)
+             */
+            public void put(float value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(4);
+                buffer.putFloat(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(4);
+                data[row] = buffer.getFloat();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return FloatColumn.this.hashCode(row);
+            }
+        }
+    }
+
+    private static final class DoubleColumn extends StructureColumn {
+        private double[] data;
+
+        DoubleColumn(Scalar scalar, int capacity) {
+            super(scalar);
+            data = new double[capacity];
+        }
+
+        @Override
+        void resize(int capacity, int length) {
+            double[] newData = new double[capacity];
+            System.arraycopy(data, 0, newData, 0, length);
+            data = newData;
+        }
+
+        @Override
+        void copy(int fromRow, int toRow, int count) {
+            System.arraycopy(data, fromRow, data, toRow, count);
+        }
+
+        @Override
+        int getElementSize() {
+            return 8;
+        }
+
+        @Override
+        void set(int row, PVScalar from) {
+            data[row] = ((PVDouble)from).get();
+        }
+
+        @Override
+        boolean valueEquals(int row, PVScalar other) {
+            return (other instanceof PVDouble) && ((PVDouble)other).get() == data[row];
+        }
+
+        @Override
+        int hashCode(int row) {
+            return (int)data[row];
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer, int row) {
+            buffer.putDouble(data[row]);
+        }
+
+        @Override
+        void deserialize(ByteBuffer buffer, int row) {
+            data[row] = buffer.getDouble();
+        }
+
+        @Override
+        PVScalar createView(int row) {
+            return new View(row);
+        }
+
+        private final class View extends AbstractPVScalar implements PVDouble {
+            private final int row;
+
+            View(int row) {
+                super(DoubleColumn.this.scalar);
+                this.row = row;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVDouble#get()
+             */
+            public double get() {
+                return data[row];
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PVDouble#put(double)
+             */
+            public void put(double value) {
+                if (super.isImmutable())
+                    throw new IllegalArgumentException("field is immutable");
+                data[row] = value;
+                super.postPut();
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#serialize(java.nio.ByteBuffer, org.epics.pvdata.pv.SerializableControl)
+             */
+            public void serialize(ByteBuffer buffer, SerializableControl flusher) {
+                flusher.ensureBuffer(8);
+                buffer.putDouble(data[row]);
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.Serializable#deserialize(java.nio.ByteBuffer, org.epics.pvdata.pv.DeserializableControl)
+             */
+            public void deserialize(ByteBuffer buffer, DeserializableControl control) {
+                control.ensureData(8);
+                data[row] = buffer.getDouble();
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return valueEquals(row, (obj instanceof PVScalar) ? (PVScalar)obj : null);
+            }
+
+            @Override
+            public int hashCode() {
+                return DoubleColumn.this.hashCode(row);
+            }
+        }
+    }
+}
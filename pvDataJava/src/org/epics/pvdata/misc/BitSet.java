@@ -1257,16 +1257,137 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
         for (long x = words[n - 1]; x != 0; x >>>= 8)
             len++;
 
-         SerializeHelper.writeSize(len, buffer, flusher);
-        flusher.ensureBuffer(len);
+        SerializeHelper.writeSize(len, buffer, flusher);
 
+        // written in chunks, the bit set of a large structure can be larger than the buffer
         n = len / 8;
-        for (int i = 0; i < n; i++)
+        for (int i = 0; i < n; i++) {
+            if (buffer.remaining() < 8)
+                flusher.ensureBuffer(8);
             buffer.putLong(words[i]);
+        }
 
-        if (n < wordsInUse)
+        if (n < wordsInUse) {
+            flusher.ensureBuffer(len - 8 * n);
             for (long x = words[wordsInUse - 1]; x != 0; x >>>= 8)
                 buffer.put((byte) (x & 0xff));
+        }
+    }
+
+    /**
+     * Encoding of serializeSparse that lists the indexes of the set bits.
+     */
+    public static final byte SPARSE_INDEX_LIST = 1;
+
+    /**
+     * Encoding of serializeSparse that lists the lengths of the runs of clear and set bits.
+     */
+    public static final byte SPARSE_RUN_LENGTH = 2;
+
+    private static int sizeOfSize(int size) {
+        return (size < 254) ? 1 : 5;
+    }
+
+    // the number of runs of set bits
+    private int getSetRuns() {
+        int runs = 0;
+        long previous = 0;
+        for (int i = 0; i < wordsInUse; i++) {
+            final long word = words[i];
+            // the first bit of each run
+            runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+            previous = word;
+        }
+        return runs;
+    }
+
+    // the serialized size of an encoding of serializeSparse, or a size greater than limit
+    private int getSparseSize(byte encoding, int limit) {
+        // a lower bound that does not iterate over the bits
+        final int lowerBound = 3 + ((encoding == SPARSE_INDEX_LIST) ? cardinality() : 2 * getSetRuns());
+        if (lowerBound > limit)
+            return lowerBound;
+
+        int count = 0;
+        int size = 0;
+        int end = 0;
+        for (int i = nextSetBit(0); i >= 0 && size <= limit; i = nextSetBit(end)) {
+            final int j = nextClearBit(i);
+            if (encoding == SPARSE_INDEX_LIST) {
+                // the first index of a run is relative to the end of the previous run, the others are 0
+                size += sizeOfSize(i - end) + (j - i - 1);
+                count += j - i;
+            } else {
+                size += sizeOfSize(i - end) + sizeOfSize(j - i);
+                count += 2;
+            }
+            end = j;
+        }
+        return 2 + sizeOfSize(count) + size;
+    }
+
+    /**
+     * Serialize with the smallest of the dense encoding of serialize and the sparse encodings,
+     * for bit sets of large structures that have few bits set.
+     * The sparse encodings start with a size of -1, that serialize never writes,
+     * followed by the encoding (SPARSE_INDEX_LIST or SPARSE_RUN_LENGTH).
+     * They can only be sent to a peer that supports them, deserialize reads all the encodings.
+     * @param buffer the buffer to serialize into
+     * @param flusher the SerializableControl to manage the flushing
+     */
+    public void serializeSparse(ByteBuffer buffer, SerializableControl flusher) {
+        final int dense = getSerializedSize();
+        final int indexList = getSparseSize(SPARSE_INDEX_LIST, dense);
+        final int runLength = getSparseSize(SPARSE_RUN_LENGTH, Math.min(dense, indexList));
+        if (dense <= indexList && dense <= runLength) {
+            serialize(buffer, flusher);
+            return;
+        }
+
+        final byte encoding = (indexList <= runLength) ? SPARSE_INDEX_LIST : SPARSE_RUN_LENGTH;
+        SerializeHelper.writeSize(-1, buffer, flusher);
+        flusher.ensureBuffer(1);
+        buffer.put(encoding);
+        if (encoding == SPARSE_INDEX_LIST) {
+            SerializeHelper.writeSize(cardinality(), buffer, flusher);
+            int previous = -1;
+            for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+                SerializeHelper.writeSize(i - previous - 1, buffer, flusher);
+                previous = i;
+            }
+        } else {
+            SerializeHelper.writeSize(2 * getSetRuns(), buffer, flusher);
+            int end = 0;
+            for (int i = nextSetBit(0); i >= 0; i = nextSetBit(end)) {
+                final int j = nextClearBit(i);
+                SerializeHelper.writeSize(i - end, buffer, flusher);
+                SerializeHelper.writeSize(j - i, buffer, flusher);
+                end = j;
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes written by serializeSparse.
+     * @return the serialized size in bytes
+     */
+    public int getSparseSerializedSize() {
+        final int dense = getSerializedSize();
+        final int indexList = getSparseSize(SPARSE_INDEX_LIST, dense);
+        return Math.min(dense, Math.min(indexList, getSparseSize(SPARSE_RUN_LENGTH, Math.min(dense, indexList))));
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.pv.Serializable#getSerializedSize()
+     */
+    public int getSerializedSize() {
+        final int n = wordsInUse;
+        if (n == 0)
+            return 1;
+        int len = 8 * (n-1);
+        for (long x = words[n - 1]; x != 0; x >>>= 8)
+            len++;
+        return SerializeHelper.getSerializedSize(len) + len;
     }
 
     /* (non-Javadoc)
@@ -1275,6 +1396,10 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
     public void deserialize(ByteBuffer buffer, DeserializableControl control) {
 
         final int bytes = SerializeHelper.readSize(buffer, control);    // in bytes
+        if (bytes == -1) {
+            deserializeSparse(buffer, control);
+            return;
+        }
 
         wordsInUse = (bytes + 7) / 8;
         if (wordsInUse > words.length)
@@ -1283,17 +1408,20 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
         if (wordsInUse == 0)
             return;
 
-        control.ensureData(bytes);
-
         int i = 0;
         final int longs = bytes / 8;
-        while (i < longs)
+        while (i < longs) {
+            if (buffer.remaining() < 8)
+                control.ensureData(8);
             words[i++] = buffer.getLong();
+        }
 
         for (int j = i; j < wordsInUse; j++)
             words[j] = 0;
 
-        for (int remaining = (bytes - longs * 8), j = 0; j < remaining; j++)
+        final int remaining = bytes - longs * 8;
+        control.ensureData(remaining);
+        for (int j = 0; j < remaining; j++)
             words[i] |= (buffer.get() & 0xffL) << (8 * j);
 
         /*
@@ -1314,4 +1442,28 @@ public final class BitSet implements Cloneable, java.io.Serializable, org.epics.
             words[i] = 0;
         */
     }
+
+    private void deserializeSparse(ByteBuffer buffer, DeserializableControl control) {
+        clear();
+        control.ensureData(1);
+        final byte encoding = buffer.get();
+        final int count = SerializeHelper.readSize(buffer, control);
+        if (encoding == SPARSE_INDEX_LIST) {
+            int index = -1;
+            for (int i = 0; i < count; i++) {
+                index += SerializeHelper.readSize(buffer, control) + 1;
+                set(index);
+            }
+        } else if (encoding == SPARSE_RUN_LENGTH) {
+            int index = 0;
+            for (int i = 0; i < count; i += 2) {
+                index += SerializeHelper.readSize(buffer, control);
+                final int length = SerializeHelper.readSize(buffer, control);
+                set(index, index + length);
+                index += length;
+            }
+        } else {
+            throw new IllegalArgumentException("invalid BitSet encoding " + encoding);
+        }
+    }
 }
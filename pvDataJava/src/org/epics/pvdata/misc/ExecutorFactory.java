@@ -25,6 +25,27 @@ public class ExecutorFactory {
         return new ExecutorInstance(threadName,priority);
     }
 
+    /**
+     * Create a new set of threads that partitions the commands by key.
+     * The commands of a partition are executed one at a time, in the order of the calls to execute.
+     * Each thread serves its own partitions. With work stealing a thread that has nothing to do
+     * also executes the commands of the partitions of other threads, while they are busy.
+     *
+     * @param threadName the name for the set of threads, the threads are named threadName-0, threadName-1, ...
+     * @param priority the ScanPriority for the threads
+     * @param numberThreads the number of threads
+     * @param workStealing allow a thread that has nothing to do to execute the commands of another thread
+     * @return the PartitionedExecutor interface
+     */
+    static public PartitionedExecutor createPartitioned(String threadName, ThreadPriority priority,
+            int numberThreads, boolean workStealing)
+    {
+        if(numberThreads<=0) {
+            throw new IllegalArgumentException("numberThreads must be > 0");
+        }
+        return new PartitionedExecutorInstance(threadName,priority,numberThreads,workStealing);
+    }
+
     static private class ExecutorInstance implements Executor {
         private ThreadInstance thread;
 
@@ -126,9 +147,278 @@ public class ExecutorFactory {
         }
     }
 
+    static private class PartitionedExecutorInstance implements PartitionedExecutor {
+        // several partitions per thread, so that the partitions of a busy thread can be stolen
+        private static final int partitionsPerThread = 8;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Partition[] partitions;
+        private final Worker[] workers;
+        private final boolean workStealing;
+        // guarded by lock
+        private boolean alive = true;
+        private int queueDepth = 0;
+        private int maximumQueueDepth = 0;
+        private long executedCount = 0;
+        private long totalLatency = 0;
+        private long maximumLatency = 0;
+
+        private PartitionedExecutorInstance(String threadName, ThreadPriority priority,
+                int numberThreads, boolean workStealing)
+        {
+            this.workStealing = workStealing;
+            partitions = new Partition[numberThreads*partitionsPerThread];
+            for(int i=0; i<partitions.length; i++) {
+                partitions[i] = new Partition(i%numberThreads);
+            }
+            workers = new Worker[numberThreads];
+            for(int i=0; i<numberThreads; i++) {
+                workers[i] = new Worker(i);
+            }
+            for(int i=0; i<numberThreads; i++) {
+                threadCreate.create(threadName + "-" + i, priority.getJavaPriority(), workers[i]);
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Executor#createNode(java.lang.Runnable)
+         */
+        public ExecutorNode createNode(Runnable command) {
+            return createNode(command,command);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#createNode(java.lang.Runnable, java.lang.Object)
+         */
+        public ExecutorNode createNode(Runnable command, Object key) {
+            int hash = key.hashCode();
+            hash ^= (hash>>>16);
+            ExecutorNodeImpl impl = new ExecutorNodeImpl(command);
+            impl.partition = partitions[(hash&0x7fffffff)%partitions.length];
+            return impl;
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Executor#execute(org.epics.pvdata.misc.ExecutorNode)
+         */
+        public void execute(ExecutorNode executorNode) {
+            ExecutorNodeImpl impl = (ExecutorNodeImpl)executorNode;
+            Partition partition = impl.partition;
+            if(partition==null || partition.executor()!=this) {
+                throw new IllegalArgumentException("executorNode was not created by this executor");
+            }
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                if(!alive || impl.listNode.isOnList()) return;
+                impl.executeTime = now;
+                partition.queue.addTail(impl.listNode);
+                if(++queueDepth>maximumQueueDepth) maximumQueueDepth = queueDepth;
+                // a running partition is served again by its thread when the command ends
+                if(!partition.running) signal(partition);
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Executor#stop()
+         */
+        public void stop() {
+            lock.lock();
+            try {
+                alive = false;
+                for(Worker worker : workers) {
+                    worker.moreWork.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getNumberThreads()
+         */
+        public int getNumberThreads() {
+            return workers.length;
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getQueueDepth()
+         */
+        public int getQueueDepth() {
+            lock.lock();
+            try {
+                return queueDepth;
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getMaximumQueueDepth()
+         */
+        public int getMaximumQueueDepth() {
+            lock.lock();
+            try {
+                return maximumQueueDepth;
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getExecutedCount()
+         */
+        public long getExecutedCount() {
+            lock.lock();
+            try {
+                return executedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getAverageLatency()
+         */
+        public double getAverageLatency() {
+            lock.lock();
+            try {
+                return (executedCount==0) ? 0.0 : totalLatency/1e9/executedCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#getMaximumLatency()
+         */
+        public double getMaximumLatency() {
+            lock.lock();
+            try {
+                return maximumLatency/1e9;
+            } finally {
+                lock.unlock();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.PartitionedExecutor#resetStatistics()
+         */
+        public void resetStatistics() {
+            lock.lock();
+            try {
+                maximumQueueDepth = queueDepth;
+                executedCount = 0;
+                totalLatency = 0;
+                maximumLatency = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // called with lock locked, wake up a thread that can serve partition
+        private void signal(Partition partition) {
+            Worker owner = workers[partition.owner];
+            if(owner.waiting) {
+                owner.wakeUp();
+            } else if(workStealing) {
+                for(Worker worker : workers) {
+                    if(worker.waiting) {
+                        worker.wakeUp();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private class Partition {
+            private final LinkedList<ExecutorNodeImpl> queue = linkedListCreate.create();
+            private final int owner;
+            // a thread is executing a command of this partition
+            private boolean running = false;
+
+            private Partition(int owner) {
+                this.owner = owner;
+            }
+
+            private PartitionedExecutorInstance executor() {
+                return PartitionedExecutorInstance.this;
+            }
+        }
+
+        private class Worker implements RunnableReady {
+            private final int index;
+            private final Condition moreWork = lock.newCondition();
+            private boolean waiting = false;
+            private int nextPartition = 0;
+
+            private Worker(int index) {
+                this.index = index;
+            }
+
+            private void wakeUp() {
+                waiting = false;
+                moreWork.signal();
+            }
+
+            // called with lock locked, the own partitions are served in turn
+            private Partition take() {
+                for(int i=0; i<partitionsPerThread; i++) {
+                    nextPartition = (nextPartition + 1)%partitionsPerThread;
+                    Partition partition = partitions[nextPartition*workers.length + index];
+                    if(!partition.running && !partition.queue.isEmpty()) return partition;
+                }
+                if(workStealing) {
+                    for(Partition partition : partitions) {
+                        if(!partition.running && !partition.queue.isEmpty()) return partition;
+                    }
+                }
+                return null;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.misc.RunnableReady#run(org.epics.pvdata.misc.ThreadReady)
+             */
+            public void run(ThreadReady threadReady) {
+                threadReady.ready();
+                while(true) {
+                    Partition partition = null;
+                    Runnable runnable = null;
+                    lock.lock();
+                    try {
+                        while(alive && (partition=take())==null) {
+                            waiting = true;
+                            moreWork.await();
+                            waiting = false;
+                        }
+                        if(!alive) return;
+                        partition.running = true;
+                        ExecutorNodeImpl impl = partition.queue.removeHead().getObject();
+                        queueDepth--;
+                        executedCount++;
+                        long latency = System.nanoTime() - impl.executeTime;
+                        totalLatency += latency;
+                        if(latency>maximumLatency) maximumLatency = latency;
+                        runnable = impl.command;
+                    } catch(InterruptedException e) {
+                        return;
+                    } finally {
+                        lock.unlock();
+                    }
+                    try {
+                        runnable.run();
+                    } finally {
+                        lock.lock();
+                        try {
+                            partition.running = false;
+                            if(!partition.queue.isEmpty()) signal(partition);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private static class ExecutorNodeImpl implements ExecutorNode {
         private LinkedListNode<ExecutorNodeImpl> listNode;
         private Runnable command;
+        // used by PartitionedExecutorInstance
+        private PartitionedExecutorInstance.Partition partition;
+        private long executeTime;
 
         private ExecutorNodeImpl(Runnable command) {
             this.command = command;
@@ -0,0 +1,135 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.Type;
+
+/**
+ * Compiled field path.
+ * A dotted field name (e.g. <code>alarm.severity</code>) is resolved once against a Structure
+ * into a chain of field indices; the path can then be applied to any PVStructure
+ * of that Structure without any string operations or allocation.
+ * Instances are immutable and thread-safe.
+ */
+public final class FieldPath {
+    private final Structure structure;
+    private final String path;
+    private final int[] indices;
+    private final Field field;
+
+    private FieldPath(Structure structure, String path, int[] indices, Field field) {
+        this.structure = structure;
+        this.path = path;
+        this.indices = indices;
+        this.field = field;
+    }
+
+    /**
+     * Compile a field path.
+     * @param structure the structure the path is relative to.
+     * @param path the dotted field name, e.g. <code>alarm.severity</code>.
+     * @return the compiled path.
+     * @throws IllegalArgumentException if the structure has no such field.
+     */
+    public static FieldPath compile(Structure structure, String path) {
+        if (structure == null)
+            throw new IllegalArgumentException("structure == null");
+        if (path == null || path.length() == 0)
+            throw new IllegalArgumentException("path is empty");
+
+        String[] names = path.split("\\.", -1);
+        int[] indices = new int[names.length];
+        Field field = structure;
+        for (int i = 0; i < names.length; i++) {
+            if (field.getType() != Type.structure)
+                throw new IllegalArgumentException("field '" + path + "' not found: '" + names[i - 1] + "' is not a structure");
+            Structure parent = (Structure) field;
+            int index = parent.getFieldIndex(names[i]);
+            if (index < 0)
+                throw new IllegalArgumentException("field '" + path + "' not found");
+            indices[i] = index;
+            field = parent.getField(index);
+        }
+        return new FieldPath(structure, path, indices, field);
+    }
+
+    /**
+     * Get the structure the path was compiled against.
+     * @return the structure.
+     */
+    public Structure getStructure() {
+        return structure;
+    }
+
+    /**
+     * Get the dotted field name.
+     * @return the path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the introspection interface of the field the path points to.
+     * @return the field.
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Is the path applicable to a PVStructure.
+     * @param pvStructure the PVStructure.
+     * @return <code>true</code> if <code>pvStructure</code> is of the structure the path was compiled against.
+     */
+    public boolean isApplicable(PVStructure pvStructure) {
+        Structure other = pvStructure.getStructure();
+        return other == structure || structure.equals(other);
+    }
+
+    /**
+     * Get the field the path points to.
+     * @param pvStructure the PVStructure of the structure the path was compiled against.
+     * @return the field.
+     * @throws IllegalArgumentException if the path is not applicable to <code>pvStructure</code>.
+     */
+    public PVField get(PVStructure pvStructure) {
+        if (!isApplicable(pvStructure))
+            throw new IllegalArgumentException("path '" + path + "' compiled against a different structure");
+
+        PVField pvField = pvStructure;
+        for (int index : indices)
+            pvField = ((PVStructure) pvField).getPVFields()[index];
+        return pvField;
+    }
+
+    /**
+     * Get the field the path points to, of the given type.
+     * @param <T> the expected type of the field.
+     * @param c the expected class of the field.
+     * @param pvStructure the PVStructure of the structure the path was compiled against.
+     * @return the field or <code>null</code> if the field is not of the given class.
+     * @throws IllegalArgumentException if the path is not applicable to <code>pvStructure</code>.
+     */
+    public <T extends PVField> T get(Class<T> c, PVStructure pvStructure) {
+        PVField pvField = get(pvStructure);
+        if (c.isInstance(pvField))
+            return c.cast(pvField);
+        else
+            return null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,853 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+import java.math.BigInteger;
+
+/**
+ * Conversion between the pvData scalar types and their string representation,
+ * that writes into caller-provided StringBuilders or char arrays and parses
+ * character sequences without creating intermediate objects.
+ * <p>
+ * Signed and unsigned integers are formatted as decimal numbers.
+ * Floating point numbers are formatted in the format of Double.toString and Float.toString,
+ * with the shortest decimal that converts back to the same value (Schubfach algorithm, R. Giulietti).
+ * Integers are parsed as by Long.decode, values that do not fit are truncated to 64 bits;
+ * this also parses the unsigned types.
+ * Floating point numbers are parsed as by Double.parseDouble and Float.parseFloat.
+ * <p>
+ * All methods are thread safe.
+ */
+public final class NumberConvert {
+    private NumberConvert() {} // don't create
+
+    /**
+     * The maximum number of characters of a formatted number.
+     */
+    public static final int MAX_LENGTH = 32;
+
+    private static final ThreadLocal<char[]> scratch = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[MAX_LENGTH];
+        }
+    };
+
+    /**
+     * Format a signed integer.
+     * @param value the value.
+     * @param buffer the buffer, with at least 20 characters after offset.
+     * @param offset the offset of the first character.
+     * @return the offset after the last character.
+     */
+    public static int format(long value, char[] buffer, int offset) {
+        if (value < 0) {
+            buffer[offset++] = '-';
+            // negative digits, so that Long.MIN_VALUE needs no special case
+            int length = 1;
+            for (long v = value / 10; v != 0; v /= 10)
+                length++;
+            int i = offset + length;
+            long v = value;
+            while (v != 0) {
+                long q = v / 10;
+                buffer[--i] = (char) ('0' + (q * 10 - v));
+                v = q;
+            }
+            return offset + length;
+        }
+        return formatPositive(value, buffer, offset);
+    }
+
+    /**
+     * Format an unsigned integer.
+     * @param value the raw value, interpreted as an unsigned 64 bit integer.
+     * @param buffer the buffer, with at least 20 characters after offset.
+     * @param offset the offset of the first character.
+     * @return the offset after the last character.
+     */
+    public static int formatUnsigned(long value, char[] buffer, int offset) {
+        if (value >= 0)
+            return formatPositive(value, buffer, offset);
+        // the quotient by 10 of an unsigned value fits in a long
+        long q = (value >>> 1) / 5;
+        int digit = (int) (value - q * 10);
+        offset = formatPositive(q, buffer, offset);
+        buffer[offset++] = (char) ('0' + digit);
+        return offset;
+    }
+
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+        10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+        1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    // number of decimal digits of value >= 0
+    private static int length(long value) {
+        int length = 1;
+        while (length < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[length])
+            length++;
+        return length;
+    }
+
+    private static int formatPositive(long value, char[] buffer, int offset) {
+        final int length = length(value);
+        writeDigits(value, buffer, offset + length);
+        return offset + length;
+    }
+
+    // write the digits of value >= 0 backwards from end
+    private static void writeDigits(long value, char[] buffer, int end) {
+        int i = end;
+        while (value > Integer.MAX_VALUE) {
+            final long q = value / 10;
+            buffer[--i] = (char) ('0' + (value - q * 10));
+            value = q;
+        }
+        int v = (int) value;
+        do {
+            final int q = v / 10;
+            buffer[--i] = (char) ('0' + (v - q * 10));
+            v = q;
+        } while (v != 0);
+    }
+
+    /**
+     * Format a double, in the format of Double.toString, with the shortest decimal that
+     * converts back to value.
+     * @param value the value.
+     * @param buffer the buffer, with at least 24 characters after offset.
+     * @param offset the offset of the first character.
+     * @return the offset after the last character.
+     */
+    public static int format(double value, char[] buffer, int offset) {
+        final long bits = Double.doubleToRawLongBits(value);
+        final long t = bits & D_T_MASK;
+        final int bq = (int) (bits >>> (D_P - 1)) & D_BQ_MASK;
+        if (bq == D_BQ_MASK)
+            return special(t != 0, bits < 0, buffer, offset);
+        if (bits < 0)
+            buffer[offset++] = '-';
+        if (bq != 0) {
+            final int mq = -D_Q_MIN + 1 - bq;
+            final long c = D_C_MIN | t;
+            if (0 < mq && mq < D_P) {
+                // an integer
+                final long f = c >> mq;
+                if (f << mq == c)
+                    return toChars(f, 0, buffer, offset);
+            }
+            return toDecimal(-mq, c, 0, buffer, offset);
+        }
+        if (t != 0)
+            return t < D_C_TINY ? toDecimal(D_Q_MIN, 10 * t, -1, buffer, offset) : toDecimal(D_Q_MIN, t, 0, buffer, offset);
+        return zero(buffer, offset);
+    }
+
+    /**
+     * Format a float, in the format of Float.toString, with the shortest decimal that
+     * converts back to value.
+     * @param value the value.
+     * @param buffer the buffer, with at least 15 characters after offset.
+     * @param offset the offset of the first character.
+     * @return the offset after the last character.
+     */
+    public static int format(float value, char[] buffer, int offset) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int t = bits & F_T_MASK;
+        final int bq = (bits >>> (F_P - 1)) & F_BQ_MASK;
+        if (bq == F_BQ_MASK)
+            return special(t != 0, bits < 0, buffer, offset);
+        if (bits < 0)
+            buffer[offset++] = '-';
+        if (bq != 0) {
+            final int mq = -F_Q_MIN + 1 - bq;
+            final int c = F_C_MIN | t;
+            if (0 < mq && mq < F_P) {
+                // an integer
+                final int f = c >> mq;
+                if (f << mq == c)
+                    return toChars(f, 0, buffer, offset);
+            }
+            return toDecimal(-mq, c, 0, buffer, offset);
+        }
+        if (t != 0)
+            return t < F_C_TINY ? toDecimal(F_Q_MIN, 10 * t, -1, buffer, offset) : toDecimal(F_Q_MIN, t, 0, buffer, offset);
+        return zero(buffer, offset);
+    }
+
+    /**
+     * Append a signed integer.
+     * @param builder the builder.
+     * @param value the value.
+     * @return the builder.
+     */
+    public static StringBuilder append(StringBuilder builder, long value) {
+        return builder.append(value);
+    }
+
+    /**
+     * Append an unsigned byte.
+     * @param builder the builder.
+     * @param value the raw value.
+     * @return the builder.
+     */
+    public static StringBuilder appendUnsigned(StringBuilder builder, byte value) {
+        return builder.append(value & 0xff);
+    }
+
+    /**
+     * Append an unsigned short.
+     * @param builder the builder.
+     * @param value the raw value.
+     * @return the builder.
+     */
+    public static StringBuilder appendUnsigned(StringBuilder builder, short value) {
+        return builder.append(value & 0xffff);
+    }
+
+    /**
+     * Append an unsigned int.
+     * @param builder the builder.
+     * @param value the raw value.
+     * @return the builder.
+     */
+    public static StringBuilder appendUnsigned(StringBuilder builder, int value) {
+        return builder.append(value & 0xffffffffL);
+    }
+
+    /**
+     * Append an unsigned long.
+     * @param builder the builder.
+     * @param value the raw value.
+     * @return the builder.
+     */
+    public static StringBuilder appendUnsigned(StringBuilder builder, long value) {
+        if (value >= 0)
+            return builder.append(value);
+        final char[] buffer = scratch.get();
+        return builder.append(buffer, 0, formatUnsigned(value, buffer, 0));
+    }
+
+    /**
+     * Append a double, see format(double, char[], int).
+     * @param builder the builder.
+     * @param value the value.
+     * @return the builder.
+     */
+    public static StringBuilder append(StringBuilder builder, double value) {
+        final char[] buffer = scratch.get();
+        return builder.append(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Append a float, see format(float, char[], int).
+     * @param builder the builder.
+     * @param value the value.
+     * @return the builder.
+     */
+    public static StringBuilder append(StringBuilder builder, float value) {
+        final char[] buffer = scratch.get();
+        return builder.append(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Convert an unsigned long to a string.
+     * @param value the raw value.
+     * @return the string.
+     */
+    public static String toStringUnsigned(long value) {
+        if (value >= 0)
+            return Long.toString(value);
+        final char[] buffer = scratch.get();
+        return new String(buffer, 0, formatUnsigned(value, buffer, 0));
+    }
+
+    /**
+     * Convert a double to a string, see format(double, char[], int).
+     * @param value the value.
+     * @return the string.
+     */
+    public static String toString(double value) {
+        final char[] buffer = scratch.get();
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Convert a float to a string, see format(float, char[], int).
+     * @param value the value.
+     * @return the string.
+     */
+    public static String toString(float value) {
+        final char[] buffer = scratch.get();
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Parse a boolean as by Boolean.parseBoolean.
+     * @param s the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return <code>true</code> if the characters are "true", ignoring case.
+     */
+    public static boolean parseBoolean(CharSequence s, int start, int end) {
+        if (end - start != 4)
+            return false;
+        final char t = s.charAt(start);
+        final char r = s.charAt(start + 1);
+        final char u = s.charAt(start + 2);
+        final char e = s.charAt(start + 3);
+        return (t == 't' || t == 'T') && (r == 'r' || r == 'R') && (u == 'u' || u == 'U') && (e == 'e' || e == 'E');
+    }
+
+    /**
+     * Parse an integer as by Long.decode: an optional sign, followed by a decimal number,
+     * a hexadecimal number prefixed by "0x", "0X" or "#", or an octal number prefixed by "0".
+     * A value that does not fit in a long is truncated to its low 64 bits,
+     * so that the unsigned types can be parsed by casting the result.
+     * A number prefixed by "o" is also accepted as octal.
+     * @param s the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the value.
+     * @throws NumberFormatException if the characters are not an integer.
+     */
+    public static long parseLong(CharSequence s, int start, int end) {
+        // Long.decode
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        int radix = 10;
+        if (startsWith(s, i, end, "0x") || startsWith(s, i, end, "0X")) {
+            radix = 16;
+            i += 2;
+        } else if (startsWith(s, i, end, "#")) {
+            radix = 16;
+            i++;
+        } else if (i + 1 < end && s.charAt(i) == '0') {
+            radix = 8;
+            i++;
+        }
+        if (isDigits(s, i, end, radix)) {
+            // accumulate negatively, as Long.parseLong, so that Long.MIN_VALUE fits
+            final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            final long multmin = limit / radix;
+            long result = 0;
+            boolean overflow = false;
+            for (int j = i; j < end; j++) {
+                final int digit = Character.digit(s.charAt(j), radix);
+                if (result < multmin || (result *= radix) < limit + digit) {
+                    overflow = true;
+                    break;
+                }
+                result -= digit;
+            }
+            if (!overflow)
+                return negative ? result : -result;
+        }
+
+        // a decimal number of any size
+        i = start;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+            i++;
+        if (isDigits(s, i, end, 10)) {
+            final long result = accumulate(s, i, end, 10);
+            return s.charAt(start) == '-' ? -result : result;
+        }
+
+        // a prefixed number of any size
+        i = start;
+        negative = false;
+        if (i < end && s.charAt(i) == '-') {
+            negative = true;
+            i++;
+        }
+        radix = 0;
+        if (startsWith(s, i, end, "0x") || startsWith(s, i, end, "0X")) {
+            radix = 16;
+            i += 2;
+        } else if (startsWith(s, i, end, "#")) {
+            radix = 16;
+            i++;
+        } else if (startsWith(s, i, end, "o")) {
+            radix = 8;
+            i++;
+        }
+        if (radix != 0) {
+            boolean negativeDigits = false;
+            if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeDigits = s.charAt(i) == '-';
+                i++;
+            }
+            if (isDigits(s, i, end, radix)) {
+                long result = accumulate(s, i, end, radix);
+                if (negativeDigits)
+                    result = -result;
+                return negative ? -result : result;
+            }
+        }
+        throw new NumberFormatException("For input string: " + s.subSequence(start, end));
+    }
+
+    private static boolean startsWith(CharSequence s, int start, int end, String prefix) {
+        if (end - start < prefix.length())
+            return false;
+        for (int i = 0; i < prefix.length(); i++)
+            if (s.charAt(start + i) != prefix.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static boolean isDigits(CharSequence s, int start, int end, int radix) {
+        if (start >= end)
+            return false;
+        for (int i = start; i < end; i++)
+            if (Character.digit(s.charAt(i), radix) < 0)
+                return false;
+        return true;
+    }
+
+    // the value modulo 2^64
+    private static long accumulate(CharSequence s, int start, int end, int radix) {
+        long result = 0;
+        for (int i = start; i < end; i++)
+            result = result * radix + Character.digit(s.charAt(i), radix);
+        return result;
+    }
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    // result of scanDecimal
+    private static final class Decimal {
+        long significand;
+        int exponent;
+        boolean negative;
+    }
+
+    private static final ThreadLocal<Decimal> decimal = new ThreadLocal<Decimal>() {
+        @Override
+        protected Decimal initialValue() {
+            return new Decimal();
+        }
+    };
+
+    /*
+     * Scan [sign] digits [. digits] [(e|E) [sign] digits] with a significand of at most 18 digits.
+     * Returns false for anything else, which is then left to the Java parser.
+     */
+    private static boolean scanDecimal(CharSequence s, int start, int end, Decimal result) {
+        int i = start;
+        result.negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            result.negative = s.charAt(i) == '-';
+            i++;
+        }
+        long significand = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (point)
+                    fractionDigits++;
+                if (significand != 0 || c != '0') {
+                    if (++significantDigits > 18)
+                        return false;
+                    significand = significand * 10 + (c - '0');
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0)
+            return false;
+        int exponent = 0;
+        if (i < end) {
+            final char c = s.charAt(i++);
+            if (c != 'e' && c != 'E')
+                return false;
+            boolean negativeExponent = false;
+            if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            if (i == end)
+                return false;
+            for (; i < end; i++) {
+                final char d = s.charAt(i);
+                if (d < '0' || d > '9')
+                    return false;
+                if (exponent < 10000)
+                    exponent = exponent * 10 + (d - '0');
+            }
+            if (negativeExponent)
+                exponent = -exponent;
+        }
+        result.significand = significand;
+        result.exponent = exponent - fractionDigits;
+        return true;
+    }
+
+    /**
+     * Parse a double as by Double.parseDouble.
+     * Decimals with at most 15 significant digits and a small exponent are converted
+     * without creating any object.
+     * @param s the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the value.
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    public static double parseDouble(CharSequence s, int start, int end) {
+        int first = start;
+        int last = end;
+        // as String.trim
+        while (first < last && s.charAt(first) <= ' ')
+            first++;
+        while (first < last && s.charAt(last - 1) <= ' ')
+            last--;
+        final Decimal d = decimal.get();
+        if (scanDecimal(s, first, last, d)) {
+            // exact, see W.D. Clinger, How to read floating point numbers accurately
+            if (d.significand == 0)
+                return d.negative ? -0.0 : 0.0;
+            if (d.significand < (1L << 53) && d.exponent >= -22 && d.exponent <= 22) {
+                double value = d.significand;
+                if (d.exponent >= 0)
+                    value *= DOUBLE_POWERS_OF_TEN[d.exponent];
+                else
+                    value /= DOUBLE_POWERS_OF_TEN[-d.exponent];
+                return d.negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(toString(s, start, end));
+    }
+
+    /**
+     * Parse a float as by Float.parseFloat.
+     * Decimals with at most 7 significant digits and a small exponent are converted
+     * without creating any object.
+     * @param s the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the value.
+     * @throws NumberFormatException if the characters are not a number.
+     */
+    public static float parseFloat(CharSequence s, int start, int end) {
+        int first = start;
+        int last = end;
+        // as String.trim
+        while (first < last && s.charAt(first) <= ' ')
+            first++;
+        while (first < last && s.charAt(last - 1) <= ' ')
+            last--;
+        final Decimal d = decimal.get();
+        if (scanDecimal(s, first, last, d)) {
+            if (d.significand == 0)
+                return d.negative ? -0.0f : 0.0f;
+            if (d.significand < (1L << 24) && d.exponent >= -10 && d.exponent <= 10) {
+                float value = d.significand;
+                if (d.exponent >= 0)
+                    value *= FLOAT_POWERS_OF_TEN[d.exponent];
+                else
+                    value /= FLOAT_POWERS_OF_TEN[-d.exponent];
+                return d.negative ? -value : value;
+            }
+        }
+        return Float.parseFloat(toString(s, start, end));
+    }
+
+    private static String toString(CharSequence s, int start, int end) {
+        if (start == 0 && end == s.length() && s instanceof String)
+            return (String) s;
+        return s.subSequence(start, end).toString();
+    }
+
+    /*
+     * Shortest decimal formatting, a port of the Schubfach algorithm of Raffaello Giulietti,
+     * "The Schubfach way to render doubles", 2021.
+     */
+
+    private static final int D_P = 53;
+    private static final int D_Q_MIN = -1074;
+    private static final long D_C_MIN = 1L << (D_P - 1);
+    private static final int D_BQ_MASK = 0x7ff;
+    private static final long D_T_MASK = (1L << (D_P - 1)) - 1;
+    private static final long D_C_TINY = 3;
+
+    private static final int F_P = 24;
+    private static final int F_Q_MIN = -149;
+    private static final int F_C_MIN = 1 << (F_P - 1);
+    private static final int F_BQ_MASK = 0xff;
+    private static final int F_T_MASK = (1 << (F_P - 1)) - 1;
+    private static final int F_C_TINY = 8;
+
+    // number of digits of the decimal significand passed to toChars
+    private static final int H = 17;
+
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final long MASK_32 = (1L << 32) - 1;
+
+    // floor(q log10(2))
+    private static int flog10pow2(int q) {
+        return (int) (q * 661971961083L >> 41);
+    }
+
+    // floor(log10(3/4 2^q))
+    private static int flog10threeQuartersPow2(int q) {
+        return (int) (q * 661971961083L - 274743187321L >> 41);
+    }
+
+    // floor(e log2(10))
+    private static int flog2pow10(int e) {
+        return (int) (e * 913124641741L >> 38);
+    }
+
+    // the high 64 bits of the 128 bit product of x and y
+    private static long multiplyHigh(long x, long y) {
+        final long x1 = x >> 32;
+        final long x2 = x & 0xFFFFFFFFL;
+        final long y1 = y >> 32;
+        final long y2 = y & 0xFFFFFFFFL;
+        final long z2 = x2 * y2;
+        final long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        final long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    /*
+     * For k in [K_MIN, K_MAX], let 10^-k = beta 2^r with 2^125 <= beta < 2^126
+     * and g = floor(beta) + 1 = g1 2^63 + g0.
+     * Created on first use of the floating point formatter.
+     */
+    private static final class Powers {
+        static final int K_MIN = -324;
+        static final int K_MAX = 292;
+        static final long[] g = new long[2 * (K_MAX - K_MIN + 1)];
+
+        static {
+            for (int k = K_MIN; k <= K_MAX; k++) {
+                final int e = -k;
+                final int r = flog2pow10(e) - 125;
+                BigInteger numerator = e >= 0 ? BigInteger.TEN.pow(e) : BigInteger.ONE;
+                BigInteger denominator = e < 0 ? BigInteger.TEN.pow(-e) : BigInteger.ONE;
+                if (r < 0)
+                    numerator = numerator.shiftLeft(-r);
+                else
+                    denominator = denominator.shiftLeft(r);
+                final BigInteger value = numerator.divide(denominator).add(BigInteger.ONE);
+                g[2 * (k - K_MIN)] = value.shiftRight(63).longValue();
+                g[2 * (k - K_MIN) + 1] = value.longValue() & MASK_63;
+            }
+        }
+    }
+
+    private static long g1(int k) {
+        return Powers.g[2 * (k - Powers.K_MIN)];
+    }
+
+    private static long g0(int k) {
+        return Powers.g[2 * (k - Powers.K_MIN) + 1];
+    }
+
+    private static long rop(long g1, long g0, long cp) {
+        final long x1 = multiplyHigh(g0, cp);
+        final long y0 = g1 * cp;
+        final long y1 = multiplyHigh(g1, cp);
+        final long z = (y0 >>> 1) + x1;
+        final long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    private static int rop(long g, long cp) {
+        final long x1 = multiplyHigh(g, cp);
+        final long vbp = x1 >>> 31;
+        return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    // value is c 2^q, the result is formatted as f 10^(k + dk)
+    private static int toDecimal(int q, long c, int dk, char[] buffer, int offset) {
+        final int out = (int) c & 0x1;
+        final long cb = c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int k;
+        if (c != D_C_MIN || q == D_Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        final int h = q + flog2pow10(-k) + 2;
+        final long g1 = g1(k);
+        final long g0 = g0(k);
+        final long vb = rop(g1, g0, cb << h);
+        final long vbl = rop(g1, g0, cbl << h);
+        final long vbr = rop(g1, g0, cbr << h);
+
+        final long s = vb >> 2;
+        if (s >= 100) {
+            // one digit less
+            final long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+            final long tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+                return toChars(upin ? sp10 : tp10, k, buffer, offset);
+        }
+        final long t = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (t << 2) + out <= vbr;
+        if (uin != win)
+            return toChars(uin ? s : t, k + dk, buffer, offset);
+        // both are in the rounding interval, take the closest
+        final long cmp = vb - (s + t << 1);
+        return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, offset);
+    }
+
+    private static int toDecimal(int q, int c, int dk, char[] buffer, int offset) {
+        final int out = c & 0x1;
+        final long cb = (long) c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int k;
+        if (c != F_C_MIN || q == F_Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        final int h = q + flog2pow10(-k) + 33;
+        final long g = g1(k) + 1;
+        final int vb = rop(g, cb << h);
+        final int vbl = rop(g, cbl << h);
+        final int vbr = rop(g, cbr << h);
+
+        final int s = vb >> 2;
+        if (s >= 100) {
+            // one digit less
+            final int sp10 = 10 * (int) (s * 1717986919L >>> 34);
+            final int tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin)
+                return toChars(upin ? sp10 : tp10, k, buffer, offset);
+        }
+        final int t = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (t << 2) + out <= vbr;
+        if (uin != win)
+            return toChars(uin ? s : t, k + dk, buffer, offset);
+        // both are in the rounding interval, take the closest
+        final int cmp = vb - (s + t << 1);
+        return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, offset);
+    }
+
+    // format f 10^e, f > 0, as Double.toString
+    private static int toChars(long f, int e, char[] buffer, int offset) {
+        // the digits of f, without trailing zeros
+        if (f % 10000000000000000L == 0) {
+            f /= 10000000000000000L;
+            e += 16;
+        }
+        if (f % 100000000L == 0) {
+            f /= 100000000L;
+            e += 8;
+        }
+        if (f % 10000 == 0) {
+            f /= 10000;
+            e += 4;
+        }
+        if (f % 100 == 0) {
+            f /= 100;
+            e += 2;
+        }
+        if (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        final int length = length(f);
+        if (length > H)
+            throw new IllegalStateException("Logic error. Too many digits");
+        // the value is 0.d1d2...dn 10^e
+        e += length;
+        if (0 < e && e <= 7) {
+            // plain, with at least one digit after the point
+            if (length <= e) {
+                writeDigits(f, buffer, offset + length);
+                offset += length;
+                for (int i = length; i < e; i++)
+                    buffer[offset++] = '0';
+                buffer[offset++] = '.';
+                buffer[offset++] = '0';
+                return offset;
+            }
+            // the integer digits, the point and the fraction digits
+            final long p = POWERS_OF_TEN[length - e];
+            final long integer = f / p;
+            writeDigits(integer, buffer, offset + e);
+            buffer[offset + e] = '.';
+            final int end = offset + length + 1;
+            // the fraction digits, with leading zeros
+            long fraction = f - integer * p;
+            for (int i = end - 1; i > offset + e; i--) {
+                final long q = fraction / 10;
+                buffer[i] = (char) ('0' + (fraction - q * 10));
+                fraction = q;
+            }
+            return end;
+        }
+        if (-3 < e && e <= 0) {
+            buffer[offset++] = '0';
+            buffer[offset++] = '.';
+            for (int i = e; i < 0; i++)
+                buffer[offset++] = '0';
+            writeDigits(f, buffer, offset + length);
+            return offset + length;
+        }
+        // computerized scientific notation d.ddd...Ee
+        writeDigits(f, buffer, offset + 1 + length);
+        buffer[offset] = buffer[offset + 1];
+        buffer[offset + 1] = '.';
+        offset += 1 + length;
+        if (length == 1)
+            buffer[offset++] = '0';
+        buffer[offset++] = 'E';
+        return format(e - 1, buffer, offset);
+    }
+
+    private static int special(boolean nan, boolean negative, char[] buffer, int offset) {
+        final String s = nan ? "NaN" : negative ? "-Infinity" : "Infinity";
+        s.getChars(0, s.length(), buffer, offset);
+        return offset + s.length();
+    }
+
+    private static int zero(char[] buffer, int offset) {
+        buffer[offset++] = '0';
+        buffer[offset++] = '.';
+        buffer[offset++] = '0';
+        return offset;
+    }
+}
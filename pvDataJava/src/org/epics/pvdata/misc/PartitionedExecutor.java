@@ -0,0 +1,65 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.misc;
+
+/**
+ * An Executor with several threads, that partitions the commands by key.
+ * The commands of a key, for example a record or a channel, are executed one at a time in the order
+ * of the calls to execute. Commands of keys in different partitions are executed in parallel.
+ * A PartitionedExecutor is created via ExecutorFactory.
+ *
+ */
+public interface PartitionedExecutor extends Executor {
+    /**
+     * Create a node that can be passed to execute, with the key that selects its partition.
+     * Nodes with keys that are equal are executed in order.
+     * Executor.createNode(command) uses command as the key.
+     *
+     * @param command the command to be executed
+     * @param key the key of the command
+     * @return the ExecutorNode created
+     */
+    ExecutorNode createNode(Runnable command, Object key);
+    /**
+     * Get the number of threads.
+     *
+     * @return the number of threads
+     */
+    int getNumberThreads();
+    /**
+     * Get the number of commands that are waiting to be executed.
+     *
+     * @return the queue depth
+     */
+    int getQueueDepth();
+    /**
+     * Get the largest queue depth since the executor was created or the statistics were reset.
+     *
+     * @return the maximum queue depth
+     */
+    int getMaximumQueueDepth();
+    /**
+     * Get the number of commands executed since the executor was created or the statistics were reset.
+     *
+     * @return the number of commands
+     */
+    long getExecutedCount();
+    /**
+     * Get the average time between the call to execute and the start of the command.
+     *
+     * @return the average latency in seconds
+     */
+    double getAverageLatency();
+    /**
+     * Get the maximum time between the call to execute and the start of the command.
+     *
+     * @return the maximum latency in seconds
+     */
+    double getMaximumLatency();
+    /**
+     * Reset the executed count, the maximum queue depth and the latencies.
+     */
+    void resetStatistics();
+}
@@ -4,7 +4,13 @@
  */
 package org.epics.pvdata.misc;
 
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 
 import org.epics.pvdata.pv.DeserializableControl;
 import org.epics.pvdata.pv.SerializableControl;
@@ -89,6 +95,7 @@ public final class SerializeHelper {
 
     /**
      * Serialize the specified string into the specified buffer, flushing when necessary.
+     * The string is UTF-8 encoded, the size written is the number of bytes.
      * The specified SerializableControl manages any flushing required.
      *
      * @param value   the string to be serialized
@@ -98,36 +105,23 @@ public final class SerializeHelper {
     public final static void serializeString(final String value, ByteBuffer buffer, SerializableControl flusher) {
         if (value == null)
             writeSize(-1, buffer, flusher);
-        else {
-            final int len = value.length(); 
-            writeSize(len, buffer, flusher);
-            int i = 0;
-            while (true) {
-                final int maxToWrite = Math.min(len-i, buffer.remaining());
-                buffer.put(value.getBytes(), i, maxToWrite);    // UTF-8
-                i += maxToWrite;
-                if (i < len)
-                    flusher.flushSerializeBuffer();
-                else
-                    break;
-            }
-        }
+        else
+            encode(value, 0, value.length(), buffer, flusher);
     }
 
     /**
      * Serialize the specified string into the specified buffer.
+     * The string is UTF-8 encoded, the size written is the number of bytes.
      *
      * @param value   the string to be serialized
      * @param buffer  the buffer to be serialized into
+     * @throws BufferOverflowException if there is insufficient space in the buffer
      */
     public final static void serializeString(final String value, ByteBuffer buffer) {
         if (value == null)
             writeSize(-1, buffer);
-        else {
-            final int len = value.length(); 
-            writeSize(len, buffer);
-            buffer.put(value.getBytes());    // UTF-8
-        }
+        else
+            encode(value, 0, value.length(), buffer, null);
     }
 
 
@@ -135,6 +129,7 @@ public final class SerializeHelper {
      * Serialize a substring of a specified string into the specified buffer, flushing when necessary.
      * The substring serialized is of the specified length and starts
      * at the specified offset relative to supplied string.
+     * The substring is UTF-8 encoded, the size written is the number of bytes.
      * The specified SerializableControl manages any flushing required.
      *
      * @param value   the string from which a substring is to be serialized
@@ -147,19 +142,8 @@ public final class SerializeHelper {
             int count, ByteBuffer buffer, SerializableControl flusher) {
         if (value == null)
             writeSize(-1, buffer, flusher);
-        else {
-            writeSize(count, buffer, flusher);
-            int i = 0;
-            while (true) {
-                final int maxToWrite = Math.min(count - i, buffer.remaining());
-                buffer.put(value.getBytes(), i + offset, maxToWrite); // UTF-8
-                i += maxToWrite;
-                if (i < count)
-                    flusher.flushSerializeBuffer();
-                else
-                    break;
-            }
-        }
+        else
+            encode(value, offset, count, buffer, flusher);
     }
 
     /**
@@ -173,7 +157,11 @@ public final class SerializeHelper {
     public final static String deserializeString(ByteBuffer buffer, DeserializableControl control) {
         int size = SerializeHelper.readSize(buffer, control);
         if (size >= 0) {
-            byte[] bytes = new byte[size];
+            if (size <= buffer.remaining())
+                return decode(buffer, size);
+
+            final StringCodec codec = codecs.get();
+            final byte[] bytes = codec.bytes(size);
             int i = 0;
             while (true)
             {
@@ -185,7 +173,7 @@ public final class SerializeHelper {
                 else
                     break;
             }
-            return new String(bytes);
+            return codec.decode(bytes, 0, size);
         }
         else
             return null;
@@ -198,12 +186,285 @@ public final class SerializeHelper {
      */
     public final static String deserializeString(ByteBuffer buffer) {
         int size = SerializeHelper.readSize(buffer);
-        if (size >= 0) {
-            byte[] bytes = new byte[size];
-            buffer.get(bytes, 0, size);        // UTF-8
-            return new String(bytes);
-        }
+        if (size >= 0)
+            return decode(buffer, size);
         else
             return null;
     }
+
+    /**
+     * Get the number of bytes of the UTF-8 encoding of a substring.
+     * Unpaired surrogates are counted as one byte (encoded as '?').
+     *
+     * @param value  the string
+     * @param offset the start of the substring
+     * @param count  the length of the substring
+     * @return the number of bytes
+     */
+    public final static int getUTF8Length(final String value, int offset, int count) {
+        final int end = offset + count;
+        int len = count;
+        for (int i = offset; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80)
+                continue;
+            else if (c < 0x800)
+                len += 1;
+            else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE)
+                len += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 4 bytes for a pair
+                len += 2;
+                i++;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Get the number of bytes written by <code>writeSize</code>.
+     * @param s the size, -1 for null
+     * @return the number of bytes
+     */
+    public final static int getSerializedSize(final int s) {
+        return (s < 254) ? 1 : 5;
+    }
+
+    /**
+     * Get the number of bytes written by <code>serializeString</code>.
+     * @param value the string, can be <code>null</code>
+     * @return the number of bytes
+     */
+    public final static int getSerializedSize(final String value) {
+        if (value == null)
+            return 1;
+        final int len = getUTF8Length(value, 0, value.length());
+        return getSerializedSize(len) + len;
+    }
+
+    /**
+     * Number of cached deserialized strings per thread, 0 disables the cache.
+     * Repeated short values (units, enum choices, alarm messages...) are then returned as the same String instance,
+     * which saves memory at the cost of some CPU time for unique values.
+     */
+    public static final String STRING_CACHE_SIZE_PROPERTY = "EPICS_PVDATA_STRING_CACHE_SIZE";
+    private static final int STRING_CACHE_SIZE;
+    static {
+        int size = 0;
+        try {
+            size = Integer.parseInt(System.getProperty(STRING_CACHE_SIZE_PROPERTY, "0"));
+        } catch (NumberFormatException nfe) {
+            // noop, disabled
+        }
+        // power of 2
+        int cacheSize = 0;
+        if (size > 0) {
+            cacheSize = 1;
+            while (cacheSize < size && cacheSize < (1 << 16)) cacheSize <<= 1;
+        }
+        STRING_CACHE_SIZE = cacheSize;
+    }
+    // only short strings are cached
+    private static final int MAX_CACHED_LENGTH = 64;
+    // maximum size of per-thread buffers
+    private static final int MAX_SCRATCH_SIZE = 1 << 16;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Per-thread UTF-8 encoder with reusable buffers and an optional string cache.
+     */
+    private static final class StringCodec {
+        private final CharsetEncoder encoder = UTF8.newEncoder().
+            onMalformedInput(CodingErrorAction.REPLACE).
+            onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private byte[] bytes = new byte[256];
+        private char[] chars = new char[256];
+        private CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+        private final String[] cache = (STRING_CACHE_SIZE > 0) ? new String[STRING_CACHE_SIZE] : null;
+        private final byte[][] cacheBytes = (STRING_CACHE_SIZE > 0) ? new byte[STRING_CACHE_SIZE][] : null;
+
+        byte[] bytes(int size) {
+            if (bytes.length < size) {
+                // do not keep large arrays per thread
+                if (size > MAX_SCRATCH_SIZE)
+                    return new byte[size];
+                bytes = new byte[Math.max(size, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        void encode(String value, int offset, int count, ByteBuffer buffer, SerializableControl flusher) {
+            CharBuffer in;
+            if (count > MAX_SCRATCH_SIZE)
+                in = CharBuffer.wrap(value, offset, offset + count);
+            else {
+                if (chars.length < count) {
+                    chars = new char[Math.max(count, chars.length * 2)];
+                    charBuffer = CharBuffer.wrap(chars);
+                }
+                value.getChars(offset, offset + count, chars, 0);
+                in = charBuffer;
+                in.clear();
+                in.limit(count);
+            }
+
+            encoder.reset();
+            while (encoder.encode(in, buffer, true).isOverflow())
+                flush(buffer, flusher);
+            while (encoder.flush(buffer).isOverflow())
+                flush(buffer, flusher);
+        }
+
+        String decode(byte[] b, int offset, int length) {
+            if (cache == null || length > MAX_CACHED_LENGTH)
+                return decodeNew(b, offset, length);
+
+            int h = 0;
+            for (int i = 0; i < length; i++)
+                h = 31 * h + b[offset + i];
+            final int slot = (h ^ (h >>> 16)) & (cache.length - 1);
+
+            final byte[] cached = cacheBytes[slot];
+            if (cached != null && cached.length == length) {
+                int i = 0;
+                while (i < length && cached[i] == b[offset + i]) i++;
+                if (i == length)
+                    return cache[slot];
+            }
+
+            final String value = decodeNew(b, offset, length);
+            final byte[] key = new byte[length];
+            System.arraycopy(b, offset, key, 0, length);
+            cacheBytes[slot] = key;
+            cache[slot] = value;
+            return value;
+        }
+
+        private String decodeNew(byte[] b, int offset, int length) {
+            return newString(b, offset, length);
+        }
+    }
+
+    private static String newString(byte[] b, int offset, int length) {
+        try {
+            return new String(b, offset, length, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // every Java platform supports UTF-8
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final ThreadLocal<StringCodec> codecs = new ThreadLocal<StringCodec>() {
+        @Override
+        protected StringCodec initialValue() {
+            return new StringCodec();
+        }
+    };
+
+    private static void flush(ByteBuffer buffer, SerializableControl flusher) {
+        if (flusher == null)
+            throw new BufferOverflowException();
+        flusher.flushSerializeBuffer();
+    }
+
+    /**
+     * Encode a substring as size and UTF-8 bytes.
+     * @param flusher the flusher or <code>null</code> if no flushing is possible.
+     */
+    private static void encode(final String value, int offset, int count, ByteBuffer buffer, SerializableControl flusher) {
+        final int end = offset + count;
+        int i = offset;
+        while (i < end && value.charAt(i) < 0x80) i++;
+        final boolean ascii = (i == end);
+
+        final int len = ascii ? count : getUTF8Length(value, offset, count);
+        if (flusher != null)
+            writeSize(len, buffer, flusher);
+        else
+            writeSize(len, buffer);
+
+        if (!ascii) {
+            if (buffer.hasArray() && len <= buffer.remaining()) {
+                // fits, encode directly into the buffer array
+                final int pos = buffer.position();
+                putUTF8(value, offset, end, buffer.array(), buffer.arrayOffset() + pos);
+                buffer.position(pos + len);
+            }
+            else
+                codecs.get().encode(value, offset, count, buffer, flusher);
+            return;
+        }
+
+        // ASCII fast path, putUTF8 stores each char as one byte
+        i = offset;
+        while (true) {
+            final int n = Math.min(end - i, buffer.remaining());
+            if (buffer.hasArray()) {
+                putUTF8(value, i, i + n, buffer.array(), buffer.arrayOffset() + buffer.position());
+                buffer.position(buffer.position() + n);
+            } else {
+                final byte[] bytes = codecs.get().bytes(n);
+                putUTF8(value, i, i + n, bytes, 0);
+                buffer.put(bytes, 0, n);
+            }
+            i += n;
+            if (i < end)
+                flush(buffer, flusher);
+            else
+                break;
+        }
+    }
+
+    /**
+     * UTF-8 encode a substring into an array that has enough space, the same way CharsetEncoder does.
+     */
+    private static void putUTF8(final String value, int offset, int end, byte[] dst, int pos) {
+        for (int i = offset; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80)
+                dst[pos++] = (byte)c;
+            else if (c < 0x800) {
+                dst[pos++] = (byte)(0xC0 | (c >> 6));
+                dst[pos++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                dst[pos++] = (byte)(0xE0 | (c >> 12));
+                dst[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                dst[pos++] = (byte)(0xF0 | (cp >> 18));
+                dst[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                dst[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                dst[pos++] = (byte)(0x80 | (cp & 0x3F));
+            }
+            else
+                // unpaired surrogate
+                dst[pos++] = (byte)'?';
+        }
+    }
+
+    /**
+     * Decode a string of size bytes, all available in the buffer.
+     */
+    private static String decode(ByteBuffer buffer, int size) {
+        if (buffer.hasArray() && size <= buffer.remaining()) {
+            // decode directly from the buffer array
+            final int pos = buffer.position();
+            final int offset = buffer.arrayOffset() + pos;
+            final String value = (STRING_CACHE_SIZE > 0) ?
+                    codecs.get().decode(buffer.array(), offset, size) :
+                    newString(buffer.array(), offset, size);
+            buffer.position(pos + size);
+            return value;
+        }
+        final StringCodec codec = codecs.get();
+        final byte[] bytes = codec.bytes(size);
+        buffer.get(bytes, 0, size);
+        return codec.decode(bytes, 0, size);
+    }
 }
@@ -4,7 +4,9 @@
  */
 package org.epics.pvdata.misc;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 
 import org.epics.pvdata.misc.Timer.TimerCallback;
@@ -29,6 +31,49 @@ public class TimerFactory {
         return new TimerInstance(threadName,priority);
     }
 
+    /**
+     * Create and return a Timer that keeps the requests in a hashed timing wheel.
+     * Schedule and cancel take constant time, and the delays are measured with System.nanoTime,
+     * so they are not changed when the system clock is set.
+     * A callback is called at the first tick at or after its delay, so the resolution is tickDuration.
+     * The requests that expire at the same tick are removed together and then called
+     * by the timer thread, or by the executor if it is not null.
+     * With an executor a slow callback does not delay the other requests,
+     * and a request whose callback is still waiting in the executor is not queued again.
+     * The executor is not stopped when the timer is stopped.
+     *
+     * @param threadName the thread name for the timer thread
+     * @param priority the priority for the timer thread
+     * @param tickDuration the time in seconds between ticks of the wheel
+     * @param ticksPerWheel the number of ticks in the wheel, rounded up to a power of two
+     * @param executor the executor that calls the callbacks, or null to call them from the timer thread
+     * @return the new timer
+     */
+    static public Timer createHashedWheel(String threadName, ThreadPriority priority,
+            double tickDuration, int ticksPerWheel, Executor executor)
+    {
+        long tickNanos = (long)(tickDuration*1e9);
+        if(tickNanos<=0) {
+            throw new IllegalArgumentException("tickDuration must be > 0");
+        }
+        if(ticksPerWheel<=0 || ticksPerWheel>(1<<30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be > 0 and <= 2^30");
+        }
+        return new WheelTimerInstance(threadName,priority,tickNanos,ticksPerWheel,executor);
+    }
+
+    /**
+     * Create and return a hashed timing wheel Timer with a tick of 10 milliseconds and 512 ticks per wheel,
+     * that calls the callbacks from the timer thread.
+     *
+     * @param threadName the thread name for the timer thread
+     * @param priority the priority for the timer thread
+     * @return the new timer
+     */
+    static public Timer createHashedWheel(String threadName, ThreadPriority priority) {
+        return createHashedWheel(threadName,priority,.01,512,null);
+    }
+
     /**
      * Create a TimerNode that can be passed to the schedule methods.
      *
@@ -41,7 +86,14 @@ public class TimerFactory {
 
     static private final ThreadCreate threadCreate = ThreadCreateFactory.getThreadCreate();
 
-    static private class TimerInstance implements Timer, Comparator<TimerNodeImpl> {
+    /**
+     * The timer a TimerNode is queued in.
+     */
+    private interface TimerOwner {
+        void cancel(TimerNodeImpl timerNode);
+    }
+
+    static private class TimerInstance implements Timer, TimerOwner, Comparator<TimerNodeImpl> {
         private PriorityQueue<TimerNodeImpl> queue = new PriorityQueue<TimerNodeImpl>(16,this);
         private ThreadInstance thread;
         private volatile boolean isStopped = false;
@@ -94,6 +146,15 @@ public class TimerFactory {
             }
             if(isFirst) thread.wakeUp();
         }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.TimerFactory.TimerOwner#cancel(org.epics.pvdata.misc.TimerFactory.TimerNodeImpl)
+         */
+        public void cancel(TimerNodeImpl timerNode) {
+            synchronized(queue) {
+                queue.remove(timerNode);
+                timerNode.isQueued = false;
+            }
+        }
         /* (non-Javadoc)
          * @see org.epics.pvdata.misc.Executor#stop()
          */
@@ -189,29 +250,252 @@ public class TimerFactory {
         }
     }
 
-    private static class TimerNodeImpl implements Timer.TimerNode {
-        private TimerInstance timerInstance = null;
+    static private class WheelTimerInstance implements Timer, TimerOwner {
+        // wheel[i] is the head of a doubly linked list of the nodes with (deadlineTick & mask) == i
+        private final TimerNodeImpl[] wheel;
+        private final int mask;
+        private final long tickNanos;
+        private final long startTime = System.nanoTime();
+        private final Executor executor;
+        // all the ticks up to processedTick have expired, guarded by wheel
+        private long processedTick = 0;
+        private int size = 0;
+        private boolean alive = true;
+        private volatile boolean isStopped = false;
+
+        private WheelTimerInstance(String threadName, ThreadPriority priority,
+                long tickNanos, int ticksPerWheel, Executor executor)
+        {
+            int length = 1;
+            while(length<ticksPerWheel) length <<= 1;
+            wheel = new TimerNodeImpl[length];
+            mask = length - 1;
+            this.tickNanos = tickNanos;
+            this.executor = executor;
+            threadCreate.create(threadName, priority.getJavaPriority(), new RunnableReady() {
+                public void run(ThreadReady threadReady) {
+                    threadReady.ready();
+                    WheelTimerInstance.this.run();
+                }
+            });
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Timer#scheduleAfterDelay(org.epics.pvdata.misc.Timer.TimerNode, double)
+         */
+        public void scheduleAfterDelay(TimerNode timerNode, double delay) {
+            schedulePeriodic(timerNode,delay,-.1);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Timer#schedulePeriodic(org.epics.pvdata.misc.Timer.TimerNode, double, double)
+         */
+        public void schedulePeriodic(TimerNode timerNode, double delayDouble, double periodDouble) {
+            long delay = (long)(delayDouble*1e9);
+            long period = (long)(periodDouble*1e9);
+            TimerNodeImpl timerNodeImpl = (TimerNodeImpl)timerNode;
+            if(timerNodeImpl.isQueued) {
+                throw new IllegalStateException("already scheduled");
+            }
+            if(isStopped) {
+                timerNodeImpl.timerCallback.timerStopped();
+                return;
+            }
+            timerNodeImpl.isCanceled = false;
+            if(delay<0) delay = 0;
+            if(period<0) period = 0;
+            timerNodeImpl.period = period;
+            synchronized(wheel) {
+                if(timerNodeImpl.isCanceled || !alive) return;
+                timerNodeImpl.isQueued = true;
+                timerNodeImpl.timerInstance = this;
+                add(timerNodeImpl,System.nanoTime() + delay);
+                // the timer thread waits without a timeout while the wheel is empty
+                if(size==1) wheel.notify();
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.TimerFactory.TimerOwner#cancel(org.epics.pvdata.misc.TimerFactory.TimerNodeImpl)
+         */
+        public void cancel(TimerNodeImpl timerNode) {
+            synchronized(wheel) {
+                if(timerNode.isQueued && timerNode.timerInstance==this) {
+                    remove(timerNode);
+                    timerNode.isQueued = false;
+                    timerNode.timerInstance = null;
+                }
+            }
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.misc.Timer#stop()
+         */
+        public void stop() {
+            isStopped = true;
+            List<TimerNodeImpl> stopped = new ArrayList<TimerNodeImpl>();
+            synchronized(wheel) {
+                alive = false;
+                wheel.notify();
+                for(int i=0; i<wheel.length; i++) {
+                    TimerNodeImpl timerNode = wheel[i];
+                    while(timerNode!=null) {
+                        TimerNodeImpl next = timerNode.next;
+                        timerNode.next = timerNode.prev = null;
+                        timerNode.isQueued = false;
+                        timerNode.timerInstance = null;
+                        stopped.add(timerNode);
+                        timerNode = next;
+                    }
+                    wheel[i] = null;
+                }
+                size = 0;
+            }
+            for(TimerNodeImpl timerNode : stopped) {
+                timerNode.timerCallback.timerStopped();
+            }
+        }
+
+        // called with wheel locked
+        private void add(TimerNodeImpl timerNode, long timeToRun) {
+            timerNode.timeToRun = timeToRun;
+            // the first tick at or after timeToRun, that has not expired yet
+            long tick = (timeToRun - startTime + tickNanos - 1)/tickNanos;
+            if(tick<=processedTick) tick = processedTick + 1;
+            timerNode.deadlineTick = tick;
+            int index = (int)tick & mask;
+            TimerNodeImpl head = wheel[index];
+            timerNode.prev = null;
+            timerNode.next = head;
+            if(head!=null) head.prev = timerNode;
+            wheel[index] = timerNode;
+            size++;
+        }
+
+        // called with wheel locked
+        private void remove(TimerNodeImpl timerNode) {
+            if(timerNode.prev!=null) {
+                timerNode.prev.next = timerNode.next;
+            } else {
+                wheel[(int)timerNode.deadlineTick & mask] = timerNode.next;
+            }
+            if(timerNode.next!=null) timerNode.next.prev = timerNode.prev;
+            timerNode.next = timerNode.prev = null;
+            size--;
+        }
+
+        /**
+         * Remove the nodes of all the ticks up to currentTick and queue the periodic ones again.
+         * Called with wheel locked.
+         * @return the expired nodes linked by batchNext.
+         */
+        private TimerNodeImpl expire(long currentTick, long currentTime) {
+            TimerNodeImpl first = null;
+            TimerNodeImpl last = null;
+            // a node in a visited bucket can be late, so it is compared with currentTick,
+            // and a lap of the wheel visits all the buckets
+            long endTick = Math.min(currentTick, processedTick + wheel.length);
+            for(long tick=processedTick+1; tick<=endTick; tick++) {
+                TimerNodeImpl timerNode = wheel[(int)tick & mask];
+                while(timerNode!=null) {
+                    TimerNodeImpl next = timerNode.next;
+                    if(timerNode.deadlineTick<=currentTick) {
+                        remove(timerNode);
+                        timerNode.batchNext = null;
+                        if(last==null) first = timerNode; else last.batchNext = timerNode;
+                        last = timerNode;
+                    }
+                    timerNode = next;
+                }
+            }
+            processedTick = currentTick;
+            for(TimerNodeImpl timerNode=first; timerNode!=null; timerNode=timerNode.batchNext) {
+                if(timerNode.period>0) {
+                    add(timerNode,currentTime + timerNode.period);
+                } else {
+                    timerNode.isQueued = false;
+                    timerNode.timerInstance = null;
+                }
+            }
+            return first;
+        }
+
+        private void run() {
+            TimerNodeImpl batch = null;
+            while(true) {
+                while(batch!=null) {
+                    TimerNodeImpl timerNode = batch;
+                    batch = timerNode.batchNext;
+                    timerNode.batchNext = null;
+                    if(executor==null) {
+                        timerNode.timerCallback.callback();
+                    } else {
+                        executor.execute(timerNode.getExecutorNode(executor));
+                    }
+                }
+                synchronized(wheel) {
+                    try {
+                        while(alive) {
+                            long currentTime = System.nanoTime();
+                            long currentTick = (currentTime - startTime)/tickNanos;
+                            if(size==0) {
+                                // nothing can expire before the next schedule
+                                if(currentTick>processedTick) processedTick = currentTick;
+                                wheel.wait();
+                            } else if(currentTick>processedTick) {
+                                batch = expire(currentTick,currentTime);
+                                if(batch!=null) break;
+                            } else {
+                                long delay = startTime + (processedTick + 1)*tickNanos - currentTime;
+                                wheel.wait(delay/1000000,(int)(delay%1000000));
+                            }
+                        }
+                    } catch(InterruptedException e) {}
+                    if(!alive) return;
+                }
+            }
+        }
+    }
+
+    private static class TimerNodeImpl implements Timer.TimerNode, Runnable {
+        private TimerOwner timerInstance = null;
         private TimerCallback timerCallback;
+        // milliseconds for TimerInstance, nanoseconds for WheelTimerInstance
         private long timeToRun = 0;
         private long period = 0;
         private volatile boolean isQueued = false;
         private volatile boolean isCanceled = false;
+        // used by WheelTimerInstance
+        private long deadlineTick;
+        private TimerNodeImpl next;
+        private TimerNodeImpl prev;
+        private TimerNodeImpl batchNext;
+        private Executor executor;
+        private ExecutorNode executorNode;
 
         private TimerNodeImpl(TimerCallback timerCallback) {
             this.timerCallback = timerCallback;
         }
 
+        private ExecutorNode getExecutorNode(Executor executor) {
+            if(this.executor!=executor) {
+                executorNode = executor.createNode(this);
+                this.executor = executor;
+            }
+            return executorNode;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            timerCallback.callback();
+        }
+
         /* (non-Javadoc)
          * @see org.epics.pvdata.misc.Timer.TimerNode#cancel()
          */
         public void cancel() {
             isCanceled = true;
-            TimerInstance timerInstance = this.timerInstance;
+            TimerOwner timerInstance = this.timerInstance;
             if(timerInstance!=null) {
-                synchronized(timerInstance.queue) {
-                    timerInstance.queue.remove(this);
-                    isQueued = false;
-                }
+                timerInstance.cancel(this);
             }
         }
 
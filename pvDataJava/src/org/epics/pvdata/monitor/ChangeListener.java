@@ -0,0 +1,20 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.monitor;
+
+/**
+ * Listener for changes of the fields of a PVStructure tracked by a ChangeTracker.
+ *
+ */
+public interface ChangeListener {
+    /**
+     * Fields of the subscription have changed.
+     * Called by the thread that did the put, once per put outside a group, and once at the end of a group.
+     * The listener gets the changes by calling ChangeSubscription.getChanges, now or later.
+     *
+     * @param subscription the subscription
+     */
+    void dataChanged(ChangeSubscription subscription);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.monitor;
+
+import org.epics.pvdata.misc.BitSet;
+
+/**
+ * A subscription to changes of the fields of a PVStructure.
+ * The offsets of the changed fields accumulate until they are taken by getChanges.
+ *
+ */
+public interface ChangeSubscription {
+    /**
+     * Get the tracker of this subscription.
+     *
+     * @return the tracker
+     */
+    ChangeTracker getChangeTracker();
+
+    /**
+     * Get the listener of this subscription.
+     *
+     * @return the listener
+     */
+    ChangeListener getListener();
+
+    /**
+     * Take the accumulated changes.
+     * A set bit of a structure field means that all its subfields have changed.
+     *
+     * @param bitSet set to the offsets of the fields changed since the last call
+     * @return <code>true</code> if any field has changed
+     */
+    boolean getChanges(BitSet bitSet);
+
+    /**
+     * Stop tracking changes for this subscription.
+     */
+    void unsubscribe();
+}
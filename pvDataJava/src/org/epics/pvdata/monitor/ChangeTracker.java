@@ -0,0 +1,59 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.monitor;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Tracks changes of the fields of a top-level PVStructure, the record, for any number of subscribers.
+ * When a field is put, postPut accumulates the field offset into the BitSet of each subscription interested in it
+ * and notifies the listener. Puts within a group notify once, at the end of the group.
+ * The post path does not allocate.
+ * <p>
+ * Puts and groups must be done by one thread at a time, e.g. while holding the record lock.
+ * Subscriptions can be taken, used and removed by any thread.
+ *
+ */
+public interface ChangeTracker {
+    /**
+     * Get the tracked PVStructure.
+     *
+     * @return the PVStructure
+     */
+    PVStructure getPVStructure();
+
+    /**
+     * Subscribe to changes of all fields.
+     *
+     * @param listener the listener
+     * @return the subscription
+     */
+    ChangeSubscription subscribe(ChangeListener listener);
+
+    /**
+     * Subscribe to changes of a subset of the fields.
+     * A change of a field in the subset, of one of its subfields, or of a structure that contains it
+     * is accumulated, other changes are ignored.
+     *
+     * @param listener the listener
+     * @param fields the offsets of the fields of interest
+     * @return the subscription
+     */
+    ChangeSubscription subscribe(ChangeListener listener, BitSet fields);
+
+    /**
+     * Begin a group of puts, that notify the listeners only once, when the group ends.
+     * Groups can be nested, listeners are notified at the end of the outermost group.
+     */
+    void beginGroupPut();
+
+    /**
+     * End a group of puts and notify the listeners of subscriptions with changes.
+     *
+     * @throws IllegalStateException if no group was begun
+     */
+    void endGroupPut();
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.monitor;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PostHandler;
+
+/**
+ * Factory that creates a ChangeTracker.
+ *
+ */
+public class ChangeTrackerFactory {
+
+    /**
+     * Create a ChangeTracker for a top-level PVStructure.
+     * The tracker registers the PostHandler of every field of the PVStructure, the fields of unions
+     * and of elements of structure or union arrays are reported by their array or union field.
+     * Other postHandlers cannot be registered afterwards.
+     *
+     * @param pvStructure the PVStructure, no field can already have a PostHandler.
+     * @return the ChangeTracker interface.
+     * @throws IllegalArgumentException if pvStructure is not a top-level PVStructure.
+     * @throws IllegalStateException if a field already has a PostHandler.
+     */
+    public static ChangeTracker create(PVStructure pvStructure) {
+        if (pvStructure.getParent() != null)
+            throw new IllegalArgumentException("not a top-level PVStructure");
+        return new ChangeTrackerImpl(pvStructure);
+    }
+
+    private static final class ChangeTrackerImpl implements ChangeTracker {
+        private static final SubscriptionImpl[] NO_SUBSCRIPTIONS = new SubscriptionImpl[0];
+
+        private final PVStructure pvStructure;
+        private final int numberFields;
+        // offset of the field after each field and its subfields
+        private final int[] nextOffsets;
+
+        // copy-on-write, iterated by the post path without locking
+        private volatile SubscriptionImpl[] subscriptions = NO_SUBSCRIPTIONS;
+
+        // accessed by the putting thread only
+        private int groupDepth = 0;
+
+        ChangeTrackerImpl(PVStructure pvStructure) {
+            this.pvStructure = pvStructure;
+            numberFields = pvStructure.getNumberFields();
+            nextOffsets = new int[numberFields];
+            register(pvStructure);
+        }
+
+        private void register(PVField pvField) {
+            final int offset = pvField.getFieldOffset();
+            nextOffsets[offset] = pvField.getNextFieldOffset();
+            pvField.setPostHandler(new FieldPostHandler(offset));
+            if (pvField instanceof PVStructure)
+                for (PVField pvSubField : ((PVStructure)pvField).getPVFields())
+                    register(pvSubField);
+        }
+
+        private final class FieldPostHandler implements PostHandler {
+            private final int offset;
+
+            FieldPostHandler(int offset) {
+                this.offset = offset;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.pv.PostHandler#postPut()
+             */
+            public void postPut() {
+                post(offset);
+            }
+        }
+
+        private void post(int offset) {
+            final SubscriptionImpl[] subs = subscriptions;
+            for (int i = 0; i < subs.length; i++)
+                subs[i].post(offset);
+            if (groupDepth == 0)
+                notifyListeners(subs);
+        }
+
+        private static void notifyListeners(SubscriptionImpl[] subs) {
+            for (int i = 0; i < subs.length; i++)
+                if (subs[i].takeNotify())
+                    subs[i].listener.dataChanged(subs[i]);
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeTracker#getPVStructure()
+         */
+        public PVStructure getPVStructure() {
+            return pvStructure;
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeTracker#subscribe(org.epics.pvdata.monitor.ChangeListener)
+         */
+        public ChangeSubscription subscribe(ChangeListener listener) {
+            return add(new SubscriptionImpl(listener, null));
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeTracker#subscribe(org.epics.pvdata.monitor.ChangeListener, org.epics.pvdata.misc.BitSet)
+         */
+        public ChangeSubscription subscribe(ChangeListener listener, BitSet fields) {
+            // a field is of interest if it is in the subset, or contains or is contained by a field in it
+            final boolean[] relevant = new boolean[numberFields];
+            for (int i = fields.nextSetBit(0); i >= 0 && i < numberFields; i = fields.nextSetBit(i + 1)) {
+                for (int offset = i; offset < nextOffsets[i]; offset++)
+                    relevant[offset] = true;
+                for (int offset = 0; offset < i; offset++)
+                    if (nextOffsets[offset] > i)
+                        relevant[offset] = true;
+            }
+            return add(new SubscriptionImpl(listener, relevant));
+        }
+
+        private synchronized SubscriptionImpl add(SubscriptionImpl subscription) {
+            final SubscriptionImpl[] subs = subscriptions;
+            SubscriptionImpl[] newSubs = new SubscriptionImpl[subs.length + 1];
+            System.arraycopy(subs, 0, newSubs, 0, subs.length);
+            newSubs[subs.length] = subscription;
+            subscriptions = newSubs;
+            return subscription;
+        }
+
+        private synchronized void remove(SubscriptionImpl subscription) {
+            final SubscriptionImpl[] subs = subscriptions;
+            for (int i = 0; i < subs.length; i++) {
+                if (subs[i] == subscription) {
+                    SubscriptionImpl[] newSubs = new SubscriptionImpl[subs.length - 1];
+                    System.arraycopy(subs, 0, newSubs, 0, i);
+                    System.arraycopy(subs, i + 1, newSubs, i, subs.length - i - 1);
+                    subscriptions = newSubs;
+                    return;
+                }
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeTracker#beginGroupPut()
+         */
+        public void beginGroupPut() {
+            groupDepth++;
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.ChangeTracker#endGroupPut()
+         */
+        public void endGroupPut() {
+            if (groupDepth == 0)
+                throw new IllegalStateException("endGroupPut without beginGroupPut");
+            if (--groupDepth == 0)
+                notifyListeners(subscriptions);
+        }
+
+        private final class SubscriptionImpl implements ChangeSubscription {
+            private final ChangeListener listener;
+            // null if all fields are of interest
+            private final boolean[] relevant;
+            // guarded by this
+            private final BitSet changed = new BitSet(numberFields);
+            private boolean notify = false;
+
+            SubscriptionImpl(ChangeListener listener, boolean[] relevant) {
+                if (listener == null)
+                    throw new IllegalArgumentException("listener is null");
+                this.listener = listener;
+                this.relevant = relevant;
+            }
+
+            void post(int offset) {
+                if (relevant != null && !relevant[offset])
+                    return;
+                synchronized (this) {
+                    changed.set(offset);
+                    notify = true;
+                }
+            }
+
+            synchronized boolean takeNotify() {
+                final boolean retVal = notify;
+                notify = false;
+                return retVal;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.monitor.ChangeSubscription#getChangeTracker()
+             */
+            public ChangeTracker getChangeTracker() {
+                return ChangeTrackerImpl.this;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.monitor.ChangeSubscription#getListener()
+             */
+            public ChangeListener getListener() {
+                return listener;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.monitor.ChangeSubscription#getChanges(org.epics.pvdata.misc.BitSet)
+             */
+            public synchronized boolean getChanges(BitSet bitSet) {
+                bitSet.clear();
+                if (changed.isEmpty())
+                    return false;
+                bitSet.or(changed);
+                changed.clear();
+                return true;
+            }
+
+            /* (non-Javadoc)
+             * @see org.epics.pvdata.monitor.ChangeSubscription#unsubscribe()
+             */
+            public void unsubscribe() {
+                remove(this);
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@
  */
 package org.epics.pvdata.monitor;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.misc.Queue;
 import org.epics.pvdata.misc.QueueCreate;
@@ -41,6 +43,27 @@ public class MonitorQueueFactory {
         return new MonitorQueueImpl(queue);
     }
 
+    /**
+     * Create a MonitorQueue for one producer thread and one consumer thread.
+     * The producer calls getFree, setUsed and getNumberFree, the consumer calls getUsed and releaseUsed;
+     * these need no synchronization by the caller.
+     * The elements are kept in a pre-allocated ring indexed by sequence counters, no locks are taken.
+     * The producer sees an element released by the consumer, and the consumer an element set used by
+     * the producer, together with all the changes made to it before.
+     * clear must not be called concurrently with the other methods.
+     *
+     * @param monitorElements a MonitorElement array. Each monitorElement
+     * must be created by calling MonitorQueueFactory.createMonitorElement.
+     * @return the MonitorQueue interface.
+     * @throws IllegalStateException if the queue size is not at least 2
+     */
+    public static MonitorQueue createSPSC(MonitorElement[] monitorElements) {
+        if(monitorElements.length<2) {
+            throw new IllegalStateException("queueSize must be at least 2 ");
+        }
+        return new SPSCMonitorQueueImpl(monitorElements.clone());
+    }
+
     /**
      * Create a MonitorElement.
      *
@@ -100,6 +123,95 @@ public class MonitorQueueFactory {
         }
     }
 
+    private static final class SPSCMonitorQueueImpl implements MonitorQueue {
+        private final MonitorElement[] elements;
+        private final int number;
+
+        // producer side
+        private long nextGetFree = 0;
+        private final AtomicLong nextSetUsed = new AtomicLong();
+        // consumer side
+        private long nextGetUsed = 0;
+        private final AtomicLong nextReleaseUsed = new AtomicLong();
+
+        SPSCMonitorQueueImpl(MonitorElement[] elements) {
+            this.elements = elements;
+            number = elements.length;
+        }
+
+        private MonitorElement element(long sequence) {
+            return elements[(int)(sequence % number)];
+        }
+
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#clear()
+         */
+        public void clear() {
+            nextGetFree = 0;
+            nextSetUsed.set(0);
+            nextGetUsed = 0;
+            nextReleaseUsed.set(0);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#capacity()
+         */
+        public int capacity() {
+            return number;
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#getNumberFree()
+         */
+        public int getNumberFree() {
+            return number - (int)(nextGetFree - nextReleaseUsed.get());
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#getFree()
+         */
+        public MonitorElement getFree() {
+            if(nextGetFree - nextReleaseUsed.get() >= number) return null;
+            return element(nextGetFree++);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#setUsed(org.epics.pvdata.monitor.MonitorElement)
+         */
+        public void setUsed(MonitorElement monitorElement) {
+            final long sequence = nextSetUsed.get();
+            if(sequence>=nextGetFree || monitorElement!=element(sequence)) {
+                throw new IllegalStateException("not correct monitorElement");
+            }
+            // publishes the changes to the element
+            nextSetUsed.set(sequence + 1);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#getUsed()
+         */
+        public MonitorElement getUsed() {
+            if(nextGetUsed>=nextSetUsed.get()) return null;
+            return element(nextGetUsed++);
+        }
+        /* (non-Javadoc)
+         * @see org.epics.pvdata.monitor.MonitorQueue#releaseUsed(org.epics.pvdata.monitor.MonitorElement)
+         */
+        public void releaseUsed(MonitorElement monitorElement) {
+            final long sequence = nextReleaseUsed.get();
+            if(sequence>=nextGetUsed || monitorElement!=element(sequence)) {
+                throw new IllegalStateException("not monitorElement returned by last call to getUsed");
+            }
+            // release store: the consumer's reads of the element happen before the producer's
+            // acquire read of nextReleaseUsed in getFree, which may then hand the element out again
+            nextReleaseUsed.set(sequence + 1);
+        }
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "number " + number + " numberFree " + getNumberFree()
+                 + " nextGetFree " + nextGetFree + " nextSetUsed " + nextSetUsed.get()
+                 + " nextGetUsed " + nextGetUsed + " nextReleaseUsed " + nextReleaseUsed.get();
+        }
+    }
+
     private static class MonitorQueueImpl implements MonitorQueue {
         private final Queue<MonitorElement> queue;
 
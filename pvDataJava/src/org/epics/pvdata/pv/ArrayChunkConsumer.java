@@ -0,0 +1,46 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.pv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for a consumer of the elements of a scalar array while it is deserialized.
+ * The elements are given in chunks, as they are received: with pvAccess a large array arrives in segments,
+ * and each segment is given to the consumer before the next one is read.
+ * The consumer can keep the elements in the array, or process them without keeping them,
+ * for example to reduce them or write them to a file, so that the array is never held in memory.
+ * Arrays of strings can not be consumed in chunks.
+ *
+ */
+public interface ArrayChunkConsumer {
+    /**
+     * Called when deserialization of a new value of the array starts.
+     *
+     * @param pvArray the array.
+     * @param length the number of elements of the new value.
+     * @return <code>true</code> to also deserialize the elements into the array,
+     * <code>false</code> to leave the value of the array unchanged.
+     */
+    boolean beginArray(PVScalarArray pvArray, int length);
+
+    /**
+     * Called for each chunk of elements received.
+     *
+     * @param pvArray the array.
+     * @param offset the index of the first element of the chunk.
+     * @param chunk the serialized elements, from the position to the limit of the buffer,
+     * with the byte order of the sender; the buffer must not be used after the call returns.
+     * @param count the number of elements in the chunk.
+     */
+    void arrayChunk(PVScalarArray pvArray, int offset, ByteBuffer chunk, int count);
+
+    /**
+     * Called when all the elements of the new value have been received.
+     *
+     * @param pvArray the array.
+     */
+    void endArray(PVScalarArray pvArray);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.pv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Optional interface of a SerializableControl and a DeserializableControl that keeps the elements
+ * of large scalar arrays out of the serialization buffer, for example in memory shared with the peer.
+ * An array stored this way is serialized as a size of -1, followed by a reference written by commitArray,
+ * instead of its elements. Arrays of strings and arrays of fixed size are always serialized into the buffer.
+ *
+ */
+public interface ArrayStore {
+    /**
+     * Reserve storage for the elements of an array being serialized.
+     *
+     * @param size the size of the serialized elements in bytes.
+     * @param order the byte order of the serialization buffer.
+     * @return a buffer with <code>size</code> bytes remaining and the given byte order to put the elements to,
+     * or <code>null</code> if the elements are to be serialized into the serialization buffer.
+     */
+    ByteBuffer reserveArray(int size, ByteOrder order);
+
+    /**
+     * Serialize the reference to the elements put to the buffer returned by the last call of reserveArray.
+     *
+     * @param buffer the serialization buffer.
+     * @param control the serialization control.
+     */
+    void commitArray(ByteBuffer buffer, SerializableControl control);
+
+    /**
+     * Deserialize a reference and get the elements it refers to.
+     *
+     * @param buffer the deserialization buffer.
+     * @param control the deserialization control.
+     * @return the serialized elements, from the position to the limit of the buffer, with the byte order
+     * of the deserialization buffer; valid until releaseArray is called.
+     */
+    ByteBuffer loadArray(ByteBuffer buffer, DeserializableControl control);
+
+    /**
+     * Release the elements returned by the last call of loadArray, once they are copied.
+     */
+    void releaseArray();
+}
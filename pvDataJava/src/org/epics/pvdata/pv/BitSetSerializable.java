@@ -33,4 +33,13 @@ public interface BitSetSerializable {
      * @param bitSet the BitSet which shows the fields to deserialize
      */
      void deserialize(ByteBuffer buffer, DeserializableControl control, BitSet bitSet);
+
+    /**
+     * Get the number of bytes written by serialize of the fields shown by the BitSet.
+     * The BitSet itself is not included.
+     *
+     * @param bitSet the BitSet which shows the fields to serialize
+     * @return the number of bytes
+     */
+    int getSerializedSize(BitSet bitSet);
 }
@@ -4,6 +4,8 @@
  */
 package org.epics.pvdata.pv;
 
+import org.epics.pvdata.misc.BitSet;
+
 /**
  * Convert between numeric types,convert any field to a string,
  * and convert from a string to a scalar field.
@@ -117,6 +119,8 @@ public interface Convert {
      * Copy from a PVField to another PVField.
      * This calls one of copyScalar, copyArray or copyStructure.
      * The two arguments must be compatible.
+     * Array elements are copied, except for a whole scalar array of the same element type with a value
+     * marked shared (see PVScalarArray.share): then both arrays share the value, copy-on-write.
      *
      * @param from the source
      * @param to the destination
@@ -124,6 +128,19 @@ public interface Convert {
      */
     void copy(PVField from,PVField to);
 
+    /**
+     * Copy only the changed fields from a PVStructure to another PVStructure with the same Structure.
+     * A field is copied (with all its subfields) if the bit of its offset is set;
+     * a substructure with its bit not set is only descended into.
+     * Fields with no bit set within their offset range are not touched at all.
+     *
+     * @param from the source
+     * @param to the destination
+     * @param bitSet the changed fields, indexed by the field offsets of from
+     * @throws IllegalArgumentException if from and to do not have the same Structure
+     */
+    void copy(PVStructure from, PVStructure to, BitSet bitSet);
+
     /**
      * Are from and to the introspection interfaces for valid arguments for copyScalar.
      * false will be returned if either argument is not a scalar as defined by Type.isScalar().
@@ -95,6 +95,17 @@ public interface PVField extends Serializable {
      */
     void setPostHandler(PostHandler postHandler);
 
+    /**
+     * Get the modification count of the field.
+     * The count is incremented by postPut, and so by every put, and by shareData, setLength and deserialize.
+     * A consumer that saves the count can tell, without comparing values, that the field has not changed
+     * if the count is the same. The count of a structure is not incremented by changes of its subfields.
+     * The count is not synchronized, it must be read with the same synchronization as the value.
+     *
+     * @return the modification count
+     */
+    long getModificationCount();
+
     /**
      * Convert the PVField to a string.
      *
@@ -17,4 +17,31 @@ public interface PVScalarArray extends PVArray {
      * @return the introspection interface
      */
     ScalarArray getScalarArray();
+
+    /**
+     * Mark the current value as shared (copy-on-write).
+     * The array returned by the get methods is then not modified in place by this field any more,
+     * the next write replaces it with a modified copy.
+     * A caller can therefore keep a reference to the array instead of copying it,
+     * and Convert.copy shares a shared value with an array of the same element type instead of copying it.
+     * Values are not shared unless marked by this method or by shareData.
+     * <p>
+     * The array returned by the get methods is the value itself, code that modifies it in place
+     * (and then calls postPut) must not do so while the value is shared, see isShared.
+     */
+    void share();
+
+    /**
+     * Is the current value shared (copy-on-write).
+     * @return <code>true</code> if the value is shared.
+     */
+    boolean isShared();
+
+    /**
+     * Set the consumer of the elements received by deserialize, in chunks as they arrive.
+     *
+     * @param consumer the consumer, <code>null</code> to deserialize the elements into the array only.
+     * @throws UnsupportedOperationException if the elements are strings.
+     */
+    void setChunkConsumer(ArrayChunkConsumer consumer);
 }
@@ -30,4 +30,13 @@ public interface Serializable {
      * @param control the deserialization control
      */
      void deserialize(ByteBuffer buffer, DeserializableControl control);
+
+    /**
+     * Get the number of bytes written by serialize.
+     * Introspection data (e.g. the type of a variant union value) is counted as if not cached,
+     * a flusher that caches introspection data can write less.
+     *
+     * @return the number of bytes
+     */
+    int getSerializedSize();
 }
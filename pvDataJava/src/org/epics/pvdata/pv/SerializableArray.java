@@ -24,4 +24,13 @@ public interface SerializableArray extends Serializable {
 	 * @param count number of elements in array
 	 */
 	void serialize(ByteBuffer buffer, SerializableControl flusher, int offset, int count);
+
+	/**
+	 * Get the number of bytes written by serialize of a part of the array.
+	 *
+	 * @param offset offset in array
+	 * @param count number of elements in array
+	 * @return the number of bytes
+	 */
+	int getSerializedSize(int offset, int count);
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import org.epics.util.compat.jdk5.lang.Arrays;
+
+/**
+ * Factory that creates a StreamWriter or a StreamReader.
+ * <p>
+ * A stream named <i>name</i> is kept in a directory as a sequence of segment files <i>name</i>-<i>nnnnnnnn</i>.pvs,
+ * each with an index file <i>name</i>-<i>nnnnnnnn</i>.pvi.
+ * A segment file starts with the magic "PVSF", a version byte and a byte order byte (0 big endian, 1 little endian),
+ * padded to 8 bytes, followed by records:
+ * <pre>
+ * byte kind           0 end of segment, 1 introspection interface, 2 update, 3 key frame
+ * int  size           the number of bytes after this field
+ * introspection interface: short id, serialized Structure
+ * update, key frame:       long timeStamp, short id, serialized changed BitSet, serialized data
+ * </pre>
+ * The data of an update is serialized with the changed BitSet, the data of a key frame is the complete structure.
+ * Each key frame is preceded by the introspection interface of its data, and a segment starts with a key frame,
+ * so that a reader can start at any key frame.
+ * The index file has an entry for each key frame: long timeStamp, int position of its introspection interface,
+ * in big endian byte order.
+ *
+ */
+public class StreamFileFactory {
+    private StreamFileFactory() {} // don't create
+
+    /**
+     * The default maximum size of a segment file, 256 MB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 28;
+    /**
+     * The default number of bytes between key frames, 16 MB.
+     */
+    public static final int DEFAULT_KEY_FRAME_INTERVAL = 1 << 24;
+
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 5;
+    static final int UPDATE_HEADER_SIZE = RECORD_HEADER_SIZE + 8 + 2;
+    static final int INDEX_ENTRY_SIZE = 12;
+
+    static final byte END = 0;
+    static final byte INTROSPECTION = 1;
+    static final byte UPDATE = 2;
+    static final byte KEY_FRAME = 3;
+
+    /**
+     * Create a writer with the default segment size and key frame interval.
+     * If the stream exists, the updates are appended in new segments.
+     *
+     * @param directory the directory of the stream, it is created if it does not exist.
+     * @param name the name of the stream.
+     * @return the StreamWriter interface.
+     * @throws IOException if the directory can not be created.
+     */
+    public static StreamWriter createWriter(File directory, String name) throws IOException {
+        return createWriter(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_KEY_FRAME_INTERVAL);
+    }
+
+    /**
+     * Create a writer.
+     * If the stream exists, the updates are appended in new segments.
+     *
+     * @param directory the directory of the stream, it is created if it does not exist.
+     * @param name the name of the stream.
+     * @param segmentSize the maximum size of a segment file, a larger segment is created for an update that does not fit.
+     * @param keyFrameInterval the number of bytes after a key frame that are written before the next key frame.
+     * @return the StreamWriter interface.
+     * @throws IOException if the directory can not be created.
+     * @throws IllegalArgumentException if segmentSize or keyFrameInterval is not positive.
+     */
+    public static StreamWriter createWriter(File directory, String name, int segmentSize, int keyFrameInterval) throws IOException {
+        if (segmentSize <= HEADER_SIZE || keyFrameInterval <= 0)
+            throw new IllegalArgumentException("invalid segmentSize or keyFrameInterval");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("can not create directory " + directory);
+        return new StreamWriterImpl(directory, name, segmentSize, keyFrameInterval);
+    }
+
+    /**
+     * Open a reader of all the segments of a stream.
+     *
+     * @param directory the directory of the stream.
+     * @param name the name of the stream.
+     * @return the StreamReader interface.
+     * @throws IOException if a segment file can not be read, or is not a segment file.
+     */
+    public static StreamReader openReader(File directory, String name) throws IOException {
+        return new StreamReaderImpl(directory, name);
+    }
+
+    static File segmentFile(File directory, String name, int segment) {
+        return new File(directory, String.format("%s-%08d.pvs", name, segment));
+    }
+
+    static File indexFile(File directory, String name, int segment) {
+        return new File(directory, String.format("%s-%08d.pvi", name, segment));
+    }
+
+    /**
+     * Get the numbers of the segments of a stream.
+     * @param directory the directory of the stream.
+     * @param name the name of the stream.
+     * @return the numbers, in increasing order.
+     */
+    static int[] listSegments(File directory, final String name) {
+        final String prefix = name + "-";
+        String[] files = directory.list(new FilenameFilter() {
+            public boolean accept(File dir, String file) {
+                return file.length() == prefix.length() + 12 && file.startsWith(prefix) && file.endsWith(".pvs");
+            }
+        });
+        if (files == null)
+            return new int[0];
+        int[] segments = new int[files.length];
+        int count = 0;
+        for (String file : files) {
+            try {
+                segments[count] = Integer.parseInt(file.substring(prefix.length(), prefix.length() + 8));
+                count++;
+            } catch (NumberFormatException e) {
+                // not a segment of the stream
+            }
+        }
+        segments = Arrays.copyOf(segments, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+}
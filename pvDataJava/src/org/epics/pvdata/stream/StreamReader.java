@@ -0,0 +1,64 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Reads the updates of a stream written by a StreamWriter.
+ * None of the methods are synchronized. The caller must perform synchronization.
+ *
+ */
+public interface StreamReader {
+    /**
+     * Read the next update and apply it to the data.
+     * @return false if there are no more updates.
+     */
+    boolean next();
+
+    /**
+     * Get the time stamp of the update read by next.
+     * @return the time stamp.
+     */
+    long getTimeStamp();
+
+    /**
+     * Get the data, with all the updates read so far applied.
+     * The same instance is returned until the introspection interface of the stream changes.
+     * @return the data, null before the first update.
+     */
+    PVStructure getPVStructure();
+
+    /**
+     * Get the fields changed by the update read by next.
+     * @return the BitSet.
+     */
+    BitSet getChangedBitSet();
+
+    /**
+     * Move to the first update with a time stamp not less than timeStamp.
+     * The data is restored from the nearest key frame before it, and the next call to next reads the update.
+     * @param timeStamp the time.
+     * @return false if there is no such update.
+     */
+    boolean seek(long timeStamp);
+
+    /**
+     * Get an iterator over the serialized updates, from the update that next would read to the end of the stream.
+     * The updates are neither copied nor deserialized, and the data of this reader is not changed.
+     * @return the iterator.
+     */
+    Iterator<StreamRecord> replay();
+
+    /**
+     * Close the stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.Structure;
+import org.epics.util.compat.jdk5.lang.Arrays;
+
+/**
+ * StreamReader that maps all the segment files into memory when it is opened.
+ */
+final class StreamReaderImpl implements StreamReader {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {
+            // an update is never split, the data is in the buffer unless the segment is truncated
+        }
+        public void alignData(int alignment) {
+        }
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return fieldCreate.deserialize(buffer, this);
+        }
+    };
+
+    private ByteBuffer[] segments;
+    private long[] indexTimeStamps = new long[0];
+    private int[] indexSegments = new int[0];
+    private int[] indexPositions = new int[0];
+
+    private final Cursor cursor = new Cursor();
+    private final BitSet allFields = new BitSet(1);
+    private final BitSet changedBitSet = new BitSet();
+    private PVStructure pvStructure;
+    private long timeStamp;
+
+    StreamReaderImpl(File directory, String name) throws IOException {
+        allFields.set(0);
+        int[] numbers = StreamFileFactory.listSegments(directory, name);
+        segments = new ByteBuffer[numbers.length];
+        int indexLength = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            RandomAccessFile file = new RandomAccessFile(StreamFileFactory.segmentFile(directory, name, numbers[i]), "r");
+            try {
+                FileChannel channel = file.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.limit() < StreamFileFactory.HEADER_SIZE || buffer.get(0) != 'P' || buffer.get(1) != 'V'
+                        || buffer.get(2) != 'S' || buffer.get(3) != 'F')
+                    throw new IOException("not a stream segment file: " + StreamFileFactory.segmentFile(directory, name, numbers[i]));
+                if (buffer.get(4) != StreamFileFactory.VERSION)
+                    throw new IOException("unsupported stream version " + buffer.get(4));
+                buffer.order(buffer.get(5) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+                segments[i] = buffer;
+            } finally {
+                file.close();
+            }
+
+            File indexFile = StreamFileFactory.indexFile(directory, name, numbers[i]);
+            if (!indexFile.exists())
+                continue;
+            RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+            try {
+                // an incomplete last entry is ignored
+                ByteBuffer entries = ByteBuffer.allocate((int)(index.length() / StreamFileFactory.INDEX_ENTRY_SIZE) * StreamFileFactory.INDEX_ENTRY_SIZE);
+                FileChannel channel = index.getChannel();
+                while (entries.hasRemaining() && channel.read(entries) >= 0);
+                entries.flip();
+                int count = entries.remaining() / StreamFileFactory.INDEX_ENTRY_SIZE;
+                if (indexLength + count > indexTimeStamps.length) {
+                    int newLength = Math.max(indexLength + count, 2 * indexTimeStamps.length);
+                    indexTimeStamps = Arrays.copyOf(indexTimeStamps, newLength);
+                    indexSegments = Arrays.copyOf(indexSegments, newLength);
+                    indexPositions = Arrays.copyOf(indexPositions, newLength);
+                }
+                for (int j = 0; j < count; j++) {
+                    indexTimeStamps[indexLength] = entries.getLong();
+                    indexPositions[indexLength] = entries.getInt();
+                    indexSegments[indexLength] = i;
+                    indexLength++;
+                }
+            } finally {
+                index.close();
+            }
+        }
+        indexTimeStamps = Arrays.copyOf(indexTimeStamps, indexLength);
+        indexSegments = Arrays.copyOf(indexSegments, indexLength);
+        indexPositions = Arrays.copyOf(indexPositions, indexLength);
+    }
+
+    /**
+     * A position in the stream, with the introspection interfaces of its segment.
+     */
+    private final class Cursor {
+        private int segment = -1;
+        private ByteBuffer buffer;
+        private Structure[] types = new Structure[4];
+
+        private boolean openSegment(int newSegment) {
+            if (segments == null)
+                throw new IllegalStateException("stream is closed");
+            if (newSegment >= segments.length)
+                return false;
+            segment = newSegment;
+            buffer = segments[segment].duplicate();
+            buffer.order(segments[segment].order());
+            buffer.position(StreamFileFactory.HEADER_SIZE);
+            Arrays.fill(types, null);
+            return true;
+        }
+
+        void moveTo(int newSegment, int position) {
+            openSegment(newSegment);
+            buffer.position(position);
+        }
+
+        void moveTo(Cursor other) {
+            segment = other.segment;
+            if (other.buffer != null) {
+                buffer = other.buffer.duplicate();
+                buffer.order(other.buffer.order());
+            } else {
+                buffer = null;
+            }
+            types = other.types.clone();
+        }
+
+        /**
+         * Move to the next update, reading the introspection interfaces before it.
+         * @return false at the end of the stream.
+         */
+        boolean advance() {
+            while (true) {
+                if (buffer == null || buffer.remaining() < StreamFileFactory.UPDATE_HEADER_SIZE
+                        || buffer.get(buffer.position()) == StreamFileFactory.END) {
+                    if (!openSegment(segment + 1))
+                        return false;
+                    continue;
+                }
+                final int position = buffer.position();
+                final byte kind = buffer.get(position);
+                if (kind == StreamFileFactory.INTROSPECTION) {
+                    final int end = getEnd();
+                    buffer.position(position + StreamFileFactory.RECORD_HEADER_SIZE);
+                    int id = buffer.getShort();
+                    if (id >= types.length)
+                        types = Arrays.copyOf(types, Math.max(id + 1, 2 * types.length));
+                    types[id] = (Structure)fieldCreate.deserialize(buffer, control);
+                    buffer.position(end);
+                } else if (kind == StreamFileFactory.UPDATE || kind == StreamFileFactory.KEY_FRAME) {
+                    return true;
+                } else {
+                    throw new IllegalStateException("invalid record in segment " + segment + " at " + position);
+                }
+            }
+        }
+
+        int getEnd() {
+            final int position = buffer.position();
+            return position + StreamFileFactory.RECORD_HEADER_SIZE + buffer.getInt(position + 1);
+        }
+
+        boolean isKeyFrame() {
+            return buffer.get(buffer.position()) == StreamFileFactory.KEY_FRAME;
+        }
+
+        long getTimeStamp() {
+            return buffer.getLong(buffer.position() + StreamFileFactory.RECORD_HEADER_SIZE);
+        }
+
+        Structure getStructure() {
+            return types[buffer.getShort(buffer.position() + StreamFileFactory.RECORD_HEADER_SIZE + 8)];
+        }
+
+        int getDataStart() {
+            return buffer.position() + StreamFileFactory.UPDATE_HEADER_SIZE;
+        }
+    }
+
+    private void apply() {
+        final Structure structure = cursor.getStructure();
+        if (structure == null)
+            throw new IllegalStateException("update without introspection interface in segment " + cursor.segment);
+        if (pvStructure == null || !pvStructure.getStructure().equals(structure))
+            pvStructure = pvDataCreate.createPVStructure(structure);
+        timeStamp = cursor.getTimeStamp();
+        final boolean keyFrame = cursor.isKeyFrame();
+        final int end = cursor.getEnd();
+        final ByteBuffer buffer = cursor.buffer;
+        buffer.position(cursor.getDataStart());
+        changedBitSet.deserialize(buffer, control);
+        pvStructure.deserialize(buffer, control, keyFrame ? allFields : changedBitSet);
+        buffer.position(end);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#next()
+     */
+    public boolean next() {
+        if (!cursor.advance())
+            return false;
+        apply();
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#getTimeStamp()
+     */
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#getPVStructure()
+     */
+    public PVStructure getPVStructure() {
+        return pvStructure;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#getChangedBitSet()
+     */
+    public BitSet getChangedBitSet() {
+        return changedBitSet;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#seek(long)
+     */
+    public boolean seek(long timeStamp) {
+        // the last key frame before timeStamp
+        int low = 0;
+        int high = indexTimeStamps.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimeStamps[mid] < timeStamp)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        if (high >= 0) {
+            cursor.moveTo(indexSegments[high], indexPositions[high]);
+        } else {
+            cursor.buffer = null;
+            cursor.segment = -1;
+        }
+
+        while (cursor.advance()) {
+            if (cursor.getTimeStamp() >= timeStamp)
+                return true;
+            apply();
+        }
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#replay()
+     */
+    public Iterator<StreamRecord> replay() {
+        final Cursor replayCursor = new Cursor();
+        replayCursor.moveTo(cursor);
+        return new ReplayIterator(replayCursor);
+    }
+
+    private static final class ReplayIterator implements Iterator<StreamRecord>, StreamRecord {
+        private final Cursor cursor;
+        private boolean positioned;
+        private int dataSegment = -1;
+        private ByteBuffer data;
+        private long timeStamp;
+        private Structure structure;
+        private boolean keyFrame;
+
+        ReplayIterator(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        public boolean hasNext() {
+            if (!positioned)
+                positioned = cursor.advance();
+            return positioned;
+        }
+
+        public StreamRecord next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            if (dataSegment != cursor.segment) {
+                data = cursor.buffer.asReadOnlyBuffer();
+                data.order(cursor.buffer.order());
+                dataSegment = cursor.segment;
+            }
+            timeStamp = cursor.getTimeStamp();
+            structure = cursor.getStructure();
+            keyFrame = cursor.isKeyFrame();
+            final int end = cursor.getEnd();
+            data.limit(end);
+            data.position(cursor.getDataStart());
+            cursor.buffer.position(end);
+            positioned = false;
+            return this;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getTimeStamp() {
+            return timeStamp;
+        }
+
+        public Structure getStructure() {
+            return structure;
+        }
+
+        public boolean isKeyFrame() {
+            return keyFrame;
+        }
+
+        public ByteBuffer getData() {
+            return data;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamReader#close()
+     */
+    public void close() throws IOException {
+        // the mappings are released when the buffers are garbage collected
+        segments = null;
+        cursor.buffer = null;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * An update as it is stored in a stream, returned by the replay iterator of StreamReader.
+ * The iterator returns the same instance for each update, with new values.
+ *
+ */
+public interface StreamRecord {
+    /**
+     * Get the time stamp given to StreamWriter.append.
+     * @return the time stamp.
+     */
+    long getTimeStamp();
+
+    /**
+     * Get the introspection interface of the data.
+     * @return the interface.
+     */
+    Structure getStructure();
+
+    /**
+     * Is the update a key frame?
+     * @return true if the data has all the fields of the structure, false if it has the changed fields only.
+     */
+    boolean isKeyFrame();
+
+    /**
+     * Get the serialized update: the changed BitSet, followed by the fields that it shows
+     * or by the complete structure for a key frame.
+     * The buffer is a read-only view of the segment file, positioned at the update and limited to its end.
+     * It is valid until the iterator returns the next update.
+     * @return the buffer.
+     */
+    ByteBuffer getData();
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.io.IOException;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Appends the updates of a PVStructure to a stream of segment files.
+ * None of the methods are synchronized. The caller must perform synchronization.
+ *
+ */
+public interface StreamWriter {
+    /**
+     * Append an update.
+     * The first update of each segment, the first update after the introspection interface changes,
+     * and an update every keyFrameInterval bytes are written as key frames, with all the fields of pvStructure.
+     * Other updates are written with the fields shown by changedBitSet only.
+     *
+     * @param timeStamp the time of the update, in any unit chosen by the caller; it must not decrease.
+     * @param pvStructure the data, with the values of all fields after the update.
+     * @param changedBitSet the fields changed by the update.
+     * @throws IOException if a segment file can not be created.
+     * @throws IllegalArgumentException if timeStamp is less than the time stamp of the previous update.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    void append(long timeStamp, PVStructure pvStructure, BitSet changedBitSet) throws IOException;
+
+    /**
+     * Write the appended updates to the storage device.
+     * @throws IOException if an I/O error occurs.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flush and close the stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    void close() throws IOException;
+
+    /**
+     * Get the number of bytes appended, including introspection interfaces and record headers.
+     * @return the number of bytes.
+     */
+    long getBytesWritten();
+}
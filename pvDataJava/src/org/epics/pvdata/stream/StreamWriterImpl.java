@@ -0,0 +1,235 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata.stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * StreamWriter that maps each segment file into memory, with the native byte order.
+ * The size of each update is computed before it is written, an update that does not fit in the segment
+ * starts a new segment.
+ */
+final class StreamWriterImpl implements StreamWriter {
+    private final File directory;
+    private final String name;
+    private final int segmentSize;
+    private final int keyFrameInterval;
+
+    private final Map<Structure, byte[]> introspection = new HashMap<Structure, byte[]>();
+    private final BitSet allFields = new BitSet(1);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(StreamFileFactory.INDEX_ENTRY_SIZE);
+    private final SerializableControl control = new SerializableControl() {
+        public void ensureBuffer(int size) {
+            if (target.remaining() < size)
+                throw new IllegalStateException("buffer full");
+        }
+        public void flushSerializeBuffer() {
+            throw new IllegalStateException("buffer full");
+        }
+        public void alignBuffer(int alignment) {
+        }
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    // the buffer written with control
+    private ByteBuffer target;
+    private int segment;
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer buffer;
+    private Structure structure;
+    private short typeId;
+    private short nextTypeId;
+    private int keyFramePosition;
+    private long lastTimeStamp = Long.MIN_VALUE;
+    private long bytesWritten;
+    private boolean closed;
+
+    StreamWriterImpl(File directory, String name, int segmentSize, int keyFrameInterval) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.keyFrameInterval = keyFrameInterval;
+        allFields.set(0);
+        int[] segments = StreamFileFactory.listSegments(directory, name);
+        segment = (segments.length > 0) ? segments[segments.length - 1] : -1;
+    }
+
+    private byte[] getIntrospection(Structure structure) {
+        byte[] bytes = introspection.get(structure);
+        if (bytes == null) {
+            int size = 256;
+            while (true) {
+                target = ByteBuffer.allocate(size);
+                try {
+                    structure.serialize(target, control);
+                    break;
+                } catch (IllegalStateException e) {
+                    size *= 2;
+                }
+            }
+            target.flip();
+            bytes = new byte[target.remaining()];
+            target.get(bytes);
+            introspection.put(structure, bytes);
+        }
+        return bytes;
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamWriter#append(long, org.epics.pvdata.pv.PVStructure, org.epics.pvdata.misc.BitSet)
+     */
+    public void append(long timeStamp, PVStructure pvStructure, BitSet changedBitSet) throws IOException {
+        if (closed)
+            throw new IllegalStateException("stream is closed");
+        if (timeStamp < lastTimeStamp)
+            throw new IllegalArgumentException("time stamp less than the time stamp of the previous update");
+
+        final Structure newStructure = pvStructure.getStructure();
+        boolean keyFrame = buffer == null || structure == null || !structure.equals(newStructure)
+                || buffer.position() - keyFramePosition >= keyFrameInterval;
+        int size = getSize(pvStructure, changedBitSet, keyFrame);
+        // an update that does not fit starts a new segment, leaving room for the end of segment
+        if (buffer == null || size >= buffer.remaining()) {
+            if (!keyFrame) {
+                keyFrame = true;
+                size = getSize(pvStructure, changedBitSet, keyFrame);
+            }
+            openSegment(StreamFileFactory.HEADER_SIZE + size + 1);
+        }
+
+        final int position = buffer.position();
+        if (keyFrame) {
+            if (structure == null || !structure.equals(newStructure)) {
+                structure = newStructure;
+                typeId = nextTypeId++;
+            }
+            byte[] bytes = getIntrospection(newStructure);
+            buffer.put(StreamFileFactory.INTROSPECTION);
+            buffer.putInt(2 + bytes.length);
+            buffer.putShort(typeId);
+            buffer.put(bytes);
+
+            indexEntry.clear();
+            indexEntry.putLong(timeStamp);
+            indexEntry.putInt(position);
+            indexEntry.flip();
+            while (indexEntry.hasRemaining())
+                indexChannel.write(indexEntry);
+            keyFramePosition = position;
+        }
+
+        final int sizePosition = buffer.position() + 1;
+        buffer.put(keyFrame ? StreamFileFactory.KEY_FRAME : StreamFileFactory.UPDATE);
+        buffer.putInt(0);
+        buffer.putLong(timeStamp);
+        buffer.putShort(typeId);
+        target = buffer;
+        changedBitSet.serialize(buffer, control);
+        pvStructure.serialize(buffer, control, keyFrame ? allFields : changedBitSet);
+        buffer.putInt(sizePosition, buffer.position() - sizePosition - 4);
+
+        bytesWritten += buffer.position() - position;
+        lastTimeStamp = timeStamp;
+    }
+
+    private int getSize(PVStructure pvStructure, BitSet changedBitSet, boolean keyFrame) {
+        int size = StreamFileFactory.UPDATE_HEADER_SIZE + changedBitSet.getSerializedSize();
+        if (keyFrame) {
+            size += pvStructure.getSerializedSize(allFields);
+            size += StreamFileFactory.RECORD_HEADER_SIZE + 2 + getIntrospection(pvStructure.getStructure()).length;
+        } else {
+            size += pvStructure.getSerializedSize(changedBitSet);
+        }
+        return size;
+    }
+
+    private void openSegment(int minimumSize) throws IOException {
+        closeSegment();
+        segment++;
+        RandomAccessFile file = new RandomAccessFile(StreamFileFactory.segmentFile(directory, name, segment), "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        RandomAccessFile index = new RandomAccessFile(StreamFileFactory.indexFile(directory, name, segment), "rw");
+        index.setLength(0);
+        indexChannel = index.getChannel();
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize));
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.put((byte)'P');
+        buffer.put((byte)'V');
+        buffer.put((byte)'S');
+        buffer.put((byte)'F');
+        buffer.put(StreamFileFactory.VERSION);
+        buffer.put(buffer.order() == ByteOrder.BIG_ENDIAN ? (byte)0 : (byte)1);
+        buffer.position(StreamFileFactory.HEADER_SIZE);
+        bytesWritten += StreamFileFactory.HEADER_SIZE;
+
+        // the introspection ids start again in each segment
+        structure = null;
+        nextTypeId = 0;
+        keyFramePosition = StreamFileFactory.HEADER_SIZE;
+    }
+
+    private void closeSegment() throws IOException {
+        if (buffer == null)
+            return;
+        final int length = buffer.position();
+        buffer.force();
+        buffer = null;
+        try {
+            // remove the unused part of the segment, not possible on some platforms while the file is mapped
+            channel.truncate(length);
+        } catch (IOException e) {
+            // the reader stops at the end of segment, that is a zero byte
+        }
+        channel.close();
+        indexChannel.force(false);
+        indexChannel.close();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamWriter#flush()
+     */
+    public void flush() throws IOException {
+        if (buffer == null)
+            return;
+        buffer.force();
+        indexChannel.force(false);
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamWriter#close()
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        closeSegment();
+    }
+
+    /* (non-Javadoc)
+     * @see org.epics.pvdata.stream.StreamWriter#getBytesWritten()
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+}
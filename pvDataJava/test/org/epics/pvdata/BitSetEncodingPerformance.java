@@ -0,0 +1,96 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * Benchmark of the bytes on the wire of BitSet.serialize (dense) and BitSet.serializeSparse,
+ * for the changed bit set of a structure with many fields, with several densities of changed fields,
+ * and of the time to serialize.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.BitSetEncodingPerformance [fields]</code>
+ */
+public class BitSetEncodingPerformance {
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void ensureBuffer(int size) {
+        }
+        public void flushSerializeBuffer() {
+        }
+        public void alignBuffer(int alignment) {
+        }
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+        }
+    };
+
+    private static double time(BitSet bitSet, ByteBuffer buffer, boolean sparse, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            if (sparse)
+                bitSet.serializeSparse(buffer, flusher);
+            else
+                bitSet.serialize(buffer, flusher);
+        }
+        return (double)(System.nanoTime() - start) / iterations;
+    }
+
+    private static void run(String name, BitSet bitSet, ByteBuffer buffer, boolean report) {
+        final int iterations = 2000;
+        double dense = time(bitSet, buffer, false, iterations);
+        double sparse = time(bitSet, buffer, true, iterations);
+        if (report) {
+            System.out.printf("%-22s %8d %8d B %8d B %10.0f ns %10.0f ns%n", name, bitSet.cardinality(),
+                    bitSet.getSerializedSize(), bitSet.getSparseSerializedSize(), dense, sparse);
+        }
+    }
+
+    private static BitSet random(int fields, double density, Random random) {
+        BitSet bitSet = new BitSet(fields);
+        for (int i = 0; i < fields; i++) {
+            if (random.nextDouble() < density)
+                bitSet.set(i);
+        }
+        // the last field, so that the dense encoding is of all the fields
+        bitSet.set(fields - 1);
+        return bitSet;
+    }
+
+    public static void main(String[] args) {
+        final int fields = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final ByteBuffer buffer = ByteBuffer.allocate(fields / 8 + 16 + 5 * fields);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            if (report)
+                System.out.printf("%d fields             changed    dense     sparse       dense      sparse%n", fields);
+            Random random = new Random(1);
+
+            BitSet bitSet = new BitSet(fields);
+            bitSet.set(fields / 2);
+            run("1 field", bitSet, buffer, report);
+
+            bitSet = new BitSet(fields);
+            bitSet.set(fields / 3);
+            bitSet.set(fields - 1);
+            run("2 fields", bitSet, buffer, report);
+
+            bitSet = new BitSet(fields);
+            bitSet.set(fields / 4, fields / 4 + 1000);
+            run("1000 contiguous", bitSet, buffer, report);
+
+            final double[] densities = { 0.0001, 0.001, 0.01, 0.1, 0.5 };
+            for (double density : densities)
+                run(String.format("random %.2f%%", density * 100), random(fields, density, random), buffer, report);
+        }
+    }
+}
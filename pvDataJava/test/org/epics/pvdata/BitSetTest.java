@@ -119,4 +119,94 @@ public class BitSetTest extends TestCase {
 			assertEquals(s1, s2);
 		}
 	}
+
+	private static void assertSparse(BitSet s1)
+	{
+		ByteBuffer b = ByteBuffer.allocate(s1.getSerializedSize() + 16);
+		SerControl t = new SerControl();
+		s1.serializeSparse(b, t);
+		assertEquals(s1.getSparseSerializedSize(), b.position());
+		assertTrue(b.position() <= s1.getSerializedSize());
+
+		b.flip();
+		BitSet s2 = new BitSet();
+		s2.set(3);
+		s2.set(5000);
+		s2.deserialize(b, t);
+		assertFalse(b.hasRemaining());
+		assertEquals(s1, s2);
+	}
+
+	public void testSparseSerialization()
+	{
+		BitSet s1 = new BitSet();
+		assertSparse(s1);
+
+		// dense encoding is the smallest for a few fields
+		s1.set(0);
+		s1.set(5);
+		assertSparse(s1);
+		assertEquals(s1.getSerializedSize(), s1.getSparseSerializedSize());
+
+		// index list
+		s1.clear();
+		s1.set(3);
+		s1.set(40000);
+		s1.set(40001);
+		s1.set(99999);
+		assertSparse(s1);
+		assertEquals(2 + 1 + 1 + 5 + 1 + 5, s1.getSparseSerializedSize());
+
+		// run length, a sub-structure with all its fields
+		s1.clear();
+		s1.set(20000, 21000);
+		s1.set(50000);
+		assertSparse(s1);
+		assertEquals(2 + 1 + 5 + 5 + 5 + 1, s1.getSparseSerializedSize());
+
+		// every other bit, the dense encoding is the smallest
+		s1.clear();
+		for (int i = 0; i < 1000; i += 2)
+			s1.set(i);
+		assertSparse(s1);
+		assertEquals(s1.getSerializedSize(), s1.getSparseSerializedSize());
+	}
+
+	public void testChunkedSerialization()
+	{
+		BitSet s1 = new BitSet();
+		for (int i = 0; i < 100000; i += 7)
+			s1.set(i);
+
+		// a buffer of 64 bytes, flushed to a large one
+		final ByteBuffer stream = ByteBuffer.allocate(s1.getSerializedSize());
+		final ByteBuffer b = ByteBuffer.allocate(64);
+		SerControl flusher = new SerControl() {
+			public void ensureBuffer(int size) {
+				if (b.remaining() < size) {
+					b.flip();
+					stream.put(b);
+					b.clear();
+				}
+			}
+		};
+		s1.serialize(b, flusher);
+		b.flip();
+		stream.put(b);
+		assertFalse(stream.hasRemaining());
+
+		stream.flip();
+		b.clear().flip();
+		SerControl control = new SerControl() {
+			public void ensureData(int size) {
+				b.compact();
+				while (b.hasRemaining() && stream.hasRemaining())
+					b.put(stream.get());
+				b.flip();
+			}
+		};
+		BitSet s2 = new BitSet();
+		s2.deserialize(b, control);
+		assertEquals(s1, s2);
+	}
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.monitor.ChangeListener;
+import org.epics.pvdata.monitor.ChangeSubscription;
+import org.epics.pvdata.monitor.ChangeTracker;
+import org.epics.pvdata.monitor.ChangeTrackerFactory;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PostHandler;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for ChangeTracker.
+ *
+ */
+public class ChangeTrackerTest extends TestCase {
+
+    private static final Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+        add("value", ScalarType.pvDouble).
+        addNestedStructure("alarm").
+            add("severity", ScalarType.pvInt).
+            add("status", ScalarType.pvInt).
+        endNested().
+        addNestedStructure("timeStamp").
+            add("secondsPastEpoch", ScalarType.pvLong).
+            add("nanoseconds", ScalarType.pvInt).
+        endNested().
+        createStructure();
+
+    private static class CountingListener implements ChangeListener {
+        int count = 0;
+
+        public void dataChanged(ChangeSubscription subscription) {
+            count++;
+        }
+    }
+
+    private static BitSet changes(ChangeSubscription subscription) {
+        BitSet bitSet = new BitSet();
+        subscription.getChanges(bitSet);
+        return bitSet;
+    }
+
+    private static BitSet bits(int... offsets) {
+        BitSet bitSet = new BitSet();
+        for (int offset : offsets)
+            bitSet.set(offset);
+        return bitSet;
+    }
+
+    public void testSubscribers()
+    {
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        ChangeTracker tracker = ChangeTrackerFactory.create(pvStructure);
+        assertSame(pvStructure, tracker.getPVStructure());
+
+        PVDouble value = pvStructure.getSubField(PVDouble.class, "value");
+        PVInt severity = pvStructure.getSubField(PVInt.class, "alarm.severity");
+
+        CountingListener listener1 = new CountingListener();
+        CountingListener listener2 = new CountingListener();
+        ChangeSubscription subscription1 = tracker.subscribe(listener1);
+        ChangeSubscription subscription2 = tracker.subscribe(listener2);
+        assertSame(listener1, subscription1.getListener());
+        assertSame(tracker, subscription1.getChangeTracker());
+
+        value.put(1.0);
+        assertEquals(1, listener1.count);
+        assertEquals(1, listener2.count);
+        assertEquals(bits(value.getFieldOffset()), changes(subscription1));
+
+        // changes accumulate per subscription
+        severity.put(2);
+        assertEquals(bits(severity.getFieldOffset()), changes(subscription1));
+        assertEquals(bits(value.getFieldOffset(), severity.getFieldOffset()), changes(subscription2));
+        assertFalse(subscription2.getChanges(new BitSet()));
+
+        subscription1.unsubscribe();
+        value.put(2.0);
+        assertEquals(2, listener1.count);
+        assertEquals(3, listener2.count);
+        assertTrue(changes(subscription1).isEmpty());
+    }
+
+    public void testGroup()
+    {
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        ChangeTracker tracker = ChangeTrackerFactory.create(pvStructure);
+        CountingListener listener = new CountingListener();
+        ChangeSubscription subscription = tracker.subscribe(listener);
+
+        PVDouble value = pvStructure.getSubField(PVDouble.class, "value");
+        PVLong seconds = pvStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch");
+        PVInt nanoseconds = pvStructure.getSubField(PVInt.class, "timeStamp.nanoseconds");
+
+        tracker.beginGroupPut();
+        value.put(1.0);
+        tracker.beginGroupPut();
+        seconds.put(10);
+        nanoseconds.put(20);
+        tracker.endGroupPut();
+        assertEquals(0, listener.count);
+        tracker.endGroupPut();
+        assertEquals(1, listener.count);
+        assertEquals(bits(value.getFieldOffset(), seconds.getFieldOffset(), nanoseconds.getFieldOffset()),
+                changes(subscription));
+
+        // no changes, no notification
+        tracker.beginGroupPut();
+        tracker.endGroupPut();
+        assertEquals(1, listener.count);
+
+        try {
+            tracker.endGroupPut();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+    }
+
+    public void testSubset()
+    {
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        ChangeTracker tracker = ChangeTrackerFactory.create(pvStructure);
+
+        PVStructure timeStamp = pvStructure.getSubField(PVStructure.class, "timeStamp");
+        PVLong seconds = pvStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch");
+        PVInt severity = pvStructure.getSubField(PVInt.class, "alarm.severity");
+
+        CountingListener listener = new CountingListener();
+        ChangeSubscription subscription = tracker.subscribe(listener, bits(seconds.getFieldOffset()));
+
+        // not of interest
+        severity.put(1);
+        assertEquals(0, listener.count);
+
+        // contained, and containing structure
+        seconds.put(1);
+        timeStamp.postPut();
+        pvStructure.postPut();
+        assertEquals(3, listener.count);
+        assertEquals(bits(0, timeStamp.getFieldOffset(), seconds.getFieldOffset()), changes(subscription));
+
+        subscription = tracker.subscribe(listener, bits(timeStamp.getFieldOffset()));
+        seconds.put(2);
+        severity.put(2);
+        assertEquals(bits(seconds.getFieldOffset()), changes(subscription));
+    }
+
+    public void testPostHandler()
+    {
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        pvStructure.getSubField("alarm.status").setPostHandler(new PostHandler() {
+            public void postPut() {}
+        });
+        try {
+            ChangeTrackerFactory.create(pvStructure);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+
+        try {
+            ChangeTrackerFactory.create(pvStructure.getSubField(PVStructure.class, "alarm"));
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            // OK
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVStructureArray;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Benchmark of a large table-like structure array, stored by element (getPVDataCreate)
+ * or by column (getColumnarPVDataCreate): heap used by the array, and time to serialize and deserialize it.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.ColumnarStructureArrayPerformance [rows]</code>
+ */
+public class ColumnarStructureArrayPerformance {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void ensureBuffer(int size) {
+        }
+        public void flushSerializeBuffer() {
+        }
+        public void alignBuffer(int alignment) {
+        }
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {
+        }
+        public void alignData(int alignment) {
+        }
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return fieldCreate.deserialize(buffer, this);
+        }
+    };
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void run(String name, PVDataCreate pvDataCreate, Structure structure, PVStructure[] rows, ByteBuffer buffer, boolean report) {
+        long before = usedMemory();
+        PVStructureArray pvArray = pvDataCreate.createPVStructureArray(structure);
+        pvArray.setCapacity(rows.length);
+        // element storage keeps the instances that are put, put copies so that their memory is counted
+        PVStructure[] element = new PVStructure[1];
+        for (int i = 0; i < rows.length; i++) {
+            element[0] = pvDataCreate.createPVStructure(rows[i]);
+            pvArray.put(i, 1, element, 0);
+        }
+        element = null;
+        long memory = usedMemory() - before;
+
+        long start = System.nanoTime();
+        buffer.clear();
+        pvArray.serialize(buffer, flusher);
+        double serialize = (System.nanoTime() - start) / 1e6;
+
+        buffer.flip();
+        PVStructureArray pvCopy = pvDataCreate.createPVStructureArray(structure);
+        start = System.nanoTime();
+        pvCopy.deserialize(buffer, control);
+        double deserialize = (System.nanoTime() - start) / 1e6;
+
+        // deserialize into an existing array of the same length
+        buffer.flip();
+        start = System.nanoTime();
+        pvCopy.deserialize(buffer, control);
+        double deserializeAgain = (System.nanoTime() - start) / 1e6;
+
+        if (report) {
+            System.out.printf("%-9s %8.1f MB %8.1f ms %11.1f ms %10.1f ms%n", name,
+                    memory / 1e6, serialize, deserialize, deserializeAgain);
+        }
+    }
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("id", ScalarType.pvInt).
+            add("timeStamp", ScalarType.pvLong).
+            add("x", ScalarType.pvDouble).
+            add("y", ScalarType.pvDouble).
+            add("z", ScalarType.pvDouble).
+            createStructure();
+
+        // source rows
+        PVStructure[] rows = new PVStructure[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = pvDataCreate.createPVStructure(structure);
+            rows[i].getSubField(PVInt.class, "id").put(i);
+            rows[i].getSubField(PVLong.class, "timeStamp").put(1000L * i);
+            rows[i].getSubField(PVDouble.class, "x").put(i * 0.1);
+            rows[i].getSubField(PVDouble.class, "y").put(i * 0.2);
+            rows[i].getSubField(PVDouble.class, "z").put(i * 0.3);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(count * 64 + 16);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            if (report)
+                System.out.printf("%d rows    memory      serialize   deserialize  (existing)%n", count);
+            run("element", pvDataCreate, structure, rows, buffer, report);
+            run("columnar", PVDataFactory.getColumnarPVDataCreate(), structure, rows, buffer, report);
+        }
+    }
+}
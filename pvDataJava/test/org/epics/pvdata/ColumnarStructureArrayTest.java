@@ -0,0 +1,230 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.BasePVColumnarStructureArray;
+import org.epics.pvdata.factory.BasePVStructureArray;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVBoolean;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVStructureArray;
+import org.epics.pvdata.pv.PVULong;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.StructureArrayData;
+
+/**
+ * JUnit test for BasePVColumnarStructureArray.
+ *
+ */
+public class ColumnarStructureArrayTest extends TestCase {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final PVDataCreate columnarCreate = PVDataFactory.getColumnarPVDataCreate();
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void ensureBuffer(int size) {
+        }
+        public void flushSerializeBuffer() {
+        }
+        public void alignBuffer(int alignment) {
+        }
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {
+        }
+        public void alignData(int alignment) {
+        }
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return fieldCreate.deserialize(buffer, this);
+        }
+    };
+
+    private static Structure createRowStructure(boolean withString) {
+        if (withString) {
+            return fieldCreate.createFieldBuilder().
+                add("id", ScalarType.pvInt).
+                add("value", ScalarType.pvDouble).
+                add("flag", ScalarType.pvBoolean).
+                add("count", ScalarType.pvULong).
+                add("name", ScalarType.pvString).
+                createStructure();
+        }
+        return fieldCreate.createFieldBuilder().
+            add("id", ScalarType.pvInt).
+            add("value", ScalarType.pvDouble).
+            add("flag", ScalarType.pvBoolean).
+            add("count", ScalarType.pvULong).
+            createStructure();
+    }
+
+    private static PVStructure[] createRows(Structure structure, int count) {
+        PVStructure[] rows = new PVStructure[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 5 == 3)
+                continue;
+            PVStructure row = pvDataCreate.createPVStructure(structure);
+            row.getSubField(PVInt.class, "id").put(i);
+            row.getSubField(PVDouble.class, "value").put(i * 0.5);
+            row.getSubField(PVBoolean.class, "flag").put(i % 2 == 0);
+            row.getSubField(PVULong.class, "count").put(-i);
+            PVString name = row.getSubField(PVString.class, "name");
+            if (name != null)
+                name.put("row" + i);
+            rows[i] = row;
+        }
+        return rows;
+    }
+
+    private static ByteBuffer serialize(PVStructureArray pvArray, int offset, int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        pvArray.serialize(buffer, flusher, offset, count);
+        assertEquals(pvArray.getSerializedSize(offset, count), buffer.position());
+        buffer.flip();
+        return buffer;
+    }
+
+    public void testCreate()
+    {
+        Structure structure = createRowStructure(true);
+        PVStructureArray pvArray = columnarCreate.createPVStructureArray(structure);
+        assertTrue(pvArray instanceof BasePVColumnarStructureArray);
+
+        // a structure with a non-scalar field is stored by element
+        Structure nested = fieldCreate.createFieldBuilder().
+            add("id", ScalarType.pvInt).
+            add("row", structure).
+            createStructure();
+        assertFalse(BasePVColumnarStructureArray.isColumnar(nested));
+        assertTrue(columnarCreate.createPVStructureArray(nested) instanceof BasePVStructureArray);
+
+        // fields of structures created by the columnar factory
+        PVStructure pvStructure = columnarCreate.createPVStructure(fieldCreate.createFieldBuilder().
+            addArray("table", structure).
+            createStructure());
+        assertTrue(pvStructure.getSubField("table") instanceof BasePVColumnarStructureArray);
+    }
+
+    public void testSerialization()
+    {
+        for (int pass = 0; pass < 2; pass++) {
+            Structure structure = createRowStructure(pass == 1);
+            PVStructure[] rows = createRows(structure, 23);
+            PVStructureArray pvArray = pvDataCreate.createPVStructureArray(structure);
+            pvArray.put(0, rows.length, rows, 0);
+            PVStructureArray pvColumnar = columnarCreate.createPVStructureArray(structure);
+            pvColumnar.put(0, rows.length, rows, 0);
+
+            assertEquals(serialize(pvArray, 0, -1), serialize(pvColumnar, 0, -1));
+            assertEquals(serialize(pvArray, 4, 7), serialize(pvColumnar, 4, 7));
+
+            // deserialize into both implementations
+            PVStructureArray pvDeserialized = columnarCreate.createPVStructureArray(structure);
+            pvDeserialized.deserialize(serialize(pvArray, 0, -1), control);
+            assertEquals(rows.length, pvDeserialized.getLength());
+            assertEquals(pvColumnar, pvDeserialized);
+            assertEquals(pvArray, pvDeserialized);
+            assertEquals(pvDeserialized, pvArray);
+            assertEquals(pvArray.hashCode(), pvDeserialized.hashCode());
+
+            PVStructureArray pvBase = pvDataCreate.createPVStructureArray(structure);
+            pvBase.deserialize(serialize(pvColumnar, 0, -1), control);
+            assertEquals(pvArray, pvBase);
+        }
+    }
+
+    public void testViews()
+    {
+        Structure structure = createRowStructure(true);
+        PVStructure[] rows = createRows(structure, 10);
+        PVStructureArray pvColumnar = columnarCreate.createPVStructureArray(structure);
+        pvColumnar.put(0, rows.length, rows, 0);
+
+        StructureArrayData data = new StructureArrayData();
+        assertEquals(10, pvColumnar.get(0, 10, data));
+        assertNull(data.data[3]);
+        PVStructure view = data.data[2];
+        assertEquals(rows[2], view);
+        assertEquals(rows[2].hashCode(), view.hashCode());
+        assertEquals("row2", view.getSubField(PVString.class, "name").get());
+
+        // elements are stored by value
+        assertNotSame(rows[2], view);
+        rows[2].getSubField(PVInt.class, "id").put(100);
+        assertEquals(2, view.getSubField(PVInt.class, "id").get());
+
+        // views write the columns, and stay valid when the array grows
+        view.getSubField(PVDouble.class, "value").put(42.0);
+        pvColumnar.setCapacity(100);
+        view.getSubField(PVString.class, "name").put("renamed");
+        PVStructure[] more = createRows(structure, 20);
+        pvColumnar.put(10, 10, more, 10);
+        pvColumnar.get(0, 20, data);
+        assertSame(view, data.data[2]);
+        assertEquals(42.0, data.data[2].getSubField(PVDouble.class, "value").get());
+        assertEquals("renamed", data.data[2].getSubField(PVString.class, "name").get());
+        assertEquals(more[19], data.data[19]);
+        ByteBuffer buffer = serialize(pvColumnar, 2, 1);
+        PVStructureArray pvCopy = pvDataCreate.createPVStructureArray(structure);
+        pvCopy.deserialize(buffer, control);
+        pvCopy.get(0, 1, data);
+        assertEquals(view, data.data[0]);
+
+        // shift the elements within the array, the views are bound to their index
+        PVStructure saved = pvDataCreate.createPVStructure(view);
+        pvColumnar.get(0, 20, data);
+        PVStructure[] elements = data.data.clone();
+        pvColumnar.put(1, 19, elements, 0);
+        pvColumnar.get(0, 20, data);
+        assertEquals(saved, data.data[3]);
+        assertEquals(rows[1], view);
+        assertEquals(more[18], data.data[19]);
+        assertNull(data.data[4]);
+
+        // incompatible element
+        try {
+            pvColumnar.put(0, 1, createRows(createRowStructure(false), 1), 0);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+    }
+
+    public void testShareData()
+    {
+        Structure structure = createRowStructure(true);
+        PVStructureArray pvColumnar = columnarCreate.createPVStructureArray(structure);
+        pvColumnar.put(0, 10, createRows(structure, 10), 0);
+
+        // elements are copied, the array shrinks to the shared length
+        PVStructure[] rows = createRows(structure, 6);
+        pvColumnar.shareData(rows);
+        assertEquals(6, pvColumnar.getLength());
+        StructureArrayData data = new StructureArrayData();
+        pvColumnar.get(0, 6, data);
+        assertNotSame(rows[2], data.data[2]);
+        assertEquals(rows[2], data.data[2]);
+        assertNull(data.data[3]);
+        rows[2].getSubField(PVInt.class, "id").put(100);
+        assertEquals(2, data.data[2].getSubField(PVInt.class, "id").get());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.LongArrayData;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVScalarArray;
+import org.epics.pvdata.pv.PVULongArray;
+import org.epics.pvdata.pv.ScalarType;
+
+/**
+ * Benchmark of the string conversions of Convert (NumberConvert) on large arrays,
+ * compared with the conversions of the Java library that Convert used before:
+ * String.valueOf and BigInteger for formatting, Double.valueOf and Long.decode for parsing,
+ * and a put of each parsed element.
+ * The arrays are converted into arrays of the same length, so that no put grows an array.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.ConvertPerformance [elements]</code>
+ */
+public class ConvertPerformance {
+    private static final Convert convert = ConvertFactory.getConvert();
+    private static final BigInteger twoToTheSixtyFour = BigInteger.ONE.shiftLeft(64);
+
+    private static volatile int sink;
+
+    private static double toStringArrayJava(PVScalarArray pv, String[] to) {
+        final long start = System.nanoTime();
+        if (pv instanceof PVDoubleArray) {
+            DoubleArrayData data = new DoubleArrayData();
+            ((PVDoubleArray) pv).get(0, to.length, data);
+            for (int i = 0; i < to.length; i++)
+                to[i] = String.valueOf(data.data[i]);
+        } else {
+            LongArrayData data = new LongArrayData();
+            ((PVULongArray) pv).get(0, to.length, data);
+            for (int i = 0; i < to.length; i++) {
+                long value = data.data[i];
+                to[i] = value < 0 ? BigInteger.valueOf(value).add(twoToTheSixtyFour).toString() : String.valueOf(value);
+            }
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double toStringArray(PVScalarArray pv, String[] to) {
+        final long start = System.nanoTime();
+        convert.toStringArray(pv, 0, to.length, to, 0);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double fromStringArrayJava(PVScalarArray pv, String[] from) {
+        final long start = System.nanoTime();
+        if (pv instanceof PVDoubleArray) {
+            double[] data = new double[1];
+            for (int i = 0; i < from.length; i++) {
+                data[0] = Double.valueOf(from[i].trim());
+                ((PVDoubleArray) pv).put(i, 1, data, 0);
+            }
+        } else {
+            long[] data = new long[1];
+            for (int i = 0; i < from.length; i++) {
+                String s = from[i].trim();
+                try {
+                    data[0] = Long.decode(s);
+                } catch (NumberFormatException e) {
+                    data[0] = new BigInteger(s).longValue();
+                }
+                ((PVULongArray) pv).put(i, 1, data, 0);
+            }
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double fromStringArray(PVScalarArray pv, String[] from) {
+        final long start = System.nanoTime();
+        convert.fromStringArray(pv, 0, from.length, from, 0);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double getStringJava(PVScalarArray pv, int length) {
+        final long start = System.nanoTime();
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        if (pv instanceof PVDoubleArray) {
+            DoubleArrayData data = new DoubleArrayData();
+            ((PVDoubleArray) pv).get(0, length, data);
+            for (int i = 0; i < length; i++) {
+                if (i != 0)
+                    builder.append(',');
+                builder.append(String.valueOf(data.data[i]));
+            }
+        } else {
+            LongArrayData data = new LongArrayData();
+            ((PVULongArray) pv).get(0, length, data);
+            for (int i = 0; i < length; i++) {
+                if (i != 0)
+                    builder.append(',');
+                long value = data.data[i];
+                builder.append(value < 0 ? BigInteger.valueOf(value).add(twoToTheSixtyFour).toString() : String.valueOf(value));
+            }
+        }
+        builder.append(']');
+        sink = builder.length();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double getString(PVScalarArray pv) {
+        final long start = System.nanoTime();
+        StringBuilder builder = new StringBuilder();
+        convert.getString(builder, pv);
+        sink = builder.length();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static void run(String name, PVScalarArray pv, int length, boolean report) {
+        final String[] strings = new String[length];
+        double t1 = toStringArrayJava(pv, strings);
+        double t2 = toStringArray(pv, strings);
+        double t3 = fromStringArrayJava(pv, strings);
+        double t4 = fromStringArray(pv, strings);
+        double t5 = getStringJava(pv, length);
+        double t6 = getString(pv);
+        if (report) {
+            System.out.printf("%s[%d]         Java      Convert%n", name, length);
+            System.out.printf("toStringArray   %7.1f ms %7.1f ms%n", t1, t2);
+            System.out.printf("fromStringArray %7.1f ms %7.1f ms%n", t3, t4);
+            System.out.printf("getString       %7.1f ms %7.1f ms%n", t5, t6);
+        }
+    }
+
+    public static void main(String[] args) {
+        final int length = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final Random random = new Random(1);
+
+        // measured values of limited precision, and values of full precision
+        double[] measured = new double[length];
+        double[] random53 = new double[length];
+        long[] counters = new long[length];
+        for (int i = 0; i < length; i++) {
+            measured[i] = random.nextInt(10000000) / 1000.0;
+            random53[i] = random.nextDouble() * 1000.0;
+            counters[i] = random.nextLong();
+        }
+        PVDoubleArray pvMeasured = (PVDoubleArray) PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+        pvMeasured.put(0, length, measured, 0);
+        PVDoubleArray pvRandom = (PVDoubleArray) PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvDouble);
+        pvRandom.put(0, length, random53, 0);
+        PVULongArray pvCounters = (PVULongArray) PVDataFactory.getPVDataCreate().createPVScalarArray(ScalarType.pvULong);
+        pvCounters.put(0, length, counters, 0);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            run("double (3 decimals)", pvMeasured, length, report);
+            run("double (random)", pvRandom, length, report);
+            run("ulong (random)", pvCounters, length, report);
+        }
+    }
+}
@@ -5,11 +5,19 @@
 package org.epics.pvdata;
 
 
+import java.nio.ByteBuffer;
+
 import junit.framework.TestCase;
 
 import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
 import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.PVByte;
 import org.epics.pvdata.pv.PVByteArray;
 import org.epics.pvdata.pv.PVDataCreate;
@@ -31,7 +39,10 @@ import org.epics.pvdata.pv.PVULong;
 import org.epics.pvdata.pv.PVULongArray;
 import org.epics.pvdata.pv.PVUShort;
 import org.epics.pvdata.pv.PVUShortArray;
+import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
 
 /**
  * JUnit test for BitSet.
@@ -499,4 +510,114 @@ public class ConvertTest extends TestCase {
         convert.copyScalarArray(pvULong,0, pvDouble,0,length);
         print("double from unsigned " +pvDouble.toString());
 	}
+	public void testCopyBitSet() {
+	    Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+	        add("value", ScalarType.pvDouble).
+	        add("alarm", StandardFieldFactory.getStandardField().alarm()).
+	        add("timeStamp", StandardFieldFactory.getStandardField().timeStamp()).
+	        createStructure();
+	    PVStructure from = pvDataCreate.createPVStructure(structure);
+	    PVStructure to = pvDataCreate.createPVStructure(structure);
+	    from.getDoubleField("value").put(1.0);
+	    from.getIntField("alarm.severity").put(2);
+	    from.getStringField("alarm.message").put("major");
+	    from.getIntField("timeStamp.userTag").put(3);
+
+	    // leaf fields only
+	    BitSet bitSet = new BitSet(from.getNumberFields());
+	    bitSet.set(from.getSubField("value").getFieldOffset());
+	    bitSet.set(from.getSubField("alarm.message").getFieldOffset());
+	    convert.copy(from, to, bitSet);
+	    assertEquals(1.0, to.getDoubleField("value").get());
+	    assertEquals("major", to.getStringField("alarm.message").get());
+	    assertEquals(0, to.getIntField("alarm.severity").get());
+	    assertEquals(0, to.getIntField("timeStamp.userTag").get());
+
+	    // structure bit selects all its subfields
+	    bitSet.clear();
+	    bitSet.set(from.getSubField("alarm").getFieldOffset());
+	    convert.copy(from, to, bitSet);
+	    assertEquals(2, to.getIntField("alarm.severity").get());
+	    assertEquals(0, to.getIntField("timeStamp.userTag").get());
+
+	    // bit 0 selects everything
+	    bitSet.clear();
+	    bitSet.set(0);
+	    convert.copy(from, to, bitSet);
+	    assertEquals(from, to);
+
+	    PVStructure other = pvDataCreate.createPVStructure(StandardFieldFactory.getStandardField().alarm());
+	    try {
+	        convert.copy(from, other, bitSet);
+	        fail("IllegalArgumentException expected");
+	    } catch (IllegalArgumentException iae) {
+	        // OK
+	    }
+	}
+	public void testCopyOnWrite() {
+	    PVDoubleArray from = (PVDoubleArray)pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+	    PVDoubleArray to = (PVDoubleArray)pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+	    from.put(0, 3, new double[] { 1.0, 2.0, 3.0 }, 0);
+	    assertFalse(from.isShared());
+
+	    // copied unless shared by the owner
+	    convert.copy(from, to);
+	    assertFalse(from.isShared());
+	    assertFalse(to.isShared());
+	    assertEquals(from, to);
+	    DoubleArrayData copyData = new DoubleArrayData();
+	    from.get(0, 3, copyData);
+	    double[] copied = copyData.data;
+	    to.get(0, 3, copyData);
+	    assertNotSame(copied, copyData.data);
+
+	    from.share();
+	    convert.copy(from, to);
+	    assertTrue(from.isShared());
+	    assertTrue(to.isShared());
+	    assertEquals(from, to);
+	    DoubleArrayData fromData = new DoubleArrayData();
+	    DoubleArrayData toData = new DoubleArrayData();
+	    from.get(0, 3, fromData);
+	    to.get(0, 3, toData);
+	    assertSame(fromData.data, toData.data);
+
+	    // write replaces the shared array
+	    double[] shared = fromData.data;
+	    to.put(1, 1, new double[] { 5.0 }, 0);
+	    assertFalse(to.isShared());
+	    assertEquals(2.0, shared[1]);
+	    to.get(0, 3, toData);
+	    assertEquals(5.0, toData.data[1]);
+	    assertEquals(3, to.getLength());
+	    from.get(0, 3, fromData);
+	    assertSame(shared, fromData.data);
+
+	    // deserialize replaces the shared array
+	    ByteBuffer buffer = ByteBuffer.allocate(128);
+	    SerializableControl serializableControl = new SerializableControl() {
+	        public void flushSerializeBuffer() {}
+	        public void ensureBuffer(int size) {}
+	        public void alignBuffer(int alignment) {}
+	        public void cachedSerialize(Field field, ByteBuffer buffer) { field.serialize(buffer, this); }
+	    };
+	    DeserializableControl deserializableControl = new DeserializableControl() {
+	        public void ensureData(int size) {}
+	        public void alignData(int alignment) {}
+	        public Field cachedDeserialize(ByteBuffer buffer) { return null; }
+	    };
+	    to.serialize(buffer, serializableControl);
+	    buffer.flip();
+	    from.deserialize(buffer, deserializableControl);
+	    assertFalse(from.isShared());
+	    assertEquals(2.0, shared[1]);
+	    assertEquals(to, from);
+
+	    // shared by the caller
+	    from.share();
+	    from.get(0, 3, fromData);
+	    shared = fromData.data;
+	    from.put(0, 1, new double[] { 7.0 }, 0);
+	    assertEquals(1.0, shared[0]);
+	}
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.pv.PVStructure;
+
+/**
+ * Benchmark of opening many channels with the same request string:
+ * the pvRequest structure of each channel is created by parsing the request (CreateRequest.createRequest),
+ * or from the cached parse (CreateRequest.compile).
+ * <p>
+ * Usage: <code>java org.epics.pvdata.CreateRequestPerformance [channels [request]]</code>
+ */
+public class CreateRequestPerformance {
+
+    private static double parse(String request, int channels) {
+        final CreateRequest createRequest = CreateRequest.create();
+        final long start = System.nanoTime();
+        for (int i = 0; i < channels; i++) {
+            PVStructure pvRequest = createRequest.createRequest(request);
+            if (pvRequest == null)
+                throw new IllegalArgumentException(createRequest.getMessage());
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static double compile(String request, int channels) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < channels; i++) {
+            PVStructure pvRequest = CreateRequest.compile(request).createPVRequest();
+            if (pvRequest == null)
+                throw new IllegalArgumentException(CreateRequest.compile(request).getMessage());
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    public static void main(String[] args) {
+        final int channels = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        final String request = args.length > 1 ? args[1] : "field(value,alarm,timeStamp)";
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            double t1 = parse(request, channels);
+            double t2 = compile(request, channels);
+            if (report) {
+                System.out.printf("%d channels, request \"%s\"%n", channels, request);
+                System.out.printf("createRequest: %.1f ms, %.2f us/channel%n", t1, t1 * 1e3 / channels);
+                System.out.printf("compile:       %.1f ms, %.2f us/channel%n", t2, t2 * 1e3 / channels);
+            }
+        }
+    }
+}
@@ -6,8 +6,10 @@ package org.epics.pvdata;
 
 import junit.framework.TestCase;
 
+import org.epics.pvdata.copy.CompiledRequest;
 import org.epics.pvdata.copy.CreateRequest;
 import org.epics.pvdata.pv.MessageType;
+import org.epics.pvdata.pv.PVString;
 import org.epics.pvdata.pv.PVStructure;
 import org.epics.pvdata.pv.Requester;
 
@@ -186,5 +188,55 @@ public class CreateRequestTest extends TestCase {
         assertTrue(pvRequest!=null);
         System.out.printf("request %s%n%s%n",request,pvRequest.toString());
     }
-}
 
+    public static void testCompile() throws InterruptedException {
+        final String[] requests = {
+            "",
+            "field(value,alarm,timeStamp)",
+            "record[process=true]field(value[a=b],alarm)",
+            "record[process=true,xxx=yyy]putField(power.value)getField(alarm,timeStamp,power{value,alarm})",
+            "field(alarm.status,alarm.severity)",
+            "field(value"
+        };
+        for (String request : requests) {
+            CompiledRequest compiled = CreateRequest.compile(request);
+            assertSame(compiled, CreateRequest.compile(request));
+
+            // same result as createRequest
+            PVStructure expected = createRequest.createRequest(request);
+            assertEquals(expected, compiled.createPVRequest());
+            assertEquals(expected != null, compiled.isValid());
+            assertEquals(createRequest.getMessage(), compiled.getMessage());
+        }
+
+        // each request structure is a new instance
+        CompiledRequest compiled = CreateRequest.compile("record[process=true]field(value)");
+        PVStructure pvRequest = compiled.createPVRequest();
+        assertSame(compiled.getStructure(), pvRequest.getStructure());
+        PVString process = pvRequest.getSubField(PVString.class, "record._options.process");
+        assertEquals("true", process.get());
+        process.put("false");
+        assertEquals("true", compiled.createPVRequest().getSubField(PVString.class, "record._options.process").get());
+
+        // thread-safe
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        String request = "field(value" + ((i + id) % 10) + ",alarm)";
+                        PVStructure pvRequest = CreateRequest.compile(request).createPVRequest();
+                        if (pvRequest == null || pvRequest.getSubField("field.value" + ((i + id) % 10)) == null)
+                            failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertFalse(failed[0]);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.FieldPath;
+import org.epics.pvdata.pv.FieldBuilder;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardField;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for field name lookup and FieldPath.
+ *
+ */
+public class FieldPathTest extends TestCase {
+
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+
+    private static Structure createWideStructure(int count) {
+        FieldBuilder fb = fieldCreate.createFieldBuilder();
+        for (int i = 0; i < count; i++)
+            fb.add("field" + i, ScalarType.pvDouble);
+        return fb.add("alarm", standardField.alarm()).createStructure();
+    }
+
+    public void testGetSubField()
+    {
+        PVStructure pvStructure = pvDataCreate.createPVStructure(createWideStructure(200));
+        for (int i = 0; i < 200; i++) {
+            PVDouble pvDouble = pvStructure.getSubField(PVDouble.class, "field" + i);
+            assertNotNull(pvDouble);
+            assertSame(pvStructure.getPVFields()[i], pvDouble);
+            assertEquals(i, pvStructure.getStructure().getFieldIndex("field" + i));
+        }
+        assertNotNull(pvStructure.getSubField(PVInt.class, "alarm.severity"));
+        assertNotNull(pvStructure.getSubField(PVString.class, "alarm.message"));
+        assertEquals("severity", pvStructure.getSubField("alarm.severity").getFieldName());
+
+        assertNull(pvStructure.getSubField("field200"));
+        assertNull(pvStructure.getSubField("alarm."));
+        assertNull(pvStructure.getSubField(".alarm"));
+        assertNull(pvStructure.getSubField("alarm..severity"));
+        assertNull(pvStructure.getSubField("alarm.severity.x"));
+        assertNull(pvStructure.getSubField("field0.x"));
+        assertNull(pvStructure.getSubField(""));
+        assertNull(pvStructure.getSubField((String)null));
+        assertEquals(-1, pvStructure.getStructure().getFieldIndex("field"));
+    }
+
+    public void testFieldPath()
+    {
+        Structure structure = createWideStructure(10);
+        FieldPath path = FieldPath.compile(structure, "alarm.severity");
+        assertEquals("alarm.severity", path.getPath());
+        assertSame(structure, path.getStructure());
+        assertEquals(fieldCreate.createScalar(ScalarType.pvInt), path.getField());
+
+        PVStructure pvStructure1 = pvDataCreate.createPVStructure(structure);
+        PVStructure pvStructure2 = pvDataCreate.createPVStructure(structure);
+        assertSame(pvStructure1.getSubField("alarm.severity"), path.get(pvStructure1));
+        assertSame(pvStructure2.getSubField("alarm.severity"), path.get(pvStructure2));
+        assertSame(pvStructure1.getSubField("alarm.severity"), path.get(PVInt.class, pvStructure1));
+        assertNull(path.get(PVDouble.class, pvStructure1));
+
+        assertSame(pvStructure1.getSubField("field3"), FieldPath.compile(structure, "field3").get(pvStructure1));
+
+        // not applicable to a different structure
+        PVStructure pvOther = pvDataCreate.createPVStructure(createWideStructure(11));
+        assertFalse(path.isApplicable(pvOther));
+        try {
+            path.get(pvOther);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            // OK
+        }
+
+        String[] invalidPaths = { "alarm.x", "field3.x", "alarm.", "", "x" };
+        for (String invalidPath : invalidPaths) {
+            try {
+                FieldPath.compile(structure, invalidPath);
+                fail("IllegalArgumentException expected for '" + invalidPath + "'");
+            } catch (IllegalArgumentException iae) {
+                // OK
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Arrays;
 
 import junit.framework.TestCase;
 
+import org.epics.pvdata.factory.BaseStructure;
 import org.epics.pvdata.factory.BaseUnion;
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.pv.BoundedString;
@@ -145,4 +146,65 @@ public class IntrospectionTest extends TestCase {
         assertEquals(16, boundedString.getMaximumLength());
 		System.out.println(boundedString);
 	}
+
+	public void testInterning() {
+		if (!FieldFactory.isInterning())
+			return;
+
+		String[] fieldNames = { "value", "timeStamp" };
+		Field[] fields = {
+				fieldCreate.createScalar(ScalarType.pvDouble),
+				fieldCreate.createStructure("time_t",
+						new String[] { "secondsPastEpoch", "nanoseconds", "userTag" },
+						new Field[] { fieldCreate.createScalar(ScalarType.pvLong),
+								fieldCreate.createScalar(ScalarType.pvInt),
+								fieldCreate.createScalar(ScalarType.pvInt) })
+		};
+		Structure structure = fieldCreate.createStructure("interned_t", fieldNames.clone(), fields.clone());
+
+		// structurally equal fields are the same instance
+		assertSame(structure, fieldCreate.createStructure("interned_t", fieldNames.clone(), fields.clone()));
+		assertSame(structure, fieldCreate.createFieldBuilder().
+				setId("interned_t").
+				add("value", ScalarType.pvDouble).
+				addNestedStructure("timeStamp").
+					setId("time_t").
+					add("secondsPastEpoch", ScalarType.pvLong).
+					add("nanoseconds", ScalarType.pvInt).
+					add("userTag", ScalarType.pvInt).
+					endNested().
+				createStructure());
+		assertSame(fieldCreate.createStructureArray(structure), fieldCreate.createStructureArray(structure));
+		assertSame(fieldCreate.createUnion(fieldNames, fields), fieldCreate.createUnion(fieldNames, fields));
+		assertSame(fieldCreate.createVariantUnion(), fieldCreate.createUnion(new String[0], new Field[0]));
+		assertSame(fieldCreate.createBoundedString(8), fieldCreate.createBoundedString(8));
+		assertSame(fieldCreate.createFixedScalarArray(ScalarType.pvInt, 4), fieldCreate.createFixedScalarArray(ScalarType.pvInt, 4));
+
+		// different structures remain different
+		Structure other = fieldCreate.createStructure("other_t", fieldNames, fields);
+		assertNotSame(structure, other);
+		assertFalse(structure.equals(other));
+		assertFalse(structure.equals(fieldCreate.createStructure("interned_t",
+				new String[] { "value", "time" }, fields)));
+
+		// equal to a non-interned instance
+		assertEquals(new BaseStructure("interned_t", fieldNames, fields), structure);
+		assertEquals(structure, new BaseStructure("interned_t", fieldNames, fields));
+		assertEquals(structure.hashCode(), new BaseStructure("interned_t", fieldNames, fields).hashCode());
+
+		// the canonical instance does not keep the caller's arrays
+		String[] names = { "x", "y" };
+		Field[] members = { fieldCreate.createScalar(ScalarType.pvInt), fieldCreate.createScalar(ScalarType.pvInt) };
+		Structure point = fieldCreate.createStructure("point_t", names, members);
+		names[1] = "z";
+		members[1] = fieldCreate.createScalar(ScalarType.pvString);
+		assertEquals("y", point.getFieldNames()[1]);
+		assertSame(fieldCreate.createScalar(ScalarType.pvInt), point.getField("y"));
+
+		// cloning keeps the canonical instance intact
+		assertSame(structure, fieldCreate.createStructure(structure));
+		assertEquals(fieldNames[0], structure.getFieldNames()[0]);
+
+		assertTrue(FieldFactory.getInternedCount() > 0);
+	}
 }
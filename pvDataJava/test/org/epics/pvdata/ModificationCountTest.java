@@ -0,0 +1,115 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+
+/**
+ * JUnit test for PVField.getModificationCount.
+ *
+ */
+public class ModificationCountTest extends TestCase {
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void ensureBuffer(int size) {
+        }
+        public void flushSerializeBuffer() {
+        }
+        public void alignBuffer(int alignment) {
+        }
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {
+        }
+        public void alignData(int alignment) {
+        }
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return null;
+        }
+    };
+
+    private static void deserialize(PVField from, PVField to) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        from.serialize(buffer, flusher);
+        buffer.flip();
+        to.deserialize(buffer, control);
+    }
+
+    public void testScalar() {
+        for (ScalarType type : ScalarType.values()) {
+            PVScalar pvScalar = pvDataCreate.createPVScalar(type);
+            long count = pvScalar.getModificationCount();
+            pvScalar.postPut();
+            assertEquals(count + 1, pvScalar.getModificationCount());
+            deserialize(pvDataCreate.createPVScalar(type), pvScalar);
+            assertEquals(count + 2, pvScalar.getModificationCount());
+        }
+        PVDouble pvDouble = (PVDouble)pvDataCreate.createPVScalar(ScalarType.pvDouble);
+        long count = pvDouble.getModificationCount();
+        // a put of the same value is a modification
+        pvDouble.put(pvDouble.get());
+        assertEquals(count + 1, pvDouble.getModificationCount());
+    }
+
+    public void testArray() {
+        PVDoubleArray pvArray = (PVDoubleArray)pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        long count = pvArray.getModificationCount();
+        pvArray.put(0, 3, new double[] { 1, 2, 3 }, 0);
+        assertTrue(pvArray.getModificationCount() > count);
+
+        count = pvArray.getModificationCount();
+        pvArray.shareData(new double[] { 4, 5 });
+        assertTrue(pvArray.getModificationCount() > count);
+
+        count = pvArray.getModificationCount();
+        pvArray.setLength(1);
+        assertTrue(pvArray.getModificationCount() > count);
+
+        count = pvArray.getModificationCount();
+        pvArray.setLength(1);
+        assertEquals(count, pvArray.getModificationCount());
+
+        PVDoubleArray from = (PVDoubleArray)pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        from.put(0, 2, new double[] { 6, 7 }, 0);
+        count = pvArray.getModificationCount();
+        deserialize(from, pvArray);
+        assertTrue(pvArray.getModificationCount() > count);
+        assertEquals(from, pvArray);
+    }
+
+    public void testStructure() {
+        PVStructure pvStructure = pvDataCreate.createPVStructure(
+                new String[] { "value", "message" },
+                new PVField[] { pvDataCreate.createPVScalar(ScalarType.pvDouble),
+                                pvDataCreate.createPVScalar(ScalarType.pvString) });
+        PVString message = pvStructure.getSubField(PVString.class, "message");
+        long structureCount = pvStructure.getModificationCount();
+        long valueCount = pvStructure.getSubField("value").getModificationCount();
+        message.put("changed");
+        assertEquals(structureCount, pvStructure.getModificationCount());
+        assertEquals(valueCount, pvStructure.getSubField("value").getModificationCount());
+        assertTrue(message.getModificationCount() > 0);
+    }
+}
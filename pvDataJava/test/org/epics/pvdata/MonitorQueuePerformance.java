@@ -0,0 +1,131 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.ScalarType;
+
+/**
+ * Microbenchmark of MonitorQueue throughput (elements/sec) between a producer and a consumer thread,
+ * for queue sizes 2, 16 and 256.
+ * The default queue is used with every call synchronized on the queue (as its users do),
+ * the single producer, single consumer queue without synchronization.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.MonitorQueuePerformance [seconds per case]</code>
+ */
+public class MonitorQueuePerformance {
+
+    private static final int[] QUEUE_SIZES = { 2, 16, 256 };
+
+    private static MonitorElement[] createElements(int queueSize) {
+        Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+            add("value", ScalarType.pvDouble).
+            createStructure();
+        MonitorElement[] elements = new MonitorElement[queueSize];
+        for (int i = 0; i < queueSize; i++)
+            elements[i] = MonitorQueueFactory.createMonitorElement(
+                    PVDataFactory.getPVDataCreate().createPVStructure(structure));
+        return elements;
+    }
+
+    private static MonitorElement getFree(MonitorQueue queue, boolean sync) {
+        if (sync) {
+            synchronized (queue) {
+                return queue.getFree();
+            }
+        }
+        return queue.getFree();
+    }
+
+    private static void setUsed(MonitorQueue queue, MonitorElement element, boolean sync) {
+        if (sync) {
+            synchronized (queue) {
+                queue.setUsed(element);
+            }
+        }
+        else
+            queue.setUsed(element);
+    }
+
+    private static MonitorElement getUsed(MonitorQueue queue, boolean sync) {
+        if (sync) {
+            synchronized (queue) {
+                return queue.getUsed();
+            }
+        }
+        return queue.getUsed();
+    }
+
+    private static void releaseUsed(MonitorQueue queue, MonitorElement element, boolean sync) {
+        if (sync) {
+            synchronized (queue) {
+                queue.releaseUsed(element);
+            }
+        }
+        else
+            queue.releaseUsed(element);
+    }
+
+    private static double run(final MonitorQueue queue, final boolean sync, final long durationNs)
+        throws InterruptedException {
+        final long end = System.nanoTime() + durationNs;
+        final long[] produced = new long[1];
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                long count = 0;
+                while (System.nanoTime() < end) {
+                    for (int i = 0; i < 1000; i++) {
+                        MonitorElement element;
+                        while ((element = getFree(queue, sync)) == null)
+                            Thread.yield();
+                        setUsed(queue, element, sync);
+                    }
+                    count += 1000;
+                }
+                produced[0] = count;
+            }
+        });
+
+        final long start = System.nanoTime();
+        producer.start();
+        long consumed = 0;
+        while (true) {
+            MonitorElement element = getUsed(queue, sync);
+            if (element == null) {
+                if (!producer.isAlive() && consumed == produced[0])
+                    break;
+                Thread.yield();
+                continue;
+            }
+            releaseUsed(queue, element, sync);
+            consumed++;
+        }
+        producer.join();
+        final long elapsed = System.nanoTime() - start;
+        return consumed * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final long durationNs = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 2.0) * 1e9);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            for (int queueSize : QUEUE_SIZES) {
+                double r1 = run(MonitorQueueFactory.create(createElements(queueSize)), true, durationNs);
+                double r2 = run(MonitorQueueFactory.createSPSC(createElements(queueSize)), false, durationNs);
+                if (report) {
+                    System.out.printf("queueSize %d, synchronized queue: %.0f elements/s%n", queueSize, r1);
+                    System.out.printf("queueSize %d, SPSC queue:         %.0f elements/s%n", queueSize, r2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.monitor.MonitorElement;
+import org.epics.pvdata.monitor.MonitorQueue;
+import org.epics.pvdata.monitor.MonitorQueueFactory;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for MonitorQueue.
+ *
+ */
+public class MonitorQueueTest extends TestCase {
+
+    private static MonitorElement[] createElements(int queueSize) {
+        Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+            add("value", ScalarType.pvLong).
+            createStructure();
+        MonitorElement[] elements = new MonitorElement[queueSize];
+        for (int i = 0; i < queueSize; i++)
+            elements[i] = MonitorQueueFactory.createMonitorElement(
+                    PVDataFactory.getPVDataCreate().createPVStructure(structure));
+        return elements;
+    }
+
+    private void queueTest(MonitorQueue queue, boolean checkOrder)
+    {
+        final int capacity = queue.capacity();
+        assertEquals(capacity, queue.getNumberFree());
+        assertNull(queue.getUsed());
+
+        for (int pass = 0; pass < 3; pass++) {
+            MonitorElement[] taken = new MonitorElement[capacity];
+            for (int i = 0; i < capacity; i++) {
+                taken[i] = queue.getFree();
+                assertNotNull(taken[i]);
+                assertEquals(capacity - i - 1, queue.getNumberFree());
+            }
+            assertNull(queue.getFree());
+
+            // used in getFree order
+            if (checkOrder) {
+                try {
+                    queue.setUsed(taken[1]);
+                    fail("IllegalStateException expected");
+                } catch (IllegalStateException ise) {
+                    // OK
+                }
+            }
+            for (int i = 0; i < capacity; i++)
+                queue.setUsed(taken[i]);
+
+            for (int i = 0; i < capacity; i++) {
+                MonitorElement element = queue.getUsed();
+                assertSame(taken[i], element);
+                queue.releaseUsed(element);
+                assertEquals(i + 1, queue.getNumberFree());
+            }
+            assertNull(queue.getUsed());
+
+            // wraps around
+            assertNotNull(queue.getFree());
+            queue.clear();
+            assertEquals(capacity, queue.getNumberFree());
+        }
+    }
+
+    public void testQueue()
+    {
+        // the default queue is left inconsistent by a wrong element
+        queueTest(MonitorQueueFactory.create(createElements(2)), false);
+        queueTest(MonitorQueueFactory.create(createElements(5)), false);
+        queueTest(MonitorQueueFactory.createSPSC(createElements(2)), true);
+        queueTest(MonitorQueueFactory.createSPSC(createElements(5)), true);
+
+        try {
+            MonitorQueueFactory.createSPSC(createElements(1));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+    }
+
+    public void testSPSC() throws InterruptedException
+    {
+        final int count = 100000;
+        final MonitorQueue queue = MonitorQueueFactory.createSPSC(createElements(4));
+
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                for (long i = 0; i < count; i++) {
+                    MonitorElement element;
+                    while ((element = queue.getFree()) == null)
+                        Thread.yield();
+                    element.getPVStructure().getSubField(PVLong.class, "value").put(i);
+                    queue.setUsed(element);
+                }
+            }
+        });
+        producer.start();
+
+        for (long i = 0; i < count; i++) {
+            MonitorElement element;
+            while ((element = queue.getUsed()) == null)
+                Thread.yield();
+            PVStructure pvStructure = element.getPVStructure();
+            assertEquals(i, pvStructure.getSubField(PVLong.class, "value").get());
+            queue.releaseUsed(element);
+        }
+        producer.join();
+        assertEquals(queue.capacity(), queue.getNumberFree());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.ConvertFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.NumberConvert;
+import org.epics.pvdata.pv.Convert;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVIntArray;
+import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVULong;
+import org.epics.pvdata.pv.PVULongArray;
+import org.epics.pvdata.pv.ScalarType;
+
+/**
+ * JUnit test for NumberConvert.
+ *
+ */
+public class NumberConvertTest extends TestCase {
+    private static final Convert convert = ConvertFactory.getConvert();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private static String format(double value) {
+        char[] buffer = new char[NumberConvert.MAX_LENGTH];
+        return new String(buffer, 0, NumberConvert.format(value, buffer, 0));
+    }
+
+    private static String format(float value) {
+        char[] buffer = new char[NumberConvert.MAX_LENGTH];
+        return new String(buffer, 0, NumberConvert.format(value, buffer, 0));
+    }
+
+    private static long parseLong(String s) {
+        return NumberConvert.parseLong(s, 0, s.length());
+    }
+
+    public void testFormatInteger()
+    {
+        char[] buffer = new char[NumberConvert.MAX_LENGTH];
+        long[] values = { 0, 1, -1, 9, 10, -10, 123456789, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long value : values) {
+            assertEquals(Long.toString(value), new String(buffer, 0, NumberConvert.format(value, buffer, 0)));
+            BigInteger unsigned = BigInteger.valueOf(value);
+            if (value < 0)
+                unsigned = unsigned.add(BigInteger.ONE.shiftLeft(64));
+            assertEquals(unsigned.toString(), NumberConvert.toStringUnsigned(value));
+            assertEquals(unsigned.toString(), NumberConvert.appendUnsigned(new StringBuilder(), value).toString());
+        }
+        assertEquals("255", NumberConvert.appendUnsigned(new StringBuilder(), (byte) -1).toString());
+        assertEquals("65535", NumberConvert.appendUnsigned(new StringBuilder(), (short) -1).toString());
+        assertEquals("4294967295", NumberConvert.appendUnsigned(new StringBuilder(), -1).toString());
+
+        // offset
+        int end = NumberConvert.format(-42L, buffer, 3);
+        assertEquals("-42", new String(buffer, 3, end - 3));
+    }
+
+    public void testFormatDouble()
+    {
+        double[] values = { 0.0, 1.0, 0.1, 0.3, 0.002, 0.001, 1e-4, 3e16, 123456.789, 1e7, 9999999.0, 1.5e300,
+                Double.MIN_VALUE, 0x1.0p-1022, Double.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (double value : values) {
+            assertEquals(Double.toString(value), format(value));
+            assertEquals(Double.toString(-value), format(-value));
+        }
+        float[] floatValues = { 0.0f, 1.0f, 0.1f, 0.001f, 1e-4f, 123456.79f, 1e7f, 3.4e38f,
+                Float.MIN_VALUE, Float.MAX_VALUE, Float.NaN, Float.POSITIVE_INFINITY };
+        for (float value : floatValues) {
+            assertEquals(Float.toString(value), format(value));
+            assertEquals(Float.toString(-value), format(-value));
+        }
+
+        // shortest, Double.toString and Float.toString of older JDKs give 1.9999999999999998E23 and 1.17549435E-38
+        // (0x1.0p-126f is Float.MIN_NORMAL, which is Java 6)
+        assertEquals("1.1754944E-38", format(0x1.0p-126f));
+        assertEquals("2.0E23", format(2e23));
+        assertEquals("2.0E23", NumberConvert.append(new StringBuilder(), 2e23).toString());
+        assertEquals("2.0E23", NumberConvert.toString(2e23));
+    }
+
+    public void testRoundTrip()
+    {
+        Random random = new Random(41);
+        for (int i = 0; i < 100000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value))
+                continue;
+            String s = format(value);
+            assertEquals(value, Double.parseDouble(s));
+            assertEquals(value, NumberConvert.parseDouble(s, 0, s.length()));
+            // no shorter decimal converts to value
+            BigDecimal decimal = new BigDecimal(s).stripTrailingZeros();
+            if (value != 0 && !Double.isInfinite(value) && decimal.precision() > 1)
+                assertTrue(new BigDecimal(value).round(new MathContext(decimal.precision() - 1)).doubleValue() != value);
+
+            float floatValue = Float.intBitsToFloat(random.nextInt());
+            if (Float.isNaN(floatValue))
+                continue;
+            s = format(floatValue);
+            assertEquals(floatValue, Float.parseFloat(s));
+            assertEquals(floatValue, NumberConvert.parseFloat(s, 0, s.length()));
+        }
+    }
+
+    public void testParse()
+    {
+        assertEquals(8, parseLong("010"));
+        assertEquals(-255, parseLong("-#ff"));
+        assertEquals(255, parseLong("0xFF"));
+        assertEquals(15, parseLong("o17"));
+        assertEquals(Long.MIN_VALUE, parseLong("-9223372036854775808"));
+        // truncated to 64 bits
+        assertEquals(-1, parseLong("18446744073709551615"));
+        assertEquals(-1, parseLong("0xFFFFFFFFFFFFFFFF"));
+        String[] invalid = { "", "-", "0x", " 1", "1.5", "abc" };
+        for (String s : invalid) {
+            try {
+                parseLong(s);
+                fail("NumberFormatException expected for '" + s + "'");
+            } catch (NumberFormatException nfe) {
+                // OK
+            }
+        }
+        assertEquals(7, NumberConvert.parseLong("x=7;", 2, 3));
+
+        assertTrue(NumberConvert.parseBoolean("TRUE", 0, 4));
+        assertFalse(NumberConvert.parseBoolean("yes", 0, 3));
+
+        String[] doubles = { "1", "-0", "0.5", ".5", "1.", "  2.5e3 ", "1E-5", "123456789012345678",
+                "1e23", "4.9e-324", "1e400", "NaN", "-Infinity", "1.5d", "0x1p3" };
+        for (String s : doubles) {
+            assertEquals(Double.parseDouble(s), NumberConvert.parseDouble(s, 0, s.length()));
+            assertEquals(Float.parseFloat(s), NumberConvert.parseFloat(s, 0, s.length()));
+        }
+        try {
+            NumberConvert.parseDouble("1.5x", 0, 4);
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException nfe) {
+            // OK
+        }
+    }
+
+    public void testConvert()
+    {
+        PVULong pvULong = (PVULong) pvDataCreate.createPVScalar(ScalarType.pvULong);
+        convert.fromString(pvULong, "18446744073709551615");
+        assertEquals(-1, pvULong.get());
+        assertEquals("18446744073709551615", convert.toString((PVScalar) pvULong));
+        assertEquals("ulong  18446744073709551615", pvULong.toString());
+
+        PVULongArray pvULongArray = (PVULongArray) pvDataCreate.createPVScalarArray(ScalarType.pvULong);
+        pvULongArray.put(0, 2, new long[] { -1, 1 }, 0);
+        String[] strings = new String[2];
+        convert.toStringArray(pvULongArray, 0, 2, strings, 0);
+        assertEquals("18446744073709551615", strings[0]);
+        assertEquals("1", strings[1]);
+
+        PVDoubleArray pvDoubleArray = (PVDoubleArray) pvDataCreate.createPVScalarArray(ScalarType.pvDouble);
+        strings = new String[2000];
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = " " + (i / 10.0) + "\t";
+        assertEquals(strings.length, convert.fromStringArray(pvDoubleArray, 0, strings.length, strings, 0));
+        double[] values = new double[strings.length];
+        convert.toDoubleArray(pvDoubleArray, 0, values.length, values, 0);
+        for (int i = 0; i < values.length; i++)
+            assertEquals(i / 10.0, values[i]);
+
+        // elements before an invalid one are converted
+        PVIntArray pvIntArray = (PVIntArray) pvDataCreate.createPVScalarArray(ScalarType.pvInt);
+        try {
+            convert.fromStringArray(pvIntArray, 0, 3, new String[] { "1", "0x2", "three" }, 0);
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException nfe) {
+            // OK
+        }
+        assertEquals(2, pvIntArray.getLength());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.copy.PVCopy;
+import org.epics.pvdata.copy.PVCopyFactory;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardField;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Benchmark of the PVCopy update paths used by servers for each monitor update and put:
+ * updateCopySetBitSet (compare and copy all the fields of the request),
+ * updateCopyFromBitSet (copy the changed fields) and updateMaster (put the changed fields),
+ * for a record with a scalar value, alarm, timeStamp, display, control and two arrays that do not change.
+ * The value of a variable size array is shared by the copy, the value of a fixed size array is not.
+ * The best of several runs is reported.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.PVCopyPerformance [updates [elements [request [runs]]]]</code>
+ */
+public class PVCopyPerformance {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+
+    private static PVStructure createRecord(int elements) {
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("value", ScalarType.pvDouble).
+            add("alarm", standardField.alarm()).
+            add("timeStamp", standardField.timeStamp()).
+            add("display", standardField.display()).
+            add("control", standardField.control()).
+            addArray("array", ScalarType.pvDouble).
+            addFixedArray("waveform", ScalarType.pvDouble, elements).
+            createStructure();
+        PVStructure pvRecord = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        double[] data = new double[elements];
+        for (int i = 0; i < elements; i++)
+            data[i] = i;
+        pvRecord.getSubField(PVDoubleArray.class, "array").put(0, elements, data, 0);
+        pvRecord.getSubField(PVDoubleArray.class, "waveform").put(0, elements, data, 0);
+        return pvRecord;
+    }
+
+    // the best rates of updateCopySetBitSet, updateCopyFromBitSet and updateMaster
+    private static void run(int updates, int elements, String request, double[] best) {
+        PVStructure pvRecord = createRecord(elements);
+        PVDouble value = pvRecord.getSubField(PVDouble.class, "value");
+        PVLong seconds = pvRecord.getSubField(PVLong.class, "timeStamp.secondsPastEpoch");
+        PVCopy pvCopy = PVCopyFactory.create(pvRecord, CreateRequest.create().createRequest(request), "");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            value.put(i);
+            seconds.put(i);
+            bitSet.clear();
+            pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        }
+        double setBitSet = (System.nanoTime() - start) / 1e9;
+
+        BitSet changed = new BitSet(pvCopyStructure.getNumberFields());
+        changed.set(pvCopy.getCopyOffset(value));
+        changed.set(pvCopy.getCopyOffset(seconds));
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            value.put(-i);
+            seconds.put(-i);
+            pvCopy.updateCopyFromBitSet(pvCopyStructure, changed);
+        }
+        double fromBitSet = (System.nanoTime() - start) / 1e9;
+
+        PVDouble copyValue = pvCopyStructure.getSubField(PVDouble.class, "value");
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            copyValue.put(i);
+            pvCopy.updateMaster(pvCopyStructure, changed);
+        }
+        double master = (System.nanoTime() - start) / 1e9;
+        if (value.get() != updates - 1)
+            throw new IllegalStateException("updateMaster did not update the master");
+
+        best[0] = Math.max(best[0], updates / setBitSet);
+        best[1] = Math.max(best[1], updates / fromBitSet);
+        best[2] = Math.max(best[2], updates / master);
+    }
+
+    public static void main(String[] args) {
+        final int updates = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int elements = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final String request = args.length > 2 ? args[2] : "field(value,alarm,timeStamp,display,array,waveform)";
+        final int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        // warm-up
+        run(updates, elements, request, new double[3]);
+        double[] best = new double[3];
+        for (int i = 0; i < runs; i++)
+            run(updates, elements, request, best);
+        System.out.printf("%d updates, %d elements, request \"%s\", best of %d runs%n", updates, elements, request, runs);
+        System.out.printf("updateCopySetBitSet   %10.0f updates/s%n", best[0]);
+        System.out.printf("updateCopyFromBitSet  %10.0f updates/s%n", best[1]);
+        System.out.printf("updateMaster          %10.0f updates/s%n", best[2]);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.copy.CreateRequest;
+import org.epics.pvdata.copy.PVCopy;
+import org.epics.pvdata.copy.PVCopyFactory;
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.DoubleArrayData;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVStructureArray;
+import org.epics.pvdata.pv.PVUnion;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.StandardField;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.pv.StructureArrayData;
+
+/**
+ * JUnit test for the update methods of PVCopy.
+ *
+ */
+public class PVCopyTest extends TestCase {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final StandardField standardField = StandardFieldFactory.getStandardField();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+
+    private static PVStructure createRecord() {
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("value", ScalarType.pvDouble).
+            add("alarm", standardField.alarm()).
+            add("timeStamp", standardField.timeStamp()).
+            addArray("array", ScalarType.pvDouble).
+            add("name", ScalarType.pvString).
+            createStructure();
+        return pvDataCreate.createPVStructure(structure);
+    }
+
+    private static PVCopy createPVCopy(PVStructure pvRecord, String request) {
+        PVStructure pvRequest = CreateRequest.create().createRequest(request);
+        assertNotNull(pvRequest);
+        PVCopy pvCopy = PVCopyFactory.create(pvRecord, pvRequest, "");
+        assertNotNull(pvCopy);
+        return pvCopy;
+    }
+
+    // the elements are copied, the capacity of the copy can differ
+    private static void assertSameElements(PVDoubleArray expected, PVField actual) {
+        PVDoubleArray actualArray = (PVDoubleArray)actual;
+        assertEquals(expected.getLength(), actualArray.getLength());
+        DoubleArrayData expectedData = new DoubleArrayData();
+        DoubleArrayData actualData = new DoubleArrayData();
+        expected.get(0, expected.getLength(), expectedData);
+        actualArray.get(0, actualArray.getLength(), actualData);
+        for (int i = 0; i < expected.getLength(); i++)
+            assertEquals(expectedData.data[i], actualData.data[i]);
+    }
+
+    private static int offset(PVStructure pvStructure, String fieldName) {
+        return pvStructure.getSubField(fieldName).getFieldOffset();
+    }
+
+    public void testUpdateCopySetBitSet() {
+        PVStructure pvRecord = createRecord();
+        PVCopy pvCopy = createPVCopy(pvRecord, "field(value,alarm,timeStamp.secondsPastEpoch,array)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        assertNull(pvCopyStructure.getSubField("name"));
+        assertNull(pvCopyStructure.getSubField("timeStamp.nanoseconds"));
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertTrue(bitSet.isEmpty());
+
+        pvRecord.getSubField(PVDouble.class, "value").put(1.5);
+        pvRecord.getSubField(PVString.class, "alarm.message").put("high");
+        pvRecord.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").put(10);
+        pvRecord.getSubField(PVInt.class, "timeStamp.nanoseconds").put(20);
+        pvRecord.getSubField(PVDoubleArray.class, "array").put(0, 3, new double[] { 1, 2, 3 }, 0);
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(4, bitSet.cardinality());
+        assertTrue(bitSet.get(offset(pvCopyStructure, "value")));
+        assertTrue(bitSet.get(offset(pvCopyStructure, "alarm.message")));
+        assertTrue(bitSet.get(offset(pvCopyStructure, "timeStamp.secondsPastEpoch")));
+        assertTrue(bitSet.get(offset(pvCopyStructure, "array")));
+        assertEquals(1.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+        assertEquals("high", pvCopyStructure.getSubField(PVString.class, "alarm.message").get());
+        assertEquals(10, pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+        assertEquals(pvRecord.getSubField("array"), pvCopyStructure.getSubField("array"));
+
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertTrue(bitSet.isEmpty());
+    }
+
+    public void testModificationCount() {
+        PVStructure pvRecord = createRecord();
+        PVCopy pvCopy = createPVCopy(pvRecord, "field(value,array)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+        PVDouble value = pvRecord.getSubField(PVDouble.class, "value");
+        PVDoubleArray array = pvRecord.getSubField(PVDoubleArray.class, "array");
+        final int arrayOffset = offset(pvCopyStructure, "array");
+
+        // a put of a scalar with the same value is not a change, a put of an array is
+        value.put(value.get());
+        array.put(0, 0, new double[0], 0);
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(1, bitSet.cardinality());
+        assertTrue(bitSet.get(arrayOffset));
+
+        // a copy modified by someone else is compared with the master
+        pvCopyStructure.getSubField(PVDoubleArray.class, "array").put(0, 1, new double[] { 8 }, 0);
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(1, bitSet.cardinality());
+        assertSameElements(array, pvCopyStructure.getSubField("array"));
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertTrue(bitSet.isEmpty());
+
+        // a put to the master from the copy is not reported back
+        pvCopyStructure.getSubField(PVDoubleArray.class, "array").put(0, 2, new double[] { 8, 9 }, 0);
+        bitSet.clear();
+        bitSet.set(arrayOffset);
+        pvCopy.updateMaster(pvCopyStructure, bitSet);
+        assertSameElements(array, pvCopyStructure.getSubField("array"));
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertTrue(bitSet.isEmpty());
+
+        // another copy is compared with the master
+        PVStructure other = pvCopy.createPVStructure();
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(other, bitSet);
+        assertEquals(1, bitSet.cardinality());
+        assertSameElements(array, other.getSubField("array"));
+    }
+
+    public void testModifiedInPlace() {
+        Structure element = fieldCreate.createFieldBuilder().
+            add("x", ScalarType.pvDouble).
+            createStructure();
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("union", fieldCreate.createVariantUnion()).
+            addArray("table", element).
+            createStructure();
+        PVStructure pvRecord = pvDataCreate.createPVStructure(structure);
+        PVUnion union = pvRecord.getSubField(PVUnion.class, "union");
+        union.set(pvDataCreate.createPVScalar(ScalarType.pvDouble));
+        PVStructureArray table = pvRecord.getSubField(PVStructureArray.class, "table");
+        table.put(0, 1, new PVStructure[] { pvDataCreate.createPVStructure(element) }, 0);
+
+        PVCopy pvCopy = createPVCopy(pvRecord, "field(union,table)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        // the value of a union and the elements of a structure array change without a change of their count
+        ((PVDouble)union.get()).put(42);
+        union.postPut();
+        StructureArrayData data = new StructureArrayData();
+        table.get(0, 1, data);
+        data.data[0].getSubField(PVDouble.class, "x").put(7);
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(2, bitSet.cardinality());
+        assertTrue(bitSet.get(1));
+        assertTrue(bitSet.get(2));
+        assertEquals(42.0, ((PVDouble)pvCopyStructure.getSubField(PVUnion.class, "union").get()).get());
+        pvCopyStructure.getSubField(PVStructureArray.class, "table").get(0, 1, data);
+        assertEquals(7.0, data.data[0].getSubField(PVDouble.class, "x").get());
+
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertTrue(bitSet.isEmpty());
+    }
+
+    public void testUpdateCopyFromBitSet() {
+        PVStructure pvRecord = createRecord();
+        PVCopy pvCopy = createPVCopy(pvRecord, "field(value,alarm,timeStamp.secondsPastEpoch)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        pvRecord.getSubField(PVDouble.class, "value").put(2.5);
+        pvRecord.getSubField(PVInt.class, "alarm.severity").put(2);
+        pvRecord.getSubField(PVString.class, "alarm.message").put("major");
+        pvRecord.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").put(30);
+
+        // only the fields with a bit set are copied, a structure bit copies all of its subfields
+        bitSet.clear();
+        bitSet.set(offset(pvCopyStructure, "alarm"));
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(0.0, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+        assertEquals(2, pvCopyStructure.getSubField(PVInt.class, "alarm.severity").get());
+        assertEquals("major", pvCopyStructure.getSubField(PVString.class, "alarm.message").get());
+        assertEquals(0, pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+
+        bitSet.clear();
+        bitSet.set(offset(pvCopyStructure, "value"));
+        bitSet.set(offset(pvCopyStructure, "timeStamp.secondsPastEpoch"));
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(2.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+        assertEquals(30, pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+
+        // bit 0 copies everything and sets all the bits
+        pvRecord.getSubField(PVDouble.class, "value").put(3.5);
+        bitSet.clear();
+        bitSet.set(0);
+        pvCopy.updateCopyFromBitSet(pvCopyStructure, bitSet);
+        assertEquals(3.5, pvCopyStructure.getSubField(PVDouble.class, "value").get());
+        assertEquals(pvCopyStructure.getNumberFields(), bitSet.cardinality());
+    }
+
+    public void testUpdateMaster() {
+        PVStructure pvRecord = createRecord();
+        PVCopy pvCopy = createPVCopy(pvRecord, "field(value,timeStamp.secondsPastEpoch,name)");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+
+        pvCopyStructure.getSubField(PVDouble.class, "value").put(4.5);
+        pvCopyStructure.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").put(40);
+        pvCopyStructure.getSubField(PVString.class, "name").put("copy");
+        bitSet.clear();
+        bitSet.set(offset(pvCopyStructure, "value"));
+        bitSet.set(offset(pvCopyStructure, "timeStamp"));
+        pvCopy.updateMaster(pvCopyStructure, bitSet);
+        assertEquals(4.5, pvRecord.getSubField(PVDouble.class, "value").get());
+        assertEquals(40, pvRecord.getSubField(PVLong.class, "timeStamp.secondsPastEpoch").get());
+        assertFalse("copy".equals(pvRecord.getSubField(PVString.class, "name").get()));
+
+        PVField pvMasterField = pvCopy.getMasterPVField(offset(pvCopyStructure, "timeStamp.secondsPastEpoch"));
+        assertSame(pvRecord.getSubField("timeStamp.secondsPastEpoch"), pvMasterField);
+    }
+
+    public void testEntireRecord() {
+        PVStructure pvRecord = createRecord();
+        PVCopy pvCopy = createPVCopy(pvRecord, "field()");
+        PVStructure pvCopyStructure = pvCopy.createPVStructure();
+        assertEquals(pvRecord.getNumberFields(), pvCopyStructure.getNumberFields());
+        BitSet bitSet = new BitSet(pvCopyStructure.getNumberFields());
+        pvCopy.initCopy(pvCopyStructure, bitSet);
+        assertEquals(pvRecord, pvCopyStructure);
+
+        pvRecord.getSubField(PVInt.class, "timeStamp.userTag").put(5);
+        bitSet.clear();
+        pvCopy.updateCopySetBitSet(pvCopyStructure, bitSet);
+        assertEquals(1, bitSet.cardinality());
+        assertTrue(bitSet.get(offset(pvCopyStructure, "timeStamp.userTag")));
+
+        pvCopyStructure.getSubField(PVString.class, "name").put("entire");
+        bitSet.clear();
+        bitSet.set(offset(pvCopyStructure, "name"));
+        pvCopy.updateMaster(pvCopyStructure, bitSet);
+        assertEquals(pvRecord, pvCopyStructure);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.PVStructurePool;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Benchmark of the GC pressure of a 10 kHz ChannelGet loop, with and without a PVStructurePool.
+ * Every get creates the response PVStructure (an NTScalarArray of 1000 doubles), deserializes the response into it
+ * and drops it, as a client that creates a ChannelGet per get does.
+ * Reported are the allocation rate (if the JVM supports thread allocation accounting),
+ * and the number and time of collections.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.PVStructurePoolPerformance [seconds per case [rate]]</code>
+ */
+public class PVStructurePoolPerformance {
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void flushSerializeBuffer() {
+            throw new IllegalStateException("buffer too small");
+        }
+        public void ensureBuffer(int size) {}
+        public void alignBuffer(int alignment) {}
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {}
+        public void alignData(int alignment) {}
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return FieldFactory.getFieldCreate().deserialize(buffer, this);
+        }
+    };
+
+    private static final Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+        setId("epics:nt/NTScalarArray:1.0").
+        addArray("value", ScalarType.pvDouble).
+        addNestedStructure("alarm").
+            add("severity", ScalarType.pvInt).
+            add("status", ScalarType.pvInt).
+            add("message", ScalarType.pvString).
+        endNested().
+        addNestedStructure("timeStamp").
+            add("secondsPastEpoch", ScalarType.pvLong).
+            add("nanoseconds", ScalarType.pvInt).
+            add("userTag", ScalarType.pvInt).
+        endNested().
+        createStructure();
+
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean)threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    private static long[] getCollections() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+            time += gc.getCollectionTime();
+        }
+        return new long[] { count, time };
+    }
+
+    private static void run(String name, PVStructurePool pool, ByteBuffer response, double rate, long durationNs, boolean report) {
+        final long periodNs = (long) (1e9 / rate);
+        final long allocated0 = getAllocatedBytes();
+        final long[] gc0 = getCollections();
+        final long start = System.nanoTime();
+        long next = start;
+        long count = 0;
+        long elapsed;
+        do {
+            // one get: create the request data, deserialize the response, destroy the request
+            PVStructure pvStructure = pool.take(structure);
+            response.rewind();
+            pvStructure.deserialize(response, control);
+            pool.give(pvStructure);
+            count++;
+
+            next += periodNs;
+            final long now = System.nanoTime();
+            if (next > now)
+                LockSupport.parkNanos(next - now);
+        } while ((elapsed = System.nanoTime() - start) < durationNs);
+        final long allocated = getAllocatedBytes() - allocated0;
+        final long[] gc = getCollections();
+
+        if (report) {
+            final double seconds = elapsed / 1e9;
+            System.out.printf("%s: %.0f gets/s, ", name, count / seconds);
+            if (allocated0 >= 0)
+                System.out.printf("%.1f MB/s allocated (%.0f bytes/get), ", allocated / seconds / 1e6, (double) allocated / count);
+            System.out.printf("%.1f collections/s, %.1f ms/s in GC%n", (gc[0] - gc0[0]) / seconds, (gc[1] - gc0[1]) / seconds);
+        }
+    }
+
+    public static void main(String[] args) {
+        final long durationNs = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 5.0) * 1e9);
+        final double rate = args.length > 1 ? Double.parseDouble(args[1]) : 10000;
+
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        double[] value = new double[1000];
+        for (int i = 0; i < value.length; i++)
+            value[i] = i;
+        pvStructure.getSubField(PVDoubleArray.class, "value").put(0, value.length, value, 0);
+        ByteBuffer response = ByteBuffer.allocate(16 * 1024);
+        pvStructure.serialize(response, flusher);
+        response.flip();
+
+        PVStructurePool disabled = new PVStructurePool(PVDataFactory.getPVDataCreate(), 0, false);
+        PVStructurePool pool = new PVStructurePool(PVDataFactory.getPVDataCreate(), 4, false);
+
+        System.out.printf("NTScalarArray of %d doubles at %.0f gets/s%n", value.length, rate);
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            run("no pool", disabled, response, rate, durationNs, report);
+            run("pool   ", pool, response, rate, durationNs, report);
+        }
+    }
+}
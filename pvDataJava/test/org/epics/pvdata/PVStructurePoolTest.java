@@ -0,0 +1,165 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.PVStructurePool;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.PVUnion;
+import org.epics.pvdata.pv.PostHandler;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * JUnit test for PVStructurePool.
+ *
+ */
+public class PVStructurePoolTest extends TestCase {
+
+    private static final Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+        add("value", ScalarType.pvDouble).
+        addArray("array", ScalarType.pvDouble).
+        addNestedStructure("alarm").
+            add("severity", ScalarType.pvInt).
+            add("message", ScalarType.pvString).
+        endNested().
+        addNestedUnion("any").
+            add("i", ScalarType.pvInt).
+            add("s", ScalarType.pvString).
+        endNested().
+        createStructure();
+
+    private static void set(PVStructure pvStructure) {
+        pvStructure.getSubField(PVDouble.class, "value").put(1.5);
+        double[] array = new double[100];
+        pvStructure.getSubField(PVDoubleArray.class, "array").put(0, array.length, array, 0);
+        pvStructure.getSubField(PVInt.class, "alarm.severity").put(2);
+        pvStructure.getSubField(PVString.class, "alarm.message").put("HIHI");
+        pvStructure.getSubField(PVUnion.class, "any").select(PVString.class, "s").put("selected");
+    }
+
+    public void testDisabled()
+    {
+        PVStructurePool pool = new PVStructurePool(PVDataFactory.getPVDataCreate(), 0, false);
+        assertFalse(pool.isEnabled());
+
+        PVStructure pvStructure = pool.take(structure);
+        pool.give(pvStructure);
+        assertEquals(0, pool.getNumberFree(structure));
+        assertNotSame(pvStructure, pool.take(structure));
+    }
+
+    public void testRecycle()
+    {
+        PVStructurePool pool = new PVStructurePool(PVDataFactory.getPVDataCreate(), 2, false);
+        assertTrue(pool.isEnabled());
+
+        PVStructure pvStructure = pool.take(structure);
+        set(pvStructure);
+        pool.give(pvStructure);
+        assertEquals(1, pool.getNumberFree(structure));
+
+        // an equal Structure finds the same instances
+        Structure equalStructure = FieldFactory.getFieldCreate().createStructure(
+                structure.getID(), structure.getFieldNames(), structure.getFields());
+        PVStructure recycled = pool.take(equalStructure);
+        assertSame(pvStructure, recycled);
+        assertEquals(0, pool.getNumberFree(structure));
+
+        // reset to default values, array storage kept
+        assertEquals(0.0, recycled.getSubField(PVDouble.class, "value").get());
+        assertEquals(0, recycled.getSubField(PVInt.class, "alarm.severity").get());
+        assertEquals("", recycled.getSubField(PVString.class, "alarm.message").get());
+        assertEquals(PVUnion.UNDEFINED_INDEX, recycled.getSubField(PVUnion.class, "any").getSelectedIndex());
+        PVDoubleArray array = recycled.getSubField(PVDoubleArray.class, "array");
+        assertEquals(0, array.getLength());
+        assertTrue(array.getCapacity() >= 100);
+
+        // bounded
+        PVStructure[] taken = new PVStructure[3];
+        for (int i = 0; i < taken.length; i++)
+            taken[i] = pool.take(structure);
+        for (int i = 0; i < taken.length; i++)
+            pool.give(taken[i]);
+        assertEquals(2, pool.getNumberFree(structure));
+
+        pool.clear();
+        assertEquals(0, pool.getNumberFree(structure));
+    }
+
+    public void testOwnership()
+    {
+        PVStructurePool pool = new PVStructurePool(PVDataFactory.getPVDataCreate(), 2, false);
+        PVStructure pvStructure = pool.take(structure);
+
+        try {
+            pool.give(pvStructure.getSubField(PVStructure.class, "alarm"));
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            // OK
+        }
+
+        pool.give(pvStructure);
+        try {
+            pool.give(pvStructure);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+
+        // not recycled, the first take gets the recycled instance
+        PVStructure immutable = pool.take(structure);
+        immutable.setImmutable();
+        pool.give(immutable);
+        PVStructure posted = pool.take(structure);
+        posted.getSubField("alarm.severity").setPostHandler(new PostHandler() {
+            public void postPut() {}
+        });
+        pool.give(posted);
+        assertEquals(0, pool.getNumberFree(structure));
+    }
+
+    public void testDebug() throws InterruptedException
+    {
+        PVStructurePool pool = new PVStructurePool(PVDataFactory.getPVDataCreate(), 2, true);
+        assertTrue(pool.isDebug());
+
+        try {
+            pool.give(PVDataFactory.getPVDataCreate().createPVStructure(structure));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+
+        PVStructure pvStructure = pool.take(structure);
+        pool.give(pvStructure);
+        try {
+            pool.give(pvStructure);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ise) {
+            // OK
+        }
+
+        // recycled instances are tracked again
+        pool.give(pool.take(structure));
+        assertEquals(0, pool.getLeakCount());
+
+        // leak, the stack of this take is reported
+        pvStructure = null;
+        pool.take(structure);
+        for (int i = 0; i < 100 && pool.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getLeakCount());
+    }
+}
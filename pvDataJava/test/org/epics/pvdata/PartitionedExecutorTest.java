@@ -0,0 +1,184 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.misc.ExecutorFactory;
+import org.epics.pvdata.misc.ExecutorNode;
+import org.epics.pvdata.misc.PartitionedExecutor;
+import org.epics.pvdata.misc.ThreadPriority;
+
+/**
+ * JUnit test for PartitionedExecutor.
+ *
+ */
+public class PartitionedExecutorTest extends TestCase {
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            fail("interrupted");
+        }
+    }
+
+    /**
+     * the commands of a key are executed in order and one at a time.
+     */
+    public void testOrder() {
+        final int keys = 16;
+        final int commands = 2000;
+        PartitionedExecutor executor = ExecutorFactory.createPartitioned("testOrder", ThreadPriority.high, 4, true);
+        final List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        final AtomicInteger[] running = new AtomicInteger[keys];
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(keys * commands);
+        ExecutorNode[] nodes = new ExecutorNode[keys * commands];
+        for (int key = 0; key < keys; key++) {
+            executed.add(new ArrayList<Integer>());
+            running[key] = new AtomicInteger();
+        }
+        for (int i = 0; i < commands; i++) {
+            for (int key = 0; key < keys; key++) {
+                final int k = key;
+                final int sequence = i;
+                nodes[i * keys + key] = executor.createNode(new Runnable() {
+                    public void run() {
+                        if (running[k].incrementAndGet() != 1)
+                            overlaps.incrementAndGet();
+                        executed.get(k).add(sequence);
+                        running[k].decrementAndGet();
+                        done.countDown();
+                    }
+                }, "key" + key);
+            }
+        }
+        for (ExecutorNode node : nodes)
+            executor.execute(node);
+        await(done);
+        assertEquals(0, overlaps.get());
+        for (int key = 0; key < keys; key++) {
+            List<Integer> sequence = executed.get(key);
+            assertEquals(commands, sequence.size());
+            for (int i = 0; i < commands; i++)
+                assertEquals(i, sequence.get(i).intValue());
+        }
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(keys * commands, executor.getExecutedCount());
+        assertTrue(executor.getMaximumQueueDepth() > 0);
+        assertTrue(executor.getMaximumLatency() >= executor.getAverageLatency());
+        executor.resetStatistics();
+        assertEquals(0, executor.getExecutedCount());
+        executor.stop();
+    }
+
+    /**
+     * commands of different keys are executed in parallel.
+     */
+    public void testParallel() {
+        final int threads = 4;
+        PartitionedExecutor executor = ExecutorFactory.createPartitioned("testParallel", ThreadPriority.high, threads, false);
+        assertEquals(threads, executor.getNumberThreads());
+        // each command waits until the commands of the other keys run
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int key = 0; key < threads; key++) {
+            executor.execute(executor.createNode(new Runnable() {
+                public void run() {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        done.countDown();
+                    } catch (Exception e) {
+                    }
+                }
+            }, Integer.valueOf(key)));
+        }
+        await(done);
+        executor.stop();
+    }
+
+    /**
+     * with work stealing, the commands of a thread that is blocked are executed by other threads.
+     */
+    public void testWorkStealing() {
+        PartitionedExecutor executor = ExecutorFactory.createPartitioned("testWorkStealing", ThreadPriority.high, 2, true);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(executor.createNode(new Runnable() {
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        }, "blocked"));
+        await(blocked);
+
+        final int keys = 100;
+        final CountDownLatch done = new CountDownLatch(keys);
+        final Runnable command = new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        };
+        for (int key = 0; key < keys; key++)
+            executor.execute(executor.createNode(command, "key" + key));
+        // the keys are served by the other thread, except the few in the partition of the blocked command,
+        // without work stealing about half of them would wait
+        try {
+            Thread.sleep(500);
+            assertTrue(done.getCount() < keys / 4);
+        } catch (InterruptedException e) {
+        } finally {
+            release.countDown();
+        }
+        await(done);
+
+        // a node that is queued is not queued again
+        final CountDownLatch once = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch release2 = new CountDownLatch(1);
+        final Runnable counter = new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+                once.countDown();
+            }
+        };
+        ExecutorNode node = executor.createNode(counter);
+        // in the same partition as node
+        executor.execute(executor.createNode(new Runnable() {
+            public void run() {
+                try {
+                    release2.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        }, counter));
+        executor.execute(node);
+        executor.execute(node);
+        release2.countDown();
+        await(once);
+        executor.stop();
+        assertEquals(1, count.get());
+
+        PartitionedExecutor other = ExecutorFactory.createPartitioned("other", ThreadPriority.high, 1, false);
+        try {
+            other.execute(node);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        other.stop();
+    }
+}
@@ -5,13 +5,22 @@
 package org.epics.pvdata;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import junit.framework.TestCase;
 
+import org.epics.pvdata.factory.AbstractPVDirectArray;
+import org.epics.pvdata.factory.ConvertFactory;
 import org.epics.pvdata.factory.FieldFactory;
 import org.epics.pvdata.factory.PVDataFactory;
 import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.factory.StatusFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.pv.ArrayChunkConsumer;
+import org.epics.pvdata.pv.ArrayStore;
 import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.DoubleArrayData;
 import org.epics.pvdata.pv.Field;
 import org.epics.pvdata.pv.FieldCreate;
 import org.epics.pvdata.pv.PVArray;
@@ -30,6 +39,7 @@ import org.epics.pvdata.pv.PVIntArray;
 import org.epics.pvdata.pv.PVLong;
 import org.epics.pvdata.pv.PVLongArray;
 import org.epics.pvdata.pv.PVScalar;
+import org.epics.pvdata.pv.PVScalarArray;
 import org.epics.pvdata.pv.PVShort;
 import org.epics.pvdata.pv.PVShortArray;
 import org.epics.pvdata.pv.PVString;
@@ -46,6 +56,9 @@ import org.epics.pvdata.pv.Scalar;
 import org.epics.pvdata.pv.ScalarArray;
 import org.epics.pvdata.pv.ScalarType;
 import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Status;
+import org.epics.pvdata.pv.Status.StatusType;
+import org.epics.pvdata.pv.StatusCreate;
 import org.epics.pvdata.pv.Structure;
 import org.epics.pvdata.pv.StructureArray;
 import org.epics.pvdata.pv.StructureArrayData;
@@ -127,6 +140,7 @@ public class SerializationTest extends TestCase {
 		// serialize
 		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
 		field.serialize(buffer, flusher);
+		assertEquals("serialized size", buffer.position(), field.getSerializedSize());
 
 		// deserialize
 		buffer.flip();
@@ -379,6 +393,54 @@ public class SerializationTest extends TestCase {
 		serializationTest(factory.createPVField(s));
 	}
 
+	public void testStringEncoding() throws Exception
+	{
+		final String[] values = { "", "ascii", "\u00b5A", "\u03a9 \u20ac", "\ud83d\ude00 smile", "lone \ud83d" };
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 10);
+		for (String value : values)
+		{
+			buffer.clear();
+			SerializeHelper.serializeString(value, buffer, flusher);
+			buffer.flip();
+			byte[] expected = value.getBytes("UTF-8");
+			// size is in bytes
+			assertEquals(expected.length, SerializeHelper.readSize(buffer));
+			assertEquals(expected.length, buffer.remaining());
+			buffer.rewind();
+			// unpaired surrogates are replaced
+			assertEquals(new String(expected, "UTF-8"), SerializeHelper.deserializeString(buffer, control));
+
+			// non-array buffers
+			buffer.rewind();
+			assertEquals(SerializeHelper.deserializeString(buffer.duplicate()), SerializeHelper.deserializeString(buffer.asReadOnlyBuffer()));
+			ByteBuffer direct = ByteBuffer.allocateDirect(buffer.limit());
+			SerializeHelper.serializeString(value, direct);
+			direct.flip();
+			buffer.rewind();
+			assertEquals(buffer, direct);
+		}
+
+		// string spanning several flushes
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			sb.append("abc\u00e9\u20ac\ud83d\ude00");
+		final String longValue = sb.toString();
+		final ByteBuffer out = ByteBuffer.allocate(1 << 12);
+		final ByteBuffer small = ByteBuffer.allocate(16);
+		SerializableControl smallFlusher = new SerializableFlushImpl() {
+			public void flushSerializeBuffer() {
+				small.flip();
+				out.put(small);
+				small.clear();
+			}
+		};
+		SerializeHelper.serializeString(longValue, small, smallFlusher);
+		smallFlusher.flushSerializeBuffer();
+		out.flip();
+		assertEquals(longValue, SerializeHelper.deserializeString(out));
+		assertEquals(0, out.remaining());
+	}
+
 	public void testBoundedString()
 	{
         FieldCreate fieldCreate = FieldFactory.getFieldCreate();
@@ -473,6 +535,173 @@ public class SerializationTest extends TestCase {
 		// TODO unsigned
 	}
 
+	public void testDirectArray()
+	{
+		PVDataCreate direct = PVDataFactory.getDirectPVDataCreate();
+		PVDataCreate factory = PVDataFactory.getPVDataCreate();
+
+		final ScalarType[] types = ScalarType.values();
+		for (ScalarType type : types)
+		{
+			PVScalarArray pvArray = direct.createPVScalarArray(type);
+			assertEquals(type != ScalarType.pvBoolean && type != ScalarType.pvString,
+					pvArray instanceof AbstractPVDirectArray);
+			serializationTest(pvArray);
+			PVScalarArray pvHeap = factory.createPVScalarArray(type);
+			ConvertFactory.getConvert().fromStringArray(pvHeap, 0, 4, new String[] { "1", "2", "3", "127" }, 0);
+			ConvertFactory.getConvert().copyScalarArray(pvHeap, 0, pvArray, 0, 4);
+			assertEquals(pvHeap, pvArray);
+			assertEquals(pvArray, pvHeap);
+			serializationTest(pvArray);
+		}
+
+		final double[] dv = new double[] { 0.0, 1.1, -1.4, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN };
+		PVDoubleArray pvDouble = (PVDoubleArray)direct.createPVScalarArray(ScalarType.pvDouble);
+		pvDouble.put(0, dv.length, dv, 0);
+		DoubleArrayData data = new DoubleArrayData();
+		assertEquals(dv.length, pvDouble.get(0, dv.length, data));
+		assertEquals(dv[3], data.data[data.offset + 3]);
+		assertEquals(2, pvDouble.get(4, 10, data));
+		assertEquals(dv[4], data.data[data.offset]);
+		assertEquals(dv[2], pvDouble.get().getDouble(2));
+		assertEquals(dv.length * 8, ((AbstractPVDirectArray)pvDouble).getByteBuffer().remaining());
+
+		// getElements copies into the storage of the caller
+		double[] elements = new double[4];
+		assertEquals(3, ((AbstractPVDirectArray)pvDouble).getElements(3, 10, elements, 1));
+		assertEquals(dv[3], elements[1]);
+		assertTrue(Double.isNaN(elements[3]));
+		assertEquals(0, ((AbstractPVDirectArray)pvDouble).getElements(dv.length, 1, elements, 0));
+
+		// shareData copies, the argument can be modified
+		double[] shared = dv.clone();
+		pvDouble.shareData(shared);
+		shared[0] = 42.0;
+		assertEquals(dv[0], pvDouble.get().getDouble(0));
+
+		// both byte orders, in small chunks
+		for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+		{
+			final ByteBuffer out = ByteBuffer.allocate(1 << 10).order(order);
+			final ByteBuffer small = ByteBuffer.allocate(20).order(order);
+			SerializableControl smallFlusher = new SerializableFlushImpl() {
+				public void flushSerializeBuffer() {
+					small.flip();
+					out.put(small);
+					small.clear();
+				}
+			};
+			pvDouble.serialize(small, smallFlusher);
+			smallFlusher.flushSerializeBuffer();
+			out.flip();
+
+			ByteBuffer expected = ByteBuffer.allocate(1 << 10).order(order);
+			PVDoubleArray pvHeap = (PVDoubleArray)factory.createPVScalarArray(ScalarType.pvDouble);
+			pvHeap.put(0, dv.length, dv, 0);
+			pvHeap.serialize(expected, flusher);
+			expected.flip();
+			assertEquals(expected, out);
+
+			PVDoubleArray pvTarget = (PVDoubleArray)direct.createPVScalarArray(ScalarType.pvDouble);
+			pvTarget.deserialize(out, control);
+			assertEquals(0, out.remaining());
+			assertEquals(pvDouble, pvTarget);
+			assertEquals(pvHeap, pvTarget);
+			assertEquals(pvHeap.hashCode(), pvTarget.hashCode());
+		}
+
+		// nested fields are created by the direct factory
+		Structure s = FieldFactory.getFieldCreate().createFieldBuilder().
+			addArray("value", ScalarType.pvDouble).
+			addNestedStructure("nested").
+				addArray("value", ScalarType.pvInt).
+			endNested().
+			addNestedUnion("union").
+				addArray("doubles", ScalarType.pvDouble).
+			endNested().
+			createStructure();
+		PVStructure pvStructure = direct.createPVStructure(s);
+		assertTrue(pvStructure.getSubField("value") instanceof AbstractPVDirectArray);
+		assertTrue(pvStructure.getSubField("nested.value") instanceof AbstractPVDirectArray);
+		assertTrue(pvStructure.getUnionField("union").select("doubles") instanceof AbstractPVDirectArray);
+		pvStructure.getSubField(PVDoubleArray.class, "value").put(0, dv.length, dv, 0);
+		serializationTest(pvStructure);
+
+		// copy between direct arrays shares a shared value copy-on-write
+		PVStructure pvCopy = direct.createPVStructure(s);
+		ConvertFactory.getConvert().copy(pvStructure, pvCopy);
+		assertFalse(pvCopy.getSubField(PVDoubleArray.class, "value").isShared());
+		pvStructure.getSubField(PVDoubleArray.class, "value").share();
+		ConvertFactory.getConvert().copy(pvStructure, pvCopy);
+		PVDoubleArray pvCopyValue = pvCopy.getSubField(PVDoubleArray.class, "value");
+		assertTrue(pvCopyValue.isShared());
+		assertEquals(pvStructure, pvCopy);
+		pvCopyValue.put(0, 1, new double[] { 42.0 }, 0);
+		assertEquals(dv[0], pvStructure.getSubField(PVDoubleArray.class, "value").get().getDouble(0));
+		assertEquals(42.0, pvCopyValue.get().getDouble(0));
+	}
+
+	public void testSerializedSize()
+	{
+		PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(
+				StandardFieldFactory.getStandardField().scalar(ScalarType.pvDouble, "alarm,timeStamp,display"));
+		pvStructure.getStringField("display.units").put("\u00b5A");
+		final ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+		// partial serialization
+		BitSet bitSet = new BitSet(pvStructure.getNumberFields());
+		assertEquals(0, pvStructure.getSerializedSize(bitSet));
+		int[] offsets = {
+			pvStructure.getSubField("value").getFieldOffset(),
+			pvStructure.getSubField("alarm.message").getFieldOffset(),
+			pvStructure.getSubField("timeStamp").getFieldOffset(),
+			pvStructure.getSubField("display.units").getFieldOffset(),
+			0
+		};
+		for (int offset : offsets)
+		{
+			bitSet.set(offset);
+			buffer.clear();
+			pvStructure.serialize(buffer, flusher, bitSet);
+			assertEquals(buffer.position(), pvStructure.getSerializedSize(bitSet));
+
+			buffer.clear();
+			bitSet.serialize(buffer, flusher);
+			assertEquals(buffer.position(), bitSet.getSerializedSize());
+		}
+
+		// large BitSet, size written in 5 bytes
+		bitSet.set(4000);
+		buffer.clear();
+		bitSet.serialize(buffer, flusher);
+		assertEquals(buffer.position(), bitSet.getSerializedSize());
+
+		// fixed size structure, size cached by its Structure
+		PVStructure pvTimeStamp = pvStructure.getStructureField("timeStamp");
+		assertEquals(16, pvTimeStamp.getSerializedSize());
+		assertEquals(16, pvTimeStamp.getSerializedSize(bitSet));
+
+		// substring
+		PVString pvUnits = pvStructure.getStringField("display.units");
+		buffer.clear();
+		pvUnits.serialize(buffer, flusher, 1, 1);
+		assertEquals(buffer.position(), pvUnits.getSerializedSize(1, 1));
+
+		// status
+		StatusCreate statusCreate = StatusFactory.getStatusCreate();
+		Status[] statuses = {
+			statusCreate.getStatusOK(),
+			statusCreate.createStatus(StatusType.WARNING, "warning", null),
+			statusCreate.createStatus(StatusType.ERROR, "error", new RuntimeException("error"))
+		};
+		for (Status status : statuses)
+		{
+			buffer.clear();
+			status.serialize(buffer, flusher);
+			assertEquals(buffer.position(), status.getSerializedSize());
+		}
+	}
+
 	public void testIntrospectionSerialization()
 	{
         FieldCreate fieldCreate = FieldFactory.getFieldCreate();
@@ -496,6 +725,29 @@ public class SerializationTest extends TestCase {
         serializationTest(structureArray);
 	}
 
+	public void testIntrospectionInterning()
+	{
+		if (!FieldFactory.isInterning())
+			return;
+
+        FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+        Structure structure = fieldCreate.createFieldBuilder().
+        		setId("interned_t").
+        		add("value", ScalarType.pvDouble).
+        		add("timeStamp", StandardFieldFactory.getStandardField().timeStamp()).
+        		addNestedUnion("data").
+        			addArray("doubleValue", ScalarType.pvDouble).
+        			endNested().
+        		createStructure();
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+		structure.serialize(buffer, flusher);
+		buffer.flip();
+
+		// deserialized introspection interface is the canonical one
+		assertSame(structure, FieldFactory.getFieldCreate().deserialize(buffer, control));
+	}
+
 	public void testStructure()
 	{
         FieldCreate fieldCreate = FieldFactory.getFieldCreate();
@@ -553,6 +805,163 @@ public class SerializationTest extends TestCase {
 		serializationTest(pvStructure);
 	}
 
+	public void testArrayChunkConsumer()
+	{
+		PVDataCreate factory = PVDataFactory.getPVDataCreate();
+		PVIntArray sent = (PVIntArray)factory.createPVScalarArray(ScalarType.pvInt);
+		final int[] values = new int[1000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = i * 3;
+		sent.put(0, values.length, values, 0);
+		ByteBuffer source = ByteBuffer.allocate(1 << 13);
+		sent.serialize(source, flusher);
+		source.flip();
+
+		// the buffer is refilled from the source, 100 bytes at a time
+		final ByteBuffer source1 = source;
+		final ByteBuffer buffer = ByteBuffer.allocate(100);
+		DeserializableControl segmentedControl = new DeserializableControlImpl() {
+			public void ensureData(int size) {
+				buffer.compact();
+				while (buffer.hasRemaining() && source1.hasRemaining())
+					buffer.put(source1.get());
+				buffer.flip();
+			}
+		};
+		buffer.flip();
+		segmentedControl.ensureData(0);
+
+		final int[] next = new int[1];
+		PVIntArray pvArray = (PVIntArray)factory.createPVScalarArray(ScalarType.pvInt);
+		pvArray.setChunkConsumer(new ArrayChunkConsumer() {
+			public boolean beginArray(PVScalarArray pvArray, int length) {
+				assertEquals(values.length, length);
+				return true;
+			}
+			public void arrayChunk(PVScalarArray pvArray, int offset, ByteBuffer chunk, int count) {
+				assertEquals(next[0], offset);
+				assertTrue(count <= 25);
+				for (int i = 0; i < count; i++)
+					assertEquals(values[offset + i], chunk.getInt());
+				next[0] += count;
+			}
+			public void endArray(PVScalarArray pvArray) {
+				assertEquals(values.length, next[0]);
+			}
+		});
+		pvArray.deserialize(buffer, segmentedControl);
+		assertEquals(sent, pvArray);
+
+		// without consumer
+		pvArray.setChunkConsumer(null);
+		pvArray.setLength(0);
+		source.rewind();
+		buffer.clear().flip();
+		segmentedControl.ensureData(0);
+		pvArray.deserialize(buffer, segmentedControl);
+		assertEquals(sent, pvArray);
+
+		try {
+			factory.createPVScalarArray(ScalarType.pvString).setChunkConsumer(new ArrayChunkConsumer() {
+				public boolean beginArray(PVScalarArray pvArray, int length) {
+					return true;
+				}
+				public void arrayChunk(PVScalarArray pvArray, int offset, ByteBuffer chunk, int count) {
+				}
+				public void endArray(PVScalarArray pvArray) {
+				}
+			});
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+	}
+
+	// keeps the elements of arrays of at least 16 bytes in a separate buffer, referenced by their position
+	private static class ArrayStoreControl extends DeserializableControlImpl implements SerializableControl, ArrayStore {
+		final ByteBuffer store = ByteBuffer.allocate(1 << 12);
+		int reserved = -1;
+		int loaded = 0;
+
+		public void ensureBuffer(int size) {
+		}
+		public void flushSerializeBuffer() {
+		}
+		public void alignBuffer(int alignment) {
+		}
+		public void cachedSerialize(Field field, ByteBuffer buffer) {
+			field.serialize(buffer, this);
+		}
+
+		public ByteBuffer reserveArray(int size, ByteOrder order) {
+			if (size < 16)
+				return null;
+			reserved = store.position();
+			ByteBuffer elements = store.slice().order(order);
+			elements.limit(size);
+			store.position(reserved + size);
+			return elements;
+		}
+		public void commitArray(ByteBuffer buffer, SerializableControl control) {
+			buffer.putInt(reserved);
+			buffer.putInt(store.position() - reserved);
+		}
+		public ByteBuffer loadArray(ByteBuffer buffer, DeserializableControl control) {
+			final int position = buffer.getInt();
+			final int size = buffer.getInt();
+			ByteBuffer elements = store.duplicate().order(buffer.order());
+			elements.limit(position + size).position(position);
+			loaded++;
+			return elements;
+		}
+		public void releaseArray() {
+			loaded--;
+		}
+	}
+
+	public void testArrayStore()
+	{
+		FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+		PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+		PVStructure sent = pvDataCreate.createPVStructure(fieldCreate.createFieldBuilder().
+				addArray("small", ScalarType.pvInt).
+				addArray("large", ScalarType.pvDouble).
+				addArray("strings", ScalarType.pvString).
+				add("scalar", ScalarType.pvLong).
+				createStructure());
+		final int[] small = { 1, 2, 3 };
+		sent.getSubField(PVIntArray.class, "small").put(0, small.length, small, 0);
+		final double[] large = new double[100];
+		for (int i = 0; i < large.length; i++)
+			large[i] = i * 0.5;
+		sent.getSubField(PVDoubleArray.class, "large").put(0, large.length, large, 0);
+		final String[] strings = { "a", "bb", "ccc", "dddd", "eeeee" };
+		sent.getSubField(PVStringArray.class, "strings").put(0, strings.length, strings, 0);
+		sent.getSubField(PVLong.class, "scalar").put(42);
+
+		for (ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN })
+		{
+			ArrayStoreControl storeControl = new ArrayStoreControl();
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 10).order(order);
+			sent.serialize(buffer, storeControl);
+			// only the elements of the large array are stored
+			assertEquals(large.length * 8, storeControl.store.position());
+			assertTrue(buffer.position() < large.length * 8);
+			buffer.flip();
+
+			PVStructure received = pvDataCreate.createPVStructure(sent.getStructure());
+			received.deserialize(buffer, storeControl);
+			assertFalse(buffer.hasRemaining());
+			assertEquals(0, storeControl.loaded);
+			assertEquals(sent, received);
+
+			// a control that is not a store does not store
+			buffer.clear();
+			sent.serialize(buffer, flusher);
+			assertTrue(buffer.position() > large.length * 8);
+		}
+	}
+
 	public void testStructureArray()
 	{
         FieldCreate fieldCreate = FieldFactory.getFieldCreate();
@@ -803,6 +1212,7 @@ public class SerializationTest extends TestCase {
 		// serialize
 		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
 		field.serialize(buffer, flusher);
+		assertEquals("serialized size", buffer.position(), field.getSerializedSize());
 
 		// deserialize
 		buffer.flip();
@@ -0,0 +1,113 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVLong;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.stream.StreamFileFactory;
+import org.epics.pvdata.stream.StreamReader;
+import org.epics.pvdata.stream.StreamRecord;
+import org.epics.pvdata.stream.StreamWriter;
+
+/**
+ * Benchmark of recording a stream of array updates with StreamWriter, and of reading it back
+ * with StreamReader.next (deserialized) and StreamReader.replay (not copied).
+ * The rate of append is measured with and without flush (force to the storage device) at the end.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.StreamFilePerformance [directory [megabytes [elements]]]</code>
+ */
+public class StreamFilePerformance {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("performance-"))
+                    file.delete();
+            }
+        }
+    }
+
+    private static void run(File directory, int updates, int elements, boolean report) throws IOException {
+        delete(directory);
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("counter", ScalarType.pvLong).
+            addArray("value", ScalarType.pvDouble).
+            createStructure();
+        PVStructure pvStructure = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+        PVLong counter = pvStructure.getSubField(PVLong.class, "counter");
+        PVDoubleArray value = pvStructure.getSubField(PVDoubleArray.class, "value");
+        double[] data = new double[elements];
+        for (int i = 0; i < elements; i++)
+            data[i] = Math.sin(i);
+        value.put(0, elements, data, 0);
+        BitSet changed = new BitSet(pvStructure.getNumberFields());
+        changed.set(counter.getFieldOffset());
+        changed.set(value.getFieldOffset());
+
+        StreamWriter writer = StreamFileFactory.createWriter(directory, "performance");
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            counter.put(i);
+            writer.append(i, pvStructure, changed);
+        }
+        double append = (System.nanoTime() - start) / 1e9;
+        writer.flush();
+        double flush = (System.nanoTime() - start) / 1e9;
+        writer.close();
+        final double gigabytes = writer.getBytesWritten() / 1e9;
+
+        StreamReader reader = StreamFileFactory.openReader(directory, "performance");
+        start = System.nanoTime();
+        int count = 0;
+        while (reader.next())
+            count++;
+        double read = (System.nanoTime() - start) / 1e9;
+        if (count != updates)
+            throw new IllegalStateException("read " + count + " updates of " + updates);
+
+        reader.seek(0);
+        start = System.nanoTime();
+        long bytes = 0;
+        Iterator<StreamRecord> records = reader.replay();
+        while (records.hasNext())
+            bytes += records.next().getData().remaining();
+        double replay = (System.nanoTime() - start) / 1e9;
+        reader.close();
+        delete(directory);
+
+        if (report) {
+            System.out.printf("%d updates of %d doubles, %.2f GB%n", updates, elements, gigabytes);
+            System.out.printf("append          %6.2f GB/s%n", gigabytes / append);
+            System.out.printf("append + flush  %6.2f GB/s%n", gigabytes / flush);
+            System.out.printf("next            %6.2f GB/s%n", gigabytes / read);
+            System.out.printf("replay          %6.2f GB/s (%d bytes)%n", gigabytes / replay, bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final File directory = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"));
+        final long megabytes = args.length > 1 ? Long.parseLong(args[1]) : 1024;
+        final int elements = args.length > 2 ? Integer.parseInt(args[2]) : 131072;
+        final int updates = (int)(megabytes * 1000000 / (8L * elements));
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            run(directory, updates, elements, pass == 1);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.BitSet;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.FieldCreate;
+import org.epics.pvdata.pv.PVDataCreate;
+import org.epics.pvdata.pv.PVDouble;
+import org.epics.pvdata.pv.PVDoubleArray;
+import org.epics.pvdata.pv.PVInt;
+import org.epics.pvdata.pv.PVString;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+import org.epics.pvdata.stream.StreamFileFactory;
+import org.epics.pvdata.stream.StreamReader;
+import org.epics.pvdata.stream.StreamRecord;
+import org.epics.pvdata.stream.StreamWriter;
+
+/**
+ * JUnit test for the stream files of StreamFileFactory.
+ *
+ */
+public class StreamFileTest extends TestCase {
+    private static final FieldCreate fieldCreate = FieldFactory.getFieldCreate();
+    private static final PVDataCreate pvDataCreate = PVDataFactory.getPVDataCreate();
+    private static final int UPDATES = 1000;
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {
+        }
+        public void alignData(int alignment) {
+        }
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return fieldCreate.deserialize(buffer, this);
+        }
+    };
+
+    private File directory;
+    private PVStructure[] expected;
+    private BitSet[] expectedChanges;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("streamFileTest", "");
+        directory.delete();
+        directory.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    private static Structure createStructure() {
+        return fieldCreate.createFieldBuilder().
+            add("value", ScalarType.pvDouble).
+            add("counter", ScalarType.pvInt).
+            add("name", ScalarType.pvString).
+            addArray("waveform", ScalarType.pvDouble).
+            createStructure();
+    }
+
+    // the capacity of the arrays is not compared
+    private static void assertData(PVStructure expected, PVStructure actual) {
+        assertEquals(expected.getStructure(), actual.getStructure());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    // update i has time stamp 10*i
+    private void write(int segmentSize, int keyFrameInterval) throws IOException {
+        PVStructure pvStructure = pvDataCreate.createPVStructure(createStructure());
+        PVDouble value = pvStructure.getSubField(PVDouble.class, "value");
+        PVInt counter = pvStructure.getSubField(PVInt.class, "counter");
+        PVString name = pvStructure.getSubField(PVString.class, "name");
+        PVDoubleArray waveform = pvStructure.getSubField(PVDoubleArray.class, "waveform");
+        BitSet changed = new BitSet(pvStructure.getNumberFields());
+        expected = new PVStructure[UPDATES];
+        expectedChanges = new BitSet[UPDATES];
+
+        StreamWriter writer = StreamFileFactory.createWriter(directory, "test", segmentSize, keyFrameInterval);
+        for (int i = 0; i < UPDATES; i++) {
+            changed.clear();
+            value.put(i * 0.5);
+            changed.set(value.getFieldOffset());
+            if (i % 3 == 0) {
+                counter.put(i);
+                changed.set(counter.getFieldOffset());
+            }
+            if (i % 7 == 0) {
+                name.put("update " + i);
+                changed.set(name.getFieldOffset());
+            }
+            if (i % 10 == 0) {
+                double[] data = new double[i % 50];
+                for (int j = 0; j < data.length; j++)
+                    data[j] = i + j;
+                waveform.setLength(0);
+                waveform.put(0, data.length, data, 0);
+                changed.set(waveform.getFieldOffset());
+            }
+            writer.append(10L * i, pvStructure, changed);
+            expected[i] = pvDataCreate.createPVStructure(pvStructure);
+            expectedChanges[i] = (BitSet)changed.clone();
+        }
+        try {
+            writer.append(0, pvStructure, changed);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+        writer.close();
+    }
+
+    public void testSequential() throws IOException
+    {
+        // several segments
+        write(4096, 1024);
+        assertTrue(new File(directory, "test-00000002.pvs").exists());
+
+        StreamReader reader = StreamFileFactory.openReader(directory, "test");
+        for (int i = 0; i < UPDATES; i++) {
+            assertTrue(reader.next());
+            assertEquals(10L * i, reader.getTimeStamp());
+            assertEquals(expectedChanges[i], reader.getChangedBitSet());
+            assertData(expected[i], reader.getPVStructure());
+        }
+        assertFalse(reader.next());
+        reader.close();
+    }
+
+    public void testSeek() throws IOException
+    {
+        write(1 << 16, 2048);
+        StreamReader reader = StreamFileFactory.openReader(directory, "test");
+
+        assertTrue(reader.seek(5555));
+        assertTrue(reader.next());
+        assertEquals(5560, reader.getTimeStamp());
+        assertData(expected[556], reader.getPVStructure());
+        assertTrue(reader.next());
+        assertData(expected[557], reader.getPVStructure());
+
+        // backwards, to an exact time stamp
+        assertTrue(reader.seek(120));
+        assertTrue(reader.next());
+        assertData(expected[12], reader.getPVStructure());
+
+        assertTrue(reader.seek(-1));
+        assertTrue(reader.next());
+        assertData(expected[0], reader.getPVStructure());
+
+        assertFalse(reader.seek(10L * UPDATES));
+        assertFalse(reader.next());
+        reader.close();
+    }
+
+    public void testReplay() throws IOException
+    {
+        write(4096, 1024);
+        StreamReader reader = StreamFileFactory.openReader(directory, "test");
+        assertTrue(reader.seek(1000));
+
+        Iterator<StreamRecord> records = reader.replay();
+        BitSet changed = new BitSet();
+        int keyFrames = 0;
+        for (int i = 100; i < UPDATES; i++) {
+            assertTrue(records.hasNext());
+            StreamRecord record = records.next();
+            assertEquals(10L * i, record.getTimeStamp());
+            assertEquals(expected[i].getStructure(), record.getStructure());
+            if (record.isKeyFrame())
+                keyFrames++;
+            ByteBuffer data = record.getData();
+            assertTrue(data.isReadOnly());
+            changed.deserialize(data, control);
+            assertEquals(expectedChanges[i], changed);
+        }
+        assertFalse(records.hasNext());
+        assertTrue(keyFrames > 1);
+
+        // the reader is not moved by replay
+        assertTrue(reader.next());
+        assertData(expected[100], reader.getPVStructure());
+        reader.close();
+    }
+
+    public void testAppend() throws IOException
+    {
+        write(1 << 16, 1 << 16);
+
+        // a second writer appends a stream of a different structure in new segments
+        Structure structure = fieldCreate.createFieldBuilder().
+            add("value", ScalarType.pvInt).
+            createStructure();
+        PVStructure pvStructure = pvDataCreate.createPVStructure(structure);
+        BitSet changed = new BitSet();
+        changed.set(0);
+        StreamWriter writer = StreamFileFactory.createWriter(directory, "test", 1 << 16, 1 << 16);
+        pvStructure.getSubField(PVInt.class, "value").put(42);
+        writer.append(100000, pvStructure, changed);
+        writer.close();
+        assertTrue(writer.getBytesWritten() > 0);
+
+        StreamReader reader = StreamFileFactory.openReader(directory, "test");
+        assertTrue(reader.seek(100000));
+        assertTrue(reader.next());
+        assertEquals(pvStructure, reader.getPVStructure());
+        assertFalse(reader.next());
+        reader.close();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.nio.ByteBuffer;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.misc.SerializeHelper;
+import org.epics.pvdata.pv.DeserializableControl;
+import org.epics.pvdata.pv.Field;
+import org.epics.pvdata.pv.PVStringArray;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.SerializableControl;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Microbenchmark of string serialization and deserialization (rows/sec, MB/sec)
+ * of an NTTable with string columns.
+ * Columns are a unique name, a few repeated units and alarm messages, and a non-ASCII description.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.StringSerializationPerformance [rows [seconds per case]]</code>
+ * <p>
+ * Run with <code>-DEPICS_PVDATA_STRING_CACHE_SIZE=1024</code> to measure with the deserialization string cache.
+ */
+public class StringSerializationPerformance {
+
+    private static final String[] UNITS = { "mA", "V", "degC", "mm", "µA" };
+    private static final String[] MESSAGES = { "", "HIHI alarm", "LOLO alarm", "Communication error" };
+
+    private static final SerializableControl flusher = new SerializableControl() {
+        public void flushSerializeBuffer() {
+            throw new IllegalStateException("buffer too small");
+        }
+        public void ensureBuffer(int size) {}
+        public void alignBuffer(int alignment) {}
+        public void cachedSerialize(Field field, ByteBuffer buffer) {
+            field.serialize(buffer, this);
+        }
+    };
+
+    private static final DeserializableControl control = new DeserializableControl() {
+        public void ensureData(int size) {}
+        public void alignData(int alignment) {}
+        public Field cachedDeserialize(ByteBuffer buffer) {
+            return FieldFactory.getFieldCreate().deserialize(buffer, this);
+        }
+    };
+
+    private static PVStructure createTable(int rows) {
+        Structure structure = FieldFactory.getFieldCreate().createFieldBuilder().
+            setId("epics:nt/NTTable:1.0").
+            addArray("labels", ScalarType.pvString).
+            addNestedStructure("value").
+                addArray("name", ScalarType.pvString).
+                addArray("units", ScalarType.pvString).
+                addArray("message", ScalarType.pvString).
+                addArray("description", ScalarType.pvString).
+            endNested().
+            createStructure();
+        PVStructure pvTable = PVDataFactory.getPVDataCreate().createPVStructure(structure);
+
+        String[] labels = { "name", "units", "message", "description" };
+        pvTable.getSubField(PVStringArray.class, "labels").put(0, labels.length, labels, 0);
+
+        String[] name = new String[rows];
+        String[] units = new String[rows];
+        String[] message = new String[rows];
+        String[] description = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            name[i] = "SR:C" + (i % 30) + ":BPM" + i + ":X";
+            units[i] = UNITS[i % UNITS.length];
+            message[i] = MESSAGES[i % MESSAGES.length];
+            description[i] = "Beam position ± " + i + " µm";
+        }
+        pvTable.getSubField(PVStringArray.class, "value.name").put(0, rows, name, 0);
+        pvTable.getSubField(PVStringArray.class, "value.units").put(0, rows, units, 0);
+        pvTable.getSubField(PVStringArray.class, "value.message").put(0, rows, message, 0);
+        pvTable.getSubField(PVStringArray.class, "value.description").put(0, rows, description, 0);
+        return pvTable;
+    }
+
+    private static double serialize(PVStructure pvTable, ByteBuffer buffer, long durationNs) {
+        long count = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10; i++) {
+                buffer.clear();
+                pvTable.serialize(buffer, flusher);
+            }
+            count += 10;
+        } while ((elapsed = System.nanoTime() - start) < durationNs);
+        return count * 1e9 / elapsed;
+    }
+
+    private static double deserialize(PVStructure pvTable, ByteBuffer buffer, long durationNs) {
+        long count = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 10; i++) {
+                buffer.rewind();
+                pvTable.deserialize(buffer, control);
+            }
+            count += 10;
+        } while ((elapsed = System.nanoTime() - start) < durationNs);
+        return count * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final long durationNs = (long) ((args.length > 1 ? Double.parseDouble(args[1]) : 2.0) * 1e9);
+
+        PVStructure pvTable = createTable(rows);
+        ByteBuffer buffer = ByteBuffer.allocate(rows * 128 + 1024);
+        pvTable.serialize(buffer, flusher);
+        buffer.flip();
+        final int size = buffer.remaining();
+        PVStructure pvTarget = createTable(0);
+
+        System.out.println("string cache size: " + System.getProperty(SerializeHelper.STRING_CACHE_SIZE_PROPERTY, "0"));
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            double s = serialize(pvTable, buffer, durationNs);
+            buffer.flip();
+            double d = deserialize(pvTarget, buffer, durationNs);
+            if (report) {
+                System.out.printf("NTTable %d rows x 4 string columns (%d bytes)%n", rows, size);
+                System.out.printf("serialize:   %.0f tables/s, %.0f rows/s, %.1f MB/s%n", s, s * rows, s * size / 1e6);
+                System.out.printf("deserialize: %.0f tables/s, %.0f rows/s, %.1f MB/s%n", d, d * rows, d * size / 1e6);
+            }
+        }
+        if (!pvTable.equals(pvTarget))
+            throw new IllegalStateException("deserialized table differs");
+    }
+}
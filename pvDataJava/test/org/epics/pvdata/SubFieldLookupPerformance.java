@@ -0,0 +1,97 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import org.epics.pvdata.factory.FieldFactory;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.factory.StandardFieldFactory;
+import org.epics.pvdata.misc.FieldPath;
+import org.epics.pvdata.pv.FieldBuilder;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+import org.epics.pvdata.pv.ScalarType;
+import org.epics.pvdata.pv.Structure;
+
+/**
+ * Microbenchmark of PVStructure sub-field lookups (lookups/sec),
+ * by name (<code>getSubField(String)</code>) and by a compiled <code>FieldPath</code>,
+ * for structures of 10 and 200 fields.
+ * The looked up fields are the last top-level field and <code>alarm.severity</code>
+ * placed after all the other fields.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.SubFieldLookupPerformance [seconds per case]</code>
+ */
+public class SubFieldLookupPerformance {
+
+    private static final int[] FIELD_COUNTS = { 10, 200 };
+    private static final int BATCH = 100000;
+
+    // prevents dead code elimination
+    private static int sink = 0;
+
+    private static PVStructure createPVStructure(int count) {
+        FieldBuilder fb = FieldFactory.getFieldCreate().createFieldBuilder();
+        for (int i = 0; i < count - 1; i++)
+            fb.add("field" + i, ScalarType.pvDouble);
+        Structure structure = fb.add("alarm", StandardFieldFactory.getStandardField().alarm()).createStructure();
+        return PVDataFactory.getPVDataCreate().createPVStructure(structure);
+    }
+
+    private static double byName(PVStructure pvStructure, String name, long durationNs) {
+        long count = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                PVField pvField = pvStructure.getSubField(name);
+                sink += pvField.getFieldOffset();
+            }
+            count += BATCH;
+        } while ((elapsed = System.nanoTime() - start) < durationNs);
+        return count * 1e9 / elapsed;
+    }
+
+    private static double byPath(PVStructure pvStructure, FieldPath path, long durationNs) {
+        long count = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                PVField pvField = path.get(pvStructure);
+                sink += pvField.getFieldOffset();
+            }
+            count += BATCH;
+        } while ((elapsed = System.nanoTime() - start) < durationNs);
+        return count * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) {
+        final long durationNs = (long) ((args.length > 0 ? Double.parseDouble(args[0]) : 2.0) * 1e9);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            for (int count : FIELD_COUNTS) {
+                PVStructure pvStructure = createPVStructure(count);
+                String lastName = "field" + (count - 2);
+                String nestedName = "alarm.severity";
+                FieldPath lastPath = FieldPath.compile(pvStructure.getStructure(), lastName);
+                FieldPath nestedPath = FieldPath.compile(pvStructure.getStructure(), nestedName);
+
+                double r1 = byName(pvStructure, lastName, durationNs);
+                double r2 = byName(pvStructure, nestedName, durationNs);
+                double r3 = byPath(pvStructure, lastPath, durationNs);
+                double r4 = byPath(pvStructure, nestedPath, durationNs);
+                if (report) {
+                    System.out.printf("%d fields, getSubField(\"%s\"): %.0f lookups/s%n", count, lastName, r1);
+                    System.out.printf("%d fields, getSubField(\"%s\"): %.0f lookups/s%n", count, nestedName, r2);
+                    System.out.printf("%d fields, FieldPath \"%s\": %.0f lookups/s%n", count, lastName, r3);
+                    System.out.printf("%d fields, FieldPath \"%s\": %.0f lookups/s%n", count, nestedName, r4);
+                }
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+}
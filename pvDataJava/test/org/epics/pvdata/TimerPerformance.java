@@ -0,0 +1,99 @@
+/*
+ * Copyright information and license terms for this software can be
+ * found in the file LICENSE that is included with the distribution
+ */
+package org.epics.pvdata;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.epics.pvdata.misc.ThreadPriority;
+import org.epics.pvdata.misc.Timer;
+import org.epics.pvdata.misc.TimerFactory;
+
+/**
+ * Benchmark of TimerFactory.create (priority queue) and TimerFactory.createHashedWheel with many timeouts:
+ * time to schedule them (including a call of System.nanoTime), to cancel some of them,
+ * and lateness of the callbacks.
+ * Cancel of the priority queue timer is linear in the number of requests, so only a few requests are canceled.
+ * <p>
+ * Usage: <code>java org.epics.pvdata.TimerPerformance [timeouts [canceled [maxDelaySeconds]]]</code>
+ */
+public class TimerPerformance {
+
+    private static class Timeout implements Timer.TimerCallback {
+        private final Timer.TimerNode timerNode = TimerFactory.createNode(this);
+        private final CountDownLatch done;
+        private long timeToRun;
+        private long lateness;
+
+        private Timeout(CountDownLatch done) {
+            this.done = done;
+        }
+        public void callback() {
+            lateness = System.nanoTime() - timeToRun;
+            done.countDown();
+        }
+        public void timerStopped() {
+        }
+    }
+
+    private static void run(String name, Timer timer, int count, int canceled, double maxDelay, boolean report)
+        throws InterruptedException
+    {
+        Random random = new Random(1);
+        CountDownLatch done = new CountDownLatch(count - canceled);
+        Timeout[] timeouts = new Timeout[count];
+        double[] delays = new double[count];
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = new Timeout(done);
+            // at least one second, so that no callback is called while scheduling
+            delays[i] = 1 + random.nextDouble() * maxDelay;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            timeouts[i].timeToRun = System.nanoTime() + (long)(delays[i] * 1e9);
+            timer.scheduleAfterDelay(timeouts[i].timerNode, delays[i]);
+        }
+        double schedule = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        for (int i = 0; i < canceled; i++)
+            timeouts[(int)((long)i * count / canceled)].timerNode.cancel();
+        double cancel = (System.nanoTime() - start) / 1e9;
+
+        if (!done.await((long)(maxDelay + 60), TimeUnit.SECONDS))
+            throw new IllegalStateException(name + ": " + done.getCount() + " callbacks missing");
+        timer.stop();
+
+        long sum = 0;
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            sum += timeouts[i].lateness;
+            max = Math.max(max, timeouts[i].lateness);
+        }
+        if (report) {
+            System.out.printf("%-6s %10.0f ns %10.0f ns %10.2f ms %10.2f ms%n", name,
+                    schedule * 1e9 / count, canceled > 0 ? cancel * 1e9 / canceled : 0.0,
+                    sum / 1e6 / (count - canceled), max / 1e6);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int canceled = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final double maxDelay = args.length > 2 ? Double.parseDouble(args[2]) : 2.0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            // first pass is a warm-up
+            final boolean report = (pass == 1);
+            if (report)
+                System.out.printf("%d timeouts      schedule     cancel   mean late    max late%n", count);
+            run("queue", TimerFactory.create("queue", ThreadPriority.high), count, canceled, maxDelay, report);
+            run("wheel", TimerFactory.createHashedWheel("wheel", ThreadPriority.high, .001, 4096, null),
+                    count, canceled, maxDelay, report);
+        }
+    }
+}
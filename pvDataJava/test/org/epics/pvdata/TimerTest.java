@@ -6,6 +6,8 @@ package org.epics.pvdata;
 
 import junit.framework.TestCase;
 
+import org.epics.pvdata.misc.Executor;
+import org.epics.pvdata.misc.ExecutorFactory;
 import org.epics.pvdata.misc.ThreadPriority;
 import org.epics.pvdata.misc.Timer;
 import org.epics.pvdata.misc.TimerFactory;
@@ -65,6 +67,117 @@ public class TimerTest extends TestCase {
     }
     
     private static final Timer timer = TimerFactory.create("testTimer", ThreadPriority.high);
+
+    private static class Counter implements Timer.TimerCallback {
+        private final Timer.TimerNode timerNode = TimerFactory.createNode(this);
+        private volatile int calls = 0;
+        private volatile int stops = 0;
+        private volatile long firstCallTime = 0;
+
+        public void callback() {
+            if(calls==0) firstCallTime = System.nanoTime();
+            calls++;
+        }
+        public void timerStopped() {
+            stops++;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {}
+    }
+
+    /**
+     * test hashed timing wheel timer.
+     */
+    public static void testHashedWheelTimer() {
+        // a wheel of 8 ticks of 10 ms, so that delays of more than one lap are tested
+        Timer wheelTimer = TimerFactory.createHashedWheel("testHashedWheelTimer", ThreadPriority.high, .01, 5, null);
+        Counter delay = new Counter();
+        Counter longDelay = new Counter();
+        Counter canceled = new Counter();
+        Counter periodic = new Counter();
+        long start = System.nanoTime();
+        wheelTimer.scheduleAfterDelay(delay.timerNode, .05);
+        wheelTimer.scheduleAfterDelay(longDelay.timerNode, .25);
+        wheelTimer.scheduleAfterDelay(canceled.timerNode, .05);
+        wheelTimer.schedulePeriodic(periodic.timerNode, 0, .02);
+        assertTrue(delay.timerNode.isScheduled());
+        try {
+            wheelTimer.scheduleAfterDelay(delay.timerNode, .05);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // OK
+        }
+        canceled.timerNode.cancel();
+        assertFalse(canceled.timerNode.isScheduled());
+
+        sleep(150);
+        assertEquals(1, delay.calls);
+        assertFalse(delay.timerNode.isScheduled());
+        assertTrue(delay.firstCallTime - start >= 50000000L);
+        assertEquals(0, longDelay.calls);
+        assertEquals(0, canceled.calls);
+        assertTrue(periodic.calls > 2);
+        assertTrue(periodic.timerNode.isScheduled());
+
+        // a node can be scheduled again
+        wheelTimer.scheduleAfterDelay(delay.timerNode, 0);
+        sleep(200);
+        assertEquals(2, delay.calls);
+        assertEquals(1, longDelay.calls);
+
+        periodic.timerNode.cancel();
+        int calls = periodic.calls;
+        sleep(50);
+        assertEquals(calls, periodic.calls);
+
+        wheelTimer.scheduleAfterDelay(longDelay.timerNode, 10);
+        wheelTimer.stop();
+        assertEquals(1, longDelay.stops);
+        assertFalse(longDelay.timerNode.isScheduled());
+        wheelTimer.scheduleAfterDelay(delay.timerNode, 0);
+        assertEquals(1, delay.stops);
+    }
+
+    /**
+     * test hashed timing wheel timer with the callbacks called by an executor.
+     */
+    public static void testHashedWheelTimerExecutor() {
+        Executor executor = ExecutorFactory.create("testHashedWheelTimerExecutor", ThreadPriority.high);
+        Timer wheelTimer = TimerFactory.createHashedWheel("testHashedWheelTimer", ThreadPriority.high, .005, 64, executor);
+        final Thread[] callbackThread = new Thread[1];
+        Counter slow = new Counter() {
+            public void callback() {
+                super.callback();
+                callbackThread[0] = Thread.currentThread();
+                TimerTest.sleep(100);
+            }
+        };
+        Counter[] counters = new Counter[100];
+        wheelTimer.scheduleAfterDelay(slow.timerNode, 0);
+        for(int i=0; i<counters.length; i++) {
+            counters[i] = new Counter();
+            wheelTimer.scheduleAfterDelay(counters[i].timerNode, .02);
+        }
+        sleep(50);
+        // the timer thread is not blocked by the slow callback,
+        // the requests have expired and their callbacks wait in the executor
+        for(int i=0; i<counters.length; i++) {
+            assertFalse(counters[i].timerNode.isScheduled());
+            assertEquals(0, counters[i].calls);
+        }
+        sleep(150);
+        for(int i=0; i<counters.length; i++) {
+            assertEquals(1, counters[i].calls);
+        }
+        assertNotNull(callbackThread[0]);
+        assertEquals("testHashedWheelTimerExecutor", callbackThread[0].getName());
+        wheelTimer.stop();
+        executor.stop();
+    }
     
     private static class TestDelay implements Timer.TimerCallback {
         private double delay;